@@ -0,0 +1,576 @@
+package com.j256.ormlite.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * Facade over a {@link Dao} which runs its calls on an executor and returns {@link Future}s so they don't block the
+ * calling thread. The executor is usually shared by the async DAOs of all of the tables and should have about as many
+ * threads as there are connections in the pool since each running call holds a connection.
+ * 
+ * <pre>
+ * ExecutorService executor = AsyncDao.createExecutor(pooledConnectionSource.getMaxConnections(), 1000);
+ * AsyncDao&lt;Account, String&gt; asyncAccountDao = new AsyncDao&lt;Account, String&gt;(accountDao, executor, 4);
+ * Future&lt;List&lt;Account&gt;&gt; future = asyncAccountDao.withTimeout(500).queryForAll();
+ * </pre>
+ * 
+ * <p>
+ * Each async DAO is a bulkhead for its table: if it is constructed with a max number of outstanding calls then more
+ * calls are rejected with a {@link RejectedExecutionException} instead of filling the executor so one slow table can't
+ * hold up the others.
+ * </p>
+ * 
+ * <p>
+ * Cancelling a future, either with {@link Future#cancel(boolean)} or by its timeout expiring, interrupts the call. The
+ * queries and chunks are read through a {@link CloseableIterator} which stops at the next row once the call is
+ * cancelled. The iterator is then closed by the thread running the call so its connection is never released while it
+ * is still in use. A call that is cancelled before it runs has its iterator closed right away. After a timeout the
+ * {@link Future#get()} throws a {@link java.util.concurrent.CancellationException}.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class AsyncDao<T, ID> {
+
+	private static ScheduledExecutorService timeoutScheduler;
+
+	private final Dao<T, ID> dao;
+	private final ExecutorService executor;
+	private final Semaphore bulkhead;
+	private final int maxOutstandingCalls;
+	private final long timeoutMillis;
+
+	/**
+	 * Create an async DAO with no limit on the number of outstanding calls.
+	 */
+	public AsyncDao(Dao<T, ID> dao, ExecutorService executor) {
+		this(dao, executor, 0);
+	}
+
+	/**
+	 * @param dao
+	 *            DAO whose methods are called.
+	 * @param executor
+	 *            Executor which runs the calls. See {@link #createExecutor(int, int)}.
+	 * @param maxOutstandingCalls
+	 *            Maximum number of calls that can be queued or running for this DAO at the same time or 0 for no
+	 *            limit.
+	 */
+	public AsyncDao(Dao<T, ID> dao, ExecutorService executor, int maxOutstandingCalls) {
+		this(dao, executor, (maxOutstandingCalls > 0 ? new Semaphore(maxOutstandingCalls) : null), maxOutstandingCalls,
+				0);
+		if (maxOutstandingCalls < 0) {
+			throw new IllegalArgumentException("Max outstanding calls must not be negative: " + maxOutstandingCalls);
+		}
+	}
+
+	private AsyncDao(Dao<T, ID> dao, ExecutorService executor, Semaphore bulkhead, int maxOutstandingCalls,
+			long timeoutMillis) {
+		this.dao = dao;
+		this.executor = executor;
+		this.bulkhead = bulkhead;
+		this.maxOutstandingCalls = maxOutstandingCalls;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * Create an executor with a fixed number of threads and a bounded queue. Calls submitted when the queue is full are
+	 * rejected with a {@link RejectedExecutionException}.
+	 * 
+	 * @param numThreads
+	 *            Number of threads which should be about the max number of connections in the pool.
+	 * @param queueSize
+	 *            Number of calls that can be waiting for a thread.
+	 */
+	public static ExecutorService createExecutor(int numThreads, int queueSize) {
+		return new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new DaemonThreadFactory("ormlite-async-dao-"));
+	}
+
+	/**
+	 * Return an async DAO which shares this one's executor and bulkhead but whose calls are cancelled if they have not
+	 * finished within the timeout from when they were submitted.
+	 * 
+	 * @param timeoutMillis
+	 *            Number of milliseconds to wait or 0 for no timeout.
+	 */
+	public AsyncDao<T, ID> withTimeout(long timeoutMillis) {
+		return new AsyncDao<T, ID>(dao, executor, bulkhead, maxOutstandingCalls, timeoutMillis);
+	}
+
+	/**
+	 * @see Dao#queryForId(Object)
+	 */
+	public Future<T> queryForId(final ID id) {
+		return submit(new DaoCall<T>() {
+			@Override
+			public T call() throws SQLException {
+				return dao.queryForId(id);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#queryForFirst(PreparedQuery)
+	 */
+	public Future<T> queryForFirst(final PreparedQuery<T> preparedQuery) {
+		return submit(new DaoCall<T>() {
+			@Override
+			public T call() throws SQLException {
+				CloseableIterator<T> iterator = startIterator(preparedQuery);
+				try {
+					return iterator.nextThrow();
+				} finally {
+					iterator.closeQuietly();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#queryForAll()
+	 */
+	public Future<List<T>> queryForAll() {
+		return submit(new DaoCall<List<T>>() {
+			@Override
+			public List<T> call() throws SQLException {
+				return readAll(startIterator(null));
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#queryForEq(String, Object)
+	 */
+	public Future<List<T>> queryForEq(final String fieldName, final Object value) {
+		return submit(new DaoCall<List<T>>() {
+			@Override
+			public List<T> call() throws SQLException {
+				return dao.queryForEq(fieldName, value);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#query(PreparedQuery)
+	 */
+	public Future<List<T>> query(final PreparedQuery<T> preparedQuery) {
+		return submit(new DaoCall<List<T>>() {
+			@Override
+			public List<T> call() throws SQLException {
+				return readAll(startIterator(preparedQuery));
+			}
+		});
+	}
+
+	/**
+	 * Return a future iterator for the query whose results can be read in chunks with
+	 * {@link #nextChunk(CloseableIterator, int)}. The iterator must be closed by the caller.
+	 * 
+	 * @see Dao#iterator(PreparedQuery)
+	 */
+	public Future<CloseableIterator<T>> iterator(final PreparedQuery<T> preparedQuery) {
+		return submit(new DaoCall<CloseableIterator<T>>() {
+			@Override
+			public CloseableIterator<T> call() throws SQLException {
+				// closed if we are cancelled before the caller gets it
+				return startIterator(preparedQuery);
+			}
+		});
+	}
+
+	/**
+	 * Read the next chunk of results from the iterator. The returned list is shorter than the chunk size once the
+	 * results run out. The iterator is closed if the call is cancelled.
+	 * 
+	 * @param chunkSize
+	 *            Maximum number of results to read.
+	 */
+	public Future<List<T>> nextChunk(final CloseableIterator<T> iterator, final int chunkSize) {
+		DaoCall<List<T>> call = new DaoCall<List<T>>() {
+			@Override
+			public List<T> call() throws SQLException {
+				List<T> results = new ArrayList<T>(chunkSize);
+				while (results.size() < chunkSize) {
+					checkCancelled();
+					T result = iterator.nextThrow();
+					if (result == null) {
+						break;
+					}
+					results.add(result);
+				}
+				return results;
+			}
+		};
+		// set before it is queued so it is closed even if it is cancelled before it runs
+		call.setIterator(iterator);
+		return submit(call);
+	}
+
+	/**
+	 * @see Dao#countOf()
+	 */
+	public Future<Long> countOf() {
+		return submit(new DaoCall<Long>() {
+			@Override
+			public Long call() throws SQLException {
+				return dao.countOf();
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#create(Object)
+	 */
+	public Future<Integer> create(final T data) {
+		return submit(new DaoCall<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return dao.create(data);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#createOrUpdate(Object)
+	 */
+	public Future<Dao.CreateOrUpdateStatus> createOrUpdate(final T data) {
+		return submit(new DaoCall<Dao.CreateOrUpdateStatus>() {
+			@Override
+			public Dao.CreateOrUpdateStatus call() throws SQLException {
+				return dao.createOrUpdate(data);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#update(Object)
+	 */
+	public Future<Integer> update(final T data) {
+		return submit(new DaoCall<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return dao.update(data);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#refresh(Object)
+	 */
+	public Future<Integer> refresh(final T data) {
+		return submit(new DaoCall<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return dao.refresh(data);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#delete(Object)
+	 */
+	public Future<Integer> delete(final T data) {
+		return submit(new DaoCall<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return dao.delete(data);
+			}
+		});
+	}
+
+	/**
+	 * @see Dao#deleteById(Object)
+	 */
+	public Future<Integer> deleteById(final ID id) {
+		return submit(new DaoCall<Integer>() {
+			@Override
+			public Integer call() throws SQLException {
+				return dao.deleteById(id);
+			}
+		});
+	}
+
+	/**
+	 * Run the callable on the executor with the same bulkhead and timeout as the other calls. This can be used for
+	 * DAO methods which do not have an async version.
+	 */
+	public <V> Future<V> call(final Callable<V> callable) {
+		return submit(new DaoCall<V>() {
+			@Override
+			public V call() throws Exception {
+				return callable.call();
+			}
+		});
+	}
+
+	public Dao<T, ID> getDao() {
+		return dao;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Return the number of calls that are queued or running for this DAO or -1 if there is no limit.
+	 */
+	public int getOutstandingCount() {
+		if (bulkhead == null) {
+			return -1;
+		} else {
+			return maxOutstandingCalls - bulkhead.availablePermits();
+		}
+	}
+
+	private <V> Future<V> submit(DaoCall<V> call) {
+		if (bulkhead != null && !bulkhead.tryAcquire()) {
+			throw new RejectedExecutionException("Already have " + maxOutstandingCalls + " outstanding calls for "
+					+ dao.getDataClass().getSimpleName());
+		}
+		DaoFutureTask<V> task = new DaoFutureTask<V>(call);
+		try {
+			executor.execute(task);
+		} catch (RuntimeException e) {
+			releaseBulkhead();
+			throw e;
+		}
+		if (timeoutMillis > 0) {
+			task.timeoutFuture = getTimeoutScheduler().schedule(new TimeoutCanceller(task), timeoutMillis,
+					TimeUnit.MILLISECONDS);
+		}
+		return task;
+	}
+
+	private void releaseBulkhead() {
+		if (bulkhead != null) {
+			bulkhead.release();
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getTimeoutScheduler() {
+		if (timeoutScheduler == null) {
+			timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+					"ormlite-async-dao-timeout-"));
+		}
+		return timeoutScheduler;
+	}
+
+	/**
+	 * Call of a DAO method which can register the iterator that it is reading so it is closed on cancel. The iterator
+	 * is only closed by the canceller if the call is not running, otherwise the running thread closes it when it is
+	 * done so the two threads never close it at the same time.
+	 */
+	private abstract class DaoCall<V> implements Callable<V> {
+
+		private CloseableIterator<?> iterator;
+		private boolean running;
+		private volatile boolean cancelled;
+
+		public abstract V call() throws Exception;
+
+		/**
+		 * Get an iterator for the query, or all of the rows if null, which is closed if the call is cancelled.
+		 */
+		protected CloseableIterator<T> startIterator(PreparedQuery<T> preparedQuery) throws SQLException {
+			CloseableIterator<T> iterator;
+			if (preparedQuery == null) {
+				iterator = dao.iterator(DatabaseConnection.DEFAULT_RESULT_FLAGS);
+			} else {
+				iterator = dao.iterator(preparedQuery, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+			}
+			setIterator(iterator);
+			return iterator;
+		}
+
+		protected void setIterator(CloseableIterator<?> iterator) {
+			boolean closeNow;
+			synchronized (this) {
+				closeNow = cancelled;
+				if (!closeNow) {
+					this.iterator = iterator;
+				}
+			}
+			if (closeNow) {
+				iterator.closeQuietly();
+			}
+		}
+
+		/**
+		 * Read the rest of the results from the iterator and close it.
+		 */
+		protected List<T> readAll(CloseableIterator<T> iterator) throws SQLException {
+			try {
+				List<T> results = new ArrayList<T>();
+				while (true) {
+					checkCancelled();
+					T result = iterator.nextThrow();
+					if (result == null) {
+						return results;
+					}
+					results.add(result);
+				}
+			} finally {
+				iterator.closeQuietly();
+			}
+		}
+
+		protected void checkCancelled() throws SQLException {
+			if (cancelled) {
+				throw new SQLException("Call was cancelled");
+			}
+		}
+
+		synchronized void started() {
+			running = true;
+		}
+
+		void finished() {
+			CloseableIterator<?> toClose = null;
+			synchronized (this) {
+				running = false;
+				if (cancelled) {
+					toClose = iterator;
+					iterator = null;
+				}
+			}
+			if (toClose != null) {
+				toClose.closeQuietly();
+			}
+		}
+
+		void cancel() {
+			CloseableIterator<?> toClose = null;
+			synchronized (this) {
+				cancelled = true;
+				if (!running) {
+					// no one is reading it so we close it here, otherwise the running thread does in finished()
+					toClose = iterator;
+					iterator = null;
+				}
+			}
+			if (toClose != null) {
+				toClose.closeQuietly();
+			}
+		}
+	}
+
+	/**
+	 * Future which releases the bulkhead when its thread is finished with it and has the call's iterator closed when
+	 * cancelled.
+	 */
+	private class DaoFutureTask<V> extends FutureTask<V> {
+
+		private final DaoCall<V> call;
+		private final AtomicBoolean released = new AtomicBoolean();
+		volatile ScheduledFuture<?> timeoutFuture;
+
+		public DaoFutureTask(DaoCall<V> call) {
+			super(call);
+			this.call = call;
+		}
+
+		@Override
+		public void run() {
+			call.started();
+			try {
+				super.run();
+			} finally {
+				call.finished();
+				// a cancelled call holds the bulkhead until its thread gets here
+				releaseOnce();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				call.cancel();
+			}
+			return cancelled;
+		}
+
+		@Override
+		protected void set(V value) {
+			// released before the result is available so the caller can make another call right away
+			if (!isCancelled()) {
+				releaseOnce();
+			}
+			super.set(value);
+		}
+
+		@Override
+		protected void setException(Throwable throwable) {
+			if (!isCancelled()) {
+				releaseOnce();
+			}
+			super.setException(throwable);
+		}
+
+		@Override
+		protected void done() {
+			ScheduledFuture<?> future = timeoutFuture;
+			if (future != null) {
+				future.cancel(false);
+			}
+		}
+
+		private void releaseOnce() {
+			if (released.compareAndSet(false, true)) {
+				releaseBulkhead();
+			}
+		}
+	}
+
+	/**
+	 * Cancels the task when its timeout expires.
+	 */
+	private static class TimeoutCanceller implements Runnable {
+		private final Future<?> future;
+
+		public TimeoutCanceller(Future<?> future) {
+			this.future = future;
+		}
+
+		public void run() {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * Thread factory which makes named daemon threads so the executors don't keep the JVM running.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String prefix;
+		private int threadCount;
+
+		public DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		public synchronized Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, prefix + ++threadCount);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -1,9 +1,11 @@
 package com.j256.ormlite.dao;
 
 import java.sql.SQLException;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -13,7 +15,9 @@ import com.j256.ormlite.field.DataType;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.misc.BaseDaoEnabled;
+import com.j256.ormlite.misc.OrmLiteContext;
 import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.misc.TransactionManager;
 import com.j256.ormlite.stmt.DeleteBuilder;
 import com.j256.ormlite.stmt.GenericRowMapper;
 import com.j256.ormlite.stmt.PreparedDelete;
@@ -24,12 +28,14 @@ import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.SelectIterator;
 import com.j256.ormlite.stmt.StatementBuilder.StatementType;
 import com.j256.ormlite.stmt.StatementExecutor;
+import com.j256.ormlite.stmt.StatementShapeCache;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.stmt.Where;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
 import com.j256.ormlite.table.DatabaseTableConfig;
+import com.j256.ormlite.table.DirtyFieldTracker;
 import com.j256.ormlite.table.ObjectFactory;
 import com.j256.ormlite.table.TableInfo;
 
@@ -66,14 +72,17 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 	protected CloseableIterator<T> lastIterator;
 	protected ObjectFactory<T> objectFactory;
 
-	private static final ThreadLocal<DaoConfigArray> daoConfigLevelLocal = new ThreadLocal<DaoConfigArray>() {
-		@Override
-		protected DaoConfigArray initialValue() {
-			return new DaoConfigArray();
-		}
-	};
+	private static final OrmLiteContext.Key<DaoConfigArray> daoConfigLevelKey =
+			new OrmLiteContext.Key<DaoConfigArray>() {
+				@Override
+				protected DaoConfigArray initialValue() {
+					return new DaoConfigArray();
+				}
+			};
 	private static ReferenceObjectCache defaultObjectCache;
 	private ObjectCache objectCache;
+	private CacheInvalidationBus cacheInvalidationBus;
+	private StatementShapeCache statementShapeCache;
 
 	/**
 	 * Construct our base DAO using Spring type wiring. The {@link ConnectionSource} must be set with the
@@ -166,7 +175,7 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		 * go back and call FieldType.configDaoInformation() after we are done. So for every DAO that is initialized
 		 * here, we have to see if it is the top DAO. If not we save it for dao configuration later.
 		 */
-		DaoConfigArray daoConfigLevel = daoConfigLevelLocal.get();
+		DaoConfigArray daoConfigLevel = OrmLiteContext.current().get(daoConfigLevelKey);
 		if (daoConfigLevel.size() > 0) {
 			// if we have recursed then we need to save the dao for later configuration
 			daoConfigLevel.addDao(this);
@@ -186,34 +195,57 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 				BaseDaoImpl<?, ?> dao = daoConfigLevel.get(i);
 
 				/*
-				 * Here's another complex bit. The first DAO that is being constructed as part of a DAO chain is not yet
-				 * in the DaoManager cache. If we continue onward we might come back around and try to configure this
-				 * DAO again. Forcing it into the cache here makes sure it won't be configured twice. This will cause it
-				 * to be stuck in twice when it returns out to the DaoManager but that's a small price to pay. This also
-				 * applies to self-referencing classes.
+				 * Here's another complex bit. The DAOs that are being constructed as part of a DAO chain are not yet in
+				 * the DaoManager cache. If we continue onward we might come back around and try to configure this DAO
+				 * again. The DaoManager finds the DAOs in our config array with findConfiguringDao() so it won't be
+				 * configured twice. This also applies to self-referencing classes. Other threads don't see the DAOs
+				 * until the whole chain has been configured.
 				 */
-				DaoManager.registerDao(connectionSource, dao);
 
-				try {
-					// config our fields which may go recursive
-					for (FieldType fieldType : dao.getTableInfo().getFieldTypes()) {
-						fieldType.configDaoInformation(connectionSource, dao.getDataClass());
-					}
-				} catch (SQLException e) {
-					// unregister the DAO we just pre-registered
-					DaoManager.unregisterDao(connectionSource, dao);
-					throw e;
+				// config our fields which may go recursive
+				for (FieldType fieldType : dao.getTableInfo().getFieldTypes()) {
+					fieldType.configDaoInformation(connectionSource, dao.getDataClass());
 				}
 
 				// it's now been fully initialized
 				dao.initialized = true;
 			}
+
+			/*
+			 * Now that all of the chain has been configured we can share it with other threads. A top DAO that was
+			 * constructed directly, with Spring or new FooDaoImpl(connectionSource), replaces the registered one like
+			 * it always has. The others are only registered if absent since the DaoManager may be creating them in
+			 * another thread and that thread's DAO has to win.
+			 */
+			for (int i = 0; i < daoConfigLevel.size(); i++) {
+				BaseDaoImpl<?, ?> dao = daoConfigLevel.get(i);
+				if (i == 0 && !DaoManager.isCreatingDao()) {
+					DaoManager.registerDao(dao.connectionSource, dao);
+				} else {
+					DaoManager.registerDaoIfAbsent(dao.connectionSource, dao);
+				}
+			}
 		} finally {
 			// if we throw we want to clear our class hierarchy here
 			daoConfigLevel.clear();
 		}
 	}
 
+	/**
+	 * Return the DAO for the class which is being configured as part of the DAO chain of the current context or null if
+	 * none.
+	 */
+	static BaseDaoImpl<?, ?> findConfiguringDao(ConnectionSource connectionSource, Class<?> dataClass) {
+		DaoConfigArray daoConfigLevel = OrmLiteContext.current().get(daoConfigLevelKey);
+		for (int i = 0; i < daoConfigLevel.size(); i++) {
+			BaseDaoImpl<?, ?> dao = daoConfigLevel.get(i);
+			if (dao.dataClass == dataClass && connectionSource.equals(dao.connectionSource)) {
+				return dao;
+			}
+		}
+		return null;
+	}
+
 	public T queryForId(ID id) throws SQLException {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadOnlyConnection();
@@ -224,6 +256,19 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	public Map<ID, T> queryForIds(Collection<ID> ids) throws SQLException {
+		checkForInitialized();
+		if (ids == null || ids.isEmpty()) {
+			return new LinkedHashMap<ID, T>();
+		}
+		DatabaseConnection connection = connectionSource.getReadOnlyConnection();
+		try {
+			return statementExecutor.queryForIds(connection, ids, objectCache);
+		} finally {
+			connectionSource.releaseConnection(connection);
+		}
+	}
+
 	public T queryForFirst(PreparedQuery<T> preparedQuery) throws SQLException {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadOnlyConnection();
@@ -234,6 +279,10 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	public T queryForFirst(PreparedQuery<T> preparedQuery, Object... argValues) throws SQLException {
+		return queryForFirst(preparedQuery.withArguments(argValues));
+	}
+
 	public List<T> queryForAll() throws SQLException {
 		checkForInitialized();
 		return statementExecutor.queryForAll(connectionSource, objectCache);
@@ -245,7 +294,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 
 	public QueryBuilder<T, ID> queryBuilder() {
 		checkForInitialized();
-		return new QueryBuilder<T, ID>(databaseType, tableInfo, this);
+		QueryBuilder<T, ID> queryBuilder = new QueryBuilder<T, ID>(databaseType, tableInfo, this);
+		if (statementShapeCache != null) {
+			queryBuilder.setStatementShapeCache(statementShapeCache);
+		}
+		return queryBuilder;
 	}
 
 	public UpdateBuilder<T, ID> updateBuilder() {
@@ -263,6 +316,10 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		return statementExecutor.query(connectionSource, preparedQuery, objectCache);
 	}
 
+	public List<T> query(PreparedQuery<T> preparedQuery, Object... argValues) throws SQLException {
+		return query(preparedQuery.withArguments(argValues));
+	}
+
 	public List<T> queryForMatching(T matchObj) throws SQLException {
 		return queryForMatching(matchObj, false);
 	}
@@ -305,8 +362,50 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.create(connection, data, objectCache);
+			int numRows = statementExecutor.create(connection, data, objectCache);
+			if (numRows > 0) {
+				publishChange(data);
+			}
+			return numRows;
+		} finally {
+			connectionSource.releaseConnection(connection);
+		}
+	}
+
+	public int create(final Collection<T> datas) throws SQLException {
+		checkForInitialized();
+		// ignore creating a null or empty collection
+		if (datas == null || datas.isEmpty()) {
+			return 0;
+		}
+		for (T data : datas) {
+			if (data instanceof BaseDaoEnabled) {
+				@SuppressWarnings("unchecked")
+				BaseDaoEnabled<T, ID> daoEnabled = (BaseDaoEnabled<T, ID>) data;
+				daoEnabled.setDao(this);
+			}
+		}
+		final DatabaseConnection connection = connectionSource.getReadWriteConnection();
+		try {
+			/*
+			 * Like callBatchTasks, we save the connection because we are disabling auto-commit on it. This also means
+			 * that the foreign DAOs will be handed the same connection when they create any foreign-auto-create
+			 * objects.
+			 */
+			boolean saved = connectionSource.saveSpecialConnection(connection);
+			int numRows = statementExecutor.callBatchTasks(connection, saved, new Callable<Integer>() {
+				public Integer call() throws SQLException {
+					return statementExecutor.createObjects(connection, datas, objectCache);
+				}
+			});
+			if (numRows > 0) {
+				for (T data : datas) {
+					publishChange(data);
+				}
+			}
+			return numRows;
 		} finally {
+			connectionSource.clearSpecialConnection(connection);
 			connectionSource.releaseConnection(connection);
 		}
 	}
@@ -347,7 +446,37 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.update(connection, data, objectCache);
+				int numRows = statementExecutor.update(connection, data, objectCache);
+				if (numRows > 0) {
+					publishChange(data);
+				}
+				return numRows;
+			} finally {
+				connectionSource.releaseConnection(connection);
+			}
+		}
+	}
+
+	/**
+	 * Update only the fields of the object whose index in {@link DirtyFieldTracker#getTrackedFieldTypes()} is set in
+	 * changedFields. This is for callers which have their own snapshots of the object, such as the
+	 * {@link com.j256.ormlite.misc.UnitOfWork}, so they don't need dirty-field tracking to be enabled on the dao.
+	 * 
+	 * @return The number of rows updated in the database. This should be 1.
+	 */
+	public int update(T data, BitSet changedFields) throws SQLException {
+		checkForInitialized();
+		// ignore updating a null object
+		if (data == null) {
+			return 0;
+		} else {
+			DatabaseConnection connection = connectionSource.getReadWriteConnection();
+			try {
+				int numRows = statementExecutor.update(connection, data, changedFields, objectCache);
+				if (numRows > 0) {
+					publishChange(data);
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -362,7 +491,13 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.updateId(connection, data, newId, objectCache);
+				ID oldId = (cacheInvalidationBus == null ? null : extractId(data));
+				int numRows = statementExecutor.updateId(connection, data, newId, objectCache);
+				if (numRows > 0) {
+					publishIdChange(oldId);
+					publishIdChange(newId);
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -373,7 +508,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.update(connection, preparedUpdate);
+			int numRows = statementExecutor.update(connection, preparedUpdate);
+			if (numRows > 0) {
+				publishClassChange();
+			}
+			return numRows;
 		} finally {
 			connectionSource.releaseConnection(connection);
 		}
@@ -399,6 +538,20 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	public int loadLazyFields(T data) throws SQLException {
+		checkForInitialized();
+		// ignore loading a null object
+		if (data == null) {
+			return 0;
+		}
+		DatabaseConnection connection = connectionSource.getReadOnlyConnection();
+		try {
+			return statementExecutor.loadLazyFields(connection, data, objectCache);
+		} finally {
+			connectionSource.releaseConnection(connection);
+		}
+	}
+
 	public int delete(T data) throws SQLException {
 		checkForInitialized();
 		// ignore deleting a null object
@@ -407,7 +560,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.delete(connection, data, objectCache);
+				int numRows = statementExecutor.delete(connection, data, objectCache);
+				if (numRows > 0) {
+					publishChange(data);
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -422,7 +579,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.deleteById(connection, id, objectCache);
+				int numRows = statementExecutor.deleteById(connection, id, objectCache);
+				if (numRows > 0) {
+					publishIdChange(id);
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -437,7 +598,13 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.deleteObjects(connection, datas, objectCache);
+				int numRows = statementExecutor.deleteObjects(connection, datas, objectCache);
+				if (numRows > 0) {
+					for (T data : datas) {
+						publishChange(data);
+					}
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -452,7 +619,13 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		} else {
 			DatabaseConnection connection = connectionSource.getReadWriteConnection();
 			try {
-				return statementExecutor.deleteIds(connection, ids, objectCache);
+				int numRows = statementExecutor.deleteIds(connection, ids, objectCache);
+				if (numRows > 0) {
+					for (ID id : ids) {
+						publishIdChange(id);
+					}
+				}
+				return numRows;
 			} finally {
 				connectionSource.releaseConnection(connection);
 			}
@@ -463,7 +636,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.delete(connection, preparedDelete);
+			int numRows = statementExecutor.delete(connection, preparedDelete);
+			if (numRows > 0) {
+				publishClassChange();
+			}
+			return numRows;
 		} finally {
 			connectionSource.releaseConnection(connection);
 		}
@@ -532,6 +709,11 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		return lastIterator;
 	}
 
+	public CloseableIterator<T> iterator(PreparedQuery<T> preparedQuery, int resultFlags, Object... argValues)
+			throws SQLException {
+		return iterator(preparedQuery.withArguments(argValues), resultFlags);
+	}
+
 	public GenericRawResults<String[]> queryRaw(String query, String... arguments) throws SQLException {
 		checkForInitialized();
 		try {
@@ -577,7 +759,10 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.executeRaw(connection, statement, arguments);
+			int numRows = statementExecutor.executeRaw(connection, statement, arguments);
+			// we don't know what was changed
+			publishClassChange();
+			return numRows;
 		} catch (SQLException e) {
 			throw SqlExceptionUtil.create("Could not run raw execute statement " + statement, e);
 		} finally {
@@ -589,7 +774,10 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.executeRawNoArgs(connection, statement);
+			int numRows = statementExecutor.executeRawNoArgs(connection, statement);
+			// we don't know what was changed
+			publishClassChange();
+			return numRows;
 		} catch (SQLException e) {
 			throw SqlExceptionUtil.create("Could not run raw execute statement " + statement, e);
 		} finally {
@@ -601,7 +789,10 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		checkForInitialized();
 		DatabaseConnection connection = connectionSource.getReadWriteConnection();
 		try {
-			return statementExecutor.updateRaw(connection, statement, arguments);
+			int numRows = statementExecutor.updateRaw(connection, statement, arguments);
+			// we don't know what was changed
+			publishClassChange();
+			return numRows;
 		} catch (SQLException e) {
 			throw SqlExceptionUtil.create("Could not run raw update statement " + statement, e);
 		} finally {
@@ -727,12 +918,15 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 					}
 					objectCache = defaultObjectCache;
 				}
-				objectCache.registerClass(dataClass);
+				registerObjectCacheClass();
+				subscribeObjectCache(null);
 			}
 		} else {
 			if (objectCache != null) {
 				objectCache.clear(dataClass);
+				ObjectCache oldCache = objectCache;
 				objectCache = null;
+				subscribeObjectCache(oldCache);
 			}
 		}
 	}
@@ -742,7 +936,9 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 			if (this.objectCache != null) {
 				// help with GC-ing
 				this.objectCache.clear(dataClass);
+				ObjectCache oldCache = this.objectCache;
 				this.objectCache = null;
+				subscribeObjectCache(oldCache);
 			}
 		} else {
 			if (this.objectCache != null && this.objectCache != objectCache) {
@@ -752,8 +948,24 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 			if (tableInfo.getIdField() == null) {
 				throw new SQLException("Class " + dataClass + " must have an id field to enable the object cache");
 			}
+			ObjectCache oldCache = this.objectCache;
 			this.objectCache = objectCache;
-			this.objectCache.registerClass(dataClass);
+			registerObjectCacheClass();
+			if (oldCache != objectCache) {
+				subscribeObjectCache(oldCache);
+			}
+		}
+	}
+
+	private void registerObjectCacheClass() {
+		if (objectCache instanceof TableObjectCache) {
+			((TableObjectCache) objectCache).registerTableInfo(tableInfo);
+		}
+		ObjectCacheOptions cacheOptions = (tableConfig == null ? null : tableConfig.getObjectCacheOptions());
+		if (cacheOptions != null && objectCache instanceof ConfigurableObjectCache) {
+			((ConfigurableObjectCache) objectCache).registerClass(dataClass, cacheOptions);
+		} else {
+			objectCache.registerClass(dataClass);
 		}
 	}
 
@@ -767,6 +979,76 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		}
 	}
 
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		if (this.cacheInvalidationBus != null && objectCache != null) {
+			this.cacheInvalidationBus.unsubscribe(objectCache);
+		}
+		this.cacheInvalidationBus = cacheInvalidationBus;
+		if (cacheInvalidationBus != null && objectCache != null) {
+			cacheInvalidationBus.subscribe(objectCache);
+		}
+	}
+
+	public CacheInvalidationBus getCacheInvalidationBus() {
+		return cacheInvalidationBus;
+	}
+
+	public long preloadCache(PreparedQuery<T> preparedQuery) throws SQLException {
+		checkForInitialized();
+		if (objectCache == null) {
+			throw new SQLException("Object cache must be enabled for " + dataClass + " before it can be preloaded");
+		}
+		// mapping each of the rows puts it in the cache
+		SelectIterator<T, ID> iterator =
+				statementExecutor.buildIterator(this, connectionSource, preparedQuery, objectCache,
+						DatabaseConnection.DEFAULT_RESULT_FLAGS);
+		try {
+			long rowCount = 0;
+			while (iterator.hasNextThrow()) {
+				iterator.nextThrow();
+				rowCount++;
+			}
+			return rowCount;
+		} finally {
+			iterator.close();
+		}
+	}
+
+	public void setQueryResultCache(QueryResultCache<T> queryResultCache) {
+		checkForInitialized();
+		statementExecutor.setQueryResultCache(queryResultCache);
+	}
+
+	public QueryResultCache<T> getQueryResultCache() {
+		if (statementExecutor == null) {
+			return null;
+		}
+		return statementExecutor.getQueryResultCache();
+	}
+
+	public void setStatementShapeCache(StatementShapeCache statementShapeCache) {
+		this.statementShapeCache = statementShapeCache;
+	}
+
+	public StatementShapeCache getStatementShapeCache() {
+		return statementShapeCache;
+	}
+
+	public void setDirtyFieldTracking(boolean enabled) throws SQLException {
+		checkForInitialized();
+		if (enabled) {
+			if (tableInfo.getDirtyFieldTracker() == null) {
+				if (tableInfo.getIdField() == null) {
+					throw new SQLException("Class " + dataClass
+							+ " must have an id field to enable dirty-field tracking");
+				}
+				tableInfo.setDirtyFieldTracker(new DirtyFieldTracker<T, ID>(tableInfo));
+			}
+		} else {
+			tableInfo.setDirtyFieldTracker(null);
+		}
+	}
+
 	/**
 	 * Special call mostly used in testing to clear the internal object caches so we can reset state.
 	 */
@@ -792,7 +1074,7 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 	public boolean idExists(ID id) throws SQLException {
 		DatabaseConnection connection = connectionSource.getReadOnlyConnection();
 		try {
-			return statementExecutor.ifExists(connection, id);
+			return statementExecutor.ifExists(connection, id, objectCache);
 		} finally {
 			connectionSource.releaseConnection(connection);
 		}
@@ -910,6 +1192,67 @@ public abstract class BaseDaoImpl<T, ID> implements Dao<T, ID> {
 		};
 	}
 
+	/**
+	 * Move the subscription to the cache invalidation bus from the old cache to the current one.
+	 */
+	private void subscribeObjectCache(ObjectCache oldCache) {
+		if (cacheInvalidationBus == null) {
+			return;
+		}
+		if (oldCache != null) {
+			cacheInvalidationBus.unsubscribe(oldCache);
+		}
+		if (objectCache != null) {
+			cacheInvalidationBus.subscribe(objectCache);
+		}
+	}
+
+	private void publishChange(T data) throws SQLException {
+		if (cacheInvalidationBus != null) {
+			if (tableInfo.getIdField() == null) {
+				publishClassChange();
+			} else {
+				publishIdChange(extractId(data));
+			}
+		}
+	}
+
+	private void publishIdChange(final Object id) {
+		final CacheInvalidationBus bus = cacheInvalidationBus;
+		if (bus != null) {
+			final ObjectCache source = objectCache;
+			publishAfterCommit(new Runnable() {
+				public void run() {
+					bus.publish(source, dataClass, id);
+				}
+			});
+		}
+	}
+
+	private void publishClassChange() {
+		final CacheInvalidationBus bus = cacheInvalidationBus;
+		if (bus != null) {
+			final ObjectCache source = objectCache;
+			publishAfterCommit(new Runnable() {
+				public void run() {
+					bus.publishClass(source, dataClass);
+				}
+			});
+		}
+	}
+
+	/**
+	 * If we are in a transaction then the event is held until it commits, so other caches don't load the old row again
+	 * before the change is visible, and is dropped if it rolls back.
+	 */
+	private void publishAfterCommit(Runnable publish) {
+		if (connectionSource.getSpecialConnection() == null) {
+			publish.run();
+		} else {
+			TransactionManager.runAfterCommit(publish);
+		}
+	}
+
 	protected void checkForInitialized() {
 		if (!initialized) {
 			throw new IllegalStateException("you must call initialize() before you can use the dao");
@@ -2,7 +2,9 @@ package com.j256.ormlite.dao;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.field.ForeignCollectionField;
@@ -70,19 +72,23 @@ public abstract class BaseForeignCollection<T, ID> implements ForeignCollection<
 	 * @return Returns true if the item did not already exist in the collection otherwise false.
 	 */
 	public boolean addAll(Collection<? extends T> collection) {
-		if (dao == null) {
-			return false;
-		}
-		boolean changed = false;
-		for (T data : collection) {
-			try {
-				dao.create(data);
-				changed = true;
-			} catch (SQLException e) {
-				throw new IllegalStateException("Could not create data elements in dao", e);
+		List<T> datas = new ArrayList<T>(collection.size());
+		try {
+			for (T data : collection) {
+				if (parent != null && foreignFieldType.getFieldValueIfNotDefault(data) == null) {
+					foreignFieldType.assignField(data, parent, true, null);
+				}
+				datas.add(data);
+			}
+			if (dao == null || datas.isEmpty()) {
+				return false;
 			}
+			// create them all at once instead of a round trip for each one
+			dao.create(datas);
+			return true;
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not create data elements in dao", e);
 		}
-		return changed;
 	}
 
 	/**
@@ -0,0 +1,31 @@
+package com.j256.ormlite.dao;
+
+/**
+ * Statistics counters of a class in an {@link InstrumentedObjectCache}. These are plain fields so they must only be
+ * used while holding the lock of the class cache that owns them. See {@link StripedCounter} for caches that count
+ * without locking.
+ * 
+ * @author graywatson
+ */
+class CacheCounters {
+
+	public static final ObjectCacheStats EMPTY_STATS = new ObjectCacheStats(0, 0, 0, 0, 0);
+
+	long hits;
+	long misses;
+	long puts;
+	long evictions;
+	long expirations;
+
+	public ObjectCacheStats snapshot() {
+		return new ObjectCacheStats(hits, misses, puts, evictions, expirations);
+	}
+
+	public void reset() {
+		hits = 0;
+		misses = 0;
+		puts = 0;
+		evictions = 0;
+		expirations = 0;
+	}
+}
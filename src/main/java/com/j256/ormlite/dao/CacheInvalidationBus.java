@@ -0,0 +1,301 @@
+package com.j256.ormlite.dao;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+
+/**
+ * In-process bus which removes objects from other object caches when a DAO changes them. This is for when there is
+ * more than one DAO for the same class, each with its own cache, such as one DAO on a primary database and another on
+ * a read replica. The DAOs that are given the bus with {@link Dao#setCacheInvalidationBus(CacheInvalidationBus)}
+ * publish the id of each object that they create, update, or delete, and the object is then removed from all of the
+ * other caches subscribed to the bus. Updates and deletes with a builder and raw statements clear the whole class from
+ * the other caches since we don't know which ids they changed. The cache of the DAO that made the change is left alone
+ * because the DAO has already updated it.
+ * 
+ * <p>
+ * If the batch delay is more than 0 then the events are delivered by a daemon thread after the delay so a number of
+ * changes to the same object, or any changes to a class that is being cleared, are delivered once. Until then the
+ * other caches may return the old objects. Call {@link #flush()} to deliver the pending events right away.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class CacheInvalidationBus {
+
+	private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+	/** default number of milliseconds that events are collected before they are delivered */
+	public static final long DEFAULT_BATCH_DELAY_MILLIS = 10;
+
+	private final long batchDelayMillis;
+	private final CopyOnWriteArrayList<ObjectCache> subscribers = new CopyOnWriteArrayList<ObjectCache>();
+	private final Map<ObjectCache, Integer> subscriberCounts = new HashMap<ObjectCache, Integer>();
+	private final Object lock = new Object();
+	private Map<Class<?>, PendingEvents> pendingMap = new LinkedHashMap<Class<?>, PendingEvents>();
+	private final AtomicLong publishCount = new AtomicLong();
+	private final AtomicLong deliveryCount = new AtomicLong();
+	private Thread deliveryThread;
+	private boolean closed;
+
+	public CacheInvalidationBus() {
+		this(DEFAULT_BATCH_DELAY_MILLIS);
+	}
+
+	/**
+	 * @param batchDelayMillis
+	 *            Number of milliseconds that events are collected before they are delivered or 0 to deliver each event
+	 *            right away in the thread that published it.
+	 */
+	public CacheInvalidationBus(long batchDelayMillis) {
+		if (batchDelayMillis < 0) {
+			throw new IllegalArgumentException("Batch delay must not be negative: " + batchDelayMillis);
+		}
+		this.batchDelayMillis = batchDelayMillis;
+	}
+
+	/**
+	 * Have objects removed from the cache when they are changed by DAOs using this bus. This is called by the DAO when
+	 * its object cache is set. Since a cache may be shared by a number of DAOs, it has to be unsubscribed as many times
+	 * as it was subscribed.
+	 */
+	public void subscribe(ObjectCache objectCache) {
+		synchronized (subscriberCounts) {
+			Integer count = subscriberCounts.get(objectCache);
+			if (count == null) {
+				subscriberCounts.put(objectCache, 1);
+				subscribers.add(objectCache);
+			} else {
+				subscriberCounts.put(objectCache, count + 1);
+			}
+		}
+	}
+
+	public void unsubscribe(ObjectCache objectCache) {
+		synchronized (subscriberCounts) {
+			Integer count = subscriberCounts.get(objectCache);
+			if (count == null) {
+				return;
+			}
+			if (count == 1) {
+				subscriberCounts.remove(objectCache);
+				subscribers.remove(objectCache);
+			} else {
+				subscriberCounts.put(objectCache, count - 1);
+			}
+		}
+	}
+
+	/**
+	 * Publish that the object of the class with the id was changed.
+	 * 
+	 * @param source
+	 *            The cache of the DAO that made the change which is not invalidated or null if none.
+	 */
+	public void publish(ObjectCache source, Class<?> clazz, Object id) {
+		if (id == null) {
+			return;
+		}
+		publishCount.incrementAndGet();
+		synchronized (lock) {
+			PendingEvents events = pendingEvents(clazz);
+			if (events != null) {
+				// nothing to do if the whole class is being cleared already
+				if (!events.allIds) {
+					if (events.idSources.containsKey(id) && events.idSources.get(id) != source) {
+						// changed by more than one DAO so all of the caches need to remove it
+						events.idSources.put(id, null);
+					} else {
+						events.idSources.put(id, source);
+					}
+				}
+				return;
+			}
+		}
+		deliverId(clazz, id, source);
+	}
+
+	/**
+	 * Publish that any of the objects of the class may have been changed.
+	 * 
+	 * @param source
+	 *            The cache of the DAO that made the change which is not invalidated or null if none.
+	 */
+	public void publishClass(ObjectCache source, Class<?> clazz) {
+		publishCount.incrementAndGet();
+		synchronized (lock) {
+			PendingEvents events = pendingEvents(clazz);
+			if (events != null) {
+				if (events.allIds) {
+					if (events.allIdsSource != source) {
+						events.allIdsSource = null;
+					}
+				} else {
+					events.allIds = true;
+					events.allIdsSource = source;
+					// if another DAO changed one of the ids then the source cache has to be cleared as well
+					for (ObjectCache idSource : events.idSources.values()) {
+						if (idSource != source) {
+							events.allIdsSource = null;
+							break;
+						}
+					}
+					events.idSources.clear();
+				}
+				return;
+			}
+		}
+		deliverClass(clazz, source);
+	}
+
+	/**
+	 * Deliver all of the pending events to the subscribed caches.
+	 */
+	public void flush() {
+		Map<Class<?>, PendingEvents> deliverMap;
+		synchronized (lock) {
+			if (pendingMap.isEmpty()) {
+				return;
+			}
+			deliverMap = pendingMap;
+			pendingMap = new LinkedHashMap<Class<?>, PendingEvents>();
+		}
+		for (Map.Entry<Class<?>, PendingEvents> entry : deliverMap.entrySet()) {
+			Class<?> clazz = entry.getKey();
+			PendingEvents events = entry.getValue();
+			if (events.allIds) {
+				deliverClass(clazz, events.allIdsSource);
+			} else {
+				for (Map.Entry<Object, ObjectCache> idEntry : events.idSources.entrySet()) {
+					deliverId(clazz, idEntry.getKey(), idEntry.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deliver the pending events and stop the delivery thread. Events that are published after this are delivered
+	 * right away.
+	 */
+	public void close() {
+		Thread thread;
+		synchronized (lock) {
+			closed = true;
+			thread = deliveryThread;
+			deliveryThread = null;
+			lock.notifyAll();
+		}
+		if (thread != null) {
+			thread.interrupt();
+		}
+		flush();
+	}
+
+	/**
+	 * Return the number of events that have been published.
+	 */
+	public long getPublishCount() {
+		return publishCount.get();
+	}
+
+	/**
+	 * Return the number of events that were delivered after duplicates were removed. An event that is delivered to more
+	 * than one cache is counted once.
+	 */
+	public long getDeliveryCount() {
+		return deliveryCount.get();
+	}
+
+	private void deliverId(Class<?> clazz, Object id, ObjectCache source) {
+		deliveryCount.incrementAndGet();
+		for (ObjectCache objectCache : subscribers) {
+			if (objectCache == source) {
+				continue;
+			}
+			try {
+				objectCache.remove(clazz, id);
+			} catch (RuntimeException e) {
+				// one bad cache must not stop the delivery to the others or kill the delivery thread
+				logger.error(e, "could not remove {} id {} from cache {}", clazz.getSimpleName(), id, objectCache);
+			}
+		}
+	}
+
+	private void deliverClass(Class<?> clazz, ObjectCache source) {
+		deliveryCount.incrementAndGet();
+		for (ObjectCache objectCache : subscribers) {
+			if (objectCache == source) {
+				continue;
+			}
+			try {
+				objectCache.clear(clazz);
+			} catch (RuntimeException e) {
+				logger.error(e, "could not clear {} from cache {}", clazz.getSimpleName(), objectCache);
+			}
+		}
+	}
+
+	/**
+	 * Return the pending events of the class or null if they should be delivered right away. Must be called with the
+	 * lock held.
+	 */
+	private PendingEvents pendingEvents(Class<?> clazz) {
+		if (batchDelayMillis == 0 || closed) {
+			return null;
+		}
+		PendingEvents events = pendingMap.get(clazz);
+		if (events == null) {
+			events = new PendingEvents();
+			pendingMap.put(clazz, events);
+		}
+		if (deliveryThread == null) {
+			startDeliveryThread();
+		}
+		lock.notifyAll();
+		return events;
+	}
+
+	/**
+	 * Must be called with the lock held.
+	 */
+	private void startDeliveryThread() {
+		deliveryThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						synchronized (lock) {
+							while (pendingMap.isEmpty() && !closed) {
+								lock.wait();
+							}
+							if (closed) {
+								return;
+							}
+						}
+						// give time for more events to be collected
+						Thread.sleep(batchDelayMillis);
+						flush();
+					}
+				} catch (InterruptedException e) {
+					// we were closed
+				}
+			}
+		}, getClass().getSimpleName() + "-delivery");
+		deliveryThread.setDaemon(true);
+		deliveryThread.start();
+	}
+
+	/**
+	 * The events of a class which have not been delivered yet. Each id is mapped to the cache that should not be
+	 * invalidated or null if they all should be.
+	 */
+	private static class PendingEvents {
+		final Map<Object, ObjectCache> idSources = new HashMap<Object, ObjectCache>();
+		boolean allIds;
+		ObjectCache allIdsSource;
+	}
+}
@@ -0,0 +1,341 @@
+package com.j256.ormlite.dao;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for ORMLite which stores a certain number of items for each Class like {@link LruObjectCache} but which is
+ * designed for many threads. They can be injected into a dao with the {@link Dao#setObjectCache(ObjectCache)}.
+ * 
+ * <p>
+ * The cache for each class is split into a number of segments by the hash of the id. Lookups do not lock at all and
+ * just mark the entry as referenced. Puts and removes only lock the segment of the id. When a segment is full, the
+ * entry to eject is picked with the CLOCK algorithm which approximates least-recently-used: a hand sweeps around the
+ * entries of the segment, clearing the referenced mark, and ejects the first entry that has not been referenced since
+ * the last sweep.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> If you set the capacity to be 100 then each <i>Class</i> will allow 100 items in the cache. If you have
+ * 5 classes then the cache will hold 500 objects. The capacity is divided between the segments so an object may be
+ * ejected from a full segment before the cache as a whole is full.
+ * </p>
+ * 
+ * <p>
+ * The hits, misses, puts, and evictions of each class are counted with {@link StripedCounter}s so the lookups still do
+ * not lock and can be gotten with {@link #getStats(Class)}. Objects never expire from this cache.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class ConcurrentLruObjectCache implements InstrumentedObjectCache {
+
+	/** default number of segments that each class cache is split into */
+	public static final int DEFAULT_SEGMENT_COUNT = 16;
+
+	private final int capacity;
+	private final int segmentCount;
+	private final ConcurrentHashMap<Class<?>, ClassCache> classCaches = new ConcurrentHashMap<Class<?>, ClassCache>();
+	private volatile ObjectCacheListener listener;
+
+	public ConcurrentLruObjectCache(int capacity) {
+		this(capacity, DEFAULT_SEGMENT_COUNT);
+	}
+
+	/**
+	 * @param capacity
+	 *            Number of objects to store for each class.
+	 * @param segmentCount
+	 *            Number of segments that each class cache is split into. This is rounded up to a power of 2 and will
+	 *            not be more than the capacity. More segments means less lock contention on puts.
+	 */
+	public ConcurrentLruObjectCache(int capacity, int segmentCount) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+		}
+		this.capacity = capacity;
+		int count = 1;
+		while (count < segmentCount && count * 2 <= capacity) {
+			count *= 2;
+		}
+		this.segmentCount = count;
+	}
+
+	public synchronized <T> void registerClass(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			classCache = new ClassCache(clazz, capacity, segmentCount);
+			classCaches.put(clazz, classCache);
+		}
+	}
+
+	public <T, ID> T get(Class<T> clazz, ID id) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		Object obj = classCache.segmentFor(id).get(id);
+		@SuppressWarnings("unchecked")
+		T castObj = (T) obj;
+		return castObj;
+	}
+
+	public <T, ID> void put(Class<T> clazz, ID id, T data) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.puts.increment();
+			classCache.segmentFor(id).put(id, data);
+		}
+	}
+
+	public <T> void clear(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.clear();
+		}
+	}
+
+	public void clearAll() {
+		for (ClassCache classCache : classCaches.values()) {
+			classCache.clear();
+		}
+	}
+
+	public <T, ID> void remove(Class<T> clazz, ID id) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.segmentFor(id).remove(id);
+		}
+	}
+
+	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		Object obj = classCache.segmentFor(oldId).remove(oldId);
+		if (obj == null) {
+			return null;
+		}
+		classCache.segmentFor(newId).put(newId, obj);
+		@SuppressWarnings("unchecked")
+		T castObj = (T) obj;
+		return castObj;
+	}
+
+	public <T> int size(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return 0;
+		} else {
+			return classCache.size();
+		}
+	}
+
+	public int sizeAll() {
+		int size = 0;
+		for (ClassCache classCache : classCaches.values()) {
+			size += classCache.size();
+		}
+		return size;
+	}
+
+	public <T> ObjectCacheStats getStats(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return CacheCounters.EMPTY_STATS;
+		} else {
+			return classCache.getStats();
+		}
+	}
+
+	public ObjectCacheStats getStatsAll() {
+		ObjectCacheStats stats = CacheCounters.EMPTY_STATS;
+		for (ClassCache classCache : classCaches.values()) {
+			stats = stats.plus(classCache.getStats());
+		}
+		return stats;
+	}
+
+	public void resetStats() {
+		for (ClassCache classCache : classCaches.values()) {
+			classCache.resetStats();
+		}
+	}
+
+	public void setListener(ObjectCacheListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * The segments that hold the objects of a single class and the counters that they share.
+	 */
+	private class ClassCache {
+
+		private final Class<?> clazz;
+		private final Segment[] segments;
+		private final int segmentMask;
+		private final StripedCounter hits = new StripedCounter();
+		private final StripedCounter misses = new StripedCounter();
+		private final StripedCounter puts = new StripedCounter();
+		private final StripedCounter evictions = new StripedCounter();
+
+		public ClassCache(Class<?> clazz, int capacity, int segmentCount) {
+			this.clazz = clazz;
+			this.segments = new Segment[segmentCount];
+			this.segmentMask = segmentCount - 1;
+			// spread the capacity so the total is exactly the capacity
+			int segmentCapacity = capacity / segmentCount;
+			int extra = capacity % segmentCount;
+			for (int i = 0; i < segmentCount; i++) {
+				segments[i] = new Segment(this, i < extra ? segmentCapacity + 1 : segmentCapacity);
+			}
+		}
+
+		public Segment segmentFor(Object id) {
+			int hash = id.hashCode();
+			// spread the high bits down since ids are often sequential numbers
+			hash ^= (hash >>> 16);
+			return segments[hash & segmentMask];
+		}
+
+		public void clear() {
+			for (Segment segment : segments) {
+				segment.clear();
+			}
+		}
+
+		public int size() {
+			int size = 0;
+			for (Segment segment : segments) {
+				size += segment.size();
+			}
+			return size;
+		}
+
+		public ObjectCacheStats getStats() {
+			return new ObjectCacheStats(hits.get(), misses.get(), puts.get(), evictions.get(), 0);
+		}
+
+		public void resetStats() {
+			hits.reset();
+			misses.reset();
+			puts.reset();
+			evictions.reset();
+		}
+
+		public void evicted(Node node) {
+			evictions.increment();
+			ObjectCacheListener listener = ConcurrentLruObjectCache.this.listener;
+			if (listener != null) {
+				listener.objectEvicted(clazz, node.id, node.value);
+			}
+		}
+	}
+
+	/**
+	 * A portion of the cache with its own lock and CLOCK ring of entries.
+	 */
+	private static class Segment {
+
+		private final ClassCache classCache;
+		private final ConcurrentHashMap<Object, Node> nodeMap;
+		private final Node[] ring;
+		private int hand;
+
+		public Segment(ClassCache classCache, int capacity) {
+			this.classCache = classCache;
+			this.nodeMap = new ConcurrentHashMap<Object, Node>(capacity);
+			this.ring = new Node[capacity];
+		}
+
+		public Object get(Object id) {
+			Node node = nodeMap.get(id);
+			if (node == null) {
+				classCache.misses.increment();
+				return null;
+			}
+			classCache.hits.increment();
+			// this is the only thing a lookup changes so it doesn't need to lock
+			if (!node.referenced) {
+				// only write if needed so hot entries don't bounce their cache line between processors
+				node.referenced = true;
+			}
+			return node.value;
+		}
+
+		public synchronized void put(Object id, Object value) {
+			Node node = nodeMap.get(id);
+			if (node != null) {
+				node.value = value;
+				node.referenced = true;
+				return;
+			}
+			int slot = findSlot();
+			node = new Node(id, value, slot);
+			ring[slot] = node;
+			nodeMap.put(id, node);
+		}
+
+		public synchronized Object remove(Object id) {
+			Node node = nodeMap.remove(id);
+			if (node == null) {
+				return null;
+			}
+			ring[node.slot] = null;
+			return node.value;
+		}
+
+		public synchronized void clear() {
+			nodeMap.clear();
+			Arrays.fill(ring, null);
+			hand = 0;
+		}
+
+		public int size() {
+			return nodeMap.size();
+		}
+
+		/**
+		 * Sweep the hand around the ring until we find an empty slot or a node that has not been referenced, which is
+		 * ejected. This has to be called while holding the lock.
+		 */
+		private int findSlot() {
+			while (true) {
+				int slot = hand;
+				hand++;
+				if (hand == ring.length) {
+					hand = 0;
+				}
+				Node node = ring[slot];
+				if (node == null) {
+					return slot;
+				} else if (node.referenced) {
+					// give it a second chance
+					node.referenced = false;
+				} else {
+					nodeMap.remove(node.id);
+					classCache.evicted(node);
+					return slot;
+				}
+			}
+		}
+	}
+
+	/**
+	 * An entry in the cache.
+	 */
+	private static class Node {
+
+		final Object id;
+		final int slot;
+		volatile Object value;
+		volatile boolean referenced;
+
+		public Node(Object id, Object value, int slot) {
+			this.id = id;
+			this.value = value;
+			this.slot = slot;
+		}
+	}
+}
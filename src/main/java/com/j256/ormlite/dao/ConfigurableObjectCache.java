@@ -0,0 +1,18 @@
+package com.j256.ormlite.dao;
+
+/**
+ * An object cache which can be configured differently for each class that it stores. If the
+ * {@link com.j256.ormlite.table.DatabaseTableConfig} of the class has {@link ObjectCacheOptions} then the dao will
+ * register the class with them when the cache is enabled.
+ * 
+ * @author graywatson
+ */
+public interface ConfigurableObjectCache extends ObjectCache {
+
+	/**
+	 * Register a class for use with this cache with specific options. This is called instead of
+	 * {@link #registerClass(Class)} and before any other method for the particular class is called. If the class has
+	 * already been registered then its options are changed which may eject or expire objects already in the cache.
+	 */
+	public <T> void registerClass(Class<T> clazz, ObjectCacheOptions options);
+}
@@ -10,15 +10,19 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 
 import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.field.ForeignCollectionField;
 import com.j256.ormlite.stmt.DeleteBuilder;
 import com.j256.ormlite.stmt.GenericRowMapper;
 import com.j256.ormlite.stmt.PreparedDelete;
 import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.PreparedStmt;
 import com.j256.ormlite.stmt.PreparedUpdate;
 import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.StatementShapeCache;
+import com.j256.ormlite.stmt.ThreadLocalSelectArg;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
@@ -49,6 +53,19 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public T queryForId(ID id) throws SQLException;
 
+	/**
+	 * Retrieves the objects with the ids in the collection. If an {@link ObjectCache} is enabled for the DAO then it is
+	 * consulted first and only the ids that are not in the cache are queried for. The rest are retrieved with IN
+	 * statements which are split up if there are a large number of ids. The objects returned are added to the cache.
+	 * 
+	 * @param ids
+	 *            Identifiers that match rows in the database to find and return.
+	 * @return A map of id to object in the order of the ids collection. Ids that do not match a row are not in the map.
+	 * @throws SQLException
+	 *             on any SQL problems.
+	 */
+	public Map<ID, T> queryForIds(Collection<ID> ids) throws SQLException;
+
 	/**
 	 * Query for and return the first item in the object table which matches the PreparedQuery. See
 	 * {@link #queryBuilder()} for more information. This can be used to return the object that matches a single unique
@@ -62,6 +79,12 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public T queryForFirst(PreparedQuery<T> preparedQuery) throws SQLException;
 
+	/**
+	 * Same as {@link #queryForFirst(PreparedQuery)} but the argument holders of the query are bound to the values for
+	 * this call only. See {@link #query(PreparedQuery, Object...)}.
+	 */
+	public T queryForFirst(PreparedQuery<T> preparedQuery, Object... argValues) throws SQLException;
+
 	/**
 	 * Query for all of the items in the object table. For medium sized or large tables, this may load a lot of objects
 	 * into memory so you should consider using the {@link #iterator()} method instead.
@@ -149,6 +172,25 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public List<T> query(PreparedQuery<T> preparedQuery) throws SQLException;
 
+	/**
+	 * Same as {@link #query(PreparedQuery)} but the argument holders of the query are bound to the values for this call
+	 * only. The prepared query is not changed so it can be prepared once and shared by all threads instead of using a
+	 * {@link ThreadLocalSelectArg} or preparing it for each call.
+	 * 
+	 * <pre>
+	 * QueryBuilder&lt;Account, String&gt; qb = accountDao.queryBuilder();
+	 * qb.where().eq(&quot;name&quot;, new SelectArg());
+	 * PreparedQuery&lt;Account&gt; query = qb.prepare();
+	 * // in any thread
+	 * List&lt;Account&gt; accounts = accountDao.query(query, name);
+	 * </pre>
+	 * 
+	 * @param argValues
+	 *            Values of all of the argument holders in the query in the order that they are in the SQL. See
+	 *            {@link PreparedStmt#withArguments(Object...)}.
+	 */
+	public List<T> query(PreparedQuery<T> preparedQuery, Object... argValues) throws SQLException;
+
 	/**
 	 * Create a new row in the database from an object.
 	 * 
@@ -158,6 +200,24 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public int create(T data) throws SQLException;
 
+	/**
+	 * Just like {@link #create(Object)} but with a collection of objects. All of the inserts are run on a single
+	 * connection inside of {@link #callBatchTasks(Callable)} so auto-commit is disabled for the duration. If any of the
+	 * objects have {@link DatabaseField#foreignAutoCreate()} fields then the missing foreign objects are all created in
+	 * a single batched pass before any of the objects in the collection.
+	 * 
+	 * <p>
+	 * <b>NOTE:</b> Like {@link #delete(Collection)}, this overloads the single object method so a call with a literal
+	 * null such as <tt>dao.create(null)</tt> no longer compiles. Cast the null to the data class or to the collection
+	 * type to pick the method.
+	 * </p>
+	 * 
+	 * @param datas
+	 *            The collection of data items that we are creating in the database.
+	 * @return The number of rows updated in the database. This should be the size() of the collection.
+	 */
+	public int create(Collection<T> datas) throws SQLException;
+
 	/**
 	 * This is a convenience method to creating a data item but only if the ID does not already exist in the table. This
 	 * extracts the ID from the data parameter, does a {@link #queryForId(Object)} on it, returning the data if it
@@ -245,6 +305,18 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public int refresh(T data) throws SQLException;
 
+	/**
+	 * Does a query for the object's id and loads the values of the fields marked with {@link DatabaseField#lazy()}
+	 * which are not loaded when the object is queried or refreshed. The statement used is built once and then cached.
+	 * 
+	 * @param data
+	 *            The data item whose lazy fields we are loading from the database.
+	 * @return The number of rows found in the database that correspond to the data id. This should be 1.
+	 * @throws SQLException
+	 *             on any SQL problems or if the class does not have any lazy fields.
+	 */
+	public int loadLazyFields(T data) throws SQLException;
+
 	/**
 	 * Delete an object from the database.
 	 * 
@@ -383,6 +455,14 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public CloseableIterator<T> iterator(PreparedQuery<T> preparedQuery, int resultFlags) throws SQLException;
 
+	/**
+	 * Same as {@link #iterator(PreparedQuery, int)} but the argument holders of the query are bound to the values for
+	 * this call only. See {@link #query(PreparedQuery, Object...)}. The result flags are required so an integer value
+	 * is not confused with them.
+	 */
+	public CloseableIterator<T> iterator(PreparedQuery<T> preparedQuery, int resultFlags, Object... argValues)
+			throws SQLException;
+
 	/**
 	 * This makes a one time use iterable class that can be closed afterwards. The DAO itself is
 	 * {@link CloseableWrappedIterable} but multiple threads can each call this to get their own closeable iterable.
@@ -636,7 +716,8 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	/**
 	 * Same as {@link #setObjectCache(boolean)} except you specify the actual cache instance to use for the DAO. This
 	 * allows you to use a {@link ReferenceObjectCache} with {@link SoftReference} setting, the {@link LruObjectCache},
-	 * or inject your own cache implementation. Call it with null to disable the cache.
+	 * or inject your own cache implementation. Wrap the cache in a {@link TombstoneObjectCache} to also remember the
+	 * ids that are not in the database. Call it with null to disable the cache.
 	 * 
 	 * @throws SQLException
 	 *             If the DAO's class does not have an id field which is required by the {@link ObjectCache}.
@@ -654,6 +735,68 @@ public interface Dao<T, ID> extends CloseableIterable<T> {
 	 */
 	public void clearObjectCache();
 
+	/**
+	 * Set the bus that the DAO publishes the ids of the objects it changes to and that its object cache subscribes to
+	 * so changes made by other DAOs remove the objects from it. Call it with null to stop using the bus. See
+	 * {@link CacheInvalidationBus}.
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus);
+
+	/**
+	 * Returns the cache invalidation bus being used by the DAO or null if none.
+	 */
+	public CacheInvalidationBus getCacheInvalidationBus();
+
+	/**
+	 * Run the query and put all of the matching objects into the object cache so later lookups don't have to go to the
+	 * database. The rows are streamed through an iterator so they are not all held in memory unless the cache holds
+	 * them. Objects that are already in the cache are left alone. See {@link ObjectCacheWarmer} to preload the caches
+	 * of a number of DAOs at startup.
+	 * 
+	 * @return The number of rows that were loaded.
+	 * @throws SQLException
+	 *             If the object cache is not enabled or on any SQL problems.
+	 */
+	public long preloadCache(PreparedQuery<T> preparedQuery) throws SQLException;
+
+	/**
+	 * Set the cache of query results for the DAO or null to disable it. When enabled, the results of {@link #query},
+	 * {@link #queryForAll()}, and the other methods that return a list of results are stored in the cache using the SQL
+	 * and the argument values. All of the results from the table are made out of date when the DAO writes to the table.
+	 * See {@link QueryResultCache} for the limitations.
+	 */
+	public void setQueryResultCache(QueryResultCache<T> queryResultCache);
+
+	/**
+	 * Returns the current query-result cache being used by the DAO or null if none.
+	 */
+	public QueryResultCache<T> getQueryResultCache();
+
+	/**
+	 * Set the cache of the SQL of the queries built by the DAO's query-builders or null to disable it. When enabled,
+	 * the query-builders returned by {@link #queryBuilder()} pass the values of their where clauses as arguments and
+	 * the SQL is reused when a query with the same shape is prepared again. See {@link StatementShapeCache}.
+	 */
+	public void setStatementShapeCache(StatementShapeCache statementShapeCache);
+
+	/**
+	 * Returns the current statement-shape cache being used by the DAO or null if none.
+	 */
+	public StatementShapeCache getStatementShapeCache();
+
+	/**
+	 * Call this with true to enable dirty-field tracking for the DAO. A snapshot of each object's fields is taken when
+	 * it is read from, created in, or updated in the database. When {@link #update(Object)} is then called on the
+	 * object, only the columns that have changed since the snapshot are written. If no fields have changed then the
+	 * database is not called at all and 1 is returned, unless the class has a version field in which case only the
+	 * version column is updated so a concurrent change is still detected and returns 0. Objects without a snapshot
+	 * have all of their fields updated. Set to false to disable the tracking.
+	 * 
+	 * @throws SQLException
+	 *             If the DAO's class does not have an id field which is required to update an object.
+	 */
+	public void setDirtyFieldTracking(boolean enabled) throws SQLException;
+
 	/**
 	 * Return the latest row from the database results from a query to select * (star).
 	 */
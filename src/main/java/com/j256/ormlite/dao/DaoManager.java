@@ -5,10 +5,14 @@ import java.sql.SQLException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.logger.Logger;
 import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.misc.OrmLiteContext;
 import com.j256.ormlite.misc.SqlExceptionUtil;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.table.DatabaseTable;
@@ -24,13 +28,29 @@ import com.j256.ormlite.table.DatabaseTableConfig;
  * annotation to the top of your class.
  * </p>
  * 
+ * <p>
+ * The lookups do not lock. Each DAO is created once: if another thread is already creating the DAO for a class then
+ * the create methods wait for it while DAOs for other classes are created in parallel. While a chain of DAOs is being
+ * configured, the DAOs are only visible to the thread doing the configuring. If two threads are creating DAO chains
+ * which refer to each other, the second one builds its own foreign DAO instead of waiting so they can't deadlock.
+ * </p>
+ * 
  * @author graywatson
  */
 public class DaoManager {
 
-	private static Map<Class<?>, DatabaseTableConfig<?>> configMap = null;
-	private static Map<ClassConnectionSource, Dao<?, ?>> classMap = null;
-	private static Map<TableConfigConnectionSource, Dao<?, ?>> tableConfigMap = null;
+	private static volatile Map<Class<?>, DatabaseTableConfig<?>> configMap = null;
+	private static final ConcurrentMap<ClassConnectionSource, Dao<?, ?>> classMap =
+			new ConcurrentHashMap<ClassConnectionSource, Dao<?, ?>>();
+	private static final ConcurrentMap<TableConfigConnectionSource, Dao<?, ?>> tableConfigMap =
+			new ConcurrentHashMap<TableConfigConnectionSource, Dao<?, ?>>();
+	private static final ConcurrentMap<Object, DaoCreation> creationMap = new ConcurrentHashMap<Object, DaoCreation>();
+	private static final OrmLiteContext.Key<int[]> creationLevelKey = new OrmLiteContext.Key<int[]>() {
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
 
 	private static Logger logger = LoggerFactory.getLogger(DaoManager.class);
 
@@ -38,7 +58,7 @@ public class DaoManager {
 	 * Helper method to create a DAO object without having to define a class. This checks to see if the DAO has already
 	 * been created. If not then it is a call through to {@link BaseDaoImpl#createDao(ConnectionSource, Class)}.
 	 */
-	public synchronized static <D extends Dao<T, ?>, T> D createDao(ConnectionSource connectionSource, Class<T> clazz)
+	public static <D extends Dao<T, ?>, T> D createDao(ConnectionSource connectionSource, Class<T> clazz)
 			throws SQLException {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
@@ -51,6 +71,30 @@ public class DaoManager {
 			return castDao;
 		}
 
+		DaoCreation creation = startCreation(key);
+		if (creation == null) {
+			// another thread created it while we waited
+			@SuppressWarnings("unchecked")
+			D castDao = (D) lookupDao(key);
+			return castDao;
+		}
+		try {
+			return doCreateDao(connectionSource, clazz, key);
+		} finally {
+			finishCreation(key, creation);
+		}
+	}
+
+	private static <D extends Dao<T, ?>, T> D doCreateDao(ConnectionSource connectionSource, Class<T> clazz,
+			ClassConnectionSource key) throws SQLException {
+		// look again in case it was created before we started
+		Dao<?, ?> dao = lookupDao(key);
+		if (dao != null) {
+			@SuppressWarnings("unchecked")
+			D castDao = (D) dao;
+			return castDao;
+		}
+
 		// see if we can build it from source
 		dao = createDaoFromConfig(connectionSource, clazz);
 		if (dao != null) {
@@ -96,7 +140,7 @@ public class DaoManager {
 			}
 		}
 
-		registerDao(connectionSource, dao);
+		dao = publishDao(key, dao);
 		@SuppressWarnings("unchecked")
 		D castDao = (D) dao;
 		return castDao;
@@ -105,7 +149,7 @@ public class DaoManager {
 	/**
 	 * Helper method to lookup a DAO if it has already been associated with the class. Otherwise this returns null.
 	 */
-	public synchronized static <D extends Dao<T, ?>, T> D lookupDao(ConnectionSource connectionSource, Class<T> clazz) {
+	public static <D extends Dao<T, ?>, T> D lookupDao(ConnectionSource connectionSource, Class<T> clazz) {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
 		}
@@ -121,19 +165,19 @@ public class DaoManager {
 	 * been created. If not then it is a call through to
 	 * {@link BaseDaoImpl#createDao(ConnectionSource, DatabaseTableConfig)}.
 	 */
-	public synchronized static <D extends Dao<T, ?>, T> D createDao(ConnectionSource connectionSource,
+	public static <D extends Dao<T, ?>, T> D createDao(ConnectionSource connectionSource,
 			DatabaseTableConfig<T> tableConfig) throws SQLException {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
 		}
-		return doCreateDao(connectionSource, tableConfig);
+		return createDaoOnce(connectionSource, tableConfig);
 	}
 
 	/**
 	 * Helper method to lookup a DAO if it has already been associated with the table-config. Otherwise this returns
 	 * null.
 	 */
-	public synchronized static <D extends Dao<T, ?>, T> D lookupDao(ConnectionSource connectionSource,
+	public static <D extends Dao<T, ?>, T> D lookupDao(ConnectionSource connectionSource,
 			DatabaseTableConfig<T> tableConfig) {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
@@ -164,7 +208,7 @@ public class DaoManager {
 	 * if possible.
 	 * </p>
 	 */
-	public static synchronized void registerDao(ConnectionSource connectionSource, Dao<?, ?> dao) {
+	public static void registerDao(ConnectionSource connectionSource, Dao<?, ?> dao) {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
 		}
@@ -175,7 +219,7 @@ public class DaoManager {
 	 * Remove a DAO from the cache. This is necessary if we've registered it already but it throws an exception during
 	 * configuration.
 	 */
-	public static synchronized void unregisterDao(ConnectionSource connectionSource, Dao<?, ?> dao) {
+	public static void unregisterDao(ConnectionSource connectionSource, Dao<?, ?> dao) {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
 		}
@@ -186,7 +230,7 @@ public class DaoManager {
 	 * Same as {@link #registerDao(ConnectionSource, Dao)} but this allows you to register it just with its
 	 * {@link DatabaseTableConfig}. This allows multiple versions of the DAO to be configured if necessary.
 	 */
-	public static synchronized void registerDaoWithTableConfig(ConnectionSource connectionSource, Dao<?, ?> dao) {
+	public static void registerDaoWithTableConfig(ConnectionSource connectionSource, Dao<?, ?> dao) {
 		if (connectionSource == null) {
 			throw new IllegalArgumentException("connectionSource argument cannot be null");
 		}
@@ -203,26 +247,17 @@ public class DaoManager {
 	/**
 	 * Clear out all of internal caches.
 	 */
-	public static synchronized void clearCache() {
-		if (configMap != null) {
-			configMap.clear();
-			configMap = null;
-		}
+	public static void clearCache() {
+		configMap = null;
 		clearDaoCache();
 	}
 
 	/**
 	 * Clear out our DAO caches.
 	 */
-	public static synchronized void clearDaoCache() {
-		if (classMap != null) {
-			classMap.clear();
-			classMap = null;
-		}
-		if (tableConfigMap != null) {
-			tableConfigMap.clear();
-			tableConfigMap = null;
-		}
+	public static void clearDaoCache() {
+		classMap.clear();
+		tableConfigMap.clear();
 	}
 
 	/**
@@ -243,47 +278,111 @@ public class DaoManager {
 		configMap = newMap;
 	}
 
+	/**
+	 * Register the DAO unless another one has been registered for its class already. This is used when a chain of
+	 * DAOs has been configured.
+	 */
+	static void registerDaoIfAbsent(ConnectionSource connectionSource, Dao<?, ?> dao) {
+		classMap.putIfAbsent(new ClassConnectionSource(connectionSource, dao.getDataClass()), dao);
+	}
+
+	/**
+	 * Return true if the current thread is creating a DAO in {@link #createDao(ConnectionSource, Class)} or
+	 * {@link #createDao(ConnectionSource, DatabaseTableConfig)}.
+	 */
+	static boolean isCreatingDao() {
+		return OrmLiteContext.current().get(creationLevelKey)[0] > 0;
+	}
+
 	private static void addDaoToClassMap(ClassConnectionSource key, Dao<?, ?> dao) {
-		if (classMap == null) {
-			classMap = new HashMap<ClassConnectionSource, Dao<?, ?>>();
-		}
 		classMap.put(key, dao);
 	}
 
 	private static void removeDaoToClassMap(ClassConnectionSource key, Dao<?, ?> dao) {
-		if (classMap != null) {
-			classMap.remove(key);
-		}
+		classMap.remove(key);
 	}
 
 	private static void addDaoToTableMap(TableConfigConnectionSource key, Dao<?, ?> dao) {
-		if (tableConfigMap == null) {
-			tableConfigMap = new HashMap<TableConfigConnectionSource, Dao<?, ?>>();
-		}
 		tableConfigMap.put(key, dao);
 	}
 
 	private static <T> Dao<?, ?> lookupDao(ClassConnectionSource key) {
-		if (classMap == null) {
-			classMap = new HashMap<ClassConnectionSource, Dao<?, ?>>();
-		}
-		Dao<?, ?> dao = classMap.get(key);
+		// a DAO that this thread is configuring comes first
+		Dao<?, ?> dao = BaseDaoImpl.findConfiguringDao(key.connectionSource, key.clazz);
 		if (dao == null) {
-			return null;
+			return classMap.get(key);
 		} else {
 			return dao;
 		}
 	}
 
 	private static <T> Dao<?, ?> lookupDao(TableConfigConnectionSource key) {
-		if (tableConfigMap == null) {
-			tableConfigMap = new HashMap<TableConfigConnectionSource, Dao<?, ?>>();
+		return tableConfigMap.get(key);
+	}
+
+	/**
+	 * Add the newly created DAO to the class map unless it is still being configured as part of a DAO chain in which
+	 * case it is added when the chain is done. Returns the DAO that is registered for the class.
+	 */
+	private static Dao<?, ?> publishDao(ClassConnectionSource key, Dao<?, ?> dao) {
+		if (BaseDaoImpl.findConfiguringDao(key.connectionSource, key.clazz) == dao) {
+			return dao;
 		}
-		Dao<?, ?> dao = tableConfigMap.get(key);
-		if (dao == null) {
-			return null;
-		} else {
+		Dao<?, ?> existing = classMap.putIfAbsent(key, dao);
+		if (existing == null) {
 			return dao;
+		} else {
+			return existing;
+		}
+	}
+
+	/**
+	 * Mark that the current thread is creating the DAO for the key. Returns null if another thread was creating it
+	 * and we waited for it to finish.
+	 */
+	private static DaoCreation startCreation(Object key) throws SQLException {
+		int[] creationLevel = OrmLiteContext.current().get(creationLevelKey);
+		DaoCreation creation = new DaoCreation();
+		while (true) {
+			DaoCreation existing = creationMap.putIfAbsent(key, creation);
+			if (existing == null) {
+				break;
+			}
+			if (creationLevel[0] > 0) {
+				/*
+				 * We are creating other DAOs so if we wait, the other thread may be waiting for us. Instead we create
+				 * our own copy of the DAO which is used by our DAO chain.
+				 */
+				creationLevel[0]++;
+				return creation;
+			}
+			try {
+				existing.latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw SqlExceptionUtil.create("Interrupted while waiting for DAO to be created for " + key, e);
+			}
+			if (lookupCreatedDao(key) != null) {
+				return null;
+			}
+			// it failed or is still being configured by the other thread's DAO chain so we try ourselves
+		}
+		creationLevel[0]++;
+		return creation;
+	}
+
+	private static void finishCreation(Object key, DaoCreation creation) {
+		OrmLiteContext.current().get(creationLevelKey)[0]--;
+		if (creationMap.remove(key, creation)) {
+			creation.latch.countDown();
+		}
+	}
+
+	private static Dao<?, ?> lookupCreatedDao(Object key) {
+		if (key instanceof ClassConnectionSource) {
+			return lookupDao((ClassConnectionSource) key);
+		} else {
+			return lookupDao((TableConfigConnectionSource) key);
 		}
 	}
 
@@ -323,13 +422,13 @@ public class DaoManager {
 		}
 
 		// else create a DAO using configuration
-		Dao<T, ?> configedDao = doCreateDao(connectionSource, config);
+		Dao<T, ?> configedDao = createDaoOnce(connectionSource, config);
 		@SuppressWarnings("unchecked")
 		D castDao = (D) configedDao;
 		return castDao;
 	}
 
-	private static <D extends Dao<T, ?>, T> D doCreateDao(ConnectionSource connectionSource,
+	private static <D extends Dao<T, ?>, T> D createDaoOnce(ConnectionSource connectionSource,
 			DatabaseTableConfig<T> tableConfig) throws SQLException {
 		TableConfigConnectionSource tableKey = new TableConfigConnectionSource(connectionSource, tableConfig);
 		// look up in the table map
@@ -340,13 +439,39 @@ public class DaoManager {
 			return castDao;
 		}
 
+		DaoCreation creation = startCreation(tableKey);
+		if (creation == null) {
+			// another thread created it while we waited
+			@SuppressWarnings("unchecked")
+			D castDao = (D) lookupDao(tableKey);
+			return castDao;
+		}
+		try {
+			return doCreateDao(connectionSource, tableConfig, tableKey);
+		} finally {
+			finishCreation(tableKey, creation);
+		}
+	}
+
+	private static <D extends Dao<T, ?>, T> D doCreateDao(ConnectionSource connectionSource,
+			DatabaseTableConfig<T> tableConfig, TableConfigConnectionSource tableKey) throws SQLException {
+		// look again in case it was created before we started
+		Dao<?, ?> dao = lookupDao(tableKey);
+		if (dao != null) {
+			@SuppressWarnings("unchecked")
+			D castDao = (D) dao;
+			return castDao;
+		}
+
 		// now look it up in the class map
 		Class<T> dataClass = tableConfig.getDataClass();
 		ClassConnectionSource classKey = new ClassConnectionSource(connectionSource, dataClass);
 		dao = lookupDao(classKey);
 		if (dao != null) {
-			// if it is not in the table map but is in the class map, add it
-			addDaoToTableMap(tableKey, dao);
+			// if it is not in the table map but is in the class map, add it unless it is still being configured
+			if (BaseDaoImpl.findConfiguringDao(connectionSource, dataClass) != dao) {
+				addDaoToTableMap(tableKey, dao);
+			}
 			@SuppressWarnings("unchecked")
 			D castDao = (D) dao;
 			return castDao;
@@ -374,12 +499,15 @@ public class DaoManager {
 			}
 		}
 
-		addDaoToTableMap(tableKey, dao);
 		logger.debug("created dao for class {} from table config", dataClass);
-
-		// if it is not in the class config either then add it
-		if (lookupDao(classKey) == null) {
-			addDaoToClassMap(classKey, dao);
+		if (BaseDaoImpl.findConfiguringDao(connectionSource, dataClass) != dao) {
+			// it is added to the table map the next time it is looked up if it is still being configured
+			Dao<?, ?> existing = tableConfigMap.putIfAbsent(tableKey, dao);
+			if (existing != null) {
+				dao = existing;
+			}
+			// if it is not in the class config either then add it
+			classMap.putIfAbsent(classKey, dao);
 		}
 
 		@SuppressWarnings("unchecked")
@@ -452,4 +580,11 @@ public class DaoManager {
 			}
 		}
 	}
+
+	/**
+	 * DAO which is being created by a thread which other threads can wait for.
+	 */
+	private static class DaoCreation {
+		final CountDownLatch latch = new CountDownLatch(1);
+	}
 }
@@ -0,0 +1,30 @@
+package com.j256.ormlite.dao;
+
+/**
+ * An object cache which counts its hits, misses, puts, evictions, and expirations for each class and which can tell a
+ * listener when it removes objects.
+ * 
+ * @author graywatson
+ */
+public interface InstrumentedObjectCache extends ObjectCache {
+
+	/**
+	 * Return a snapshot of the statistics for a class. The statistics of a class that is not registered are all 0.
+	 */
+	public <T> ObjectCacheStats getStats(Class<T> clazz);
+
+	/**
+	 * Return a snapshot of the statistics summed across all of the classes.
+	 */
+	public ObjectCacheStats getStatsAll();
+
+	/**
+	 * Set all of the statistics back to 0.
+	 */
+	public void resetStats();
+
+	/**
+	 * Set the listener that is called when objects are evicted or expire or null for none.
+	 */
+	public void setListener(ObjectCacheListener listener);
+}
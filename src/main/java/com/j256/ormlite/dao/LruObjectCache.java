@@ -1,8 +1,7 @@
 package com.j256.ormlite.dao;
 
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -13,124 +12,326 @@ import java.util.concurrent.ConcurrentHashMap;
  * 
  * <p>
  * <b>NOTE:</b> If you set the capacity to be 100 then each <i>Class</i> will allow 100 items in the cache. If you have
- * 5 classes then the cache will hold 500 objects.
+ * 5 classes then the cache will hold 500 objects. A class can be given its own capacity and expiration times with
+ * {@link #registerClass(Class, ObjectCacheOptions)} or by setting the {@link ObjectCacheOptions} on the
+ * {@link com.j256.ormlite.table.DatabaseTableConfig} of the class.
+ * </p>
+ * 
+ * <p>
+ * The hits, misses, puts, evictions, and expirations of each class are counted and can be gotten with
+ * {@link #getStats(Class)} to help with tuning the capacity.
  * </p>
  * 
  * @author graywatson
  */
-public class LruObjectCache implements ObjectCache {
+public class LruObjectCache implements ConfigurableObjectCache, InstrumentedObjectCache {
 
 	private final int capacity;
-	private final ConcurrentHashMap<Class<?>, Map<Object, Object>> classMaps =
-			new ConcurrentHashMap<Class<?>, Map<Object, Object>>();
+	private final ConcurrentHashMap<Class<?>, ClassMap> classMaps = new ConcurrentHashMap<Class<?>, ClassMap>();
+	private volatile ObjectCacheListener listener;
 
 	public LruObjectCache(int capacity) {
 		this.capacity = capacity;
 	}
 
 	public synchronized <T> void registerClass(Class<T> clazz) {
-		Map<Object, Object> objectMap = classMaps.get(clazz);
-		if (objectMap == null) {
-			objectMap = Collections.synchronizedMap(new LimitedLinkedHashMap<Object, Object>(capacity));
-			classMaps.put(clazz, objectMap);
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
+			classMap = new ClassMap(clazz, capacity);
+			classMaps.put(clazz, classMap);
+		}
+	}
+
+	/**
+	 * Register a class with its own capacity and expiration times. Expired objects are removed when they are looked up
+	 * or when they get to the least-recently-used end of the cache so there is no thread scanning the cache.
+	 */
+	public synchronized <T> void registerClass(Class<T> clazz, ObjectCacheOptions options) {
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
+			classMap = new ClassMap(clazz, capacity);
+			classMaps.put(clazz, classMap);
 		}
+		classMap.setOptions(options.getCapacity() > 0 ? options.getCapacity() : capacity, options);
 	}
 
 	public <T, ID> T get(Class<T> clazz, ID id) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap == null) {
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
 			return null;
 		}
-		Object obj = objectMap.get(id);
+		Object obj = classMap.get(id);
 		@SuppressWarnings("unchecked")
 		T castObj = (T) obj;
 		return castObj;
 	}
 
 	public <T, ID> void put(Class<T> clazz, ID id, T data) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap != null) {
-			objectMap.put(id, data);
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap != null) {
+			classMap.put(id, data);
 		}
 	}
 
 	public <T> void clear(Class<T> clazz) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap != null) {
-			objectMap.clear();
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap != null) {
+			classMap.clear();
 		}
 	}
 
 	public void clearAll() {
-		for (Map<Object, Object> objectMap : classMaps.values()) {
-			objectMap.clear();
+		for (ClassMap classMap : classMaps.values()) {
+			classMap.clear();
 		}
 	}
 
 	public <T, ID> void remove(Class<T> clazz, ID id) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap != null) {
-			objectMap.remove(id);
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap != null) {
+			classMap.remove(id);
 		}
 	}
 
 	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap == null) {
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
 			return null;
 		}
-		Object obj = objectMap.remove(oldId);
-		if (obj == null) {
-			return null;
-		}
-		objectMap.put(newId, obj);
+		Object obj = classMap.updateId(oldId, newId);
 		@SuppressWarnings("unchecked")
 		T castObj = (T) obj;
 		return castObj;
 	}
 
 	public <T> int size(Class<T> clazz) {
-		Map<Object, Object> objectMap = getMapForClass(clazz);
-		if (objectMap == null) {
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
 			return 0;
 		} else {
-			return objectMap.size();
+			return classMap.size();
 		}
 	}
 
 	public int sizeAll() {
 		int size = 0;
-		for (Map<Object, Object> objectMap : classMaps.values()) {
-			size += objectMap.size();
+		for (ClassMap classMap : classMaps.values()) {
+			size += classMap.size();
 		}
 		return size;
 	}
 
-	private Map<Object, Object> getMapForClass(Class<?> clazz) {
-		Map<Object, Object> objectMap = classMaps.get(clazz);
-		if (objectMap == null) {
-			return null;
+	public <T> ObjectCacheStats getStats(Class<T> clazz) {
+		ClassMap classMap = classMaps.get(clazz);
+		if (classMap == null) {
+			return CacheCounters.EMPTY_STATS;
 		} else {
-			return objectMap;
+			return classMap.getStats();
 		}
 	}
 
+	public ObjectCacheStats getStatsAll() {
+		ObjectCacheStats stats = CacheCounters.EMPTY_STATS;
+		for (ClassMap classMap : classMaps.values()) {
+			stats = stats.plus(classMap.getStats());
+		}
+		return stats;
+	}
+
+	public void resetStats() {
+		for (ClassMap classMap : classMaps.values()) {
+			classMap.resetStats();
+		}
+	}
+
+	public void setListener(ObjectCacheListener listener) {
+		this.listener = listener;
+	}
+
 	/**
-	 * Little extension of the LimitedLinkedHashMap
+	 * The objects of a single class in least-recently-used order along with the options of the class.
 	 */
-	private static class LimitedLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+	private class ClassMap {
+
+		private final Class<?> clazz;
+		private final LimitedLinkedHashMap entryMap;
+		private final CacheCounters counters = new CacheCounters();
+		private long expireAfterWriteMillis;
+		private long expireAfterAccessMillis;
+
+		public ClassMap(Class<?> clazz, int capacity) {
+			this.clazz = clazz;
+			this.entryMap = new LimitedLinkedHashMap(capacity);
+		}
 
-		private static final long serialVersionUID = -4566528080395573236L;
-		private final int capacity;
+		public synchronized void setOptions(int capacity, ObjectCacheOptions options) {
+			entryMap.capacity = capacity;
+			expireAfterWriteMillis = options.getExpireAfterWriteMillis();
+			expireAfterAccessMillis = options.getExpireAfterAccessMillis();
+			// trim the cache if the capacity went down
+			Iterator<Entry<Object, CacheEntry>> iterator = entryMap.entrySet().iterator();
+			while (entryMap.size() > capacity && iterator.hasNext()) {
+				Entry<Object, CacheEntry> entry = iterator.next();
+				iterator.remove();
+				evicted(entry.getKey(), entry.getValue());
+			}
+		}
+
+		public synchronized Object get(Object id) {
+			CacheEntry entry = entryMap.get(id);
+			if (entry == null) {
+				counters.misses++;
+				return null;
+			}
+			if (isExpiring()) {
+				long now = System.currentTimeMillis();
+				if (isExpired(entry, now)) {
+					entryMap.remove(id);
+					expired(id, entry);
+					counters.misses++;
+					return null;
+				}
+				entry.accessMillis = now;
+			}
+			counters.hits++;
+			return entry.value;
+		}
+
+		public synchronized void put(Object id, Object value) {
+			counters.puts++;
+			if (isExpiring()) {
+				long now = System.currentTimeMillis();
+				entryMap.put(id, new CacheEntry(value, now));
+				expireEldest(now);
+			} else {
+				entryMap.put(id, new CacheEntry(value, 0));
+			}
+		}
+
+		public synchronized Object remove(Object id) {
+			CacheEntry entry = entryMap.remove(id);
+			if (entry == null) {
+				return null;
+			} else {
+				return entry.value;
+			}
+		}
 
-		public LimitedLinkedHashMap(int capacity) {
-			super(capacity, 0.75F, true);
-			this.capacity = capacity;
+		public synchronized Object updateId(Object oldId, Object newId) {
+			CacheEntry entry = entryMap.remove(oldId);
+			if (entry == null) {
+				return null;
+			}
+			if (isExpiring() && isExpired(entry, System.currentTimeMillis())) {
+				expired(oldId, entry);
+				return null;
+			}
+			// the entry keeps its write time
+			entryMap.put(newId, entry);
+			return entry.value;
 		}
 
-		@Override
-		protected boolean removeEldestEntry(Entry<K, V> eldest) {
-			return size() > capacity;
+		public synchronized void clear() {
+			entryMap.clear();
+		}
+
+		public synchronized ObjectCacheStats getStats() {
+			return counters.snapshot();
+		}
+
+		public synchronized void resetStats() {
+			counters.reset();
+		}
+
+		public synchronized int size() {
+			if (isExpiring()) {
+				expireEldest(System.currentTimeMillis());
+			}
+			return entryMap.size();
+		}
+
+		private boolean isExpiring() {
+			return (expireAfterWriteMillis > 0 || expireAfterAccessMillis > 0);
+		}
+
+		private boolean isExpired(CacheEntry entry, long now) {
+			if (expireAfterWriteMillis > 0 && now - entry.writeMillis >= expireAfterWriteMillis) {
+				return true;
+			} else {
+				return (expireAfterAccessMillis > 0 && now - entry.accessMillis >= expireAfterAccessMillis);
+			}
+		}
+
+		/**
+		 * Remove the expired entries from the least-recently-used end of the map. Since each entry is only removed once
+		 * the cost of this is spread across the puts.
+		 */
+		private void expireEldest(long now) {
+			Iterator<Entry<Object, CacheEntry>> iterator = entryMap.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Entry<Object, CacheEntry> entry = iterator.next();
+				if (!isExpired(entry.getValue(), now)) {
+					break;
+				}
+				iterator.remove();
+				expired(entry.getKey(), entry.getValue());
+			}
+		}
+
+		private void evicted(Object id, CacheEntry entry) {
+			counters.evictions++;
+			ObjectCacheListener listener = LruObjectCache.this.listener;
+			if (listener != null) {
+				listener.objectEvicted(clazz, id, entry.value);
+			}
+		}
+
+		private void expired(Object id, CacheEntry entry) {
+			counters.expirations++;
+			ObjectCacheListener listener = LruObjectCache.this.listener;
+			if (listener != null) {
+				listener.objectExpired(clazz, id, entry.value);
+			}
+		}
+
+		/**
+		 * Little extension of the LinkedHashMap to limit the number of entries and count the evictions.
+		 */
+		private class LimitedLinkedHashMap extends LinkedHashMap<Object, CacheEntry> {
+
+			private static final long serialVersionUID = -4566528080395573236L;
+			int capacity;
+
+			public LimitedLinkedHashMap(int capacity) {
+				super(capacity, 0.75F, true);
+				this.capacity = capacity;
+			}
+
+			@Override
+			protected boolean removeEldestEntry(Entry<Object, CacheEntry> eldest) {
+				if (size() > capacity) {
+					evicted(eldest.getKey(), eldest.getValue());
+					return true;
+				} else {
+					return false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Object in the cache with the times it was put and last looked up.
+	 */
+	private static class CacheEntry {
+
+		final Object value;
+		final long writeMillis;
+		long accessMillis;
+
+		public CacheEntry(Object value, long writeMillis) {
+			this.value = value;
+			this.writeMillis = writeMillis;
+			this.accessMillis = writeMillis;
 		}
 	}
 }
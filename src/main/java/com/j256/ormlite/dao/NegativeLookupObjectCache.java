@@ -0,0 +1,40 @@
+package com.j256.ormlite.dao;
+
+/**
+ * An object cache which can also remember the ids that are not in the database. If the cache of a dao implements this
+ * then {@link Dao#queryForId(Object)}, {@link Dao#queryForIds(java.util.Collection)}, and {@link Dao#idExists(Object)}
+ * don't go to the database for the ids that it has a tombstone for, and add tombstones for the ids that they don't
+ * find. See {@link TombstoneObjectCache}.
+ * 
+ * <p>
+ * A tombstone must not be added if the id was created while the database was being queried. So the dao gets the
+ * version of the id with {@link #getTombstoneVersion(Class, Object)} before the query and passes it to
+ * {@link #addTombstone(Class, Object, long)} which does nothing if the version has changed since. The version has to
+ * change each time that {@link #removeTombstone(Class, Object)} is called for the id.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public interface NegativeLookupObjectCache extends ObjectCache {
+
+	/**
+	 * Return true if the id has a tombstone which means that there is no row in the database with it.
+	 */
+	public <T, ID> boolean hasTombstone(Class<T> clazz, ID id);
+
+	/**
+	 * Return the current version of the tombstone of the id. This is gotten before the database is queried for the id.
+	 */
+	public <T, ID> long getTombstoneVersion(Class<T> clazz, ID id);
+
+	/**
+	 * Remember that there is no row in the database with the id unless the tombstone has been removed since the
+	 * version was gotten.
+	 */
+	public <T, ID> void addTombstone(Class<T> clazz, ID id, long version);
+
+	/**
+	 * Forget that there is no row in the database with the id. This is called when an object with the id is created.
+	 */
+	public <T, ID> void removeTombstone(Class<T> clazz, ID id);
+}
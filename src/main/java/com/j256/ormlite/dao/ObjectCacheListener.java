@@ -0,0 +1,25 @@
+package com.j256.ormlite.dao;
+
+/**
+ * Listener which can be set on an {@link InstrumentedObjectCache} to be told when the cache removes objects on its
+ * own.
+ * 
+ * <p>
+ * <b>NOTE:</b> The methods are called while the cache of the class is locked so they should be quick and should not
+ * call the cache.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public interface ObjectCacheListener {
+
+	/**
+	 * Called when an object is removed from the cache to make room for another.
+	 */
+	public void objectEvicted(Class<?> clazz, Object id, Object data);
+
+	/**
+	 * Called when an object is removed from the cache because it expired.
+	 */
+	public void objectExpired(Class<?> clazz, Object id, Object data);
+}
@@ -0,0 +1,74 @@
+package com.j256.ormlite.dao;
+
+/**
+ * Per-class options for an object cache which can be passed to
+ * {@link ConfigurableObjectCache#registerClass(Class, ObjectCacheOptions)} or set on the
+ * {@link com.j256.ormlite.table.DatabaseTableConfig} of the class.
+ * 
+ * @author graywatson
+ */
+public class ObjectCacheOptions {
+
+	private int capacity;
+	private long expireAfterWriteMillis;
+	private long expireAfterAccessMillis;
+
+	public ObjectCacheOptions() {
+		// for spring
+	}
+
+	public ObjectCacheOptions(int capacity, long expireAfterWriteMillis, long expireAfterAccessMillis) {
+		this.capacity = capacity;
+		this.expireAfterWriteMillis = expireAfterWriteMillis;
+		this.expireAfterAccessMillis = expireAfterAccessMillis;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Set the number of objects of the class to store in the cache. If this is 0 (the default) then the capacity of the
+	 * cache is used.
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public long getExpireAfterWriteMillis() {
+		return expireAfterWriteMillis;
+	}
+
+	/**
+	 * Set the number of milliseconds after an object is put in the cache that it expires. If this is 0 (the default)
+	 * then objects don't expire after they are written.
+	 */
+	public void setExpireAfterWriteMillis(long expireAfterWriteMillis) {
+		this.expireAfterWriteMillis = expireAfterWriteMillis;
+	}
+
+	public long getExpireAfterAccessMillis() {
+		return expireAfterAccessMillis;
+	}
+
+	/**
+	 * Set the number of milliseconds after an object was last looked up or put in the cache that it expires. If this is
+	 * 0 (the default) then objects don't expire because they aren't used.
+	 */
+	public void setExpireAfterAccessMillis(long expireAfterAccessMillis) {
+		this.expireAfterAccessMillis = expireAfterAccessMillis;
+	}
+
+	/**
+	 * Return true if objects can expire with these options.
+	 */
+	public boolean isExpiring() {
+		return (expireAfterWriteMillis > 0 || expireAfterAccessMillis > 0);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [capacity=" + capacity + ", expireAfterWriteMillis="
+				+ expireAfterWriteMillis + ", expireAfterAccessMillis=" + expireAfterAccessMillis + "]";
+	}
+}
@@ -0,0 +1,91 @@
+package com.j256.ormlite.dao;
+
+/**
+ * Snapshot of the statistics of an {@link InstrumentedObjectCache} for a class or for all classes.
+ * 
+ * @author graywatson
+ */
+public class ObjectCacheStats {
+
+	private final long hitCount;
+	private final long missCount;
+	private final long putCount;
+	private final long evictionCount;
+	private final long expirationCount;
+
+	public ObjectCacheStats(long hitCount, long missCount, long putCount, long evictionCount, long expirationCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.putCount = putCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+	}
+
+	/**
+	 * Return the number of lookups that found the object in the cache.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not find the object in the cache including ones that had expired.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Return the number of objects that were put in the cache.
+	 */
+	public long getPutCount() {
+		return putCount;
+	}
+
+	/**
+	 * Return the number of objects that were removed from the cache to make room for others.
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * Return the number of objects that were removed from the cache because they expired.
+	 */
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	/**
+	 * Return the number of lookups.
+	 */
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * Return the fraction of the lookups that found the object in the cache or 0 if there have been no lookups.
+	 */
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		if (requestCount == 0) {
+			return 0.0;
+		} else {
+			return (double) hitCount / requestCount;
+		}
+	}
+
+	/**
+	 * Return new statistics which are the sum of these and the other ones.
+	 */
+	public ObjectCacheStats plus(ObjectCacheStats other) {
+		return new ObjectCacheStats(hitCount + other.hitCount, missCount + other.missCount, putCount + other.putCount,
+				evictionCount + other.evictionCount, expirationCount + other.expirationCount);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [hitCount=" + hitCount + ", missCount=" + missCount + ", putCount="
+				+ putCount + ", evictionCount=" + evictionCount + ", expirationCount=" + expirationCount + "]";
+	}
+}
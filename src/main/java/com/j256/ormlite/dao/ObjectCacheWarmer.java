@@ -0,0 +1,178 @@
+package com.j256.ormlite.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.stmt.PreparedQuery;
+
+/**
+ * Preloads the object caches of a number of DAOs, usually at startup, so the first lookups after a restart don't all
+ * go to the database. Each DAO must have its object cache enabled. The DAOs can be preloaded in parallel in which case
+ * each of them uses its own connection from its connection source.
+ * 
+ * <pre>
+ * ObjectCacheWarmer warmer = new ObjectCacheWarmer();
+ * warmer.add(accountDao);
+ * warmer.add(orderDao, orderDao.queryBuilder().where().eq(&quot;open&quot;, true).prepare());
+ * warmer.setThreadCount(2);
+ * List&lt;ObjectCacheWarmer.Result&gt; results = warmer.warmUp();
+ * </pre>
+ * 
+ * @author graywatson
+ */
+public class ObjectCacheWarmer {
+
+	private static Logger logger = LoggerFactory.getLogger(ObjectCacheWarmer.class);
+
+	private final List<WarmUpTask<?>> tasks = new ArrayList<WarmUpTask<?>>();
+	private int threadCount = 1;
+
+	/**
+	 * Preload all of the rows of the DAO's table.
+	 */
+	public <T> void add(Dao<T, ?> dao) {
+		add(dao, null);
+	}
+
+	/**
+	 * Preload the rows of the DAO's table that match the query.
+	 */
+	public <T> void add(Dao<T, ?> dao, PreparedQuery<T> preparedQuery) {
+		tasks.add(new WarmUpTask<T>(dao, preparedQuery));
+	}
+
+	/**
+	 * Set the number of DAOs that are preloaded at the same time. Default is 1.
+	 */
+	public void setThreadCount(int threadCount) {
+		if (threadCount <= 0) {
+			throw new IllegalArgumentException("Thread count must be greater than 0: " + threadCount);
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Preload the caches and return the results in the order that the DAOs were added.
+	 * 
+	 * @throws SQLException
+	 *             If any of the preloads fails. The others are still finished.
+	 */
+	public List<Result> warmUp() throws SQLException {
+		long startNanos = System.nanoTime();
+		List<Result> results = new ArrayList<Result>(tasks.size());
+		if (threadCount == 1 || tasks.size() <= 1) {
+			for (WarmUpTask<?> task : tasks) {
+				results.add(task.call());
+			}
+		} else {
+			runInParallel(results);
+		}
+		long rowCount = 0;
+		for (Result result : results) {
+			rowCount += result.getRowCount();
+		}
+		logger.info("warmed up {} object caches with {} rows in {}ms", results.size(), rowCount,
+				(System.nanoTime() - startNanos) / 1000000);
+		return results;
+	}
+
+	private void runInParallel(List<Result> results) throws SQLException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, tasks.size()));
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>(tasks.size());
+			for (WarmUpTask<?> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			SQLException firstException = null;
+			for (Future<Result> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					if (firstException == null) {
+						Throwable cause = e.getCause();
+						if (cause instanceof SQLException) {
+							firstException = (SQLException) cause;
+						} else {
+							firstException = SqlExceptionUtil.create("Could not warm up object cache", cause);
+						}
+					}
+				}
+			}
+			if (firstException != null) {
+				throw firstException;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw SqlExceptionUtil.create("Object cache warm up was interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * How long the preloading of a DAO took and how many rows were loaded.
+	 */
+	public static class Result {
+
+		private final Class<?> dataClass;
+		private final long rowCount;
+		private final long elapsedMillis;
+
+		public Result(Class<?> dataClass, long rowCount, long elapsedMillis) {
+			this.dataClass = dataClass;
+			this.rowCount = rowCount;
+			this.elapsedMillis = elapsedMillis;
+		}
+
+		public Class<?> getDataClass() {
+			return dataClass;
+		}
+
+		public long getRowCount() {
+			return rowCount;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + " [dataClass=" + dataClass.getSimpleName() + ", rowCount=" + rowCount
+					+ ", elapsedMillis=" + elapsedMillis + "]";
+		}
+	}
+
+	private static class WarmUpTask<T> implements Callable<Result> {
+
+		private final Dao<T, ?> dao;
+		private final PreparedQuery<T> preparedQuery;
+
+		public WarmUpTask(Dao<T, ?> dao, PreparedQuery<T> preparedQuery) {
+			this.dao = dao;
+			this.preparedQuery = preparedQuery;
+		}
+
+		public Result call() throws SQLException {
+			long startNanos = System.nanoTime();
+			PreparedQuery<T> query = preparedQuery;
+			if (query == null) {
+				query = dao.queryBuilder().prepare();
+			}
+			long rowCount = dao.preloadCache(query);
+			long elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+			logger.info("warmed up object cache of {} with {} rows in {}ms", dao.getDataClass(), rowCount,
+					elapsedMillis);
+			return new Result(dao.getDataClass(), rowCount, elapsedMillis);
+		}
+	}
+}
@@ -0,0 +1,754 @@
+package com.j256.ormlite.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTableConfig;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Cache for ORMLite which stores the objects serialized as compact byte records in direct {@link ByteBuffer} slabs
+ * outside of the Java heap. This allows a large number of rows of read-mostly tables to be cached without adding to
+ * the size of the heap or to GC pause times. They can be injected into a dao with the
+ * {@link Dao#setObjectCache(ObjectCache)}.
+ * 
+ * <p>
+ * Each field is converted to its SQL argument with its {@link FieldType} and data persister and written in a small
+ * binary format. The object is rebuilt from the record on each {@link #get(Class, Object)} so, unlike the other caches,
+ * <i>each lookup returns a new object</i>. Numeric ids are indexed with a primitive hash table so the index does not
+ * create an object per entry either.
+ * </p>
+ * 
+ * <p>
+ * The size of the cache is limited in bytes. Records are appended to the current slab and, once all of the slabs are
+ * full, the oldest slab is emptied and reused. This ejects all of the objects in that slab at once which is much
+ * cheaper than tracking the use of each object. Each slab remembers the ids of its records so emptying it does not
+ * have to scan the whole index. Objects with field values that cannot be stored, such as custom
+ * persisters with unusual SQL argument types, are not cached.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> The cache is shared by all of the classes registered with it. Foreign collection fields are rebuilt
+ * from the id of the object and not stored.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class OffHeapObjectCache implements TableObjectCache {
+
+	/** default size of each of the slabs that the memory is allocated in */
+	public static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+	private static final long NO_LOCATION = -1;
+	private static final int RECORD_HEADER_SIZE = 4;
+
+	private static final byte TYPE_NULL = 0;
+	private static final byte TYPE_STRING = 1;
+	private static final byte TYPE_INTEGER = 2;
+	private static final byte TYPE_LONG = 3;
+	private static final byte TYPE_SHORT = 4;
+	private static final byte TYPE_BYTE = 5;
+	private static final byte TYPE_BOOLEAN = 6;
+	private static final byte TYPE_CHARACTER = 7;
+	private static final byte TYPE_FLOAT = 8;
+	private static final byte TYPE_DOUBLE = 9;
+	private static final byte TYPE_BYTE_ARRAY = 10;
+	private static final byte TYPE_TIMESTAMP = 11;
+	private static final byte TYPE_SQL_DATE = 12;
+	private static final byte TYPE_DATE = 13;
+	private static final byte TYPE_BIG_DECIMAL = 14;
+
+	private final ConnectionSource connectionSource;
+	private final int slabSize;
+	private final ByteBuffer[] slabs;
+	private final SlabEntries[] slabEntries;
+	private final ConcurrentHashMap<Class<?>, ClassCache<?>> classCaches =
+			new ConcurrentHashMap<Class<?>, ClassCache<?>>();
+	private int currentSlab;
+	private long evictedSlabCount;
+
+	/**
+	 * @param connectionSource
+	 *            Used to find the table information for the classes that are registered without a dao.
+	 * @param maxBytes
+	 *            Maximum number of bytes of direct memory to use.
+	 */
+	public OffHeapObjectCache(ConnectionSource connectionSource, long maxBytes) {
+		this(connectionSource, maxBytes, DEFAULT_SLAB_SIZE);
+	}
+
+	/**
+	 * @param connectionSource
+	 *            Used to find the table information for the classes that are registered without a dao.
+	 * @param maxBytes
+	 *            Maximum number of bytes of direct memory to use.
+	 * @param slabSize
+	 *            Number of bytes in each slab which is the amount ejected at once. A record larger than this is not
+	 *            cached. If it is more than maxBytes then it is reduced to maxBytes.
+	 */
+	public OffHeapObjectCache(ConnectionSource connectionSource, long maxBytes, int slabSize) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Max bytes must be greater than 0: " + maxBytes);
+		}
+		if (slabSize <= RECORD_HEADER_SIZE) {
+			throw new IllegalArgumentException("Slab size must be greater than " + RECORD_HEADER_SIZE + ": "
+					+ slabSize);
+		}
+		this.connectionSource = connectionSource;
+		this.slabSize = (int) Math.min(slabSize, maxBytes);
+		long slabCount = Math.max(1, maxBytes / this.slabSize);
+		if (slabCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many slabs with max bytes " + maxBytes + " and slab size "
+					+ slabSize);
+		}
+		// the slabs are allocated as they are needed
+		this.slabs = new ByteBuffer[(int) slabCount];
+		this.slabEntries = new SlabEntries[(int) slabCount];
+	}
+
+	public <T, ID> void registerTableInfo(TableInfo<T, ID> tableInfo) {
+		Class<T> clazz = tableInfo.getDataClass();
+		if (tableInfo.getIdField() == null) {
+			throw new IllegalArgumentException("Class " + clazz + " must have an id field to be cached");
+		}
+		synchronized (this) {
+			ClassCache<?> classCache = classCaches.get(clazz);
+			if (classCache == null || classCache.tableInfo != tableInfo) {
+				// the records of the old table information are dropped in case the fields are different
+				classCaches.put(clazz, new ClassCache<T>(tableInfo));
+			}
+		}
+	}
+
+	/**
+	 * Register a class that is used without a dao. The table information is built from the class annotations.
+	 */
+	public <T> void registerClass(Class<T> clazz) {
+		if (classCaches.get(clazz) != null) {
+			return;
+		}
+		TableInfo<T, ?> tableInfo = buildTableInfo(clazz);
+		synchronized (this) {
+			if (classCaches.get(clazz) == null) {
+				classCaches.put(clazz, new ClassCache<T>(tableInfo));
+			}
+		}
+	}
+
+	public <T, ID> T get(Class<T> clazz, ID id) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		byte[] record;
+		synchronized (this) {
+			long location = classCache.getLocation(id);
+			if (location == NO_LOCATION) {
+				return null;
+			}
+			record = readRecord(location);
+		}
+		// the object is decoded outside of the lock because foreign fields may use this cache
+		return classCache.decode(id, record);
+	}
+
+	public <T, ID> void put(Class<T> clazz, ID id, T data) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache == null) {
+			return;
+		}
+		byte[] record = classCache.encode(data);
+		synchronized (this) {
+			if (record == null || record.length + RECORD_HEADER_SIZE > slabSize) {
+				// we can't store this one so make sure we don't return an old version
+				classCache.removeLocation(id);
+			} else {
+				classCache.putLocation(id, writeRecord(classCache, id, record));
+			}
+		}
+	}
+
+	public <T> void clear(Class<T> clazz) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache != null) {
+			synchronized (this) {
+				classCache.clear();
+			}
+		}
+	}
+
+	public synchronized void clearAll() {
+		for (ClassCache<?> classCache : classCaches.values()) {
+			classCache.clear();
+		}
+	}
+
+	public <T, ID> void remove(Class<T> clazz, ID id) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache != null) {
+			synchronized (this) {
+				classCache.removeLocation(id);
+			}
+		}
+	}
+
+	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		byte[] record;
+		synchronized (this) {
+			long location = classCache.removeLocation(oldId);
+			if (location == NO_LOCATION) {
+				return null;
+			}
+			// the id is not stored in the record so the record can just be moved
+			classCache.putLocation(newId, location);
+			slabEntries[slabOf(location)].add(classCache, newId, location);
+			record = readRecord(location);
+		}
+		return classCache.decode(newId, record);
+	}
+
+	public <T> int size(Class<T> clazz) {
+		ClassCache<T> classCache = getClassCache(clazz);
+		if (classCache == null) {
+			return 0;
+		}
+		synchronized (this) {
+			return classCache.size();
+		}
+	}
+
+	public synchronized int sizeAll() {
+		int size = 0;
+		for (ClassCache<?> classCache : classCaches.values()) {
+			size += classCache.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Return the number of bytes of direct memory that have been allocated for slabs.
+	 */
+	public synchronized long getAllocatedBytes() {
+		long bytes = 0;
+		for (ByteBuffer slab : slabs) {
+			if (slab != null) {
+				bytes += slab.capacity();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Return the number of times that a full slab has been emptied to make room for new records.
+	 */
+	public synchronized long getEvictedSlabCount() {
+		return evictedSlabCount;
+	}
+
+	private <T> TableInfo<T, ?> buildTableInfo(Class<T> clazz) {
+		TableInfo<T, ?> tableInfo;
+		try {
+			tableInfo = new TableInfo<T, Object>(connectionSource.getDatabaseType(), null,
+					DatabaseTableConfig.fromClass(connectionSource, clazz));
+		} catch (SQLException e) {
+			throw new IllegalArgumentException("Could not get the table information for " + clazz, e);
+		}
+		if (tableInfo.getIdField() == null) {
+			throw new IllegalArgumentException("Class " + clazz + " must have an id field to be cached");
+		}
+		return tableInfo;
+	}
+
+	private <T> ClassCache<T> getClassCache(Class<T> clazz) {
+		@SuppressWarnings("unchecked")
+		ClassCache<T> classCache = (ClassCache<T>) classCaches.get(clazz);
+		return classCache;
+	}
+
+	/**
+	 * Copy the record at the location out of its slab. This has to be called while holding the lock.
+	 */
+	private byte[] readRecord(long location) {
+		ByteBuffer slab = slabs[slabOf(location)];
+		int offset = offsetOf(location);
+		byte[] record = new byte[slab.getInt(offset)];
+		ByteBuffer view = slab.duplicate();
+		view.position(offset + RECORD_HEADER_SIZE);
+		view.get(record);
+		return record;
+	}
+
+	/**
+	 * Append the record to the current slab, moving to the next slab if it does not fit. This has to be called while
+	 * holding the lock.
+	 */
+	private long writeRecord(ClassCache<?> classCache, Object id, byte[] record) {
+		ByteBuffer slab = slabs[currentSlab];
+		if (slab == null) {
+			slab = allocateSlab(currentSlab);
+		} else if (slab.remaining() < record.length + RECORD_HEADER_SIZE) {
+			currentSlab = (currentSlab + 1) % slabs.length;
+			slab = slabs[currentSlab];
+			if (slab == null) {
+				slab = allocateSlab(currentSlab);
+			} else {
+				// eject all of the records in the oldest slab
+				slabEntries[currentSlab].removeAll();
+				slab.clear();
+				evictedSlabCount++;
+			}
+		}
+		long location = ((long) currentSlab << 32) | slab.position();
+		slab.putInt(record.length);
+		slab.put(record);
+		slabEntries[currentSlab].add(classCache, id, location);
+		return location;
+	}
+
+	private ByteBuffer allocateSlab(int slabC) {
+		ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+		slabs[slabC] = slab;
+		slabEntries[slabC] = new SlabEntries();
+		return slab;
+	}
+
+	private static int slabOf(long location) {
+		return (int) (location >>> 32);
+	}
+
+	private static int offsetOf(long location) {
+		return (int) location;
+	}
+
+	/**
+	 * Table information and record index for a single class. The index methods have to be called while holding the
+	 * lock of the cache.
+	 */
+	private static class ClassCache<T> {
+
+		private final TableInfo<T, ?> tableInfo;
+		private final FieldType idField;
+		private final FieldType[] storedFieldTypes;
+		private final FieldType[] foreignCollectionFieldTypes;
+		private final LongLocationIndex numberIndex = new LongLocationIndex();
+		private final Map<Object, Long> objectIndex = new HashMap<Object, Long>();
+
+		public ClassCache(TableInfo<T, ?> tableInfo) {
+			this.tableInfo = tableInfo;
+			this.idField = tableInfo.getIdField();
+			List<FieldType> stored = new ArrayList<FieldType>();
+			List<FieldType> foreignCollections = new ArrayList<FieldType>();
+			for (FieldType fieldType : tableInfo.getFieldTypes()) {
+				if (fieldType.isForeignCollection()) {
+					foreignCollections.add(fieldType);
+				} else if (fieldType != idField) {
+					stored.add(fieldType);
+				}
+			}
+			this.storedFieldTypes = stored.toArray(new FieldType[stored.size()]);
+			this.foreignCollectionFieldTypes = foreignCollections.toArray(new FieldType[foreignCollections.size()]);
+		}
+
+		public long getLocation(Object id) {
+			if (isNumberId(id)) {
+				return numberIndex.get(((Number) id).longValue());
+			}
+			Long location = objectIndex.get(id);
+			return (location == null ? NO_LOCATION : location);
+		}
+
+		public void putLocation(Object id, long location) {
+			if (isNumberId(id)) {
+				numberIndex.put(((Number) id).longValue(), location);
+			} else {
+				objectIndex.put(id, location);
+			}
+		}
+
+		public long removeLocation(Object id) {
+			if (isNumberId(id)) {
+				return numberIndex.remove(((Number) id).longValue());
+			}
+			Long location = objectIndex.remove(id);
+			return (location == null ? NO_LOCATION : location);
+		}
+
+		/**
+		 * Remove the id if it still has the location. It may have been removed or moved to another record since.
+		 */
+		public void removeLocation(long numberId, long location) {
+			if (numberIndex.get(numberId) == location) {
+				numberIndex.remove(numberId);
+			}
+		}
+
+		/**
+		 * Remove the id if it still has the location. It may have been removed or moved to another record since.
+		 */
+		public void removeLocation(Object id, long location) {
+			Long current = objectIndex.get(id);
+			if (current != null && current == location) {
+				objectIndex.remove(id);
+			}
+		}
+
+		public void clear() {
+			numberIndex.clear();
+			objectIndex.clear();
+		}
+
+		public int size() {
+			return numberIndex.size() + objectIndex.size();
+		}
+
+		/**
+		 * Encode the fields of the object, other than the id, into a record.
+		 * 
+		 * @return The record or null if one of the fields has a value that we can't store.
+		 */
+		public byte[] encode(T data) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+			DataOutputStream out = new DataOutputStream(bytes);
+			try {
+				for (FieldType fieldType : storedFieldTypes) {
+					if (!writeValue(out, fieldType.extractJavaFieldToSqlArgValue(data))) {
+						return null;
+					}
+				}
+				out.flush();
+			} catch (SQLException e) {
+				throw new IllegalStateException("Could not encode " + data + " for the object cache", e);
+			} catch (IOException e) {
+				// should not happen with a byte array
+				throw new IllegalStateException("Could not encode " + data + " for the object cache", e);
+			}
+			return bytes.toByteArray();
+		}
+
+		/**
+		 * Create a new object from the record.
+		 */
+		public T decode(Object id, byte[] record) {
+			ByteBuffer in = ByteBuffer.wrap(record);
+			try {
+				T instance = tableInfo.createObject();
+				idField.assignField(instance, id, false, null);
+				for (FieldType fieldType : storedFieldTypes) {
+					Object value = fieldType.convertSqlArgToJavaField(readValue(in));
+					// primitive fields keep their default
+					if (value != null || !fieldType.getType().isPrimitive()) {
+						fieldType.assignField(instance, value, false, null);
+					}
+				}
+				for (FieldType fieldType : foreignCollectionFieldTypes) {
+					BaseForeignCollection<?, ?> collection = fieldType.buildForeignCollection(instance, id);
+					if (collection != null) {
+						fieldType.assignField(instance, collection, false, null);
+					}
+				}
+				return instance;
+			} catch (SQLException e) {
+				throw new IllegalStateException("Could not decode " + tableInfo.getDataClass() + " with id " + id
+						+ " from the object cache", e);
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not decode " + tableInfo.getDataClass() + " with id " + id
+						+ " from the object cache", e);
+			}
+		}
+
+		private static boolean isNumberId(Object id) {
+			return (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte);
+		}
+
+		private static boolean writeValue(DataOutputStream out, Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(TYPE_NULL);
+			} else if (value instanceof String) {
+				out.writeByte(TYPE_STRING);
+				byte[] bytes = ((String) value).getBytes("UTF-8");
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			} else if (value instanceof Integer) {
+				out.writeByte(TYPE_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Long) {
+				out.writeByte(TYPE_LONG);
+				out.writeLong((Long) value);
+			} else if (value instanceof Short) {
+				out.writeByte(TYPE_SHORT);
+				out.writeShort((Short) value);
+			} else if (value instanceof Byte) {
+				out.writeByte(TYPE_BYTE);
+				out.writeByte((Byte) value);
+			} else if (value instanceof Boolean) {
+				out.writeByte(TYPE_BOOLEAN);
+				out.writeBoolean((Boolean) value);
+			} else if (value instanceof Character) {
+				out.writeByte(TYPE_CHARACTER);
+				out.writeChar((Character) value);
+			} else if (value instanceof Float) {
+				out.writeByte(TYPE_FLOAT);
+				out.writeFloat((Float) value);
+			} else if (value instanceof Double) {
+				out.writeByte(TYPE_DOUBLE);
+				out.writeDouble((Double) value);
+			} else if (value instanceof byte[]) {
+				out.writeByte(TYPE_BYTE_ARRAY);
+				byte[] bytes = (byte[]) value;
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			} else if (value.getClass() == Timestamp.class) {
+				out.writeByte(TYPE_TIMESTAMP);
+				Timestamp timestamp = (Timestamp) value;
+				out.writeLong(timestamp.getTime());
+				out.writeInt(timestamp.getNanos());
+			} else if (value.getClass() == java.sql.Date.class) {
+				out.writeByte(TYPE_SQL_DATE);
+				out.writeLong(((java.sql.Date) value).getTime());
+			} else if (value.getClass() == Date.class) {
+				out.writeByte(TYPE_DATE);
+				out.writeLong(((Date) value).getTime());
+			} else if (value instanceof BigDecimal) {
+				out.writeByte(TYPE_BIG_DECIMAL);
+				byte[] bytes = ((BigDecimal) value).toString().getBytes("UTF-8");
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			} else {
+				return false;
+			}
+			return true;
+		}
+
+		private static Object readValue(ByteBuffer in) throws SQLException, IOException {
+			byte type = in.get();
+			switch (type) {
+				case TYPE_NULL :
+					return null;
+				case TYPE_STRING :
+					return new String(readBytes(in), "UTF-8");
+				case TYPE_INTEGER :
+					return in.getInt();
+				case TYPE_LONG :
+					return in.getLong();
+				case TYPE_SHORT :
+					return in.getShort();
+				case TYPE_BYTE :
+					return in.get();
+				case TYPE_BOOLEAN :
+					return (in.get() != 0);
+				case TYPE_CHARACTER :
+					return in.getChar();
+				case TYPE_FLOAT :
+					return in.getFloat();
+				case TYPE_DOUBLE :
+					return in.getDouble();
+				case TYPE_BYTE_ARRAY :
+					return readBytes(in);
+				case TYPE_TIMESTAMP :
+					Timestamp timestamp = new Timestamp(in.getLong());
+					timestamp.setNanos(in.getInt());
+					return timestamp;
+				case TYPE_SQL_DATE :
+					return new java.sql.Date(in.getLong());
+				case TYPE_DATE :
+					return new Date(in.getLong());
+				case TYPE_BIG_DECIMAL :
+					return new BigDecimal(new String(readBytes(in), "UTF-8"));
+				default :
+					throw new SQLException("Unknown type " + type + " in object cache record");
+			}
+		}
+
+		private static byte[] readBytes(ByteBuffer in) {
+			byte[] bytes = new byte[in.getInt()];
+			in.get(bytes);
+			return bytes;
+		}
+	}
+
+	/**
+	 * The ids of the records that were written to a slab so they can be removed from the index when the slab is
+	 * emptied. Numeric ids are stored as primitives so we don't create objects per entry. The entries are not removed
+	 * when the ids are removed or moved so each one is checked against the index. This has to be used while holding the
+	 * lock of the cache.
+	 */
+	private static class SlabEntries {
+
+		private static final int INITIAL_CAPACITY = 64;
+
+		private ClassCache<?>[] classCaches = new ClassCache<?>[INITIAL_CAPACITY];
+		private long[] numberIds = new long[INITIAL_CAPACITY];
+		private Object[] objectIds = new Object[INITIAL_CAPACITY];
+		private long[] locations = new long[INITIAL_CAPACITY];
+		private int count;
+
+		public void add(ClassCache<?> classCache, Object id, long location) {
+			if (count == locations.length) {
+				grow();
+			}
+			classCaches[count] = classCache;
+			if (ClassCache.isNumberId(id)) {
+				numberIds[count] = ((Number) id).longValue();
+				objectIds[count] = null;
+			} else {
+				objectIds[count] = id;
+			}
+			locations[count] = location;
+			count++;
+		}
+
+		/**
+		 * Remove all of the ids that still have records in the slab from the index.
+		 */
+		public void removeAll() {
+			for (int i = 0; i < count; i++) {
+				if (objectIds[i] == null) {
+					classCaches[i].removeLocation(numberIds[i], locations[i]);
+				} else {
+					classCaches[i].removeLocation(objectIds[i], locations[i]);
+				}
+			}
+			// help with GC-ing
+			Arrays.fill(classCaches, 0, count, null);
+			Arrays.fill(objectIds, 0, count, null);
+			count = 0;
+		}
+
+		private void grow() {
+			int capacity = count * 2;
+			ClassCache<?>[] newClassCaches = new ClassCache<?>[capacity];
+			System.arraycopy(classCaches, 0, newClassCaches, 0, count);
+			classCaches = newClassCaches;
+			long[] newNumberIds = new long[capacity];
+			System.arraycopy(numberIds, 0, newNumberIds, 0, count);
+			numberIds = newNumberIds;
+			Object[] newObjectIds = new Object[capacity];
+			System.arraycopy(objectIds, 0, newObjectIds, 0, count);
+			objectIds = newObjectIds;
+			long[] newLocations = new long[capacity];
+			System.arraycopy(locations, 0, newLocations, 0, count);
+			locations = newLocations;
+		}
+	}
+
+	/**
+	 * Open-addressing hash table from primitive long ids to record locations so we don't create objects per entry.
+	 * Removed entries are marked as deleted and dropped when the table is rehashed.
+	 */
+	private static class LongLocationIndex {
+
+		private static final byte EMPTY = 0;
+		private static final byte FULL = 1;
+		private static final byte DELETED = 2;
+		private static final int INITIAL_CAPACITY = 16;
+
+		private long[] keys = new long[INITIAL_CAPACITY];
+		private long[] locations = new long[INITIAL_CAPACITY];
+		private byte[] states = new byte[INITIAL_CAPACITY];
+		private int size;
+		private int deletedCount;
+
+		public long get(long key) {
+			int slot = findSlot(key);
+			return (slot < 0 ? NO_LOCATION : locations[slot]);
+		}
+
+		public void put(long key, long location) {
+			int slot = findSlot(key);
+			if (slot >= 0) {
+				locations[slot] = location;
+				return;
+			}
+			if ((size + deletedCount + 1) * 4 > keys.length * 3) {
+				// grow if it is mostly full of entries, otherwise just clear out the deleted ones
+				rehash(size * 2 >= keys.length ? keys.length * 2 : keys.length);
+			}
+			int mask = keys.length - 1;
+			slot = hash(key) & mask;
+			while (states[slot] == FULL) {
+				slot = (slot + 1) & mask;
+			}
+			if (states[slot] == DELETED) {
+				deletedCount--;
+			}
+			keys[slot] = key;
+			locations[slot] = location;
+			states[slot] = FULL;
+			size++;
+		}
+
+		public long remove(long key) {
+			int slot = findSlot(key);
+			if (slot < 0) {
+				return NO_LOCATION;
+			}
+			states[slot] = DELETED;
+			size--;
+			deletedCount++;
+			return locations[slot];
+		}
+
+		public void clear() {
+			keys = new long[INITIAL_CAPACITY];
+			locations = new long[INITIAL_CAPACITY];
+			states = new byte[INITIAL_CAPACITY];
+			size = 0;
+			deletedCount = 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		private int findSlot(long key) {
+			int mask = keys.length - 1;
+			for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+				if (states[slot] == EMPTY) {
+					return -1;
+				} else if (states[slot] == FULL && keys[slot] == key) {
+					return slot;
+				}
+			}
+		}
+
+		private void rehash(int capacity) {
+			long[] oldKeys = keys;
+			long[] oldLocations = locations;
+			byte[] oldStates = states;
+			keys = new long[capacity];
+			locations = new long[capacity];
+			states = new byte[capacity];
+			size = 0;
+			deletedCount = 0;
+			for (int i = 0; i < oldStates.length; i++) {
+				if (oldStates[i] == FULL) {
+					put(oldKeys[i], oldLocations[i]);
+				}
+			}
+		}
+
+		private static int hash(long key) {
+			// ids are often sequential so mix the bits
+			long h = key * 0x9e3779b97f4a7c15L;
+			return (int) (h ^ (h >>> 32));
+		}
+	}
+}
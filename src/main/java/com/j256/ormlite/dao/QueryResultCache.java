@@ -0,0 +1,326 @@
+package com.j256.ormlite.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.support.ConnectionSource;
+
+/**
+ * Cache of the results of queries which can be injected into a dao with the
+ * {@link Dao#setQueryResultCache(QueryResultCache)}. The results are stored by the SQL of the prepared query and the
+ * values of its arguments so running the same query again with the same arguments returns the results from memory.
+ * 
+ * <p>
+ * Each table of a connection source has a generation number which is incremented by all of the dao methods that write
+ * to the table: create, update, delete, and the update and delete builders. Raw updates and executes increment the
+ * generation of all of the tables of the connection source since we don't know which tables they change. Results are
+ * stored with the generations of the table and of the other tables that the query reads with joins and IN or EXISTS
+ * sub-queries, and are not returned once any of them have changed. Writes in a transaction increment the generations
+ * again when it commits and queries in a transaction don't store their results. Writes that are made without the dao
+ * are not seen. Neither are other tables that are only named in raw SQL parts of the query. Use the maximum-age to put
+ * a limit on how stale results can be in those cases.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> The cached results share the same objects so the objects should not be changed by the caller. The list
+ * returned is a new list each time.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class QueryResultCache<T> {
+
+	/** weak keys so the connection sources can be collected once they are no longer used */
+	private static final Map<ConnectionSource, SourceGenerations> sourceGenerationsMap =
+			new WeakHashMap<ConnectionSource, SourceGenerations>();
+
+	private final int capacity;
+	private final long maxAgeMillis;
+	private final LimitedLinkedHashMap<Key, CachedResults<T>> resultsMap;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private volatile SourceGenerations sourceGenerations;
+	private volatile AtomicLong tableGeneration;
+
+	/**
+	 * @param capacity
+	 *            Number of different queries whose results are cached. The results of the least-recently-used query are
+	 *            ejected when the cache is full.
+	 */
+	public QueryResultCache(int capacity) {
+		this(capacity, 0);
+	}
+
+	/**
+	 * @param capacity
+	 *            Number of different queries whose results are cached. The results of the least-recently-used query are
+	 *            ejected when the cache is full.
+	 * @param maxAgeMillis
+	 *            Number of milliseconds after which results are no longer used even if the table has not been written
+	 *            or 0 for no limit.
+	 */
+	public QueryResultCache(int capacity, long maxAgeMillis) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+		}
+		this.capacity = capacity;
+		this.maxAgeMillis = maxAgeMillis;
+		this.resultsMap = new LimitedLinkedHashMap<Key, CachedResults<T>>(capacity);
+	}
+
+	/**
+	 * Register the table whose results will be stored in this cache. This is called by the dao when the cache is set.
+	 */
+	public void registerTable(ConnectionSource connectionSource, String tableName) {
+		SourceGenerations generations = generationsForSource(connectionSource);
+		sourceGenerations = generations;
+		tableGeneration = generations.forTable(tableName);
+	}
+
+	/**
+	 * Return the current generation of the table. This needs to be gotten before the query is run and passed to
+	 * {@link #put(Key, long, List)} so a write during the query is not missed.
+	 */
+	public long getGeneration() {
+		return getGeneration((String[]) null);
+	}
+
+	/**
+	 * Return the current generation of the table and of the other tables that the query of the key reads.
+	 */
+	public long getGeneration(Key key) {
+		return getGeneration(key.otherTableNames);
+	}
+
+	private long getGeneration(String[] otherTableNames) {
+		SourceGenerations generations = sourceGenerations;
+		AtomicLong generation = tableGeneration;
+		if (generations == null || generation == null) {
+			throw new IllegalStateException("No table registered with " + getClass().getSimpleName());
+		}
+		// this changes if any of them changes because they only go up
+		long sum = generation.get() + generations.allTables.get();
+		if (otherTableNames != null) {
+			for (String tableName : otherTableNames) {
+				sum += generations.forTable(tableName).get();
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return a new list of the results of the query or null if they are not cached or they are out of date.
+	 */
+	public List<T> get(Key key) {
+		CachedResults<T> cached;
+		synchronized (resultsMap) {
+			cached = resultsMap.get(key);
+		}
+		if (cached == null || cached.generation != getGeneration(key)
+				|| (maxAgeMillis > 0 && System.currentTimeMillis() - cached.createMillis >= maxAgeMillis)) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return new ArrayList<T>(cached.results);
+	}
+
+	/**
+	 * Store the results of a query which was run at a certain generation of the table.
+	 */
+	public void put(Key key, long generation, List<T> results) {
+		if (generation != getGeneration(key)) {
+			// the table has already been written so don't bother
+			return;
+		}
+		CachedResults<T> cached = new CachedResults<T>(generation, new ArrayList<T>(results));
+		synchronized (resultsMap) {
+			resultsMap.put(key, cached);
+		}
+	}
+
+	/**
+	 * Remove all of the results from the cache.
+	 */
+	public void clear() {
+		synchronized (resultsMap) {
+			resultsMap.clear();
+		}
+	}
+
+	/**
+	 * Return the number of queries whose results are in the cache including ones that may be out of date.
+	 */
+	public int size() {
+		synchronized (resultsMap) {
+			return resultsMap.size();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the number of times that results were returned from the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Return the number of times that results were not in the cache or were out of date.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Increment the generation of the table of the connection source which makes all of the cached results from it out
+	 * of date. This is called by the dao methods that write to the table.
+	 */
+	public static void incrementTableGeneration(ConnectionSource connectionSource, String tableName) {
+		SourceGenerations generations = findGenerations(connectionSource);
+		// if there are no generations then there are no caches for the connection source
+		if (generations != null) {
+			AtomicLong generation = generations.tableMap.get(tableName);
+			if (generation != null) {
+				generation.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Increment the generation of all of the tables of the connection source. This is called by raw statements since
+	 * they may change any table.
+	 */
+	public static void incrementAllTablesGeneration(ConnectionSource connectionSource) {
+		SourceGenerations generations = findGenerations(connectionSource);
+		if (generations != null) {
+			generations.allTables.incrementAndGet();
+		}
+	}
+
+	private static SourceGenerations findGenerations(ConnectionSource connectionSource) {
+		synchronized (sourceGenerationsMap) {
+			return sourceGenerationsMap.get(connectionSource);
+		}
+	}
+
+	private static SourceGenerations generationsForSource(ConnectionSource connectionSource) {
+		synchronized (sourceGenerationsMap) {
+			SourceGenerations generations = sourceGenerationsMap.get(connectionSource);
+			if (generations == null) {
+				generations = new SourceGenerations();
+				sourceGenerationsMap.put(connectionSource, generations);
+			}
+			return generations;
+		}
+	}
+
+	/**
+	 * Key of the results in the cache made up of the SQL statement, the limit if it isn't in the SQL, and the values of
+	 * the arguments. It also has the names of the other tables that the statement reads.
+	 */
+	public static class Key {
+
+		private final String statement;
+		private final Long limit;
+		private final Object[] argValues;
+		private final String[] otherTableNames;
+		private final int hashCode;
+
+		public Key(String statement, Long limit, Object[] argValues) {
+			this(statement, limit, argValues, null);
+		}
+
+		public Key(String statement, Long limit, Object[] argValues, String[] otherTableNames) {
+			this.statement = statement;
+			this.limit = limit;
+			this.argValues = argValues;
+			// not part of equals because it is determined by the statement
+			this.otherTableNames = otherTableNames;
+			int hash = statement.hashCode();
+			hash = hash * 31 + (limit == null ? 0 : limit.hashCode());
+			this.hashCode = hash * 31 + Arrays.deepHashCode(argValues);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != getClass()) {
+				return false;
+			}
+			Key other = (Key) obj;
+			if (hashCode != other.hashCode || !statement.equals(other.statement)) {
+				return false;
+			}
+			if (limit == null ? other.limit != null : !limit.equals(other.limit)) {
+				return false;
+			}
+			return Arrays.deepEquals(argValues, other.argValues);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * Generations of the tables of a connection source.
+	 */
+	private static class SourceGenerations {
+		final ConcurrentHashMap<String, AtomicLong> tableMap = new ConcurrentHashMap<String, AtomicLong>();
+		final AtomicLong allTables = new AtomicLong();
+
+		public AtomicLong forTable(String tableName) {
+			AtomicLong generation = tableMap.get(tableName);
+			if (generation == null) {
+				generation = new AtomicLong();
+				AtomicLong existing = tableMap.putIfAbsent(tableName, generation);
+				if (existing != null) {
+					generation = existing;
+				}
+			}
+			return generation;
+		}
+	}
+
+	private static class CachedResults<T> {
+		final long generation;
+		final long createMillis;
+		final List<T> results;
+
+		public CachedResults(long generation, List<T> results) {
+			this.generation = generation;
+			this.createMillis = System.currentTimeMillis();
+			this.results = results;
+		}
+	}
+
+	/**
+	 * Little extension of the LinkedHashMap to limit the number of entries.
+	 */
+	private static class LimitedLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = -1849542012530581245L;
+		private final int capacity;
+
+		public LimitedLinkedHashMap(int capacity) {
+			super(capacity, 0.75F, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+}
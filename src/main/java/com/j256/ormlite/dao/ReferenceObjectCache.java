@@ -1,25 +1,39 @@
 package com.j256.ormlite.dao;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Cache for ORMLite which stores objects with a {@link WeakReference} or {@link SoftReference} to them. Java Garbage
  * Collection can then free these objects if no one has a "strong" reference to the object (weak) or if it runs out of
  * memory (soft).
  * 
+ * <p>
+ * The references are registered with a {@link ReferenceQueue} so the cache knows which entries the GC has cleared.
+ * A small number of them are removed from the cache on each get and put so the size of the cache tracks the objects
+ * that are still alive. If the cache is not used very often, {@link #startCleanupThread()} starts a daemon thread
+ * that removes them as soon as they are cleared.
+ * </p>
+ * 
  * @author graywatson
  */
 public class ReferenceObjectCache implements ObjectCache {
 
-	private final ConcurrentHashMap<Class<?>, Map<Object, Reference<Object>>> classMaps =
-			new ConcurrentHashMap<Class<?>, Map<Object, Reference<Object>>>();
+	/** maximum number of cleared references that are removed from the cache on each get or put */
+	private static final int MAX_CLEARED_PER_OPERATION = 16;
+
+	private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Object, Reference<Object>>> classMaps =
+			new ConcurrentHashMap<Class<?>, ConcurrentHashMap<Object, Reference<Object>>>();
+	private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
 	private final boolean useWeak;
+	private Thread cleanupThread;
 
 	/**
 	 * @param useWeak
@@ -45,7 +59,7 @@ public class ReferenceObjectCache implements ObjectCache {
 	}
 
 	public synchronized <T> void registerClass(Class<T> clazz) {
-		Map<Object, Reference<Object>> objectMap = classMaps.get(clazz);
+		ConcurrentHashMap<Object, Reference<Object>> objectMap = classMaps.get(clazz);
 		if (objectMap == null) {
 			objectMap = new ConcurrentHashMap<Object, Reference<Object>>();
 			classMaps.put(clazz, objectMap);
@@ -53,17 +67,18 @@ public class ReferenceObjectCache implements ObjectCache {
 	}
 
 	public <T, ID> T get(Class<T> clazz, ID id) {
-		Map<Object, Reference<Object>> objectMap = getMapForClass(clazz);
+		ConcurrentHashMap<Object, Reference<Object>> objectMap = getMapForClass(clazz);
 		if (objectMap == null) {
 			return null;
 		}
+		removeClearedReferences(MAX_CLEARED_PER_OPERATION);
 		Reference<Object> ref = objectMap.get(id);
 		if (ref == null) {
 			return null;
 		}
 		Object obj = ref.get();
 		if (obj == null) {
-			objectMap.remove(id);
+			objectMap.remove(id, ref);
 			return null;
 		} else {
 			@SuppressWarnings("unchecked")
@@ -73,13 +88,10 @@ public class ReferenceObjectCache implements ObjectCache {
 	}
 
 	public <T, ID> void put(Class<T> clazz, ID id, T data) {
-		Map<Object, Reference<Object>> objectMap = getMapForClass(clazz);
+		ConcurrentHashMap<Object, Reference<Object>> objectMap = getMapForClass(clazz);
 		if (objectMap != null) {
-			if (useWeak) {
-				objectMap.put(id, new WeakReference<Object>(data));
-			} else {
-				objectMap.put(id, new SoftReference<Object>(data));
-			}
+			removeClearedReferences(MAX_CLEARED_PER_OPERATION);
+			objectMap.put(id, makeReference(objectMap, id, data));
 		}
 	}
 
@@ -104,7 +116,7 @@ public class ReferenceObjectCache implements ObjectCache {
 	}
 
 	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
-		Map<Object, Reference<Object>> objectMap = getMapForClass(clazz);
+		ConcurrentHashMap<Object, Reference<Object>> objectMap = getMapForClass(clazz);
 		if (objectMap == null) {
 			return null;
 		}
@@ -112,9 +124,14 @@ public class ReferenceObjectCache implements ObjectCache {
 		if (ref == null) {
 			return null;
 		}
-		objectMap.put(newId, ref);
+		Object obj = ref.get();
+		if (obj == null) {
+			return null;
+		}
+		// we need a new reference because the old one knows its id
+		objectMap.put(newId, makeReference(objectMap, newId, obj));
 		@SuppressWarnings("unchecked")
-		T castObj = (T) ref.get();
+		T castObj = (T) obj;
 		return castObj;
 	}
 
@@ -154,6 +171,79 @@ public class ReferenceObjectCache implements ObjectCache {
 		}
 	}
 
+	/**
+	 * Remove from the cache the references that the GC has cleared and queued. Unlike
+	 * {@link #cleanNullReferencesAll()}, this does not iterate through the cache.
+	 * 
+	 * @return The number of entries that were removed from the cache.
+	 */
+	public int removeClearedReferences() {
+		return removeClearedReferences(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Start a daemon thread which removes references from the cache as soon as the GC clears them. This is only needed
+	 * if the cache is not used often enough for the cleanup that happens in get and put to keep up.
+	 */
+	public synchronized void startCleanupThread() {
+		if (cleanupThread != null) {
+			return;
+		}
+		cleanupThread = new Thread(new Runnable() {
+			public void run() {
+				while (true) {
+					try {
+						removeQueuedReference(referenceQueue.remove());
+					} catch (InterruptedException e) {
+						// we were stopped
+						return;
+					}
+				}
+			}
+		}, getClass().getSimpleName() + "-cleanup");
+		cleanupThread.setDaemon(true);
+		cleanupThread.start();
+	}
+
+	/**
+	 * Stop the thread started by {@link #startCleanupThread()}.
+	 */
+	public synchronized void stopCleanupThread() {
+		if (cleanupThread != null) {
+			cleanupThread.interrupt();
+			cleanupThread = null;
+		}
+	}
+
+	private int removeClearedReferences(int max) {
+		int count = 0;
+		for (int i = 0; i < max; i++) {
+			Reference<? extends Object> ref = referenceQueue.poll();
+			if (ref == null) {
+				break;
+			}
+			if (removeQueuedReference(ref)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean removeQueuedReference(Reference<? extends Object> ref) {
+		KeyedReference keyedRef = (KeyedReference) ref;
+		// only remove it if the entry hasn't been replaced by a newer object
+		return keyedRef.getObjectMap().remove(keyedRef.getId(), ref);
+	}
+
+	private Reference<Object> makeReference(ConcurrentHashMap<Object, Reference<Object>> objectMap, Object id,
+			Object data) {
+		if (useWeak) {
+			return new KeyedWeakReference(data, referenceQueue, objectMap, id);
+		} else {
+			return new KeyedSoftReference(data, referenceQueue, objectMap, id);
+		}
+	}
+
 	private void cleanMap(Map<Object, Reference<Object>> objectMap) {
 		Iterator<Entry<Object, Reference<Object>>> iterator = objectMap.entrySet().iterator();
 		while (iterator.hasNext()) {
@@ -163,12 +253,63 @@ public class ReferenceObjectCache implements ObjectCache {
 		}
 	}
 
-	private Map<Object, Reference<Object>> getMapForClass(Class<?> clazz) {
-		Map<Object, Reference<Object>> objectMap = classMaps.get(clazz);
+	private ConcurrentHashMap<Object, Reference<Object>> getMapForClass(Class<?> clazz) {
+		ConcurrentHashMap<Object, Reference<Object>> objectMap = classMaps.get(clazz);
 		if (objectMap == null) {
 			return null;
 		} else {
 			return objectMap;
 		}
 	}
+
+	/**
+	 * Reference which knows where it is in the cache so it can be removed when it is queued.
+	 */
+	private interface KeyedReference {
+		public ConcurrentMap<Object, Reference<Object>> getObjectMap();
+
+		public Object getId();
+	}
+
+	private static class KeyedWeakReference extends WeakReference<Object> implements KeyedReference {
+
+		private final ConcurrentMap<Object, Reference<Object>> objectMap;
+		private final Object id;
+
+		public KeyedWeakReference(Object referent, ReferenceQueue<Object> queue,
+				ConcurrentMap<Object, Reference<Object>> objectMap, Object id) {
+			super(referent, queue);
+			this.objectMap = objectMap;
+			this.id = id;
+		}
+
+		public ConcurrentMap<Object, Reference<Object>> getObjectMap() {
+			return objectMap;
+		}
+
+		public Object getId() {
+			return id;
+		}
+	}
+
+	private static class KeyedSoftReference extends SoftReference<Object> implements KeyedReference {
+
+		private final ConcurrentMap<Object, Reference<Object>> objectMap;
+		private final Object id;
+
+		public KeyedSoftReference(Object referent, ReferenceQueue<Object> queue,
+				ConcurrentMap<Object, Reference<Object>> objectMap, Object id) {
+			super(referent, queue);
+			this.objectMap = objectMap;
+			this.id = id;
+		}
+
+		public ConcurrentMap<Object, Reference<Object>> getObjectMap() {
+			return objectMap;
+		}
+
+		public Object getId() {
+			return id;
+		}
+	}
 }
@@ -18,6 +18,7 @@ import com.j256.ormlite.stmt.PreparedDelete;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.PreparedUpdate;
 import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.StatementShapeCache;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
@@ -88,6 +89,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#queryForIds(Collection)
+	 */
+	public Map<ID, T> queryForIds(Collection<ID> ids) {
+		try {
+			return dao.queryForIds(ids);
+		} catch (SQLException e) {
+			logMessage(e, "queryForIds threw exception on: " + ids);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#queryForFirst(PreparedQuery)
 	 */
@@ -100,6 +113,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#queryForFirst(PreparedQuery, Object...)
+	 */
+	public T queryForFirst(PreparedQuery<T> preparedQuery, Object... argValues) {
+		try {
+			return dao.queryForFirst(preparedQuery, argValues);
+		} catch (SQLException e) {
+			logMessage(e, "queryForFirst threw exception on: " + preparedQuery);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#queryForAll()
 	 */
@@ -217,6 +242,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#query(PreparedQuery, Object...)
+	 */
+	public List<T> query(PreparedQuery<T> preparedQuery, Object... argValues) {
+		try {
+			return dao.query(preparedQuery, argValues);
+		} catch (SQLException e) {
+			logMessage(e, "query threw exception on: " + preparedQuery);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#create(Object)
 	 */
@@ -229,6 +266,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#create(Collection)
+	 */
+	public int create(Collection<T> datas) {
+		try {
+			return dao.create(datas);
+		} catch (SQLException e) {
+			logMessage(e, "create threw exception on: " + datas);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#createIfNotExists(Object)
 	 */
@@ -301,6 +350,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#loadLazyFields(Object)
+	 */
+	public int loadLazyFields(T data) {
+		try {
+			return dao.loadLazyFields(data);
+		} catch (SQLException e) {
+			logMessage(e, "loadLazyFields threw exception on: " + data);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#delete(Object)
 	 */
@@ -429,6 +490,18 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		}
 	}
 
+	/**
+	 * @see Dao#iterator(PreparedQuery, int, Object...)
+	 */
+	public CloseableIterator<T> iterator(PreparedQuery<T> preparedQuery, int resultFlags, Object... argValues) {
+		try {
+			return dao.iterator(preparedQuery, resultFlags, argValues);
+		} catch (SQLException e) {
+			logMessage(e, "iterator threw exception on: " + preparedQuery);
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#queryRaw(String, String...)
 	 */
@@ -675,6 +748,72 @@ public class RuntimeExceptionDao<T, ID> implements CloseableIterable<T> {
 		dao.clearObjectCache();
 	}
 
+	/**
+	 * @see Dao#setCacheInvalidationBus(CacheInvalidationBus)
+	 */
+	public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+		dao.setCacheInvalidationBus(cacheInvalidationBus);
+	}
+
+	/**
+	 * @see Dao#getCacheInvalidationBus()
+	 */
+	public CacheInvalidationBus getCacheInvalidationBus() {
+		return dao.getCacheInvalidationBus();
+	}
+
+	/**
+	 * @see Dao#preloadCache(PreparedQuery)
+	 */
+	public long preloadCache(PreparedQuery<T> preparedQuery) {
+		try {
+			return dao.preloadCache(preparedQuery);
+		} catch (SQLException e) {
+			logMessage(e, "preloadCache threw exception on " + preparedQuery);
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @see Dao#setQueryResultCache(QueryResultCache)
+	 */
+	public void setQueryResultCache(QueryResultCache<T> queryResultCache) {
+		dao.setQueryResultCache(queryResultCache);
+	}
+
+	/**
+	 * @see Dao#getQueryResultCache()
+	 */
+	public QueryResultCache<T> getQueryResultCache() {
+		return dao.getQueryResultCache();
+	}
+
+	/**
+	 * @see Dao#setStatementShapeCache(StatementShapeCache)
+	 */
+	public void setStatementShapeCache(StatementShapeCache statementShapeCache) {
+		dao.setStatementShapeCache(statementShapeCache);
+	}
+
+	/**
+	 * @see Dao#getStatementShapeCache()
+	 */
+	public StatementShapeCache getStatementShapeCache() {
+		return dao.getStatementShapeCache();
+	}
+
+	/**
+	 * @see Dao#setDirtyFieldTracking(boolean)
+	 */
+	public void setDirtyFieldTracking(boolean enabled) {
+		try {
+			dao.setDirtyFieldTracking(enabled);
+		} catch (SQLException e) {
+			logMessage(e, "setDirtyFieldTracking(" + enabled + ") threw exception");
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * @see Dao#mapSelectStarRow(DatabaseResults)
 	 */
@@ -0,0 +1,56 @@
+package com.j256.ormlite.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which is spread across a number of cells so threads incrementing it at the same time usually don't update
+ * the same memory. The cells are spaced apart so they are in different CPU cache lines. Reading the value adds up the
+ * cells so it is more expensive than incrementing.
+ * 
+ * @author graywatson
+ */
+class StripedCounter {
+
+	/** number of longs between cells so each is in its own 64 byte cache line */
+	private static final int CELL_SPACING = 8;
+	private static final int NUM_CELLS = numCells();
+
+	private final AtomicLongArray cells = new AtomicLongArray(NUM_CELLS * CELL_SPACING);
+
+	public void increment() {
+		cells.incrementAndGet(cellIndex());
+	}
+
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < NUM_CELLS; i++) {
+			sum += cells.get(i * CELL_SPACING);
+		}
+		return sum;
+	}
+
+	public void reset() {
+		for (int i = 0; i < NUM_CELLS; i++) {
+			cells.set(i * CELL_SPACING, 0);
+		}
+	}
+
+	private static int cellIndex() {
+		long threadId = Thread.currentThread().getId();
+		int hash = (int) (threadId ^ (threadId >>> 32));
+		// mix the bits because thread ids are sequential
+		hash ^= (hash >>> 16);
+		hash *= 0x45d9f3b;
+		hash ^= (hash >>> 16);
+		return (hash & (NUM_CELLS - 1)) * CELL_SPACING;
+	}
+
+	private static int numCells() {
+		int wanted = Runtime.getRuntime().availableProcessors() * 2;
+		int numCells = 1;
+		while (numCells < wanted && numCells < 64) {
+			numCells <<= 1;
+		}
+		return numCells;
+	}
+}
@@ -0,0 +1,18 @@
+package com.j256.ormlite.dao;
+
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * An object cache which needs the table information of the classes that it stores. When the cache is enabled, the dao
+ * passes its own {@link TableInfo} so the cache uses the same fields as the dao.
+ * 
+ * @author graywatson
+ */
+public interface TableObjectCache extends ObjectCache {
+
+	/**
+	 * Give the cache the table information of a class. This is called by the dao right before the class is registered
+	 * with {@link #registerClass(Class)} or {@link ConfigurableObjectCache#registerClass(Class, ObjectCacheOptions)}.
+	 */
+	public <T, ID> void registerTableInfo(TableInfo<T, ID> tableInfo);
+}
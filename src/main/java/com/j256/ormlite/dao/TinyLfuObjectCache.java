@@ -0,0 +1,421 @@
+package com.j256.ormlite.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for ORMLite which stores a certain number of items for each Class and which uses how often each id has been
+ * looked up to decide what to keep. They can be injected into a dao with the {@link Dao#setObjectCache(ObjectCache)}.
+ * 
+ * <p>
+ * This follows the Window-TinyLFU design. New objects go into a small least-recently-used admission window which is 1%
+ * of the capacity. When an object falls out of the window, it only makes it into the main least-recently-used area if
+ * it has been looked up more often than the object it would replace. The main area is split into a probation area and a
+ * protected area for objects that have been used again since they were admitted, and the object replaced is taken
+ * from probation first. The lookup frequencies are estimated with a compact count-min sketch of 4-bit counters which
+ * are halved periodically so that old popularity fades. This means that the rows of a table scan, which are each
+ * looked up once, do not push out the frequently used objects like they do with {@link LruObjectCache}.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> If you set the capacity to be 100 then each <i>Class</i> will allow 100 items in the cache. If you have
+ * 5 classes then the cache will hold 500 objects.
+ * </p>
+ * 
+ * <p>
+ * The hits, misses, puts, and evictions of each class are counted and can be gotten with {@link #getStats(Class)}.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class TinyLfuObjectCache implements InstrumentedObjectCache {
+
+	private static final int WINDOW = 0;
+	private static final int PROBATION = 1;
+	private static final int PROTECTED = 2;
+
+	private final int capacity;
+	private final ConcurrentHashMap<Class<?>, ClassCache> classCaches = new ConcurrentHashMap<Class<?>, ClassCache>();
+	private volatile ObjectCacheListener listener;
+
+	public TinyLfuObjectCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	public synchronized <T> void registerClass(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			classCache = new ClassCache(clazz, capacity);
+			classCaches.put(clazz, classCache);
+		}
+	}
+
+	public <T, ID> T get(Class<T> clazz, ID id) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		Object obj = classCache.get(id);
+		@SuppressWarnings("unchecked")
+		T castObj = (T) obj;
+		return castObj;
+	}
+
+	public <T, ID> void put(Class<T> clazz, ID id, T data) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.put(id, data);
+		}
+	}
+
+	public <T> void clear(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.clear();
+		}
+	}
+
+	public void clearAll() {
+		for (ClassCache classCache : classCaches.values()) {
+			classCache.clear();
+		}
+	}
+
+	public <T, ID> void remove(Class<T> clazz, ID id) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache != null) {
+			classCache.remove(id);
+		}
+	}
+
+	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return null;
+		}
+		Object obj = classCache.updateId(oldId, newId);
+		@SuppressWarnings("unchecked")
+		T castObj = (T) obj;
+		return castObj;
+	}
+
+	public <T> int size(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return 0;
+		} else {
+			return classCache.size();
+		}
+	}
+
+	public int sizeAll() {
+		int size = 0;
+		for (ClassCache classCache : classCaches.values()) {
+			size += classCache.size();
+		}
+		return size;
+	}
+
+	public <T> ObjectCacheStats getStats(Class<T> clazz) {
+		ClassCache classCache = classCaches.get(clazz);
+		if (classCache == null) {
+			return CacheCounters.EMPTY_STATS;
+		} else {
+			return classCache.getStats();
+		}
+	}
+
+	public ObjectCacheStats getStatsAll() {
+		ObjectCacheStats stats = CacheCounters.EMPTY_STATS;
+		for (ClassCache classCache : classCaches.values()) {
+			stats = stats.plus(classCache.getStats());
+		}
+		return stats;
+	}
+
+	public void resetStats() {
+		for (ClassCache classCache : classCaches.values()) {
+			classCache.resetStats();
+		}
+	}
+
+	public void setListener(ObjectCacheListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * The window and main areas for a single class. All of the methods lock because lookups change the LRU order and
+	 * the frequency sketch.
+	 */
+	private class ClassCache {
+
+		private final Class<?> clazz;
+		private final CacheCounters counters = new CacheCounters();
+		private final Map<Object, Node> nodeMap = new HashMap<Object, Node>();
+		private final FrequencySketch sketch;
+		private final int windowCapacity;
+		private final int mainCapacity;
+		private final int protectedCapacity;
+		private final Node[] heads = new Node[] { new Node(null, null), new Node(null, null), new Node(null, null) };
+		private final int[] sizes = new int[heads.length];
+
+		public ClassCache(Class<?> clazz, int capacity) {
+			this.clazz = clazz;
+			this.windowCapacity = Math.max(1, capacity / 100);
+			this.mainCapacity = capacity - windowCapacity;
+			this.protectedCapacity = mainCapacity * 8 / 10;
+			this.sketch = new FrequencySketch(capacity);
+			for (Node head : heads) {
+				head.prev = head.next = head;
+			}
+		}
+
+		public synchronized Object get(Object id) {
+			sketch.increment(id);
+			Node node = nodeMap.get(id);
+			if (node == null) {
+				counters.misses++;
+				return null;
+			}
+			counters.hits++;
+			onAccess(node);
+			return node.value;
+		}
+
+		public synchronized void put(Object id, Object value) {
+			counters.puts++;
+			Node node = nodeMap.get(id);
+			if (node != null) {
+				node.value = value;
+				onAccess(node);
+				return;
+			}
+			node = new Node(id, value);
+			nodeMap.put(id, node);
+			addToTail(WINDOW, node);
+			if (sizes[WINDOW] > windowCapacity) {
+				evictFromWindow();
+			}
+		}
+
+		public synchronized Object remove(Object id) {
+			Node node = nodeMap.remove(id);
+			if (node == null) {
+				return null;
+			}
+			unlink(node);
+			return node.value;
+		}
+
+		public synchronized Object updateId(Object oldId, Object newId) {
+			Node node = nodeMap.remove(oldId);
+			if (node == null) {
+				return null;
+			}
+			unlink(node);
+			Node existing = nodeMap.remove(newId);
+			if (existing != null) {
+				unlink(existing);
+			}
+			// the new id keeps the place of the old one
+			Node newNode = new Node(newId, node.value);
+			nodeMap.put(newId, newNode);
+			addToTail(node.area, newNode);
+			return node.value;
+		}
+
+		public synchronized void clear() {
+			nodeMap.clear();
+			for (int i = 0; i < heads.length; i++) {
+				heads[i].prev = heads[i].next = heads[i];
+				sizes[i] = 0;
+			}
+		}
+
+		public synchronized ObjectCacheStats getStats() {
+			return counters.snapshot();
+		}
+
+		public synchronized void resetStats() {
+			counters.reset();
+		}
+
+		public synchronized int size() {
+			return nodeMap.size();
+		}
+
+		/**
+		 * Objects that are used again while on probation are moved to the protected area, which in turn pushes the
+		 * least-recently-used protected object back to probation.
+		 */
+		private void onAccess(Node node) {
+			int area = node.area;
+			unlink(node);
+			if (area == PROBATION) {
+				area = PROTECTED;
+			}
+			addToTail(area, node);
+			if (sizes[PROTECTED] > protectedCapacity) {
+				Node demoted = heads[PROTECTED].next;
+				unlink(demoted);
+				addToTail(PROBATION, demoted);
+			}
+		}
+
+		/**
+		 * Move the least-recently-used object in the window into the main area if there is room or if it is used more
+		 * often than the object that would be ejected from the main area. Otherwise it is ejected.
+		 */
+		private void evictFromWindow() {
+			Node candidate = heads[WINDOW].next;
+			unlink(candidate);
+			if (sizes[PROBATION] + sizes[PROTECTED] < mainCapacity) {
+				addToTail(PROBATION, candidate);
+				return;
+			}
+			Node victim = heads[PROBATION].next;
+			if (victim == heads[PROBATION]) {
+				victim = heads[PROTECTED].next;
+			}
+			if (victim.id != null && sketch.frequency(candidate.id) > sketch.frequency(victim.id)) {
+				unlink(victim);
+				nodeMap.remove(victim.id);
+				addToTail(PROBATION, candidate);
+				evicted(victim);
+			} else {
+				nodeMap.remove(candidate.id);
+				evicted(candidate);
+			}
+		}
+
+		private void evicted(Node node) {
+			counters.evictions++;
+			ObjectCacheListener listener = TinyLfuObjectCache.this.listener;
+			if (listener != null) {
+				listener.objectEvicted(clazz, node.id, node.value);
+			}
+		}
+
+		private void addToTail(int area, Node node) {
+			Node head = heads[area];
+			node.area = area;
+			node.prev = head.prev;
+			node.next = head;
+			head.prev.next = node;
+			head.prev = node;
+			sizes[area]++;
+		}
+
+		private void unlink(Node node) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			sizes[node.area]--;
+		}
+	}
+
+	/**
+	 * An entry in the cache which is also a link in its area's LRU list.
+	 */
+	private static class Node {
+
+		final Object id;
+		Object value;
+		int area;
+		Node prev;
+		Node next;
+
+		public Node(Object id, Object value) {
+			this.id = id;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Count-min sketch which estimates how many times each id has been looked up. Each id has 4 counters of 4 bits, 16
+	 * packed in a long, and the estimate is the minimum of them. After 10 times the capacity of increments, all of the
+	 * counters are halved so the sketch follows changes in popularity.
+	 */
+	private static class FrequencySketch {
+
+		private static final long[] SEEDS =
+				new long[] { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+		private static final int MAX_COUNT = 15;
+
+		private final long[] table;
+		private final int tableMask;
+		private final int sampleSize;
+		private int additions;
+
+		public FrequencySketch(int capacity) {
+			int size = 16;
+			while (size < capacity) {
+				size <<= 1;
+			}
+			this.table = new long[size];
+			this.tableMask = size - 1;
+			this.sampleSize = (capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10);
+		}
+
+		public int frequency(Object id) {
+			int hash = spread(id.hashCode());
+			int frequency = MAX_COUNT;
+			for (int i = 0; i < SEEDS.length; i++) {
+				long h = indexHash(hash, i);
+				int offset = counterOffset(h);
+				int count = (int) ((table[(int) h & tableMask] >>> offset) & 0xFL);
+				frequency = Math.min(frequency, count);
+			}
+			return frequency;
+		}
+
+		public void increment(Object id) {
+			int hash = spread(id.hashCode());
+			boolean added = false;
+			for (int i = 0; i < SEEDS.length; i++) {
+				long h = indexHash(hash, i);
+				int index = (int) h & tableMask;
+				int offset = counterOffset(h);
+				if (((table[index] >>> offset) & 0xFL) != MAX_COUNT) {
+					table[index] += (1L << offset);
+					added = true;
+				}
+			}
+			if (added && ++additions >= sampleSize) {
+				reset();
+			}
+		}
+
+		private void reset() {
+			for (int i = 0; i < table.length; i++) {
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			}
+			additions /= 2;
+		}
+
+		private static long indexHash(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			return h + (h >>> 32);
+		}
+
+		/**
+		 * Return the bit offset of the 4-bit counter inside of the long.
+		 */
+		private static int counterOffset(long h) {
+			return ((int) (h >>> 48) & 0xF) << 2;
+		}
+
+		private static int spread(int hash) {
+			hash ^= (hash >>> 17);
+			hash *= 0xed5ad4bb;
+			hash ^= (hash >>> 11);
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package com.j256.ormlite.dao;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Object cache which wraps another cache and also remembers the ids that were not found in the database. Once
+ * {@link Dao#queryForId(Object)}, {@link Dao#queryForIds(java.util.Collection)}, or {@link Dao#idExists(Object)} does
+ * not find an id, a "tombstone" is stored for it and the following calls with the same id return null or false without
+ * going to the database until the tombstone expires. This helps when code polls for rows that have not been created
+ * yet.
+ * 
+ * <p>
+ * The tombstone is removed when the dao creates an object with the id or changes the id of an object to it. Rows that
+ * are inserted without the dao, or by another dao, are not seen until the tombstone expires so the time-to-live should
+ * be short.
+ * </p>
+ * 
+ * <p>
+ * The versions of the tombstones, see {@link NegativeLookupObjectCache}, are kept in a fixed number of stripes by the
+ * hash of the id. Creating an id may stop a tombstone of another id in the same stripe from being added which just
+ * means that it is queried again.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class TombstoneObjectCache implements ConfigurableObjectCache, TableObjectCache, NegativeLookupObjectCache {
+
+	/** default maximum number of tombstones for each class */
+	public static final int DEFAULT_MAX_TOMBSTONES = 10000;
+
+	private static final int VERSION_STRIPE_COUNT = 64;
+
+	private final ObjectCache objectCache;
+	private final long tombstoneTtlMillis;
+	private final int maxTombstones;
+	private final ConcurrentHashMap<Class<?>, ClassTombstones> classMaps =
+			new ConcurrentHashMap<Class<?>, ClassTombstones>();
+
+	/**
+	 * @param objectCache
+	 *            Cache used to store the objects that were found.
+	 * @param tombstoneTtlMillis
+	 *            Number of milliseconds that the ids that were not found are remembered.
+	 */
+	public TombstoneObjectCache(ObjectCache objectCache, long tombstoneTtlMillis) {
+		this(objectCache, tombstoneTtlMillis, DEFAULT_MAX_TOMBSTONES);
+	}
+
+	/**
+	 * @param objectCache
+	 *            Cache used to store the objects that were found.
+	 * @param tombstoneTtlMillis
+	 *            Number of milliseconds that the ids that were not found are remembered.
+	 * @param maxTombstones
+	 *            Maximum number of ids of each class that are remembered. Once this is reached, new tombstones are not
+	 *            stored until the old ones expire.
+	 */
+	public TombstoneObjectCache(ObjectCache objectCache, long tombstoneTtlMillis, int maxTombstones) {
+		if (objectCache == null) {
+			throw new IllegalArgumentException("Object cache must not be null");
+		}
+		if (tombstoneTtlMillis <= 0) {
+			throw new IllegalArgumentException("Tombstone time-to-live must be greater than 0: " + tombstoneTtlMillis);
+		}
+		if (maxTombstones <= 0) {
+			throw new IllegalArgumentException("Max tombstones must be greater than 0: " + maxTombstones);
+		}
+		this.objectCache = objectCache;
+		this.tombstoneTtlMillis = tombstoneTtlMillis;
+		this.maxTombstones = maxTombstones;
+	}
+
+	public <T, ID> void registerTableInfo(TableInfo<T, ID> tableInfo) {
+		if (objectCache instanceof TableObjectCache) {
+			((TableObjectCache) objectCache).registerTableInfo(tableInfo);
+		}
+	}
+
+	public <T> void registerClass(Class<T> clazz) {
+		objectCache.registerClass(clazz);
+		registerTombstones(clazz);
+	}
+
+	public <T> void registerClass(Class<T> clazz, ObjectCacheOptions options) {
+		if (objectCache instanceof ConfigurableObjectCache) {
+			((ConfigurableObjectCache) objectCache).registerClass(clazz, options);
+		} else {
+			objectCache.registerClass(clazz);
+		}
+		registerTombstones(clazz);
+	}
+
+	public <T, ID> T get(Class<T> clazz, ID id) {
+		return objectCache.get(clazz, id);
+	}
+
+	public <T, ID> void put(Class<T> clazz, ID id, T data) {
+		objectCache.put(clazz, id, data);
+		removeTombstone(clazz, id);
+	}
+
+	public <T, ID> void remove(Class<T> clazz, ID id) {
+		objectCache.remove(clazz, id);
+	}
+
+	public <T, ID> T updateId(Class<T> clazz, ID oldId, ID newId) {
+		removeTombstone(clazz, newId);
+		return objectCache.updateId(clazz, oldId, newId);
+	}
+
+	public <T> void clear(Class<T> clazz) {
+		objectCache.clear(clazz);
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones != null) {
+			classTombstones.tombstones.clear();
+		}
+	}
+
+	public void clearAll() {
+		objectCache.clearAll();
+		for (ClassTombstones classTombstones : classMaps.values()) {
+			classTombstones.tombstones.clear();
+		}
+	}
+
+	public <T> int size(Class<T> clazz) {
+		return objectCache.size(clazz);
+	}
+
+	public int sizeAll() {
+		return objectCache.sizeAll();
+	}
+
+	/**
+	 * Remember that there is no row in the database with the id.
+	 */
+	public <T, ID> void addTombstone(Class<T> clazz, ID id) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones != null && id != null) {
+			addTombstone(classTombstones, id);
+		}
+	}
+
+	public <T, ID> long getTombstoneVersion(Class<T> clazz, ID id) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones == null || id == null) {
+			return 0;
+		}
+		return classTombstones.versions.get(classTombstones.stripeOf(id));
+	}
+
+	public <T, ID> void addTombstone(Class<T> clazz, ID id, long version) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones == null || id == null) {
+			return;
+		}
+		int stripe = classTombstones.stripeOf(id);
+		if (classTombstones.versions.get(stripe) != version) {
+			// the id may have been created while it was being queried
+			return;
+		}
+		Long expireMillis = addTombstone(classTombstones, id);
+		// removeTombstone increments the version before it removes so we remove it ourselves if we raced with it
+		if (expireMillis != null && classTombstones.versions.get(stripe) != version) {
+			classTombstones.tombstones.remove(id, expireMillis);
+		}
+	}
+
+	public <T, ID> boolean hasTombstone(Class<T> clazz, ID id) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones == null || id == null) {
+			return false;
+		}
+		ConcurrentMap<Object, Long> tombstones = classTombstones.tombstones;
+		Long expireMillis = tombstones.get(id);
+		if (expireMillis == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() < expireMillis) {
+			return true;
+		}
+		// only remove it if it hasn't been replaced with a new one
+		tombstones.remove(id, expireMillis);
+		return false;
+	}
+
+	public <T, ID> void removeTombstone(Class<T> clazz, ID id) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones != null && id != null) {
+			classTombstones.versions.incrementAndGet(classTombstones.stripeOf(id));
+			classTombstones.tombstones.remove(id);
+		}
+	}
+
+	/**
+	 * Return the number of tombstones of the class including ones that may have expired.
+	 */
+	public <T> int tombstoneCount(Class<T> clazz) {
+		ClassTombstones classTombstones = classMaps.get(clazz);
+		if (classTombstones == null) {
+			return 0;
+		}
+		return classTombstones.tombstones.size();
+	}
+
+	/**
+	 * Add the tombstone and return its expiration or null if there are too many.
+	 */
+	private Long addTombstone(ClassTombstones classTombstones, Object id) {
+		ConcurrentMap<Object, Long> tombstones = classTombstones.tombstones;
+		long now = System.currentTimeMillis();
+		if (tombstones.size() >= maxTombstones) {
+			removeExpired(tombstones, now);
+			if (tombstones.size() >= maxTombstones) {
+				return null;
+			}
+		}
+		Long expireMillis = now + tombstoneTtlMillis;
+		tombstones.put(id, expireMillis);
+		return expireMillis;
+	}
+
+	private void registerTombstones(Class<?> clazz) {
+		if (classMaps.get(clazz) == null) {
+			classMaps.putIfAbsent(clazz, new ClassTombstones());
+		}
+	}
+
+	private void removeExpired(Map<Object, Long> tombstones, long now) {
+		Iterator<Long> iterator = tombstones.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() <= now) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Tombstones of a class with their expiration times and the versions of the stripes of their ids.
+	 */
+	private static class ClassTombstones {
+		final ConcurrentMap<Object, Long> tombstones = new ConcurrentHashMap<Object, Long>();
+		final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPE_COUNT);
+
+		public int stripeOf(Object id) {
+			return (id.hashCode() & Integer.MAX_VALUE) % VERSION_STRIPE_COUNT;
+		}
+	}
+}
@@ -2,7 +2,11 @@ package com.j256.ormlite.db;
 
 import java.sql.Driver;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.j256.ormlite.field.BaseFieldConverter;
 import com.j256.ormlite.field.DataPersister;
@@ -28,6 +32,9 @@ import com.j256.ormlite.table.DatabaseTableConfig;
 public abstract class BaseDatabaseType implements DatabaseType {
 
 	protected static String DEFAULT_SEQUENCE_SUFFIX = "_id_seq";
+	/** serialization failure from the SQL standard and the deadlock state that Postgres uses instead of it */
+	private static final Set<String> DEFAULT_RETRYABLE_SQL_STATES =
+			Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("40001", "40P01")));
 	protected Driver driver;
 
 	/**
@@ -448,6 +455,33 @@ public abstract class BaseDatabaseType implements DatabaseType {
 		return "SELECT 1";
 	}
 
+	/**
+	 * Default is to look for one of the SQLStates from {@link #getRetryableSqlStates()} in the exception and its
+	 * causes.
+	 */
+	public boolean isTransactionRetryable(SQLException e) {
+		Set<String> retryableSqlStates = getRetryableSqlStates();
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLException) {
+				String sqlState = ((SQLException) cause).getSQLState();
+				if (sqlState != null && retryableSqlStates.contains(sqlState)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the SQLStates of the deadlocks and serialization failures after which the transaction can be run again.
+	 * Default is 40001 and 40P01. The other states of the transaction rollback class "40" are not included because
+	 * running the transaction again does not help with an integrity constraint violation (40002) and may apply it twice
+	 * when it is not known if the statement completed (40003).
+	 */
+	protected Set<String> getRetryableSqlStates() {
+		return DEFAULT_RETRYABLE_SQL_STATES;
+	}
+
 	public boolean isBatchUseTransaction() {
 		return false;
 	}
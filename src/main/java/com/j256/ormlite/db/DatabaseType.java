@@ -180,6 +180,13 @@ public interface DatabaseType {
 	 */
 	public boolean isNestedSavePointsSupported();
 
+	/**
+	 * Returns true if the exception means that the database aborted the transaction because of a deadlock or a
+	 * serialization failure and that running the transaction again may work. This is used by the
+	 * {@link com.j256.ormlite.misc.TransactionManager} when it retries transactions.
+	 */
+	public boolean isTransactionRetryable(SQLException e);
+
 	/**
 	 * Return an statement that doesn't do anything but which can be used to ping the database by sending it over a
 	 * database connection.
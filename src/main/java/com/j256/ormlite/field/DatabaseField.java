@@ -310,6 +310,21 @@ public @interface DatabaseField {
 	 */
 	boolean readOnly() default false;
 
+	/**
+	 * Set this to be true (default false) to not load the field when the object is queried. This is useful for large
+	 * byte[], serialized, or string fields that are rarely used. The column is left out of the default query, query
+	 * for id, and refresh statements and the field is left with the value that the constructor gave it. It can be
+	 * loaded later with {@link com.j256.ormlite.dao.Dao#loadLazyFields(Object)} or by selecting the column with
+	 * {@link com.j256.ormlite.stmt.QueryBuilder#selectColumns(String...)}.
+	 * 
+	 * <p>
+	 * <b>NOTE:</b> When a queried object is updated, a lazy field that was not loaded is not written to the database
+	 * unless it has been assigned a different value. To set it to the value that the constructor gave it, load the
+	 * field first or use an {@link com.j256.ormlite.stmt.UpdateBuilder}.
+	 * </p>
+	 */
+	boolean lazy() default false;
+
 	/*
 	 * NOTE to developers: if you add fields here you have to add them to the DatabaseFieldConfig,
 	 * DatabaseFieldConfigLoader, DatabaseFieldConfigLoaderTest, and DatabaseTableConfigUtil.
@@ -55,6 +55,7 @@ public class DatabaseFieldConfig {
 	private boolean version;
 	private String foreignColumnName;
 	private boolean readOnly;
+	private boolean lazy;
 	// foreign collection field information
 	private boolean foreignCollection;
 	private boolean foreignCollectionEager;
@@ -501,6 +502,14 @@ public class DatabaseFieldConfig {
 		this.readOnly = readOnly;
 	}
 
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
 	/**
 	 * Create and return a config converted from a {@link Field} that may have one of the following annotations:
 	 * {@link DatabaseField}, {@link ForeignCollectionField}, or javax.persistence...
@@ -630,6 +639,7 @@ public class DatabaseFieldConfig {
 		config.version = databaseField.version();
 		config.foreignColumnName = valueIfNotBlank(databaseField.foreignColumnName());
 		config.readOnly = databaseField.readOnly();
+		config.lazy = databaseField.lazy();
 
 		return config;
 	}
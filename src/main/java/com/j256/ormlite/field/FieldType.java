@@ -20,6 +20,7 @@ import com.j256.ormlite.dao.LazyForeignCollection;
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.types.VoidType;
+import com.j256.ormlite.misc.OrmLiteContext;
 import com.j256.ormlite.misc.SqlExceptionUtil;
 import com.j256.ormlite.stmt.mapped.MappedQueryForId;
 import com.j256.ormlite.support.ConnectionSource;
@@ -75,12 +76,13 @@ public class FieldType {
 	private BaseDaoImpl<?, ?> foreignDao;
 	private MappedQueryForId<Object, Object> mappedQueryForId;
 
-	private static final ThreadLocal<LevelCounters> threadLevelCounters = new ThreadLocal<LevelCounters>() {
-		@Override
-		protected LevelCounters initialValue() {
-			return new LevelCounters();
-		}
-	};
+	private static final OrmLiteContext.Key<LevelCounters> levelCountersKey =
+			new OrmLiteContext.Key<LevelCounters>() {
+				@Override
+				protected LevelCounters initialValue() {
+					return new LevelCounters();
+				}
+			};
 
 	/**
 	 * You should use {@link FieldType#createFieldType} to instantiate one of these field if you have a {@link Field}.
@@ -264,6 +266,12 @@ public class FieldType {
 			throw new IllegalArgumentException("Field " + field.getName()
 					+ " is not a valid type to be a version field");
 		}
+		if (fieldConfig.isLazy()
+				&& (this.isId || this.isGeneratedId || this.generatedIdSequence != null || fieldConfig.isForeign()
+						|| fieldConfig.isForeignCollection() || fieldConfig.isVersion())) {
+			throw new IllegalArgumentException("Field " + field.getName()
+					+ " cannot be lazy if it is an id, foreign, or version field");
+		}
 		if (fieldConfig.getMaxForeignAutoRefreshLevel() > 0 && !fieldConfig.isForeignAutoRefresh()) {
 			throw new IllegalArgumentException("Field " + field.getName()
 					+ " has maxForeignAutoRefreshLevel set but not foreignAutoRefresh is false");
@@ -508,7 +516,7 @@ public class FieldType {
 			}
 			if (!parentObject) {
 				Object foreignObject;
-				LevelCounters levelCounters = threadLevelCounters.get();
+				LevelCounters levelCounters = OrmLiteContext.current().get(levelCountersKey);
 				// we record the current auto-refresh level which will be used along the way
 				if (levelCounters.autoRefreshLevel == 0) {
 					levelCounters.autoRefreshLevelMax = fieldConfig.getMaxForeignAutoRefreshLevel();
@@ -640,6 +648,17 @@ public class FieldType {
 		}
 	}
 
+	/**
+	 * Convert a value returned by {@link #convertJavaFieldToSqlArgValue(Object)} back into the Java field value.
+	 */
+	public Object convertSqlArgToJavaField(Object sqlArg) throws SQLException {
+		if (sqlArg == null) {
+			return null;
+		} else {
+			return fieldConverter.sqlArgToJava(this, sqlArg, 0);
+		}
+	}
+
 	/**
 	 * Convert a string value into the appropriate Java field value.
 	 */
@@ -766,7 +785,7 @@ public class FieldType {
 					fieldConfig.getForeignCollectionOrderColumnName(), fieldConfig.isForeignCollectionOrderAscending());
 		}
 
-		LevelCounters levelCounters = threadLevelCounters.get();
+		LevelCounters levelCounters = OrmLiteContext.current().get(levelCountersKey);
 		if (levelCounters.foreignCollectionLevel == 0) {
 			levelCounters.foreignCollectionLevelMax = fieldConfig.getForeignCollectionMaxEagerLevel();
 		}
@@ -866,6 +885,13 @@ public class FieldType {
 		return fieldConfig.isReadOnly();
 	}
 
+	/**
+	 * Call through to {@link DatabaseFieldConfig#isLazy()}
+	 */
+	public boolean isLazy() {
+		return fieldConfig.isLazy();
+	}
+
 	/**
 	 * Return the value of field in the data argument if it is not the default value for the class. If it is the default
 	 * then null is returned.
@@ -923,6 +949,15 @@ public class FieldType {
 		return castDao.create(foreignData);
 	}
 
+	/**
+	 * Pass the collection of foreign data to the foreign {@link Dao#create(Collection)} method.
+	 */
+	public <T> int createWithForeignDao(Collection<T> foreignDatas) throws SQLException {
+		@SuppressWarnings("unchecked")
+		Dao<T, ?> castDao = (Dao<T, ?>) foreignDao;
+		return castDao.create(foreignDatas);
+	}
+
 	/**
 	 * Return An instantiated {@link FieldType} or null if the field does not have a {@link DatabaseField} annotation.
 	 */
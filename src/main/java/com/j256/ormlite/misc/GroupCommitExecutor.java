@@ -0,0 +1,411 @@
+package com.j256.ormlite.misc;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+/**
+ * Runs many small transactions from different threads as one database transaction so they share the cost of the
+ * commit. This is an opt-in alternative to {@link TransactionManager#callInTransaction(Callable)} for write-heavy loads
+ * with lots of tiny transactions.
+ * 
+ * <p>
+ * The callables that are submitted are queued and run by a background thread. It waits up to
+ * {@link #setMaxWaitMillis(long)} for more callables after the first one arrives and then runs up to
+ * {@link #setMaxGroupSize(int)} of them on one connection inside of a single transaction which is committed once. Each
+ * callable is run inside of its own save-point so if it throws, only its changes are rolled back and the others are
+ * still committed. The future of each callable is completed after the commit with its result or its exception. If the
+ * commit fails then all of the callables in the group get the exception.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> If the database type does not support nested save-points then a callable that failed could not be
+ * rolled back by itself so each callable is run in its own transaction like with the {@link TransactionManager}.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> The callables are run on the background thread and not the thread that submitted them. They should only
+ * use DAOs on the same connection source and should not use thread-local state from the caller. They must also not
+ * wait on other callables in this executor.
+ * </p>
+ * 
+ * <blockquote>
+ * 
+ * <pre>
+ * GroupCommitExecutor groupCommit = new GroupCommitExecutor(connectionSource);
+ * Future&lt;Integer&gt; future = groupCommit.submit(new Callable&lt;Integer&gt;() {
+ * 	public Integer call() throws Exception {
+ * 		return fooDao.create(foo);
+ * 	}
+ * });
+ * // blocks until the group that the callable was in has been committed
+ * future.get();
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * @author graywatson
+ */
+public class GroupCommitExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(GroupCommitExecutor.class);
+	private static final String SAVE_POINT_PREFIX = "ORMLITEGROUP";
+	private static final int DEFAULT_MAX_GROUP_SIZE = 100;
+	private static final long DEFAULT_MAX_WAIT_MILLIS = 5;
+
+	private static AtomicInteger savePointCounter = new AtomicInteger();
+	private static AtomicInteger threadCounter = new AtomicInteger();
+	private static final GroupCall<Void> CLOSE_MARKER = new GroupCall<Void>(new Callable<Void>() {
+		public Void call() {
+			return null;
+		}
+	});
+
+	private ConnectionSource connectionSource;
+	private int maxGroupSize = DEFAULT_MAX_GROUP_SIZE;
+	private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+	private final BlockingQueue<GroupCall<?>> queue = new LinkedBlockingQueue<GroupCall<?>>();
+	private Thread thread;
+	private volatile boolean closed;
+
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong commitCount = new AtomicLong();
+
+	/**
+	 * Constructor for Spring type wiring if you are using the set methods.
+	 */
+	public GroupCommitExecutor() {
+		// for spring wiring -- must call setConnectionSource()
+	}
+
+	/**
+	 * Constructor for direct java code wiring.
+	 */
+	public GroupCommitExecutor(ConnectionSource connectionSource) {
+		this.connectionSource = connectionSource;
+		initialize();
+	}
+
+	/**
+	 * If you are using the Spring type wiring, this should be called after all of the set methods.
+	 */
+	public synchronized void initialize() {
+		if (connectionSource == null) {
+			throw new IllegalStateException("connectionSource was not set on " + getClass().getSimpleName());
+		}
+		if (maxGroupSize <= 0) {
+			throw new IllegalArgumentException("maxGroupSize must be positive: " + maxGroupSize);
+		}
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("maxWaitMillis cannot be negative: " + maxWaitMillis);
+		}
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+			public void run() {
+				runGroups();
+			}
+		}, "ORMLite group commit " + threadCounter.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queue the callable to be run inside of the next group transaction. The future is completed once the group has
+	 * been committed.
+	 * 
+	 * @throws RejectedExecutionException
+	 *             If the executor has been closed.
+	 */
+	public <T> Future<T> submit(Callable<T> callable) {
+		if (thread == null) {
+			throw new IllegalStateException(getClass().getSimpleName() + " was not initialized");
+		}
+		GroupCall<T> call = new GroupCall<T>(callable);
+		queue.add(call);
+		// we check after the add so we don't leave a call in the queue after the thread has finished
+		if (closed && queue.remove(call)) {
+			throw new RejectedExecutionException(getClass().getSimpleName() + " has been closed");
+		}
+		return call;
+	}
+
+	/**
+	 * Stop accepting callables, run the ones that are already queued, and stop the background thread.
+	 */
+	public void close() throws InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			thread = this.thread;
+		}
+		if (thread != null) {
+			queue.add(CLOSE_MARKER);
+			thread.join();
+		}
+	}
+
+	/**
+	 * Return the number of callables that have been run.
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	/**
+	 * Return the number of transactions that have been committed.
+	 */
+	public long getCommitCount() {
+		return commitCount.get();
+	}
+
+	public void setConnectionSource(ConnectionSource connectionSource) {
+		this.connectionSource = connectionSource;
+	}
+
+	/**
+	 * Set the maximum number of callables that are run in one transaction. Default is 100.
+	 */
+	public void setMaxGroupSize(int maxGroupSize) {
+		this.maxGroupSize = maxGroupSize;
+	}
+
+	/**
+	 * Set the number of milliseconds to wait for more callables after the first one of a group arrives. Default is 5.
+	 */
+	public void setMaxWaitMillis(long maxWaitMillis) {
+		this.maxWaitMillis = maxWaitMillis;
+	}
+
+	private void runGroups() {
+		List<GroupCall<?>> group = new ArrayList<GroupCall<?>>(maxGroupSize);
+		boolean closing = false;
+		while (!closing) {
+			try {
+				closing = collectGroup(group);
+			} catch (InterruptedException e) {
+				// we only get interrupted if someone else does it so we stop
+				Thread.currentThread().interrupt();
+				closing = true;
+			}
+			if (closing) {
+				// run what is left without waiting
+				queue.drainTo(group);
+				group.remove(CLOSE_MARKER);
+			}
+			if (!group.isEmpty()) {
+				try {
+					runGroup(group);
+				} catch (Throwable t) {
+					// the thread has to keep running or the later calls would never be completed
+					logger.error(t, "group commit of {} calls failed", group.size());
+					SQLException sqlException = SqlExceptionUtil.create("Group commit failed", t);
+					for (GroupCall<?> call : group) {
+						// this does nothing to the calls that were already completed
+						call.failed(sqlException);
+					}
+				}
+				group.clear();
+			}
+		}
+	}
+
+	/**
+	 * Collect the next group of calls. Returns true if the executor was closed.
+	 */
+	private boolean collectGroup(List<GroupCall<?>> group) throws InterruptedException {
+		GroupCall<?> call = queue.take();
+		if (call == CLOSE_MARKER) {
+			return true;
+		}
+		group.add(call);
+		long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		while (group.size() < maxGroupSize) {
+			long waitNanos = endNanos - System.nanoTime();
+			if (waitNanos <= 0) {
+				call = queue.poll();
+			} else {
+				call = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+			}
+			if (call == null) {
+				break;
+			} else if (call == CLOSE_MARKER) {
+				return true;
+			}
+			group.add(call);
+		}
+		return false;
+	}
+
+	private void runGroup(List<GroupCall<?>> group) {
+		DatabaseType databaseType = connectionSource.getDatabaseType();
+		if (!databaseType.isNestedSavePointsSupported()) {
+			for (GroupCall<?> call : group) {
+				runAlone(call);
+			}
+			return;
+		}
+		List<GroupCall<?>> succeeded = new ArrayList<GroupCall<?>>(group.size());
+		DatabaseConnection connection = null;
+		try {
+			connection = connectionSource.getReadWriteConnection();
+			connectionSource.saveSpecialConnection(connection);
+			boolean autoCommitAtStart = false;
+			if (connection.isAutoCommitSupported()) {
+				autoCommitAtStart = connection.isAutoCommit();
+				if (autoCommitAtStart) {
+					connection.setAutoCommit(false);
+				}
+			}
+			// the commit tasks of the calls, such as cache invalidations, are only run once the group is committed
+			List<Runnable> outerCommitTasks = TransactionManager.startCommitTasks();
+			boolean committed = false;
+			try {
+				try {
+					for (GroupCall<?> call : group) {
+						if (runInSavePoint(connection, call)) {
+							succeeded.add(call);
+						}
+					}
+					connection.commit(null);
+					committed = true;
+				} catch (SQLException e) {
+					connection.rollback(null);
+					throw e;
+				} finally {
+					TransactionManager.endCommitTasks(outerCommitTasks, committed);
+				}
+				commitCount.incrementAndGet();
+				logger.debug("committed group of {} calls, {} succeeded", group.size(), succeeded.size());
+			} finally {
+				if (autoCommitAtStart) {
+					connection.setAutoCommit(true);
+				}
+			}
+		} catch (SQLException e) {
+			// this fails the ones that succeeded and the ones that were not run yet
+			for (GroupCall<?> call : group) {
+				call.failed(e);
+			}
+			return;
+		} finally {
+			if (connection != null) {
+				connectionSource.clearSpecialConnection(connection);
+				try {
+					connectionSource.releaseConnection(connection);
+				} catch (SQLException e) {
+					logger.error(e, "could not release group commit connection");
+				}
+			}
+		}
+		for (GroupCall<?> call : succeeded) {
+			call.completed();
+		}
+	}
+
+	/**
+	 * Run the call inside of a save-point. Returns true if it succeeded and has to be committed. The save-point of a
+	 * call that succeeded is released so they don't pile up on the connection until the group is committed.
+	 */
+	private boolean runInSavePoint(DatabaseConnection connection, GroupCall<?> call) throws SQLException {
+		if (call.isCancelled()) {
+			return false;
+		}
+		callCount.incrementAndGet();
+		Savepoint savePoint = connection.setSavePoint(SAVE_POINT_PREFIX + savePointCounter.incrementAndGet());
+		List<Runnable> groupCommitTasks = TransactionManager.startCommitTasks();
+		boolean committed = false;
+		SQLException sqlException;
+		try {
+			call.callInGroup();
+			if (savePoint != null) {
+				connection.commit(savePoint);
+			}
+			committed = true;
+			return true;
+		} catch (SQLException e) {
+			sqlException = e;
+		} catch (Throwable t) {
+			// an error must not stop the background thread so it only fails this call
+			sqlException = SqlExceptionUtil.create("Transaction callable threw non-SQL exception", t);
+		} finally {
+			TransactionManager.endCommitTasks(groupCommitTasks, committed);
+		}
+		if (savePoint == null) {
+			// we can't roll back just this call so the whole group fails
+			throw sqlException;
+		}
+		connection.rollback(savePoint);
+		call.failed(sqlException);
+		return false;
+	}
+
+	private <T> void runAlone(final GroupCall<T> call) {
+		if (call.isCancelled()) {
+			return;
+		}
+		callCount.incrementAndGet();
+		try {
+			TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+				public Void call() throws Exception {
+					try {
+						call.callInGroup();
+					} catch (Error e) {
+						// turned into an exception so the transaction is rolled back and the thread keeps running
+						throw SqlExceptionUtil.create("Transaction callable threw an error", e);
+					}
+					return null;
+				}
+			});
+			commitCount.incrementAndGet();
+			call.completed();
+		} catch (SQLException e) {
+			call.failed(e);
+		}
+	}
+
+	/**
+	 * Future of a callable whose result is only handed out once the group has been committed.
+	 */
+	private static class GroupCall<T> extends FutureTask<T> {
+		private final Callable<T> callable;
+		private T result;
+
+		public GroupCall(Callable<T> callable) {
+			super(callable);
+			this.callable = callable;
+		}
+
+		public void callInGroup() throws Exception {
+			result = callable.call();
+		}
+
+		public void completed() {
+			set(result);
+		}
+
+		public void failed(Exception e) {
+			setException(e);
+		}
+	}
+}
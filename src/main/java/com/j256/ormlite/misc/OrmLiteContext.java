@@ -0,0 +1,145 @@
+package com.j256.ormlite.misc;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Holds the per-task state of the library: the connections saved by the connection sources for transactions, the tasks
+ * that are held until a transaction commits, and the recursion levels used when DAOs are configured and foreign objects
+ * and collections are auto-refreshed. This state
+ * used to be kept in a number of {@link ThreadLocal}s. It is now kept in a context object which can be handed from
+ * one thread to another when a unit of work moves between threads, such as in an async pipeline.
+ * 
+ * <p>
+ * By default each thread gets its own context the first time it is used so nothing has to change for code which does
+ * all of its work on one thread. To run code with a particular context, use {@link #callWith(OrmLiteContext, Callable)}
+ * which binds the context to the thread for the duration of the call:
+ * </p>
+ * 
+ * <pre>
+ * final OrmLiteContext context = new OrmLiteContext();
+ * OrmLiteContext.callWith(context, new Callable&lt;Void&gt;() {
+ * 	public Void call() throws Exception {
+ * 		// start the transaction and the first step here ...
+ * 		return null;
+ * 	}
+ * });
+ * // ... and continue it on another thread later
+ * executor.submit(new Callable&lt;Void&gt;() {
+ * 	public Void call() throws Exception {
+ * 		return OrmLiteContext.callWith(context, nextStep);
+ * 	}
+ * });
+ * </pre>
+ * 
+ * <p>
+ * <b>NOTE:</b> A context must only be used by one thread at a time. Binding it to a second thread while it is bound to
+ * another throws an {@link IllegalStateException}.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class OrmLiteContext {
+
+	private static final ThreadLocal<OrmLiteContext> threadContext = new ThreadLocal<OrmLiteContext>() {
+		@Override
+		protected OrmLiteContext initialValue() {
+			return new OrmLiteContext();
+		}
+	};
+
+	private final Map<Key<?>, Object> values = new IdentityHashMap<Key<?>, Object>(4);
+	private Thread boundThread;
+	private int bindCount;
+
+	/**
+	 * Return the context that is bound to the current thread with {@link #callWith(OrmLiteContext, Callable)} or else
+	 * the thread's own context.
+	 */
+	public static OrmLiteContext current() {
+		return threadContext.get();
+	}
+
+	/**
+	 * Bind the context to the current thread, call the callable, and then restore the thread's previous context.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the context is being used by another thread.
+	 */
+	public static <V> V callWith(OrmLiteContext context, Callable<V> callable) throws Exception {
+		OrmLiteContext previous = threadContext.get();
+		context.bind();
+		threadContext.set(context);
+		try {
+			return callable.call();
+		} finally {
+			threadContext.set(previous);
+			context.unbind();
+		}
+	}
+
+	/**
+	 * Return the value of the key in this context. If it has not been set then the key's {@link Key#initialValue()}
+	 * is set and returned.
+	 */
+	public <V> V get(Key<V> key) {
+		Object value = values.get(key);
+		if (value == null) {
+			V initialValue = key.initialValue();
+			if (initialValue != null) {
+				values.put(key, initialValue);
+			}
+			return initialValue;
+		}
+		@SuppressWarnings("unchecked")
+		V castValue = (V) value;
+		return castValue;
+	}
+
+	/**
+	 * Set the value of the key in this context. Setting it to null removes it.
+	 */
+	public <V> void set(Key<V> key, V value) {
+		if (value == null) {
+			values.remove(key);
+		} else {
+			values.put(key, value);
+		}
+	}
+
+	/**
+	 * Remove the value of the key from this context.
+	 */
+	public void remove(Key<?> key) {
+		values.remove(key);
+	}
+
+	private synchronized void bind() {
+		Thread thread = Thread.currentThread();
+		if (boundThread != null && boundThread != thread) {
+			throw new IllegalStateException("Context is already being used by thread " + boundThread.getName());
+		}
+		boundThread = thread;
+		bindCount++;
+	}
+
+	private synchronized void unbind() {
+		if (--bindCount == 0) {
+			boundThread = null;
+		}
+	}
+
+	/**
+	 * Key of a value stored in the context. Like a {@link ThreadLocal}, each key instance is a different value.
+	 */
+	public static class Key<V> {
+
+		/**
+		 * Return the value of the key in a context where it has not been set. Default is null.
+		 */
+		protected V initialValue() {
+			return null;
+		}
+	}
+}
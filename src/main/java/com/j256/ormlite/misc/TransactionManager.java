@@ -2,8 +2,12 @@ package com.j256.ormlite.misc;
 
 import java.sql.SQLException;
 import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.logger.Logger;
@@ -57,15 +61,39 @@ import com.j256.ormlite.support.DatabaseConnection;
  * 
  * </blockquote>
  * 
+ * <p>
+ * The transaction manager can also retry transactions that the database aborted because of a deadlock or a
+ * serialization failure. Set {@link #setRetryMaxAttempts(int)} to more than 1 to enable it. The retries wait with an
+ * exponential backoff which is randomized so that the transactions which collided don't collide again. Which
+ * exceptions are retried is decided by {@link DatabaseType#isTransactionRetryable(SQLException)}. Transactions that
+ * are nested inside of another transaction are not retried since the outer transaction has to be run again instead.
+ * </p>
+ * 
+ * <p>
+ * <b> NOTE: </b> When retries are enabled, the callable may be called more than once so it should not have side
+ * effects outside of the database.
+ * </p>
+ * 
  * @author graywatson
  */
 public class TransactionManager {
 
 	private static final Logger logger = LoggerFactory.getLogger(TransactionManager.class);
 	private static final String SAVE_POINT_PREFIX = "ORMLITE";
+	private static final long DEFAULT_RETRY_INITIAL_DELAY_MILLIS = 10;
+	private static final long DEFAULT_RETRY_MAX_DELAY_MILLIS = 1000;
 
 	private ConnectionSource connectionSource;
 	private static AtomicInteger savePointCounter = new AtomicInteger();
+	private static final Random random = new Random();
+	/** tasks to run once the transaction of the current context commits */
+	private static final OrmLiteContext.Key<List<Runnable>> commitTasksKey = new OrmLiteContext.Key<List<Runnable>>();
+
+	private int retryMaxAttempts = 1;
+	private long retryInitialDelayMillis = DEFAULT_RETRY_INITIAL_DELAY_MILLIS;
+	private long retryMaxDelayMillis = DEFAULT_RETRY_MAX_DELAY_MILLIS;
+	private final AtomicLong retryCount = new AtomicLong();
+	private final AtomicLong retryWaitMillis = new AtomicLong();
 
 	/**
 	 * Constructor for Spring type wiring if you are using the set methods.
@@ -89,6 +117,13 @@ public class TransactionManager {
 		if (connectionSource == null) {
 			throw new IllegalStateException("dataSource was not set on " + getClass().getSimpleName());
 		}
+		if (retryMaxAttempts < 1) {
+			throw new IllegalArgumentException("retryMaxAttempts must be at least 1: " + retryMaxAttempts);
+		}
+		if (retryInitialDelayMillis < 0 || retryMaxDelayMillis < retryInitialDelayMillis) {
+			throw new IllegalArgumentException("invalid retry delays: initial " + retryInitialDelayMillis + ", max "
+					+ retryMaxDelayMillis);
+		}
 	}
 
 	/**
@@ -109,7 +144,33 @@ public class TransactionManager {
 	 *             callable exception and is thrown by this method.
 	 */
 	public <T> T callInTransaction(final Callable<T> callable) throws SQLException {
-		return callInTransaction(connectionSource, callable);
+		if (retryMaxAttempts <= 1) {
+			return callInTransaction(connectionSource, callable);
+		}
+		long delayMillis = retryInitialDelayMillis;
+		for (int attempt = 1;; attempt++) {
+			try {
+				return callInTransaction(connectionSource, callable);
+			} catch (SQLException e) {
+				if (attempt >= retryMaxAttempts || connectionSource.getSpecialConnection() != null
+						|| !connectionSource.getDatabaseType().isTransactionRetryable(e)) {
+					throw e;
+				}
+				// full jitter so the transactions that collided spread out
+				long waitMillis = (long) (random.nextDouble() * delayMillis);
+				logger.debug("transaction attempt {} failed with SQLState {}, retrying in {}ms", attempt,
+						e.getSQLState(), waitMillis);
+				retryCount.incrementAndGet();
+				retryWaitMillis.addAndGet(waitMillis);
+				try {
+					Thread.sleep(waitMillis);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw SqlExceptionUtil.create("Interrupted while waiting to retry transaction", e);
+				}
+				delayMillis = Math.min(delayMillis * 2, retryMaxDelayMillis);
+			}
+		}
 	}
 
 	/**
@@ -164,10 +225,16 @@ public class TransactionManager {
 				}
 				hasSavePoint = true;
 			}
+			List<Runnable> outerCommitTasks = null;
+			if (hasSavePoint) {
+				outerCommitTasks = startCommitTasks();
+			}
+			boolean committed = false;
 			try {
 				T result = callable.call();
 				if (hasSavePoint) {
 					commit(connection, savePoint);
+					committed = true;
 				}
 				return result;
 			} catch (SQLException e) {
@@ -180,6 +247,10 @@ public class TransactionManager {
 					rollBack(connection, savePoint);
 				}
 				throw SqlExceptionUtil.create("Transaction callable threw non-SQL exception", e);
+			} finally {
+				if (hasSavePoint) {
+					endCommitTasks(outerCommitTasks, committed);
+				}
 			}
 		} finally {
 			if (autoCommitAtStart) {
@@ -190,10 +261,93 @@ public class TransactionManager {
 		}
 	}
 
+	/**
+	 * Run the task once the transaction of the current {@link OrmLiteContext} commits. If the transaction rolls back then
+	 * the task is dropped. If the context is not in a transaction started by {@link #callInTransaction(Callable)} then
+	 * the task is run right away. This is used by the daos to hold the events that they publish on a
+	 * {@link com.j256.ormlite.dao.CacheInvalidationBus} until the changes are visible to other connections.
+	 */
+	public static void runAfterCommit(Runnable task) {
+		List<Runnable> tasks = OrmLiteContext.current().get(commitTasksKey);
+		if (tasks == null) {
+			task.run();
+		} else {
+			tasks.add(task);
+		}
+	}
+
 	public void setConnectionSource(ConnectionSource connectionSource) {
 		this.connectionSource = connectionSource;
 	}
 
+	/**
+	 * Set the number of times that {@link #callInTransaction(Callable)} runs a transaction which failed with a
+	 * retryable exception. Default is 1 which means no retries.
+	 */
+	public void setRetryMaxAttempts(int retryMaxAttempts) {
+		this.retryMaxAttempts = retryMaxAttempts;
+	}
+
+	/**
+	 * Set the maximum number of milliseconds to wait before the first retry. The maximum doubles after each retry up
+	 * to {@link #setRetryMaxDelayMillis(long)}. The actual wait is a random number up to the maximum. Default is 10.
+	 */
+	public void setRetryInitialDelayMillis(long retryInitialDelayMillis) {
+		this.retryInitialDelayMillis = retryInitialDelayMillis;
+	}
+
+	/**
+	 * Set the largest number of milliseconds to wait before a retry. Default is 1000.
+	 */
+	public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+		this.retryMaxDelayMillis = retryMaxDelayMillis;
+	}
+
+	/**
+	 * Return the number of transactions that have been retried.
+	 */
+	public long getRetryCount() {
+		return retryCount.get();
+	}
+
+	/**
+	 * Return the total number of milliseconds that have been spent waiting to retry transactions.
+	 */
+	public long getRetryWaitMillis() {
+		return retryWaitMillis.get();
+	}
+
+	/**
+	 * Start collecting the commit tasks of a transaction in the current context and return the tasks of the transaction
+	 * that it is nested in or null if none.
+	 */
+	static List<Runnable> startCommitTasks() {
+		OrmLiteContext context = OrmLiteContext.current();
+		List<Runnable> outerTasks = context.get(commitTasksKey);
+		context.set(commitTasksKey, new ArrayList<Runnable>());
+		return outerTasks;
+	}
+
+	/**
+	 * Finish the transaction started by {@link #startCommitTasks()}. If it committed, its tasks are run or, if it is
+	 * nested, handed to the outer transaction which may still roll back.
+	 */
+	static void endCommitTasks(List<Runnable> outerTasks, boolean committed) {
+		OrmLiteContext context = OrmLiteContext.current();
+		List<Runnable> tasks = context.get(commitTasksKey);
+		context.set(commitTasksKey, outerTasks);
+		if (!committed || tasks == null) {
+			return;
+		}
+		if (outerTasks == null) {
+			for (Runnable task : tasks) {
+				task.run();
+			}
+		} else {
+			outerTasks.addAll(tasks);
+		}
+	}
+
 	private static void commit(DatabaseConnection connection, Savepoint savePoint) throws SQLException {
 		String name = (savePoint == null ? null : savePoint.getSavepointName());
 		connection.commit(savePoint);
@@ -0,0 +1,529 @@
+package com.j256.ormlite.misc;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DirtyFieldTracker;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Collects the new, dirty, and deleted objects of a unit of work across multiple DAOs and writes them to the database
+ * together when {@link #flush()} is called.
+ * 
+ * <p>
+ * Objects loaded through {@link #queryForId(Class, Object)} or attached with {@link #registerClean(Object)} are held in
+ * an identity map per class keyed by id so each row is represented by a single object in the unit of work. These
+ * objects are snapshotted and any changes to them are detected automatically at flush time. Other objects need to be
+ * registered with {@link #registerNew(Object)}, {@link #registerDirty(Object)}, or {@link #registerDeleted(Object)}.
+ * </p>
+ * 
+ * <p>
+ * The flush runs inside of a single transaction using the {@link TransactionManager}. The classes are ordered using
+ * their foreign fields so that foreign objects are inserted before the objects that refer to them and deleted after
+ * them. The inserts for each class are done with {@link Dao#create(java.util.Collection)}, the updates on the
+ * transaction's connection, and the deletes with a single {@link Dao#delete(java.util.Collection)}. The updates of the
+ * objects loaded through the unit of work only set their changed fields and the ones with the same changed fields use
+ * the same statement. If an update does not find its row, because it was deleted or its version has changed, then the
+ * flush throws and its transaction is rolled back.
+ * </p>
+ * 
+ * <blockquote>
+ * 
+ * <pre>
+ * UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+ * Account account = unitOfWork.queryForId(Account.class, accountId);
+ * account.setBalance(account.getBalance() - amount);
+ * unitOfWork.registerNew(new Payment(account, amount));
+ * unitOfWork.flush();
+ * </pre>
+ * 
+ * </blockquote>
+ * 
+ * <p>
+ * <b>NOTE:</b> This class is not thread-safe and is designed to be used by one thread at a time.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class UnitOfWork {
+
+	private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+	private final ConnectionSource connectionSource;
+	// linked so unrelated classes are flushed in the order that they were first seen
+	private final Map<Class<?>, TableWork<?, ?>> tableWorkMap = new LinkedHashMap<Class<?>, TableWork<?, ?>>();
+
+	public UnitOfWork(ConnectionSource connectionSource) {
+		this.connectionSource = connectionSource;
+	}
+
+	/**
+	 * Return the object with the id from the identity map or, if it is not there, query for it and add it to the map.
+	 * Changes made to the returned object will be written to the database by the next {@link #flush()}.
+	 */
+	public <T> T queryForId(Class<T> clazz, Object id) throws SQLException {
+		return getTableWork(clazz).queryForId(id);
+	}
+
+	/**
+	 * Attach an object that was loaded from the database outside of the unit of work. Changes made to it after this
+	 * call will be written to the database by the next {@link #flush()}.
+	 * 
+	 * @throws SQLException
+	 *             If a different object with the same id is already in the unit of work.
+	 */
+	public <T> void registerClean(T data) throws SQLException {
+		getTableWork(data).registerClean(data);
+	}
+
+	/**
+	 * Register an object to be created in the database by the next {@link #flush()}.
+	 * 
+	 * @throws SQLException
+	 *             If a different object with the same id is already in the unit of work.
+	 */
+	public <T> void registerNew(T data) throws SQLException {
+		getTableWork(data).registerNew(data);
+	}
+
+	/**
+	 * Register an object to be updated in the database by the next {@link #flush()}. This is only needed for objects
+	 * that were not loaded through the unit of work since those are checked for changes automatically.
+	 * 
+	 * @throws SQLException
+	 *             If a different object with the same id is already in the unit of work.
+	 */
+	public <T> void registerDirty(T data) throws SQLException {
+		getTableWork(data).registerDirty(data);
+	}
+
+	/**
+	 * Register an object to be deleted from the database by the next {@link #flush()}. If the object was registered as
+	 * new and has not been flushed then it is just forgotten.
+	 */
+	public <T> void registerDeleted(T data) throws SQLException {
+		getTableWork(data).registerDeleted(data);
+	}
+
+	/**
+	 * Write all of the pending creates, updates, and deletes to the database in one transaction. If the transaction
+	 * fails then the pending work is left in place so the flush can be retried. The ids generated for the new objects
+	 * and the versions of the updated objects are put back to their values from before the flush and the objects are
+	 * removed from the DAO object caches since none of the changes made it to the database.
+	 * 
+	 * @return The number of rows changed in the database.
+	 */
+	public int flush() throws SQLException {
+		final List<TableWork<?, ?>> orderedWorks = orderTableWorks();
+		boolean pending = false;
+		for (TableWork<?, ?> tableWork : orderedWorks) {
+			if (tableWork.findDirtyObjects()) {
+				pending = true;
+			}
+		}
+		if (!pending) {
+			return 0;
+		}
+		for (TableWork<?, ?> tableWork : orderedWorks) {
+			tableWork.saveFlushState();
+		}
+		int rowC;
+		try {
+			rowC = callFlushTransaction(orderedWorks);
+		} catch (SQLException e) {
+			for (TableWork<?, ?> tableWork : orderedWorks) {
+				tableWork.rolledBack();
+			}
+			throw e;
+		}
+		for (TableWork<?, ?> tableWork : orderedWorks) {
+			tableWork.flushed();
+		}
+		logger.debug("unit of work flushed {} tables changing {} rows", orderedWorks.size(), rowC);
+		return rowC;
+	}
+
+	/**
+	 * Forget all of the objects and pending work in the unit of work.
+	 */
+	public void clear() {
+		tableWorkMap.clear();
+	}
+
+	private int callFlushTransaction(final List<TableWork<?, ?>> orderedWorks) throws SQLException {
+		return TransactionManager.callInTransaction(connectionSource, new Callable<Integer>() {
+			public Integer call() throws SQLException {
+				int changedC = 0;
+				for (TableWork<?, ?> tableWork : orderedWorks) {
+					changedC += tableWork.flushCreates();
+				}
+				for (TableWork<?, ?> tableWork : orderedWorks) {
+					changedC += tableWork.flushUpdates();
+				}
+				// delete the objects that refer to other objects first
+				for (int i = orderedWorks.size() - 1; i >= 0; i--) {
+					changedC += orderedWorks.get(i).flushDeletes();
+				}
+				return changedC;
+			}
+		});
+	}
+
+	private <T> TableWork<T, Object> getTableWork(T data) throws SQLException {
+		if (data == null) {
+			throw new IllegalArgumentException("Data object to register cannot be null");
+		}
+		@SuppressWarnings("unchecked")
+		Class<T> clazz = (Class<T>) data.getClass();
+		return getTableWork(clazz);
+	}
+
+	private <T> TableWork<T, Object> getTableWork(Class<T> clazz) throws SQLException {
+		@SuppressWarnings("unchecked")
+		TableWork<T, Object> tableWork = (TableWork<T, Object>) tableWorkMap.get(clazz);
+		if (tableWork == null) {
+			Dao<T, Object> dao = DaoManager.createDao(connectionSource, clazz);
+			TableInfo<T, Object> tableInfo;
+			if (dao instanceof BaseDaoImpl) {
+				tableInfo = ((BaseDaoImpl<T, Object>) dao).getTableInfo();
+			} else {
+				tableInfo = new TableInfo<T, Object>(connectionSource, null, clazz);
+			}
+			if (tableInfo.getIdField() == null) {
+				throw new SQLException("Class " + clazz + " must have an id field to be used in a unit of work");
+			}
+			tableWork = new TableWork<T, Object>(dao, tableInfo);
+			tableWorkMap.put(clazz, tableWork);
+		}
+		return tableWork;
+	}
+
+	/**
+	 * Order the classes so that the ones referred to by foreign fields come before the classes that refer to them. If
+	 * there is a loop of foreign references then the order inside of the loop is the order that they were seen.
+	 */
+	private List<TableWork<?, ?>> orderTableWorks() {
+		List<TableWork<?, ?>> orderedWorks = new ArrayList<TableWork<?, ?>>(tableWorkMap.size());
+		Map<Class<?>, Boolean> visitedMap = new HashMap<Class<?>, Boolean>();
+		for (Class<?> clazz : tableWorkMap.keySet()) {
+			addTableWork(clazz, visitedMap, orderedWorks);
+		}
+		return orderedWorks;
+	}
+
+	private void addTableWork(Class<?> clazz, Map<Class<?>, Boolean> visitedMap, List<TableWork<?, ?>> orderedWorks) {
+		TableWork<?, ?> tableWork = tableWorkMap.get(clazz);
+		if (tableWork == null || visitedMap.containsKey(clazz)) {
+			// not part of the unit of work or already added or in a loop
+			return;
+		}
+		visitedMap.put(clazz, true);
+		for (FieldType fieldType : tableWork.tableInfo.getFieldTypes()) {
+			if (fieldType.isForeign() && fieldType.getType() != clazz) {
+				addTableWork(fieldType.getType(), visitedMap, orderedWorks);
+			}
+		}
+		orderedWorks.add(tableWork);
+	}
+
+	/**
+	 * Tracks the objects and the pending work for a single class.
+	 */
+	private static class TableWork<T, ID> {
+
+		private final Dao<T, ID> dao;
+		private final TableInfo<T, ID> tableInfo;
+		private final DirtyFieldTracker<T, ID> dirtyFieldTracker;
+		private final Map<Object, T> identityMap = new HashMap<Object, T>();
+		private final IdentityList<T> newList = new IdentityList<T>();
+		private final IdentityList<T> dirtyList = new IdentityList<T>();
+		private final IdentityList<T> deletedList = new IdentityList<T>();
+		// values from before the flush that are put back if it is rolled back
+		private final Map<T, Object> savedIdMap = new IdentityHashMap<T, Object>();
+		private final Map<T, Object> savedVersionMap = new IdentityHashMap<T, Object>();
+
+		public TableWork(Dao<T, ID> dao, TableInfo<T, ID> tableInfo) {
+			this.dao = dao;
+			this.tableInfo = tableInfo;
+			this.dirtyFieldTracker = new DirtyFieldTracker<T, ID>(tableInfo);
+		}
+
+		public T queryForId(Object id) throws SQLException {
+			T data = identityMap.get(id);
+			if (data == null) {
+				@SuppressWarnings("unchecked")
+				ID castId = (ID) id;
+				data = dao.queryForId(castId);
+				if (data != null) {
+					identityMap.put(id, data);
+					dirtyFieldTracker.snapshot(data);
+				}
+			}
+			return data;
+		}
+
+		public void registerClean(T data) throws SQLException {
+			mapObject(data, extractId(data));
+			dirtyFieldTracker.snapshot(data);
+		}
+
+		public void registerNew(T data) throws SQLException {
+			if (!tableInfo.getIdField().isObjectsFieldValueDefault(data)) {
+				mapObject(data, extractId(data));
+			}
+			newList.add(data);
+		}
+
+		public void registerDirty(T data) throws SQLException {
+			if (newList.contains(data)) {
+				// it will be created with its current values
+				return;
+			}
+			mapObject(data, extractId(data));
+			dirtyList.add(data);
+		}
+
+		public void registerDeleted(T data) throws SQLException {
+			if (newList.remove(data)) {
+				// never made it to the database
+				if (!tableInfo.getIdField().isObjectsFieldValueDefault(data)) {
+					identityMap.remove(extractId(data));
+				}
+				return;
+			}
+			dirtyList.remove(data);
+			deletedList.add(data);
+		}
+
+		/**
+		 * Add the loaded objects that have changed since their snapshot to the dirty list and return true if there is
+		 * any work to do.
+		 */
+		public boolean findDirtyObjects() throws SQLException {
+			for (T data : identityMap.values()) {
+				if (newList.contains(data) || dirtyList.contains(data) || deletedList.contains(data)) {
+					continue;
+				}
+				BitSet changedFields = dirtyFieldTracker.findChangedFields(data);
+				if (changedFields != null && !changedFields.isEmpty()) {
+					dirtyList.add(data);
+				}
+			}
+			return (newList.size() > 0 || dirtyList.size() > 0 || deletedList.size() > 0);
+		}
+
+		public int flushCreates() throws SQLException {
+			if (newList.size() == 0) {
+				return 0;
+			}
+			return dao.create(newList.list);
+		}
+
+		public int flushUpdates() throws SQLException {
+			if (dirtyList.size() == 0) {
+				return 0;
+			}
+			// group the objects by their changed fields so each group shares one update statement
+			Map<BitSet, List<T>> changedFieldsMap = new LinkedHashMap<BitSet, List<T>>();
+			List<T> untrackedList = new ArrayList<T>();
+			for (T data : dirtyList.list) {
+				BitSet changedFields = null;
+				if (dao instanceof BaseDaoImpl) {
+					changedFields = dirtyFieldTracker.findChangedFields(data);
+				}
+				if (changedFields == null) {
+					untrackedList.add(data);
+					continue;
+				}
+				List<T> changedList = changedFieldsMap.get(changedFields);
+				if (changedList == null) {
+					changedList = new ArrayList<T>();
+					changedFieldsMap.put(changedFields, changedList);
+				}
+				changedList.add(data);
+			}
+			// we are already inside of the flush transaction so these all go out on the same connection
+			int rowC = 0;
+			for (Map.Entry<BitSet, List<T>> entry : changedFieldsMap.entrySet()) {
+				for (T data : entry.getValue()) {
+					rowC += checkUpdated(data, ((BaseDaoImpl<T, ID>) dao).update(data, entry.getKey()));
+				}
+			}
+			// no snapshot so all of the fields are updated
+			for (T data : untrackedList) {
+				rowC += checkUpdated(data, dao.update(data));
+			}
+			return rowC;
+		}
+
+		/**
+		 * Throw if the update did not change the row so the flush transaction is rolled back.
+		 */
+		private int checkUpdated(T data, int rowC) throws SQLException {
+			if (rowC == 0) {
+				throw new SQLException("Update of " + tableInfo.getDataClass().getSimpleName() + " object with id "
+						+ extractId(data) + " changed no rows, it was deleted or its version has changed");
+			}
+			return rowC;
+		}
+
+		public int flushDeletes() throws SQLException {
+			if (deletedList.size() == 0) {
+				return 0;
+			}
+			return dao.delete(deletedList.list);
+		}
+
+		/**
+		 * Save the ids of the new objects and the versions of the dirty ones which are changed by the flush.
+		 */
+		public void saveFlushState() throws SQLException {
+			savedIdMap.clear();
+			savedVersionMap.clear();
+			for (T data : newList.list) {
+				savedIdMap.put(data, extractId(data));
+			}
+			FieldType versionFieldType = findVersionFieldType();
+			if (versionFieldType != null) {
+				for (T data : dirtyList.list) {
+					savedVersionMap.put(data, versionFieldType.extractJavaFieldValue(data));
+				}
+			}
+		}
+
+		/**
+		 * Called after the transaction has been rolled back to undo the changes that the creates and updates made to
+		 * the objects so the flush can be retried.
+		 */
+		public void rolledBack() throws SQLException {
+			ObjectCache objectCache = dao.getObjectCache();
+			DirtyFieldTracker<T, ID> daoDirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+			Class<T> clazz = tableInfo.getDataClass();
+			for (Map.Entry<T, Object> entry : savedIdMap.entrySet()) {
+				T data = entry.getKey();
+				if (objectCache != null) {
+					objectCache.remove(clazz, extractId(data));
+				}
+				tableInfo.getIdField().assignField(data, entry.getValue(), false, null);
+				if (daoDirtyFieldTracker != null) {
+					daoDirtyFieldTracker.forget(data);
+				}
+			}
+			FieldType versionFieldType = findVersionFieldType();
+			for (T data : dirtyList.list) {
+				if (objectCache != null) {
+					objectCache.remove(clazz, extractId(data));
+				}
+				if (versionFieldType != null && savedVersionMap.containsKey(data)) {
+					versionFieldType.assignField(data, savedVersionMap.get(data), false, null);
+				}
+				if (daoDirtyFieldTracker != null) {
+					daoDirtyFieldTracker.forget(data);
+				}
+			}
+			savedIdMap.clear();
+			savedVersionMap.clear();
+		}
+
+		/**
+		 * Called after the transaction has committed to bring the identity map and snapshots up to date.
+		 */
+		public void flushed() throws SQLException {
+			savedIdMap.clear();
+			savedVersionMap.clear();
+			for (T data : newList.list) {
+				identityMap.put(extractId(data), data);
+				dirtyFieldTracker.snapshot(data);
+			}
+			for (T data : dirtyList.list) {
+				dirtyFieldTracker.snapshot(data);
+			}
+			for (T data : deletedList.list) {
+				identityMap.remove(extractId(data));
+				dirtyFieldTracker.forget(data);
+			}
+			newList.clear();
+			dirtyList.clear();
+			deletedList.clear();
+		}
+
+		private void mapObject(T data, Object id) throws SQLException {
+			T existing = identityMap.get(id);
+			if (existing == null) {
+				identityMap.put(id, data);
+			} else if (existing != data) {
+				throw new SQLException("A different " + tableInfo.getDataClass().getSimpleName() + " object with id "
+						+ id + " is already in the unit of work");
+			}
+		}
+
+		private Object extractId(T data) throws SQLException {
+			return tableInfo.getIdField().extractJavaFieldValue(data);
+		}
+
+		private FieldType findVersionFieldType() {
+			for (FieldType fieldType : tableInfo.getFieldTypes()) {
+				if (fieldType.isVersion()) {
+					return fieldType;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * List of objects that ignores duplicates using object identity instead of equals.
+	 */
+	private static class IdentityList<T> {
+
+		final List<T> list = new ArrayList<T>();
+		private final Map<T, Boolean> identityMap = new IdentityHashMap<T, Boolean>();
+
+		public void add(T data) {
+			if (identityMap.put(data, true) == null) {
+				list.add(data);
+			}
+		}
+
+		public boolean remove(T data) {
+			if (identityMap.remove(data) == null) {
+				return false;
+			}
+			for (int i = 0; i < list.size(); i++) {
+				if (list.get(i) == data) {
+					list.remove(i);
+					break;
+				}
+			}
+			return true;
+		}
+
+		public boolean contains(T data) {
+			return identityMap.containsKey(data);
+		}
+
+		public int size() {
+			return list.size();
+		}
+
+		public void clear() {
+			list.clear();
+			identityMap.clear();
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.j256.ormlite.stmt;
 
+import java.sql.SQLException;
+
 import com.j256.ormlite.dao.Dao;
 
 /**
@@ -11,4 +13,10 @@ import com.j256.ormlite.dao.Dao;
  * @author graywatson
  */
 public interface PreparedDelete<T> extends PreparedStmt<T> {
+
+	/**
+	 * Return a copy of this prepared delete with its argument holders set to the values. See
+	 * {@link PreparedStmt#withArguments(Object...)}.
+	 */
+	public PreparedDelete<T> withArguments(Object... argValues) throws SQLException;
 }
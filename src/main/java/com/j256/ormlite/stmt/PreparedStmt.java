@@ -52,4 +52,14 @@ public interface PreparedStmt<T> extends GenericRowMapper<T> {
 	 *            Object to set in the argument holder.
 	 */
 	public void setArgumentHolderValue(int index, Object value) throws SQLException;
+
+	/**
+	 * Return a copy of this prepared statement with its argument holders set to the values. The statement itself is not
+	 * changed so it can be shared by a number of threads which each bind their own values. The values are in the same
+	 * order as the indexes of {@link #setArgumentHolderValue(int, Object)} -- see the NOTE there.
+	 * 
+	 * @throws SQLException
+	 *             If the number of values is not the same as the number of argument holders.
+	 */
+	public PreparedStmt<T> withArguments(Object... argValues) throws SQLException;
 }
@@ -4,7 +4,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
@@ -106,6 +108,16 @@ public class QueryBuilder<T, ID> extends StatementBuilder<T, ID> {
 		return super.prepareStatement(limit);
 	}
 
+	/**
+	 * Cache the SQL of the prepared queries by their shape so it doesn't have to be rebuilt each time the same query is
+	 * prepared with different values. This should be called before the {@link #where()} so the values are passed as
+	 * arguments. See {@link StatementShapeCache}. Set to null to disable.
+	 */
+	public QueryBuilder<T, ID> setStatementShapeCache(StatementShapeCache statementShapeCache) {
+		this.statementShapeCache = statementShapeCache;
+		return this;
+	}
+
 	/**
 	 * Add columns to be returned by the SELECT query. If no columns are selected then all columns are returned by
 	 * default. For classes with id columns, the id column is added to the select list automagically. This can be called
@@ -458,11 +470,77 @@ public class QueryBuilder<T, ID> extends StatementBuilder<T, ID> {
 		setAddTableName(false);
 	}
 
+	@Override
+	protected boolean appendStatementShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		if (joinList != null) {
+			// the joined query-builders have to be built
+			return false;
+		}
+		shape.add(distinct);
+		shape.add(selectIdColumn);
+		shape.add(isInnerQuery);
+		shape.add(isCountOfQuery);
+		// the lists are copied since they may be changed after the shape is cached
+		shape.add(copyList(selectColumnList));
+		shape.add(copyList(selectRawList));
+		if (!appendWhereShape(shape, argList)) {
+			return false;
+		}
+		shape.add(copyList(groupByList));
+		shape.add(groupByRaw);
+		shape.add(having);
+		if (orderByList == null) {
+			shape.add(null);
+		} else {
+			for (OrderBy orderBy : orderByList) {
+				shape.add(orderBy.getColumnName());
+				shape.add(orderBy.isAscending());
+			}
+			shape.add(orderByList.size());
+		}
+		shape.add(orderByRaw);
+		if (orderByRaw != null && orderByArgs != null) {
+			for (ArgumentHolder arg : orderByArgs) {
+				argList.add(arg);
+			}
+		}
+		shape.add(limit);
+		shape.add(offset);
+		return true;
+	}
+
 	@Override
 	protected boolean shouldPrependTableNameToColumns() {
 		return joinList != null;
 	}
 
+	@Override
+	protected String[] getOtherTableNames() {
+		Set<String> tableNames = new HashSet<String>();
+		appendTableNames(tableNames);
+		tableNames.remove(tableName);
+		if (tableNames.isEmpty()) {
+			return null;
+		} else {
+			return tableNames.toArray(new String[tableNames.size()]);
+		}
+	}
+
+	/**
+	 * Add the names of this table and of the tables that are joined or read by sub-queries to the set.
+	 */
+	void appendTableNames(Set<String> tableNames) {
+		tableNames.add(tableName);
+		if (joinList != null) {
+			for (JoinInfo joinInfo : joinList) {
+				joinInfo.queryBuilder.appendTableNames(tableNames);
+			}
+		}
+		if (where != null) {
+			where.appendSubQueryTableNames(tableNames);
+		}
+	}
+
 	private void setAddTableName(boolean addTableName) {
 		this.addTableName = addTableName;
 		if (joinList != null) {
@@ -551,6 +629,10 @@ public class QueryBuilder<T, ID> extends StatementBuilder<T, ID> {
 	private void appendColumns(StringBuilder sb) {
 		// if no columns were specified then * is the default
 		if (selectColumnList == null) {
+			if (tableInfo.hasLazyFields()) {
+				appendDefaultColumns(sb);
+				return;
+			}
 			if (addTableName) {
 				databaseType.appendEscapedEntityName(sb, tableName);
 				sb.append('.');
@@ -601,6 +683,28 @@ public class QueryBuilder<T, ID> extends StatementBuilder<T, ID> {
 		resultFieldTypes = fieldTypeList.toArray(new FieldType[fieldTypeList.size()]);
 	}
 
+	/**
+	 * List all of the columns except for the lazy ones which are not loaded by default.
+	 */
+	private void appendDefaultColumns(StringBuilder sb) {
+		FieldType[] selectFieldTypes = tableInfo.getSelectFieldTypes();
+		boolean first = true;
+		for (FieldType fieldType : selectFieldTypes) {
+			// foreign collections don't have a column in the database
+			if (fieldType.isForeignCollection()) {
+				continue;
+			}
+			if (first) {
+				first = false;
+			} else {
+				sb.append(',');
+			}
+			appendFieldColumnName(sb, fieldType, null);
+		}
+		sb.append(' ');
+		resultFieldTypes = selectFieldTypes;
+	}
+
 	private void appendFieldColumnName(StringBuilder sb, FieldType fieldType, List<FieldType> fieldTypeList) {
 		appendColumnName(sb, fieldType.getColumnName());
 		if (fieldTypeList != null) {
@@ -742,6 +846,17 @@ public class QueryBuilder<T, ID> extends StatementBuilder<T, ID> {
 		}
 	}
 
+	/**
+	 * Return a copy of the list or null if it is null.
+	 */
+	private static List<String> copyList(List<String> list) {
+		if (list == null) {
+			return null;
+		} else {
+			return new ArrayList<String>(list);
+		}
+	}
+
 	/**
 	 * Encapsulates our join information.
 	 */
@@ -36,6 +36,8 @@ public abstract class StatementBuilder<T, ID> {
 	protected Where<T, ID> where = null;
 	// NOTE: anything added here should be added to the clear() method below
 
+	protected StatementShapeCache statementShapeCache;
+
 	public StatementBuilder(DatabaseType databaseType, TableInfo<T, ID> tableInfo, Dao<T, ID> dao, StatementType type) {
 		this.databaseType = databaseType;
 		this.tableInfo = tableInfo;
@@ -71,10 +73,43 @@ public abstract class StatementBuilder<T, ID> {
 	 */
 	protected MappedPreparedStmt<T, ID> prepareStatement(Long limit) throws SQLException {
 		List<ArgumentHolder> argList = new ArrayList<ArgumentHolder>();
+		List<Object> shape = null;
+		if (statementShapeCache != null) {
+			shape = new ArrayList<Object>();
+			if (appendShape(shape, argList)) {
+				StatementShapeCache.Template template = statementShapeCache.get(shape);
+				if (template != null && template.argCount == argList.size()) {
+					logger.debug("got statement from shape cache {}", template.statement);
+					type = template.type;
+					return buildMappedStatement(template.statement, argList, template.resultFieldTypes, limit);
+				}
+			} else {
+				shape = null;
+			}
+			// the walk may have added some of the arguments before it gave up
+			argList.clear();
+		}
 		String statement = buildStatementString(argList);
-		ArgumentHolder[] selectArgs = argList.toArray(new ArgumentHolder[argList.size()]);
 		FieldType[] resultFieldTypes = getResultFieldTypes();
-		FieldType[] argFieldTypes = new FieldType[argList.size()];;
+		if (shape != null) {
+			statementShapeCache.put(shape, new StatementShapeCache.Template(statement, resultFieldTypes, type,
+					argList.size()));
+		}
+		return buildMappedStatement(statement, argList, resultFieldTypes, limit);
+	}
+
+	private boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		// the cache may be shared by builders of different tables and databases
+		shape.add(getClass());
+		shape.add(tableInfo);
+		shape.add(databaseType);
+		return appendStatementShape(shape, argList);
+	}
+
+	private MappedPreparedStmt<T, ID> buildMappedStatement(String statement, List<ArgumentHolder> argList,
+			FieldType[] resultFieldTypes, Long limit) {
+		ArgumentHolder[] selectArgs = argList.toArray(new ArgumentHolder[argList.size()]);
+		FieldType[] argFieldTypes = new FieldType[argList.size()];
 		for (int selectC = 0; selectC < selectArgs.length; selectC++) {
 			argFieldTypes[selectC] = selectArgs[selectC].getFieldType();
 		}
@@ -82,7 +117,14 @@ public abstract class StatementBuilder<T, ID> {
 			throw new IllegalStateException("Building a statement from a " + type + " statement is not allowed");
 		}
 		return new MappedPreparedStmt<T, ID>(tableInfo, statement, argFieldTypes, resultFieldTypes, selectArgs,
-				(databaseType.isLimitSqlSupported() ? null : limit), type);
+				(databaseType.isLimitSqlSupported() ? null : limit), type, getOtherTableNames());
+	}
+
+	/**
+	 * Return the names of the other tables that the statement reads or null if none.
+	 */
+	protected String[] getOtherTableNames() {
+		return null;
 	}
 
 	/**
@@ -157,6 +199,28 @@ public abstract class StatementBuilder<T, ID> {
 		}
 	}
 
+	/**
+	 * Add to the shape list the parts of the statement that its SQL depends on and add the arguments to the list in the
+	 * order that they are in the SQL. See {@link StatementShapeCache}.
+	 * 
+	 * @return False if the shape can't be determined in which case the SQL has to be built.
+	 */
+	protected boolean appendStatementShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		return false;
+	}
+
+	/**
+	 * Add the shape of the WHERE part of the statement to the list.
+	 */
+	protected boolean appendWhereShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		if (where == null) {
+			shape.add(null);
+			return true;
+		} else {
+			return where.appendShape(shape, argList);
+		}
+	}
+
 	/**
 	 * Append the end of our statement string to the StringBuilder.
 	 */
@@ -187,6 +251,13 @@ public abstract class StatementBuilder<T, ID> {
 		return tableInfo.getFieldTypeByColumnName(columnName);
 	}
 
+	/**
+	 * Return true if the prepared statements are cached by their shape.
+	 */
+	boolean isStatementShapeCached() {
+		return statementShapeCache != null;
+	}
+
 	/**
 	 * Return the type of the statement.
 	 */
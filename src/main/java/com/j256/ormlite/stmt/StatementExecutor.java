@@ -2,14 +2,22 @@ package com.j256.ormlite.stmt;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.j256.ormlite.dao.BaseDaoImpl;
 import com.j256.ormlite.dao.Dao;
 import com.j256.ormlite.dao.GenericRawResults;
+import com.j256.ormlite.dao.NegativeLookupObjectCache;
 import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.dao.QueryResultCache;
 import com.j256.ormlite.dao.RawRowMapper;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.DataType;
@@ -23,7 +31,10 @@ import com.j256.ormlite.stmt.StatementBuilder.StatementType;
 import com.j256.ormlite.stmt.mapped.MappedCreate;
 import com.j256.ormlite.stmt.mapped.MappedDelete;
 import com.j256.ormlite.stmt.mapped.MappedDeleteCollection;
+import com.j256.ormlite.stmt.mapped.MappedLoadLazyFields;
+import com.j256.ormlite.stmt.mapped.MappedPreparedStmt;
 import com.j256.ormlite.stmt.mapped.MappedQueryForId;
+import com.j256.ormlite.stmt.mapped.MappedQueryForIds;
 import com.j256.ormlite.stmt.mapped.MappedRefresh;
 import com.j256.ormlite.stmt.mapped.MappedUpdate;
 import com.j256.ormlite.stmt.mapped.MappedUpdateId;
@@ -53,16 +64,20 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	private final TableInfo<T, ID> tableInfo;
 	private final Dao<T, ID> dao;
 	private MappedQueryForId<T, ID> mappedQueryForId;
+	private final Map<Integer, MappedQueryForIds<T, ID>> mappedQueryForIdsMap =
+			new ConcurrentHashMap<Integer, MappedQueryForIds<T, ID>>();
 	private PreparedQuery<T> preparedQueryForAll;
 	private MappedCreate<T, ID> mappedInsert;
 	private MappedUpdate<T, ID> mappedUpdate;
 	private MappedUpdateId<T, ID> mappedUpdateId;
 	private MappedDelete<T, ID> mappedDelete;
 	private MappedRefresh<T, ID> mappedRefresh;
+	private MappedLoadLazyFields<T, ID> mappedLoadLazyFields;
 	private String countStarQuery;
 	private String ifExistsQuery;
 	private FieldType[] ifExistsFieldTypes;
 	private RawRowMapper<T> rawRowMapper;
+	private volatile QueryResultCache<T> queryResultCache;
 
 	/**
 	 * Provides statements for various SQL operations.
@@ -81,7 +96,136 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedQueryForId == null) {
 			mappedQueryForId = MappedQueryForId.build(databaseType, tableInfo, null);
 		}
-		return mappedQueryForId.execute(databaseConnection, id, objectCache);
+		NegativeLookupObjectCache negativeCache = null;
+		long tombstoneVersion = 0;
+		if (objectCache instanceof NegativeLookupObjectCache) {
+			negativeCache = (NegativeLookupObjectCache) objectCache;
+			if (negativeCache.hasTombstone(tableInfo.getDataClass(), id)) {
+				logger.debug("id {} of {} has a tombstone in the cache", id, tableInfo.getDataClass());
+				return null;
+			}
+			// gotten before the query so we don't add a tombstone for an id that is created while we query
+			tombstoneVersion = negativeCache.getTombstoneVersion(tableInfo.getDataClass(), id);
+		}
+		T result = mappedQueryForId.execute(databaseConnection, id, objectCache);
+		if (result == null && negativeCache != null) {
+			negativeCache.addTombstone(tableInfo.getDataClass(), id, tombstoneVersion);
+		}
+		return result;
+	}
+
+	/**
+	 * Return a map of the ids to the objects with those ids in the order of the ids collection. The object cache is
+	 * consulted first and then the rest of the objects are queried for using IN statements of up to
+	 * {@link MappedQueryForIds#MAX_IDS_PER_QUERY} ids. Ids that do not match a row are not in the map.
+	 */
+	public Map<ID, T> queryForIds(DatabaseConnection databaseConnection, Collection<ID> ids, ObjectCache objectCache)
+			throws SQLException {
+		Class<T> dataClass = tableInfo.getDataClass();
+		FieldType idField = tableInfo.getIdField();
+		// we add all of the ids with null values first so the map is in the order of the ids
+		Map<ID, T> resultMap = new LinkedHashMap<ID, T>();
+		// the ids converted to the type of the id field mapped to the ids that were passed in
+		Map<Object, ID> fieldIdMap = new HashMap<Object, ID>();
+		List<Object> missingIds = new ArrayList<Object>();
+		NegativeLookupObjectCache negativeCache = null;
+		List<Long> tombstoneVersions = null;
+		if (objectCache instanceof NegativeLookupObjectCache) {
+			negativeCache = (NegativeLookupObjectCache) objectCache;
+			tombstoneVersions = new ArrayList<Long>();
+		}
+		for (ID id : ids) {
+			if (id == null || resultMap.containsKey(id)) {
+				continue;
+			}
+			Object fieldId = convertIdToFieldType(idField, id);
+			fieldIdMap.put(fieldId, id);
+			T result = null;
+			if (objectCache != null) {
+				result = objectCache.get(dataClass, fieldId);
+			}
+			resultMap.put(id, result);
+			if (result != null) {
+				continue;
+			}
+			if (negativeCache != null) {
+				if (negativeCache.hasTombstone(dataClass, fieldId)) {
+					continue;
+				}
+				tombstoneVersions.add(negativeCache.getTombstoneVersion(dataClass, fieldId));
+			}
+			missingIds.add(fieldId);
+		}
+		if (missingIds.isEmpty()) {
+			removeNotFound(resultMap);
+			return resultMap;
+		}
+		logger.debug("query-for-ids found {} of {} ids in the cache", resultMap.size() - missingIds.size(),
+				resultMap.size());
+
+		Object[] idArray = missingIds.toArray();
+		List<T> results = new ArrayList<T>(idArray.length);
+		for (int offset = 0; offset < idArray.length; offset += MappedQueryForIds.MAX_IDS_PER_QUERY) {
+			int length = Math.min(idArray.length - offset, MappedQueryForIds.MAX_IDS_PER_QUERY);
+			int idArgC = MappedQueryForIds.idArgCount(length);
+			MappedQueryForIds<T, ID> mappedQueryForIds = mappedQueryForIdsMap.get(idArgC);
+			if (mappedQueryForIds == null) {
+				mappedQueryForIds = MappedQueryForIds.build(databaseType, tableInfo, idArgC);
+				mappedQueryForIdsMap.put(idArgC, mappedQueryForIds);
+			}
+			mappedQueryForIds.execute(databaseConnection, idArray, offset, length, objectCache, results);
+		}
+
+		for (T result : results) {
+			// the row's id is of the field's type so we look up the id that was passed in
+			ID id = fieldIdMap.get(idField.extractJavaFieldValue(result));
+			if (id != null) {
+				resultMap.put(id, result);
+			}
+		}
+		if (negativeCache != null) {
+			for (int i = 0; i < idArray.length; i++) {
+				if (resultMap.get(fieldIdMap.get(idArray[i])) == null) {
+					negativeCache.addTombstone(dataClass, idArray[i], tombstoneVersions.get(i));
+				}
+			}
+		}
+		removeNotFound(resultMap);
+		return resultMap;
+	}
+
+	/**
+	 * Remove the ids that weren't found.
+	 */
+	private void removeNotFound(Map<ID, T> resultMap) {
+		Iterator<T> iterator = resultMap.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == null) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Convert an id into the Java type of the id field so it matches the ids of the rows. For example a Long id for an
+	 * int id field is converted to an Integer. Ids that can't be converted are returned unchanged.
+	 */
+	private Object convertIdToFieldType(FieldType idField, Object id) throws SQLException {
+		Object defaultValue = idField.getJavaDefaultValueDefault();
+		// this gets us the wrapper class of primitive fields
+		Class<?> fieldClass = (defaultValue == null ? idField.getType() : defaultValue.getClass());
+		if (fieldClass.isInstance(id) || !(id instanceof Number || id instanceof String)) {
+			return id;
+		}
+		try {
+			Object fieldId = idField.convertStringToJavaField(id.toString(), 0);
+			if (fieldClass.isInstance(fieldId)) {
+				return fieldId;
+			}
+		} catch (RuntimeException e) {
+			// it doesn't parse as the field type
+		}
+		return id;
 	}
 
 	/**
@@ -178,9 +322,31 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	 */
 	public List<T> query(ConnectionSource connectionSource, PreparedStmt<T> preparedStmt, ObjectCache objectCache)
 			throws SQLException {
+		QueryResultCache<T> resultCache = queryResultCache;
+		if (resultCache == null || !(preparedStmt instanceof MappedPreparedStmt)) {
+			return queryDatabase(connectionSource, preparedStmt, objectCache);
+		}
+		QueryResultCache.Key key = ((MappedPreparedStmt<T, ?>) preparedStmt).buildQueryResultCacheKey();
+		List<T> results = resultCache.get(key);
+		if (results != null) {
+			logger.debug("query of '{}' returned {} cached results", preparedStmt.getStatement(), results.size());
+			return results;
+		}
+		// get the generation before the query so a write while we are querying is not missed
+		long generation = resultCache.getGeneration(key);
+		results = queryDatabase(connectionSource, preparedStmt, objectCache);
+		// results read in a transaction may have rows that are rolled back
+		if (connectionSource.getSpecialConnection() == null) {
+			resultCache.put(key, generation, results);
+		}
+		return results;
+	}
+
+	private List<T> queryDatabase(ConnectionSource connectionSource, PreparedStmt<T> preparedStmt,
+			ObjectCache objectCache) throws SQLException {
 		SelectIterator<T, ID> iterator =
-				buildIterator(/* no dao specified because no removes */null, connectionSource, preparedStmt, objectCache,
-						DatabaseConnection.DEFAULT_RESULT_FLAGS);
+				buildIterator(/* no dao specified because no removes */null, connectionSource, preparedStmt,
+						objectCache, DatabaseConnection.DEFAULT_RESULT_FLAGS);
 		try {
 			List<T> results = new ArrayList<T>();
 			while (iterator.hasNextThrow()) {
@@ -354,6 +520,7 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 			return compiledStatement.runUpdate();
 		} finally {
 			compiledStatement.close();
+			allTablesChanged();
 		}
 	}
 
@@ -362,7 +529,11 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	 */
 	public int executeRawNoArgs(DatabaseConnection connection, String statement) throws SQLException {
 		logger.debug("running raw execute statement: {}", statement);
-		return connection.executeStatement(statement, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+		try {
+			return connection.executeStatement(statement, DatabaseConnection.DEFAULT_RESULT_FLAGS);
+		} finally {
+			allTablesChanged();
+		}
 	}
 
 	/**
@@ -381,6 +552,7 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 			return compiledStatement.runExecute();
 		} finally {
 			compiledStatement.close();
+			allTablesChanged();
 		}
 	}
 
@@ -391,7 +563,26 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedInsert == null) {
 			mappedInsert = MappedCreate.build(databaseType, tableInfo);
 		}
-		return mappedInsert.insert(databaseType, databaseConnection, data, objectCache);
+		try {
+			return mappedInsert.insert(databaseType, databaseConnection, data, objectCache);
+		} finally {
+			tableChanged();
+		}
+	}
+
+	/**
+	 * Create new entries in the database from a collection of objects.
+	 */
+	public int createObjects(DatabaseConnection databaseConnection, Collection<T> datas, ObjectCache objectCache)
+			throws SQLException {
+		if (mappedInsert == null) {
+			mappedInsert = MappedCreate.build(databaseType, tableInfo);
+		}
+		try {
+			return mappedInsert.insertObjects(databaseType, databaseConnection, datas, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -401,7 +592,27 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedUpdate == null) {
 			mappedUpdate = MappedUpdate.build(databaseType, tableInfo);
 		}
-		return mappedUpdate.update(databaseConnection, data, objectCache);
+		try {
+			return mappedUpdate.update(databaseConnection, data, objectCache);
+		} finally {
+			tableChanged();
+		}
+	}
+
+	/**
+	 * Update only the changed fields of an object in the database. See
+	 * {@link MappedUpdate#update(DatabaseConnection, Object, BitSet, ObjectCache)}.
+	 */
+	public int update(DatabaseConnection databaseConnection, T data, BitSet changedFields, ObjectCache objectCache)
+			throws SQLException {
+		if (mappedUpdate == null) {
+			mappedUpdate = MappedUpdate.build(databaseType, tableInfo);
+		}
+		try {
+			return mappedUpdate.update(databaseConnection, data, changedFields, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -412,7 +623,11 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedUpdateId == null) {
 			mappedUpdateId = MappedUpdateId.build(databaseType, tableInfo);
 		}
-		return mappedUpdateId.execute(databaseConnection, data, newId, objectCache);
+		try {
+			return mappedUpdateId.execute(databaseConnection, data, newId, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -424,6 +639,7 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 			return stmt.runUpdate();
 		} finally {
 			stmt.close();
+			tableChanged();
 		}
 	}
 
@@ -438,6 +654,18 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		return mappedRefresh.executeRefresh(databaseConnection, data, objectCache);
 	}
 
+	/**
+	 * Does a query for the object's Id and assigns the values of the lazy fields from the database to the data
+	 * parameter.
+	 */
+	public int loadLazyFields(DatabaseConnection databaseConnection, T data, ObjectCache objectCache)
+			throws SQLException {
+		if (mappedLoadLazyFields == null) {
+			mappedLoadLazyFields = MappedLoadLazyFields.build(databaseType, tableInfo);
+		}
+		return mappedLoadLazyFields.execute(databaseConnection, data, objectCache);
+	}
+
 	/**
 	 * Delete an object from the database.
 	 */
@@ -445,7 +673,11 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedDelete == null) {
 			mappedDelete = MappedDelete.build(databaseType, tableInfo);
 		}
-		return mappedDelete.delete(databaseConnection, data, objectCache);
+		try {
+			return mappedDelete.delete(databaseConnection, data, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -455,7 +687,11 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		if (mappedDelete == null) {
 			mappedDelete = MappedDelete.build(databaseType, tableInfo);
 		}
-		return mappedDelete.deleteById(databaseConnection, id, objectCache);
+		try {
+			return mappedDelete.deleteById(databaseConnection, id, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -464,7 +700,12 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	public int deleteObjects(DatabaseConnection databaseConnection, Collection<T> datas, ObjectCache objectCache)
 			throws SQLException {
 		// have to build this on the fly because the collection has variable number of args
-		return MappedDeleteCollection.deleteObjects(databaseType, tableInfo, databaseConnection, datas, objectCache);
+		try {
+			return MappedDeleteCollection.deleteObjects(databaseType, tableInfo, databaseConnection, datas,
+					objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -473,7 +714,11 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	public int deleteIds(DatabaseConnection databaseConnection, Collection<ID> ids, ObjectCache objectCache)
 			throws SQLException {
 		// have to build this on the fly because the collection has variable number of args
-		return MappedDeleteCollection.deleteIds(databaseType, tableInfo, databaseConnection, ids, objectCache);
+		try {
+			return MappedDeleteCollection.deleteIds(databaseType, tableInfo, databaseConnection, ids, objectCache);
+		} finally {
+			tableChanged();
+		}
 	}
 
 	/**
@@ -485,9 +730,24 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 			return stmt.runUpdate();
 		} finally {
 			stmt.close();
+			tableChanged();
 		}
 	}
 
+	/**
+	 * Set the cache of query results or null to disable it.
+	 */
+	public void setQueryResultCache(QueryResultCache<T> queryResultCache) {
+		if (queryResultCache != null) {
+			queryResultCache.registerTable(dao.getConnectionSource(), tableInfo.getTableName());
+		}
+		this.queryResultCache = queryResultCache;
+	}
+
+	public QueryResultCache<T> getQueryResultCache() {
+		return queryResultCache;
+	}
+
 	/**
 	 * Call batch tasks inside of a connection which may, or may not, have been "saved".
 	 */
@@ -537,6 +797,24 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 	}
 
 	public boolean ifExists(DatabaseConnection connection, ID id) throws SQLException {
+		return ifExists(connection, id, null);
+	}
+
+	/**
+	 * Return true if there is a row with the id. If the object cache is a {@link NegativeLookupObjectCache} then the
+	 * ids that don't exist are remembered.
+	 */
+	public boolean ifExists(DatabaseConnection connection, ID id, ObjectCache objectCache) throws SQLException {
+		NegativeLookupObjectCache negativeCache = null;
+		long tombstoneVersion = 0;
+		if (objectCache instanceof NegativeLookupObjectCache) {
+			negativeCache = (NegativeLookupObjectCache) objectCache;
+			if (negativeCache.hasTombstone(tableInfo.getDataClass(), id)) {
+				logger.debug("id {} of {} has a tombstone in the cache", id, tableInfo.getDataClass());
+				return false;
+			}
+			tombstoneVersion = negativeCache.getTombstoneVersion(tableInfo.getDataClass(), id);
+		}
 		if (ifExistsQuery == null) {
 			QueryBuilder<T, ID> qb = new QueryBuilder<T, ID>(databaseType, tableInfo, dao);
 			qb.selectRaw("COUNT(*)");
@@ -546,9 +824,50 @@ public class StatementExecutor<T, ID> implements GenericRowMapper<String[]> {
 		}
 		long count = connection.queryForLong(ifExistsQuery, new Object[] { id }, ifExistsFieldTypes);
 		logger.debug("query of '{}' returned {}", ifExistsQuery, count);
+		if (count == 0 && negativeCache != null) {
+			negativeCache.addTombstone(tableInfo.getDataClass(), id, tombstoneVersion);
+		}
 		return (count != 0);
 	}
 
+	/**
+	 * Make the cached query results from the table out of date. In a transaction this is done again once it commits
+	 * because a query on another connection may have cached the old rows in the meantime.
+	 */
+	private void tableChanged() {
+		if (dao == null) {
+			return;
+		}
+		final ConnectionSource connectionSource = dao.getConnectionSource();
+		final String tableName = tableInfo.getTableName();
+		QueryResultCache.incrementTableGeneration(connectionSource, tableName);
+		if (connectionSource.getSpecialConnection() != null) {
+			TransactionManager.runAfterCommit(new Runnable() {
+				public void run() {
+					QueryResultCache.incrementTableGeneration(connectionSource, tableName);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Make the cached query results from all of the tables out of date.
+	 */
+	private void allTablesChanged() {
+		if (dao == null) {
+			return;
+		}
+		final ConnectionSource connectionSource = dao.getConnectionSource();
+		QueryResultCache.incrementAllTablesGeneration(connectionSource);
+		if (connectionSource.getSpecialConnection() != null) {
+			TransactionManager.runAfterCommit(new Runnable() {
+				public void run() {
+					QueryResultCache.incrementAllTablesGeneration(connectionSource);
+				}
+			});
+		}
+	}
+
 	private void assignStatementArguments(CompiledStatement compiledStatement, String[] arguments) throws SQLException {
 		for (int i = 0; i < arguments.length; i++) {
 			compiledStatement.setObject(i, arguments[i], SqlType.STRING);
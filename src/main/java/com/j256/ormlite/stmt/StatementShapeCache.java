@@ -0,0 +1,136 @@
+package com.j256.ormlite.stmt;
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+
+/**
+ * Cache of the SQL built by {@link QueryBuilder#prepare()} stored by the "shape" of the query: its selected columns,
+ * where clauses, ordering, limit, etc. but not the values that it is compared with. When the same shape is prepared
+ * again, the SQL is taken from the cache instead of being rebuilt and the new values are bound as arguments. It can be
+ * set on a query-builder with {@link QueryBuilder#setStatementShapeCache(StatementShapeCache)} or on a dao with
+ * {@link Dao#setStatementShapeCache(StatementShapeCache)} so all of its query-builders use it.
+ * 
+ * <p>
+ * <b>NOTE:</b> To make the SQL the same for different values, the values passed to the {@link Where} methods of a
+ * query-builder using the cache are turned into {@link SelectArg} arguments instead of being added to the SQL.
+ * Queries with joins or sub-queries are built each time.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class StatementShapeCache {
+
+	private final int capacity;
+	private final LimitedLinkedHashMap<Object, Template> templateMap;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            Number of different query shapes whose SQL is cached. The least-recently-used is ejected when the
+	 *            cache is full.
+	 */
+	public StatementShapeCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than 0: " + capacity);
+		}
+		this.capacity = capacity;
+		this.templateMap = new LimitedLinkedHashMap<Object, Template>(capacity);
+	}
+
+	/**
+	 * Remove all of the statements from the cache.
+	 */
+	public void clear() {
+		synchronized (templateMap) {
+			templateMap.clear();
+		}
+	}
+
+	/**
+	 * Return the number of query shapes in the cache.
+	 */
+	public int size() {
+		synchronized (templateMap) {
+			return templateMap.size();
+		}
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Return the number of times that the SQL of a query was found in the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Return the number of times that the SQL of a query had to be built.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	Template get(Object shape) {
+		Template template;
+		synchronized (templateMap) {
+			template = templateMap.get(shape);
+		}
+		if (template == null) {
+			missCount.incrementAndGet();
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return template;
+	}
+
+	void put(Object shape, Template template) {
+		synchronized (templateMap) {
+			templateMap.put(shape, template);
+		}
+	}
+
+	/**
+	 * The parts of a prepared statement which are the same for all queries with the same shape.
+	 */
+	static class Template {
+		final String statement;
+		final FieldType[] resultFieldTypes;
+		final StatementType type;
+		final int argCount;
+
+		public Template(String statement, FieldType[] resultFieldTypes, StatementType type, int argCount) {
+			this.statement = statement;
+			this.resultFieldTypes = resultFieldTypes;
+			this.type = type;
+			this.argCount = argCount;
+		}
+	}
+
+	/**
+	 * Little extension of the LinkedHashMap to limit the number of entries.
+	 */
+	private static class LimitedLinkedHashMap<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 4417264627581376434L;
+		private final int capacity;
+
+		public LimitedLinkedHashMap(int capacity) {
+			super(capacity, 0.75F, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
@@ -22,6 +23,7 @@ import com.j256.ormlite.stmt.query.ManyClause;
 import com.j256.ormlite.stmt.query.NeedsFutureClause;
 import com.j256.ormlite.stmt.query.Not;
 import com.j256.ormlite.stmt.query.Raw;
+import com.j256.ormlite.stmt.query.ShapedClause;
 import com.j256.ormlite.stmt.query.SimpleComparison;
 import com.j256.ormlite.table.TableInfo;
 
@@ -132,6 +134,7 @@ public class Where<T, ID> {
 	private Clause[] clauseStack = new Clause[START_CLAUSE_SIZE];
 	private int clauseStackLevel = 0;
 	private NeedsFutureClause needsFuture = null;
+	private List<QueryBuilder<?, ?>> subQueryBuilders = null;
 
 	Where(TableInfo<T, ID> tableInfo, StatementBuilder<T, ID> statementBuilder, DatabaseType databaseType) {
 		// limit the constructor scope
@@ -198,7 +201,8 @@ public class Where<T, ID> {
 	 * Add a BETWEEN clause so the column must be between the low and high parameters.
 	 */
 	public Where<T, ID> between(String columnName, Object low, Object high) throws SQLException {
-		addClause(new Between(columnName, findColumnFieldType(columnName), low, high));
+		addClause(new Between(columnName, findColumnFieldType(columnName), liftValue(columnName, low),
+				liftValue(columnName, high)));
 		return this;
 	}
 
@@ -206,7 +210,7 @@ public class Where<T, ID> {
 	 * Add a '=' clause so the column must be equal to the value.
 	 */
 	public Where<T, ID> eq(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.EQUAL_TO_OPERATION));
 		return this;
 	}
@@ -215,7 +219,7 @@ public class Where<T, ID> {
 	 * Add a '&gt;=' clause so the column must be greater-than or equals-to the value.
 	 */
 	public Where<T, ID> ge(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.GREATER_THAN_EQUAL_TO_OPERATION));
 		return this;
 	}
@@ -224,7 +228,7 @@ public class Where<T, ID> {
 	 * Add a '&gt;' clause so the column must be greater-than the value.
 	 */
 	public Where<T, ID> gt(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.GREATER_THAN_OPERATION));
 		return this;
 	}
@@ -233,7 +237,7 @@ public class Where<T, ID> {
 	 * Add a IN clause so the column must be equal-to one of the objects from the list passed in.
 	 */
 	public Where<T, ID> in(String columnName, Iterable<?> objects) throws SQLException {
-		addClause(new In(columnName, findColumnFieldType(columnName), objects, true));
+		addClause(new In(columnName, findColumnFieldType(columnName), liftValues(columnName, objects), true));
 		return this;
 	}
 
@@ -241,7 +245,7 @@ public class Where<T, ID> {
 	 * Same as {@link #in(String, Iterable)} except with a NOT IN clause.
 	 */
 	public Where<T, ID> notIn(String columnName, Iterable<?> objects) throws SQLException {
-		addClause(new In(columnName, findColumnFieldType(columnName), objects, false));
+		addClause(new In(columnName, findColumnFieldType(columnName), liftValues(columnName, objects), false));
 		return this;
 	}
 
@@ -291,6 +295,7 @@ public class Where<T, ID> {
 		// we do this to turn off the automatic addition of the ID column in the select column list
 		subQueryBuilder.enableInnerQuery();
 		addClause(new Exists(new InternalQueryBuilderWrapper(subQueryBuilder)));
+		addSubQueryBuilder(subQueryBuilder);
 		return this;
 	}
 
@@ -314,7 +319,7 @@ public class Where<T, ID> {
 	 * Add a '&lt;=' clause so the column must be less-than or equals-to the value.
 	 */
 	public Where<T, ID> le(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.LESS_THAN_EQUAL_TO_OPERATION));
 		return this;
 	}
@@ -323,7 +328,7 @@ public class Where<T, ID> {
 	 * Add a '&lt;' clause so the column must be less-than the value.
 	 */
 	public Where<T, ID> lt(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.LESS_THAN_OPERATION));
 		return this;
 	}
@@ -332,7 +337,7 @@ public class Where<T, ID> {
 	 * Add a LIKE clause so the column must mach the value using '%' patterns.
 	 */
 	public Where<T, ID> like(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.LIKE_OPERATION));
 		return this;
 	}
@@ -341,7 +346,7 @@ public class Where<T, ID> {
 	 * Add a '&lt;&gt;' clause so the column must be not-equal-to the value.
 	 */
 	public Where<T, ID> ne(String columnName, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value,
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
 				SimpleComparison.NOT_EQUAL_TO_OPERATION));
 		return this;
 	}
@@ -417,7 +422,8 @@ public class Where<T, ID> {
 		if (idColumnName == null) {
 			throw new SQLException("Object has no id column specified");
 		}
-		addClause(new SimpleComparison(idColumnName, idFieldType, id, SimpleComparison.EQUAL_TO_OPERATION));
+		addClause(new SimpleComparison(idColumnName, idFieldType, liftValue(idColumnName, id),
+				SimpleComparison.EQUAL_TO_OPERATION));
 		return this;
 	}
 
@@ -428,7 +434,7 @@ public class Where<T, ID> {
 		if (idColumnName == null) {
 			throw new SQLException("Object has no id column specified");
 		}
-		addClause(new SimpleComparison(idColumnName, idFieldType, dataDao.extractId(data),
+		addClause(new SimpleComparison(idColumnName, idFieldType, liftValue(idColumnName, dataDao.extractId(data)),
 				SimpleComparison.EQUAL_TO_OPERATION));
 		return this;
 	}
@@ -467,7 +473,8 @@ public class Where<T, ID> {
 	 * operator for the database and that it be formatted correctly.
 	 */
 	public Where<T, ID> rawComparison(String columnName, String rawOperator, Object value) throws SQLException {
-		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), value, rawOperator));
+		addClause(new SimpleComparison(columnName, findColumnFieldType(columnName), liftValue(columnName, value),
+				rawOperator));
 		return this;
 	}
 
@@ -560,6 +567,22 @@ public class Where<T, ID> {
 		peek().appendSql(databaseType, tableName, sb, columnArgList);
 	}
 
+	/**
+	 * Add the shape of the where clauses to the list. See {@link ShapedClause#appendShape(List, List)}.
+	 */
+	boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		if (clauseStackLevel != 1) {
+			// the SQL can't be built so let that throw
+			return false;
+		}
+		Clause clause = peek();
+		if (clause instanceof ShapedClause) {
+			return ((ShapedClause) clause).appendShape(shape, argList);
+		} else {
+			return false;
+		}
+	}
+
 	@Override
 	public String toString() {
 		if (clauseStackLevel == 0) {
@@ -570,6 +593,17 @@ public class Where<T, ID> {
 		}
 	}
 
+	/**
+	 * Add the names of the tables that the sub-queries read to the set.
+	 */
+	void appendSubQueryTableNames(Set<String> tableNames) {
+		if (subQueryBuilders != null) {
+			for (QueryBuilder<?, ?> subQueryBuilder : subQueryBuilders) {
+				subQueryBuilder.appendTableNames(tableNames);
+			}
+		}
+	}
+
 	private QueryBuilder<T, ID> checkQueryBuilderMethod(String methodName) throws SQLException {
 		if (statementBuilder instanceof QueryBuilder) {
 			return (QueryBuilder<T, ID>) statementBuilder;
@@ -594,7 +628,8 @@ public class Where<T, ID> {
 						+ " seems to be a prepared statement, did you mean the QueryBuilder?");
 			}
 		}
-		addClause(new In(columnName, findColumnFieldType(columnName), objects, in));
+		addClause(new In(columnName, findColumnFieldType(columnName), liftValues(columnName, Arrays.asList(objects)),
+				in));
 		return this;
 	}
 
@@ -612,9 +647,17 @@ public class Where<T, ID> {
 		subQueryBuilder.enableInnerQuery();
 		addClause(new InSubQuery(columnName, findColumnFieldType(columnName), new InternalQueryBuilderWrapper(
 				subQueryBuilder), in));
+		addSubQueryBuilder(subQueryBuilder);
 		return this;
 	}
 
+	private void addSubQueryBuilder(QueryBuilder<?, ?> subQueryBuilder) {
+		if (subQueryBuilders == null) {
+			subQueryBuilders = new ArrayList<QueryBuilder<?, ?>>();
+		}
+		subQueryBuilders.add(subQueryBuilder);
+	}
+
 	private Clause[] buildClauseArray(Where<T, ID>[] others, String label) {
 		Clause[] clauses;
 		if (others.length == 0) {
@@ -648,6 +691,38 @@ public class Where<T, ID> {
 		}
 	}
 
+	/**
+	 * If the statement is cached by its shape then turn the value into an argument so the SQL is the same for all
+	 * values.
+	 */
+	private Object liftValue(String columnName, Object value) {
+		if (value == null || value instanceof ArgumentHolder || value instanceof ColumnArg
+				|| !isStatementShapeCached()) {
+			return value;
+		}
+		FieldType fieldType = findColumnFieldType(columnName);
+		if (fieldType.isForeign() && fieldType.getType().isAssignableFrom(value.getClass())) {
+			// the id is extracted from foreign objects when the SQL is built
+			return value;
+		}
+		return new SelectArg(value);
+	}
+
+	private Iterable<?> liftValues(String columnName, Iterable<?> values) {
+		if (!isStatementShapeCached()) {
+			return values;
+		}
+		List<Object> liftedValues = new ArrayList<Object>();
+		for (Object value : values) {
+			liftedValues.add(liftValue(columnName, value));
+		}
+		return liftedValues;
+	}
+
+	private boolean isStatementShapeCached() {
+		return statementBuilder != null && statementBuilder.isStatementShapeCached();
+	}
+
 	private FieldType findColumnFieldType(String columnName) {
 		return tableInfo.getFieldTypeByColumnName(columnName);
 	}
@@ -9,6 +9,8 @@ import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.stmt.GenericRowMapper;
 import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.table.DirtyFieldTracker;
+import com.j256.ormlite.table.LazyFieldTracker;
 import com.j256.ormlite.table.TableInfo;
 
 /**
@@ -90,6 +92,15 @@ public abstract class BaseMappedQuery<T, ID> extends BaseMappedStatement<T, ID>
 		if (objectCache != null && id != null) {
 			objectCache.put(clazz, id, instance);
 		}
+		DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+		if (dirtyFieldTracker != null) {
+			dirtyFieldTracker.snapshot(instance);
+		}
+		LazyFieldTracker<T, ID> lazyFieldTracker = tableInfo.getLazyFieldTracker();
+		if (lazyFieldTracker != null) {
+			// so an update doesn't overwrite the lazy fields that we didn't select
+			lazyFieldTracker.notLoaded(instance, resultsFieldTypes);
+		}
 		if (columnPositions == null) {
 			columnPositions = colPosMap;
 		}
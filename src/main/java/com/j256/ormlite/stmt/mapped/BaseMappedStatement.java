@@ -73,6 +73,33 @@ public abstract class BaseMappedStatement<T, ID> {
 		sb.append(' ');
 	}
 
+	/**
+	 * Append the SELECT of the columns that are loaded by default from the table. This is * unless the table has lazy
+	 * fields in which case the other columns are listed.
+	 */
+	static void appendSelectFromTable(DatabaseType databaseType, StringBuilder sb, TableInfo<?, ?> tableInfo) {
+		if (!tableInfo.hasLazyFields()) {
+			appendTableName(databaseType, sb, "SELECT * FROM ", tableInfo.getTableName());
+			return;
+		}
+		sb.append("SELECT ");
+		boolean first = true;
+		for (FieldType fieldType : tableInfo.getSelectFieldTypes()) {
+			// foreign collections don't have a column in the database
+			if (fieldType.isForeignCollection()) {
+				continue;
+			}
+			if (first) {
+				first = false;
+			} else {
+				sb.append(',');
+			}
+			databaseType.appendEscapedEntityName(sb, fieldType.getColumnName());
+		}
+		sb.append(' ');
+		appendTableName(databaseType, sb, "FROM ", tableInfo.getTableName());
+	}
+
 	static void appendFieldColumnName(DatabaseType databaseType, StringBuilder sb, FieldType fieldType,
 			List<FieldType> fieldTypeList) {
 		databaseType.appendEscapedEntityName(sb, fieldType.getColumnName());
@@ -1,14 +1,22 @@
 package com.j256.ormlite.stmt.mapped;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
+import com.j256.ormlite.dao.NegativeLookupObjectCache;
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.logger.Log.Level;
 import com.j256.ormlite.misc.SqlExceptionUtil;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.GeneratedKeyHolder;
+import com.j256.ormlite.table.DirtyFieldTracker;
 import com.j256.ormlite.table.TableInfo;
 
 /**
@@ -127,6 +135,14 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 				if (objectCache != null && foreignCollectionsAreAssigned(tableInfo.getForeignCollections(), data)) {
 					Object id = idField.extractJavaFieldValue(data);
 					objectCache.put(clazz, id, data);
+				} else if (objectCache instanceof NegativeLookupObjectCache) {
+					// not cached but we need to forget that the id was not in the database
+					Object id = idField.extractJavaFieldValue(data);
+					((NegativeLookupObjectCache) objectCache).removeTombstone(clazz, id);
+				}
+				DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+				if (dirtyFieldTracker != null) {
+					dirtyFieldTracker.snapshot(data);
 				}
 			}
 
@@ -136,6 +152,23 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 		}
 	}
 
+	/**
+	 * Create a collection of objects in the database. Any missing {@link DatabaseField#foreignAutoCreate()} objects
+	 * are created in a batch by their DAO before the objects themselves are inserted.
+	 */
+	public int insertObjects(DatabaseType databaseType, DatabaseConnection databaseConnection, Collection<T> datas,
+			ObjectCache objectCache) throws SQLException {
+		if (tableInfo.isForeignAutoCreate()) {
+			createForeignObjects(datas);
+		}
+		int rowC = 0;
+		for (T data : datas) {
+			// the foreign objects now have ids so insert won't create them again
+			rowC += insert(databaseType, databaseConnection, data, objectCache);
+		}
+		return rowC;
+	}
+
 	public static <T, ID> MappedCreate<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo) {
 		StringBuilder sb = new StringBuilder(128);
 		appendTableName(databaseType, sb, "INSERT INTO ", tableInfo.getTableName());
@@ -185,6 +218,27 @@ public class MappedCreate<T, ID> extends BaseMappedStatement<T, ID> {
 		return new MappedCreate<T, ID>(tableInfo, sb.toString(), argFieldTypes, queryNext, versionFieldTypeIndex);
 	}
 
+	private void createForeignObjects(Collection<T> datas) throws SQLException {
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (!fieldType.isForeignAutoCreate()) {
+				continue;
+			}
+			List<Object> foreignObjs = new ArrayList<Object>();
+			// a number of the objects may share the same foreign object which we only want to create once
+			Map<Object, Object> seenMap = new IdentityHashMap<Object, Object>();
+			for (T data : datas) {
+				Object foreignObj = fieldType.extractRawJavaFieldValue(data);
+				if (foreignObj != null && fieldType.getForeignIdField().isObjectsFieldValueDefault(foreignObj)
+						&& seenMap.put(foreignObj, foreignObj) == null) {
+					foreignObjs.add(foreignObj);
+				}
+			}
+			if (!foreignObjs.isEmpty()) {
+				fieldType.createWithForeignDao(foreignObjs);
+			}
+		}
+	}
+
 	private boolean foreignCollectionsAreAssigned(FieldType[] foreignCollections, Object data) throws SQLException {
 		for (FieldType fieldType : foreignCollections) {
 			if (fieldType.extractJavaFieldValue(data) == null) {
@@ -0,0 +1,94 @@
+package com.j256.ormlite.stmt.mapped;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.table.DirtyFieldTracker;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Mapped statement for loading the lazy fields of an object which are not loaded when it is queried.
+ * 
+ * @author graywatson
+ */
+public class MappedLoadLazyFields<T, ID> extends BaseMappedStatement<T, ID> {
+
+	private final FieldType[] lazyFieldTypes;
+
+	private MappedLoadLazyFields(TableInfo<T, ID> tableInfo, String statement, FieldType[] argFieldTypes,
+			FieldType[] lazyFieldTypes) {
+		super(tableInfo, statement, argFieldTypes);
+		this.lazyFieldTypes = lazyFieldTypes;
+	}
+
+	/**
+	 * Query for the lazy fields of the object and assign them to the object.
+	 * 
+	 * @return 1 if we found the object in the table by id or 0 if not.
+	 */
+	public int execute(DatabaseConnection databaseConnection, T data, ObjectCache objectCache) throws SQLException {
+		Object id = idField.extractJavaFieldToSqlArgValue(data);
+		CompiledStatement stmt = databaseConnection.compileStatement(statement, StatementType.SELECT, argFieldTypes);
+		try {
+			stmt.setObject(0, id, idField.getSqlType());
+			DatabaseResults results = stmt.runQuery(null);
+			if (!results.first()) {
+				logger.debug("load-lazy-fields using '{}' got no results for id {}", statement, id);
+				return 0;
+			}
+			Map<String, Integer> colPosMap = new HashMap<String, Integer>();
+			for (FieldType fieldType : lazyFieldTypes) {
+				Object value = fieldType.resultToJava(results, colPosMap);
+				fieldType.assignField(data, value, false, objectCache);
+			}
+			logger.debug("load-lazy-fields using '{}' loaded {} fields for id {}", statement, lazyFieldTypes.length,
+					id);
+		} catch (SQLException e) {
+			throw SqlExceptionUtil.create("Unable to run load-lazy-fields stmt: " + statement, e);
+		} finally {
+			stmt.close();
+		}
+		DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+		if (dirtyFieldTracker != null) {
+			// the lazy fields now match the database
+			dirtyFieldTracker.snapshotFields(data, lazyFieldTypes);
+		}
+		tableInfo.getLazyFieldTracker().loaded(data);
+		return 1;
+	}
+
+	public static <T, ID> MappedLoadLazyFields<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo)
+			throws SQLException {
+		FieldType idField = tableInfo.getIdField();
+		if (idField == null) {
+			throw new SQLException("Cannot load lazy fields of " + tableInfo.getDataClass()
+					+ " because it doesn't have an id field");
+		}
+		FieldType[] lazyFieldTypes = tableInfo.getLazyFieldTypes();
+		if (lazyFieldTypes.length == 0) {
+			throw new SQLException("Cannot load lazy fields of " + tableInfo.getDataClass()
+					+ " because it doesn't have any lazy fields");
+		}
+		StringBuilder sb = new StringBuilder(64);
+		sb.append("SELECT ");
+		for (int i = 0; i < lazyFieldTypes.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			databaseType.appendEscapedEntityName(sb, lazyFieldTypes[i].getColumnName());
+		}
+		sb.append(' ');
+		appendTableName(databaseType, sb, "FROM ", tableInfo.getTableName());
+		appendWhereFieldEq(databaseType, idField, sb, null);
+		return new MappedLoadLazyFields<T, ID>(tableInfo, sb.toString(), new FieldType[] { idField }, lazyFieldTypes);
+	}
+}
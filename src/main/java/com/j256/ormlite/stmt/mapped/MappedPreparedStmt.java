@@ -2,6 +2,7 @@ package com.j256.ormlite.stmt.mapped;
 
 import java.sql.SQLException;
 
+import com.j256.ormlite.dao.QueryResultCache;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.field.SqlType;
 import com.j256.ormlite.logger.Log.Level;
@@ -9,6 +10,7 @@ import com.j256.ormlite.stmt.ArgumentHolder;
 import com.j256.ormlite.stmt.PreparedDelete;
 import com.j256.ormlite.stmt.PreparedQuery;
 import com.j256.ormlite.stmt.PreparedUpdate;
+import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.StatementBuilder;
 import com.j256.ormlite.stmt.StatementBuilder.StatementType;
 import com.j256.ormlite.support.CompiledStatement;
@@ -26,14 +28,26 @@ public class MappedPreparedStmt<T, ID> extends BaseMappedQuery<T, ID> implements
 	private final ArgumentHolder[] argHolders;
 	private final Long limit;
 	private final StatementType type;
+	private final String[] otherTableNames;
 
 	public MappedPreparedStmt(TableInfo<T, ID> tableInfo, String statement, FieldType[] argFieldTypes,
 			FieldType[] resultFieldTypes, ArgumentHolder[] argHolders, Long limit, StatementType type) {
+		this(tableInfo, statement, argFieldTypes, resultFieldTypes, argHolders, limit, type, null);
+	}
+
+	/**
+	 * @param otherTableNames
+	 *            Names of the other tables that the statement reads with joins or sub-queries or null if none.
+	 */
+	public MappedPreparedStmt(TableInfo<T, ID> tableInfo, String statement, FieldType[] argFieldTypes,
+			FieldType[] resultFieldTypes, ArgumentHolder[] argHolders, Long limit, StatementType type,
+			String[] otherTableNames) {
 		super(tableInfo, statement, argFieldTypes, resultFieldTypes);
 		this.argHolders = argHolders;
 		// this is an Integer because it may be null
 		this.limit = limit;
 		this.type = type;
+		this.otherTableNames = otherTableNames;
 	}
 
 	public CompiledStatement compile(DatabaseConnection databaseConnection, StatementType type) throws SQLException {
@@ -71,6 +85,34 @@ public class MappedPreparedStmt<T, ID> extends BaseMappedQuery<T, ID> implements
 		argHolders[index].setValue(value);
 	}
 
+	public MappedPreparedStmt<T, ID> withArguments(Object... argValues) throws SQLException {
+		if (argValues.length != argHolders.length) {
+			throw new SQLException("Got " + argValues.length + " argument values but statement has "
+					+ argHolders.length + " argument holders: " + statement);
+		}
+		ArgumentHolder[] boundHolders = new ArgumentHolder[argHolders.length];
+		for (int i = 0; i < argHolders.length; i++) {
+			ArgumentHolder argHolder = argHolders[i];
+			// a new holder with the same meta information so the value is converted the same way
+			SelectArg boundHolder = new SelectArg(argHolder.getSqlType(), argValues[i]);
+			boundHolder.setMetaInfo(argHolder.getColumnName(), argHolder.getFieldType());
+			boundHolders[i] = boundHolder;
+		}
+		return new MappedPreparedStmt<T, ID>(tableInfo, statement, argFieldTypes, resultsFieldTypes, boundHolders,
+				limit, type, otherTableNames);
+	}
+
+	/**
+	 * Return the key of the results of this query in a {@link QueryResultCache} using the current argument values.
+	 */
+	public QueryResultCache.Key buildQueryResultCacheKey() throws SQLException {
+		Object[] argValues = new Object[argHolders.length];
+		for (int i = 0; i < argHolders.length; i++) {
+			argValues[i] = argHolders[i].getSqlArgValue();
+		}
+		return new QueryResultCache.Key(statement, limit, argValues, otherTableNames);
+	}
+
 	/**
 	 * Assign arguments to the statement.
 	 * 
@@ -62,14 +62,14 @@ public class MappedQueryForId<T, ID> extends BaseMappedQuery<T, ID> {
 		}
 		String statement = buildStatement(databaseType, tableInfo, idFieldType);
 		return new MappedQueryForId<T, ID>(tableInfo, statement, new FieldType[] { idFieldType },
-				tableInfo.getFieldTypes(), "query-for-id");
+				tableInfo.getSelectFieldTypes(), "query-for-id");
 	}
 
 	protected static <T, ID> String buildStatement(DatabaseType databaseType, TableInfo<T, ID> tableInfo,
 			FieldType idFieldType) {
 		// build the select statement by hand
 		StringBuilder sb = new StringBuilder(64);
-		appendTableName(databaseType, sb, "SELECT * FROM ", tableInfo.getTableName());
+		appendSelectFromTable(databaseType, sb, tableInfo);
 		appendWhereFieldEq(databaseType, idFieldType, sb, null);
 		return sb.toString();
 	}
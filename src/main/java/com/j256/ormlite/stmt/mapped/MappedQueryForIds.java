@@ -0,0 +1,114 @@
+package com.j256.ormlite.stmt.mapped;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.misc.SqlExceptionUtil;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.table.TableInfo;
+
+/**
+ * Mapped statement for querying for a number of objects by their IDs with a single IN statement.
+ * 
+ * <p>
+ * The number of arguments in the IN is rounded up to a power of 2 with the last id repeated to fill the extra
+ * arguments. This limits the number of different statements that the database has to prepare.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class MappedQueryForIds<T, ID> extends BaseMappedQuery<T, ID> {
+
+	/** maximum number of ids that are queried for in a single statement */
+	public static final int MAX_IDS_PER_QUERY = 256;
+
+	private final int idArgC;
+
+	private MappedQueryForIds(TableInfo<T, ID> tableInfo, String statement, FieldType[] argFieldTypes,
+			FieldType[] resultsFieldTypes) {
+		super(tableInfo, statement, argFieldTypes, resultsFieldTypes);
+		this.idArgC = argFieldTypes.length;
+	}
+
+	/**
+	 * Query for the objects whose ids are in the array from the offset for the length and add them to the results
+	 * list. The length must be less than or equal to the number of arguments of this statement.
+	 */
+	public void execute(DatabaseConnection databaseConnection, Object[] ids, int offset, int length,
+			ObjectCache objectCache, List<T> results) throws SQLException {
+		if (length > idArgC) {
+			throw new SQLException("Query-for-ids statement can only handle " + idArgC + " ids, not " + length);
+		}
+		CompiledStatement stmt = databaseConnection.compileStatement(statement, StatementType.SELECT, argFieldTypes);
+		try {
+			SqlType sqlType = idField.getSqlType();
+			Object arg = null;
+			for (int i = 0; i < idArgC; i++) {
+				// we fill the extra arguments with the last id
+				if (i < length) {
+					arg = idField.convertJavaFieldToSqlArgValue(ids[offset + i]);
+				}
+				stmt.setObject(i, arg, sqlType);
+			}
+			DatabaseResults databaseResults = stmt.runQuery(objectCache);
+			int resultC = 0;
+			if (databaseResults.first()) {
+				do {
+					results.add(mapRow(databaseResults));
+					resultC++;
+				} while (databaseResults.next());
+			}
+			logger.debug("query-for-ids using '{}' and {} ids, got {} results", statement, length, resultC);
+		} catch (SQLException e) {
+			throw SqlExceptionUtil.create("Unable to run query-for-ids stmt: " + statement, e);
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Return the number of arguments of the IN statement that should be used to query for the number of ids. This
+	 * is the number rounded up to the next power of 2 but no more than {@link #MAX_IDS_PER_QUERY}.
+	 */
+	public static int idArgCount(int idC) {
+		int argC = 1;
+		while (argC < idC && argC < MAX_IDS_PER_QUERY) {
+			argC <<= 1;
+		}
+		return argC;
+	}
+
+	/**
+	 * Build a query with the number of id arguments which should have come from {@link #idArgCount(int)}.
+	 */
+	public static <T, ID> MappedQueryForIds<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo,
+			int idArgC) throws SQLException {
+		FieldType idField = tableInfo.getIdField();
+		if (idField == null) {
+			throw new SQLException("Cannot query-for-ids with " + tableInfo.getDataClass()
+					+ " because it doesn't have an id field");
+		}
+		StringBuilder sb = new StringBuilder(64 + idArgC * 2);
+		appendSelectFromTable(databaseType, sb, tableInfo);
+		sb.append("WHERE ");
+		databaseType.appendEscapedEntityName(sb, idField.getColumnName());
+		sb.append(" IN (");
+		FieldType[] argFieldTypes = new FieldType[idArgC];
+		for (int i = 0; i < idArgC; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append('?');
+			argFieldTypes[i] = idField;
+		}
+		sb.append(") ");
+		return new MappedQueryForIds<T, ID>(tableInfo, sb.toString(), argFieldTypes, tableInfo.getSelectFieldTypes());
+	}
+}
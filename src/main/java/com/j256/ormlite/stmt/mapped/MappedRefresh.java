@@ -6,6 +6,7 @@ import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DirtyFieldTracker;
 import com.j256.ormlite.table.TableInfo;
 
 /**
@@ -40,6 +41,10 @@ public class MappedRefresh<T, ID> extends MappedQueryForId<T, ID> {
 				fieldType.assignField(data, fieldType.extractJavaFieldValue(result), false, objectCache);
 			}
 		}
+		DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+		if (dirtyFieldTracker != null) {
+			dirtyFieldTracker.snapshot(data);
+		}
 		return 1;
 	}
 
@@ -52,6 +57,6 @@ public class MappedRefresh<T, ID> extends MappedQueryForId<T, ID> {
 		}
 		String statement = buildStatement(databaseType, tableInfo, idField);
 		return new MappedRefresh<T, ID>(tableInfo, statement, new FieldType[] { tableInfo.getIdField() },
-				tableInfo.getFieldTypes());
+				tableInfo.getSelectFieldTypes());
 	}
 }
@@ -1,12 +1,17 @@
 package com.j256.ormlite.stmt.mapped;
 
 import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.j256.ormlite.dao.ObjectCache;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.misc.SqlExceptionUtil;
 import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.DirtyFieldTracker;
+import com.j256.ormlite.table.LazyFieldTracker;
 import com.j256.ormlite.table.TableInfo;
 
 /**
@@ -16,22 +21,56 @@ import com.j256.ormlite.table.TableInfo;
  */
 public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 
+	private final DatabaseType databaseType;
 	private final FieldType versionFieldType;
 	private final int versionFieldTypeIndex;
+	// updates of only some of the fields keyed by the indexes of the tracked fields, null if this is one of them
+	private final ConcurrentHashMap<BitSet, MappedUpdate<T, ID>> changedFieldUpdateMap;
 
-	private MappedUpdate(TableInfo<T, ID> tableInfo, String statement, FieldType[] argFieldTypes,
-			FieldType versionFieldType, int versionFieldTypeIndex) {
+	private MappedUpdate(DatabaseType databaseType, TableInfo<T, ID> tableInfo, String statement,
+			FieldType[] argFieldTypes, FieldType versionFieldType, int versionFieldTypeIndex, boolean allFields) {
 		super(tableInfo, statement, argFieldTypes);
+		this.databaseType = databaseType;
 		this.versionFieldType = versionFieldType;
 		this.versionFieldTypeIndex = versionFieldTypeIndex;
+		if (allFields) {
+			this.changedFieldUpdateMap = new ConcurrentHashMap<BitSet, MappedUpdate<T, ID>>();
+		} else {
+			this.changedFieldUpdateMap = null;
+		}
 	}
 
 	public static <T, ID> MappedUpdate<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo)
 			throws SQLException {
+		return build(databaseType, tableInfo, null);
+	}
+
+	/**
+	 * Build an update statement. If changedFields is not null then only the tracked fields whose index is set are
+	 * updated, see {@link DirtyFieldTracker#getTrackedFieldTypes()}.
+	 */
+	private static <T, ID> MappedUpdate<T, ID> build(DatabaseType databaseType, TableInfo<T, ID> tableInfo,
+			BitSet changedFields) throws SQLException {
 		FieldType idField = tableInfo.getIdField();
 		if (idField == null) {
 			throw new SQLException("Cannot update " + tableInfo.getDataClass() + " because it doesn't have an id field");
 		}
+		FieldType[] fieldTypes = tableInfo.getFieldTypes();
+		boolean[] updateFields = new boolean[fieldTypes.length];
+		int trackedFieldC = 0;
+		for (int i = 0; i < fieldTypes.length; i++) {
+			FieldType fieldType = fieldTypes[i];
+			if (!isFieldUpdatable(fieldType, idField)) {
+				continue;
+			}
+			if (!DirtyFieldTracker.isFieldTracked(fieldType, idField)) {
+				// the version field is always updated
+				updateFields[i] = true;
+			} else {
+				updateFields[i] = (changedFields == null || changedFields.get(trackedFieldC));
+				trackedFieldC++;
+			}
+		}
 		StringBuilder sb = new StringBuilder(64);
 		appendTableName(databaseType, sb, "UPDATE ", tableInfo.getTableName());
 		boolean first = true;
@@ -39,10 +78,10 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 		FieldType versionFieldType = null;
 		int versionFieldTypeIndex = -1;
 		// first we count up how many arguments we are going to have
-		for (FieldType fieldType : tableInfo.getFieldTypes()) {
-			if (isFieldUpdatable(fieldType, idField)) {
-				if (fieldType.isVersion()) {
-					versionFieldType = fieldType;
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (updateFields[i]) {
+				if (fieldTypes[i].isVersion()) {
+					versionFieldType = fieldTypes[i];
 					versionFieldTypeIndex = argFieldC;
 				}
 				argFieldC++;
@@ -56,8 +95,8 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 		}
 		FieldType[] argFieldTypes = new FieldType[argFieldC];
 		argFieldC = 0;
-		for (FieldType fieldType : tableInfo.getFieldTypes()) {
-			if (!isFieldUpdatable(fieldType, idField)) {
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (!updateFields[i]) {
 				continue;
 			}
 			if (first) {
@@ -66,8 +105,8 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 			} else {
 				sb.append(", ");
 			}
-			appendFieldColumnName(databaseType, sb, fieldType, null);
-			argFieldTypes[argFieldC++] = fieldType;
+			appendFieldColumnName(databaseType, sb, fieldTypes[i], null);
+			argFieldTypes[argFieldC++] = fieldTypes[i];
 			sb.append("= ?");
 		}
 		sb.append(' ');
@@ -79,13 +118,72 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 			sb.append("= ?");
 			argFieldTypes[argFieldC++] = versionFieldType;
 		}
-		return new MappedUpdate<T, ID>(tableInfo, sb.toString(), argFieldTypes, versionFieldType, versionFieldTypeIndex);
+		return new MappedUpdate<T, ID>(databaseType, tableInfo, sb.toString(), argFieldTypes, versionFieldType,
+				versionFieldTypeIndex, (changedFields == null));
 	}
 
 	/**
-	 * Update the object in the database.
+	 * Update the object in the database. If dirty-field tracking has been enabled and we have a snapshot of the object
+	 * then only the changed fields are updated. If none of them have changed and the class has a version field then
+	 * only the version is updated so the optimistic lock is still checked and 0 is returned if the version does not
+	 * match. If none of them have changed and there is no version field then the database is not called and 1 is
+	 * returned since the row was there when the snapshot was taken. Otherwise all of the fields are updated except for
+	 * lazy fields which were not loaded when the object was queried and have not been assigned since.
 	 */
 	public int update(DatabaseConnection databaseConnection, T data, ObjectCache objectCache) throws SQLException {
+		if (changedFieldUpdateMap == null) {
+			return updateFields(databaseConnection, data, objectCache);
+		}
+		BitSet changedFields = null;
+		DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+		if (dirtyFieldTracker != null) {
+			changedFields = dirtyFieldTracker.findChangedFields(data);
+			if (changedFields != null && changedFields.isEmpty() && versionFieldType == null) {
+				logger.debug("no fields changed in {} object, skipping update statement", clazz.getSimpleName());
+				// 0 would mean that the row was not found
+				return 1;
+			}
+		}
+		if (changedFields == null && tableInfo.hasLazyFields()) {
+			changedFields = findLoadedFields(tableInfo.getLazyFieldTracker().findNotLoadedFields(data));
+		}
+		if (changedFields == null) {
+			// no snapshot so we have to update all of the fields
+			return updateFields(databaseConnection, data, objectCache);
+		}
+		return findChangedFieldUpdate(changedFields).updateFields(databaseConnection, data, objectCache);
+	}
+
+	/**
+	 * Update only the tracked fields of the object whose index is set in changedFields, see
+	 * {@link DirtyFieldTracker#getTrackedFieldTypes()}, and the version field if any. This is used by callers which
+	 * track the changes themselves. The objects with the same changed fields share the same statement. If none of them
+	 * have changed then this works like {@link #update(DatabaseConnection, Object, ObjectCache)}.
+	 */
+	public int update(DatabaseConnection databaseConnection, T data, BitSet changedFields, ObjectCache objectCache)
+			throws SQLException {
+		if (changedFieldUpdateMap == null) {
+			throw new IllegalStateException("Update of changed fields can only be run on the update of all fields");
+		}
+		if (changedFields.isEmpty() && versionFieldType == null) {
+			logger.debug("no fields changed in {} object, skipping update statement", clazz.getSimpleName());
+			return 1;
+		}
+		return findChangedFieldUpdate(changedFields).updateFields(databaseConnection, data, objectCache);
+	}
+
+	private MappedUpdate<T, ID> findChangedFieldUpdate(BitSet changedFields) throws SQLException {
+		MappedUpdate<T, ID> changedFieldUpdate = changedFieldUpdateMap.get(changedFields);
+		if (changedFieldUpdate == null) {
+			changedFieldUpdate = build(databaseType, tableInfo, changedFields);
+			// we don't care if another thread built the same statement
+			changedFieldUpdateMap.put(changedFields, changedFieldUpdate);
+		}
+		return changedFieldUpdate;
+	}
+
+	private int updateFields(DatabaseConnection databaseConnection, T data, ObjectCache objectCache)
+			throws SQLException {
 		try {
 			// there is always and id field as an argument so just return 0 lines updated
 			if (argFieldTypes.length <= 1) {
@@ -109,15 +207,32 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 					Object id = idField.extractJavaFieldValue(data);
 					T cachedData = objectCache.get(clazz, id);
 					if (cachedData != null && cachedData != data) {
+						Set<FieldType> notLoadedFields = null;
+						if (tableInfo.hasLazyFields()) {
+							notLoadedFields = tableInfo.getLazyFieldTracker().findNotLoadedFields(data);
+						}
 						// copy each field from the updated data into the cached object
 						for (FieldType fieldType : tableInfo.getFieldTypes()) {
-							if (fieldType != idField) {
-								fieldType.assignField(cachedData, fieldType.extractJavaFieldValue(data), false,
-										objectCache);
+							if (fieldType == idField
+									|| (notLoadedFields != null && notLoadedFields.contains(fieldType))) {
+								continue;
 							}
+							fieldType.assignField(cachedData, fieldType.extractJavaFieldValue(data), false,
+									objectCache);
 						}
+						// caches that store a copy of the object need to be given the changes
+						objectCache.put(clazz, id, cachedData);
 					}
 				}
+				DirtyFieldTracker<T, ID> dirtyFieldTracker = tableInfo.getDirtyFieldTracker();
+				if (dirtyFieldTracker != null) {
+					// the database now matches the object
+					dirtyFieldTracker.snapshot(data);
+				}
+				LazyFieldTracker<T, ID> lazyFieldTracker = tableInfo.getLazyFieldTracker();
+				if (lazyFieldTracker != null) {
+					lazyFieldTracker.written(data);
+				}
 			}
 			logger.debug("update data with statement '{}' and {} args, changed {} rows", statement, args.length, rowC);
 			if (args.length > 0) {
@@ -130,6 +245,27 @@ public class MappedUpdate<T, ID> extends BaseMappedStatement<T, ID> {
 		}
 	}
 
+	/**
+	 * Return the indexes of the tracked fields without the lazy fields that were not loaded or null if there are none.
+	 */
+	private BitSet findLoadedFields(Set<FieldType> notLoadedFields) {
+		if (notLoadedFields == null) {
+			return null;
+		}
+		BitSet loadedFields = new BitSet();
+		int trackedFieldC = 0;
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (!DirtyFieldTracker.isFieldTracked(fieldType, idField)) {
+				continue;
+			}
+			if (!notLoadedFields.contains(fieldType)) {
+				loadedFields.set(trackedFieldC);
+			}
+			trackedFieldC++;
+		}
+		return loadedFields;
+	}
+
 	private static boolean isFieldUpdatable(FieldType fieldType, FieldType idField) {
 		if (fieldType == idField || fieldType.isForeignCollection() | fieldType.isReadOnly()) {
 			return false;
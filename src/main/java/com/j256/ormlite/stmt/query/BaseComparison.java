@@ -14,7 +14,7 @@ import com.j256.ormlite.stmt.SelectArg;
  * 
  * @author graywatson
  */
-abstract class BaseComparison implements Comparison {
+abstract class BaseComparison implements Comparison, ShapedClause {
 
 	private static final String NUMBER_CHARACTERS = "0123456789.-+";
 	protected final String columnName;
@@ -47,6 +47,12 @@ abstract class BaseComparison implements Comparison {
 		appendValue(databaseType, sb, argList);
 	}
 
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		shape.add(getClass());
+		shape.add(columnName);
+		return appendValueShape(shape, argList);
+	}
+
 	public String getColumnName() {
 		return columnName;
 	}
@@ -56,6 +62,13 @@ abstract class BaseComparison implements Comparison {
 		appendArgOrValue(databaseType, fieldType, sb, argList, value);
 	}
 
+	/**
+	 * Add the shape of the value to the list. This mirrors {@link #appendValue(DatabaseType, StringBuilder, List)}.
+	 */
+	protected boolean appendValueShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		return appendArgOrValueShape(fieldType, shape, argList, value);
+	}
+
 	/**
 	 * Append to the string builder either a {@link ArgumentHolder} argument or a value object.
 	 */
@@ -119,6 +132,44 @@ abstract class BaseComparison implements Comparison {
 		}
 	}
 
+	/**
+	 * Add the shape of either a {@link ArgumentHolder} argument or a value object to the list. This mirrors
+	 * {@link #appendArgOrValue(DatabaseType, FieldType, StringBuilder, List, Object)} with the argument values left out
+	 * of the shape. Other values are part of the shape since they are added to the SQL.
+	 */
+	protected boolean appendArgOrValueShape(FieldType fieldType, List<Object> shape, List<ArgumentHolder> argList,
+			Object argOrValue) throws SQLException {
+		if (argOrValue == null) {
+			// the SQL can't be built so let that throw
+			return false;
+		} else if (argOrValue instanceof ArgumentHolder) {
+			shape.add(ArgumentHolder.class);
+			ArgumentHolder argHolder = (ArgumentHolder) argOrValue;
+			argHolder.setMetaInfo(columnName, fieldType);
+			argList.add(argHolder);
+			return true;
+		} else if (fieldType.isArgumentHolderRequired()) {
+			shape.add(ArgumentHolder.class);
+			ArgumentHolder argHolder = new SelectArg();
+			argHolder.setMetaInfo(columnName, fieldType);
+			argHolder.setValue(argOrValue);
+			argList.add(argHolder);
+			return true;
+		} else if (fieldType.isForeign() && fieldType.getType().isAssignableFrom(argOrValue.getClass())) {
+			FieldType idFieldType = fieldType.getForeignIdField();
+			return appendArgOrValueShape(idFieldType, shape, argList, idFieldType.extractJavaFieldValue(argOrValue));
+		} else if (argOrValue instanceof ColumnArg) {
+			ColumnArg columnArg = (ColumnArg) argOrValue;
+			shape.add(ColumnArg.class);
+			shape.add(columnArg.getTableName());
+			shape.add(columnArg.getColumnName());
+			return true;
+		} else {
+			shape.add(argOrValue);
+			return true;
+		}
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
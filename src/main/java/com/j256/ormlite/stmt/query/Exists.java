@@ -13,7 +13,7 @@ import com.j256.ormlite.stmt.Where;
  * 
  * @author graywatson
  */
-public class Exists implements Clause {
+public class Exists implements ShapedClause {
 
 	private final InternalQueryBuilderWrapper subQueryBuilder;
 
@@ -27,4 +27,9 @@ public class Exists implements Clause {
 		subQueryBuilder.appendStatementString(sb, argList);
 		sb.append(") ");
 	}
+
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) {
+		// the sub-query has to be built
+		return false;
+	}
 }
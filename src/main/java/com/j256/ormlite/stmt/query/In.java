@@ -60,4 +60,21 @@ public class In extends BaseComparison {
 		}
 		sb.append(") ");
 	}
+
+	@Override
+	protected boolean appendValueShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		shape.add(in);
+		// the number of values is set after we count them
+		int countIndex = shape.size();
+		shape.add(null);
+		int count = 0;
+		for (Object value : objects) {
+			if (!appendArgOrValueShape(fieldType, shape, argList, value)) {
+				return false;
+			}
+			count++;
+		}
+		shape.set(countIndex, count);
+		return true;
+	}
 }
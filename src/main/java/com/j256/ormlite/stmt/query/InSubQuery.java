@@ -52,4 +52,10 @@ public class InSubQuery extends BaseComparison {
 		}
 		sb.append(") ");
 	}
+
+	@Override
+	protected boolean appendValueShape(List<Object> shape, List<ArgumentHolder> argList) {
+		// the sub-query has to be built
+		return false;
+	}
 }
@@ -11,11 +11,13 @@ import com.j256.ormlite.stmt.ArgumentHolder;
  * 
  * @author graywatson
  */
-public class ManyClause implements Clause, NeedsFutureClause {
+public class ManyClause implements ShapedClause, NeedsFutureClause {
 
 	public static final String AND_OPERATION = "AND";
 	public static final String OR_OPERATION = "OR";
 
+	private static final Object END_OF_CLAUSES = new Object();
+
 	private final Clause first;
 	private Clause second;
 	private final Clause[] others;
@@ -71,7 +73,37 @@ public class ManyClause implements Clause, NeedsFutureClause {
 		sb.append(") ");
 	}
 
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		shape.add(ManyClause.class);
+		shape.add(operation);
+		if (!appendClauseShape(first, shape, argList)) {
+			return false;
+		}
+		if (second != null && !appendClauseShape(second, shape, argList)) {
+			return false;
+		}
+		if (others != null) {
+			for (int i = startOthersAt; i < others.length; i++) {
+				if (!appendClauseShape(others[i], shape, argList)) {
+					return false;
+				}
+			}
+		}
+		// mark the end so the clauses after us aren't confused with ours
+		shape.add(END_OF_CLAUSES);
+		return true;
+	}
+
 	public void setMissingClause(Clause right) {
 		second = right;
 	}
+
+	private boolean appendClauseShape(Clause clause, List<Object> shape, List<ArgumentHolder> argList)
+			throws SQLException {
+		if (clause instanceof ShapedClause) {
+			return ((ShapedClause) clause).appendShape(shape, argList);
+		} else {
+			return false;
+		}
+	}
 }
@@ -12,7 +12,7 @@ import com.j256.ormlite.stmt.Where;
  * 
  * @author graywatson
  */
-public class Not implements Clause, NeedsFutureClause {
+public class Not implements ShapedClause, NeedsFutureClause {
 
 	private Comparison comparison = null;
 	private Exists exists = null;
@@ -68,6 +68,15 @@ public class Not implements Clause, NeedsFutureClause {
 		sb.append(") ");
 	}
 
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException {
+		if (!(comparison instanceof ShapedClause)) {
+			// the SQL can't be built, has an exists sub-query, or the comparison has no shape
+			return false;
+		}
+		shape.add(Not.class);
+		return ((ShapedClause) comparison).appendShape(shape, argList);
+	}
+
 	@Override
 	public String toString() {
 		if (comparison == null) {
@@ -10,7 +10,7 @@ import com.j256.ormlite.stmt.ArgumentHolder;
  * 
  * @author graywatson
  */
-public class Raw implements Clause {
+public class Raw implements ShapedClause {
 
 	private final String statement;
 	private final ArgumentHolder[] args;
@@ -27,4 +27,14 @@ public class Raw implements Clause {
 			argList.add(arg);
 		}
 	}
+
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) {
+		shape.add(Raw.class);
+		shape.add(statement);
+		shape.add(args.length);
+		for (ArgumentHolder arg : args) {
+			argList.add(arg);
+		}
+		return true;
+	}
 }
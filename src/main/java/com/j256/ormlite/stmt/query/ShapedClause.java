@@ -0,0 +1,26 @@
+package com.j256.ormlite.stmt.query;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.stmt.ArgumentHolder;
+
+/**
+ * Internal class for query clauses which can describe the shape of their SQL so that the SQL can be cached by
+ * {@link com.j256.ormlite.stmt.StatementShapeCache}. Queries with clauses that don't implement this are always built.
+ * 
+ * @author graywatson
+ */
+public interface ShapedClause extends Clause {
+
+	/**
+	 * Add to the shape list the parts of this clause that its SQL depends on, leaving out the values of the arguments,
+	 * and add the arguments to the list in the same order as
+	 * {@link #appendSql(DatabaseType, String, StringBuilder, List)}. Two clauses with equal shapes must generate the
+	 * same SQL.
+	 * 
+	 * @return False if the shape of the clause can't be determined in which case the SQL has to be built.
+	 */
+	public boolean appendShape(List<Object> shape, List<ArgumentHolder> argList) throws SQLException;
+}
@@ -3,18 +3,21 @@ package com.j256.ormlite.support;
 import java.sql.SQLException;
 
 import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.misc.OrmLiteContext;
 
 /**
- * Connection source base class which provides the save/clear mechanism using a thread local.
+ * Connection source base class which provides the save/clear mechanism using the {@link OrmLiteContext} of the
+ * current task which by default is per thread.
  * 
  * @author graywatson
  */
 public abstract class BaseConnectionSource implements ConnectionSource {
 
-	private ThreadLocal<NestedConnection> specialConnection = new ThreadLocal<NestedConnection>();
+	private final OrmLiteContext.Key<NestedConnection> specialConnectionKey =
+			new OrmLiteContext.Key<NestedConnection>();
 
 	public DatabaseConnection getSpecialConnection() {
-		NestedConnection currentSaved = specialConnection.get();
+		NestedConnection currentSaved = OrmLiteContext.current().get(specialConnectionKey);
 		if (currentSaved == null) {
 			return null;
 		} else {
@@ -26,7 +29,7 @@ public abstract class BaseConnectionSource implements ConnectionSource {
 	 * Returns the connection that has been saved or null if none.
 	 */
 	protected DatabaseConnection getSavedConnection() {
-		NestedConnection nested = specialConnection.get();
+		NestedConnection nested = OrmLiteContext.current().get(specialConnectionKey);
 		if (nested == null) {
 			return null;
 		} else {
@@ -38,7 +41,7 @@ public abstract class BaseConnectionSource implements ConnectionSource {
 	 * Return true if the connection being released is the one that has been saved.
 	 */
 	protected boolean isSavedConnection(DatabaseConnection connection) {
-		NestedConnection currentSaved = specialConnection.get();
+		NestedConnection currentSaved = OrmLiteContext.current().get(specialConnectionKey);
 		if (currentSaved == null) {
 			return false;
 		} else if (currentSaved.connection == connection) {
@@ -56,9 +59,9 @@ public abstract class BaseConnectionSource implements ConnectionSource {
 	 */
 	protected boolean saveSpecial(DatabaseConnection connection) throws SQLException {
 		// check for a connection already saved
-		NestedConnection currentSaved = specialConnection.get();
+		NestedConnection currentSaved = OrmLiteContext.current().get(specialConnectionKey);
 		if (currentSaved == null) {
-			specialConnection.set(new NestedConnection(connection));
+			OrmLiteContext.current().set(specialConnectionKey, new NestedConnection(connection));
 			return true;
 		} else {
 			if (currentSaved.connection != connection) {
@@ -77,7 +80,7 @@ public abstract class BaseConnectionSource implements ConnectionSource {
 	 * @return True if the connection argument had been saved.
 	 */
 	protected boolean clearSpecial(DatabaseConnection connection, Logger logger) {
-		NestedConnection currentSaved = specialConnection.get();
+		NestedConnection currentSaved = OrmLiteContext.current().get(specialConnectionKey);
 		boolean cleared = false;
 		if (connection == null) {
 			// ignored
@@ -86,7 +89,7 @@ public abstract class BaseConnectionSource implements ConnectionSource {
 		} else if (currentSaved.connection == connection) {
 			if (currentSaved.decrementAndGet() == 0) {
 				// we only clear the connection if nested counter is 0
-				specialConnection.set(null);
+				OrmLiteContext.current().remove(specialConnectionKey);
 			}
 			cleared = true;
 		} else {
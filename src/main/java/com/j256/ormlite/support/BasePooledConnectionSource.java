@@ -0,0 +1,453 @@
+package com.j256.ormlite.support;
+
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+
+/**
+ * Connection source base class which keeps a pool of open connections. The physical connections are created by the
+ * {@link #makeConnection()} factory method of the sub-class which also provides the {@link #getDatabaseType()}.
+ * 
+ * <p>
+ * Released connections are pushed onto a lock-free stack of idle connections so the most recently used connection is
+ * the next one handed out. At most {@link #setMaxConnections(int)} connections are checked out at the same time and
+ * callers wait up to {@link #setAcquireTimeoutMillis(long)} for one to be released. Connections which have been idle
+ * for longer than {@link #setMaxIdleMillis(long)} are closed, keeping at least {@link #setMinConnections(int)} of them
+ * open. If {@link #setTestBeforeGet(boolean)} is true then idle connections are tested with the
+ * {@link com.j256.ormlite.db.DatabaseType#getPingStatement()} before being returned.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> The settings must be made before the first connection is gotten or {@link #initialize()} is called.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public abstract class BasePooledConnectionSource extends BaseConnectionSource {
+
+	/** default maximum number of connections that can be checked out at the same time */
+	public static final int DEFAULT_MAX_CONNECTIONS = 8;
+	/** default number of milliseconds that a connection can be idle before it is closed */
+	public static final long DEFAULT_MAX_IDLE_MILLIS = 5 * 60 * 1000;
+	/** default number of milliseconds to wait for a connection to be released when all are checked out */
+	public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30 * 1000;
+
+	private static Logger logger = LoggerFactory.getLogger(BasePooledConnectionSource.class);
+
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+	private int minConnections = 0;
+	private long maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+	private long acquireTimeoutMillis = DEFAULT_ACQUIRE_TIMEOUT_MILLIS;
+	private boolean testBeforeGet = true;
+
+	private volatile boolean initialized = false;
+	private volatile boolean open = true;
+	private Semaphore permits;
+	private volatile long lastEvictionMillis = System.currentTimeMillis();
+	private final AtomicReference<IdleConnection> idleHead = new AtomicReference<IdleConnection>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private final AtomicInteger openCount = new AtomicInteger();
+	private final AtomicLong acquireCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong createCount = new AtomicLong();
+	private final AtomicLong closeCount = new AtomicLong();
+	private final AtomicLong testFailedCount = new AtomicLong();
+
+	/**
+	 * Create a new physical connection to the database. It is closed by the pool when it is no longer needed.
+	 */
+	protected abstract DatabaseConnection makeConnection() throws SQLException;
+
+	/**
+	 * Initialize the pool and open the minimum number of connections. This is called automatically when the first
+	 * connection is gotten.
+	 */
+	public synchronized void initialize() throws SQLException {
+		if (initialized) {
+			return;
+		}
+		if (minConnections > maxConnections) {
+			throw new IllegalArgumentException("Min connections " + minConnections
+					+ " must not be greater than max connections " + maxConnections);
+		}
+		permits = new Semaphore(maxConnections, true);
+		for (int i = openCount.get(); i < minConnections; i++) {
+			pushIdle(createConnection());
+		}
+		initialized = true;
+	}
+
+	public DatabaseConnection getReadOnlyConnection() throws SQLException {
+		return getReadWriteConnection();
+	}
+
+	public DatabaseConnection getReadWriteConnection() throws SQLException {
+		if (!open) {
+			throw new SQLException("Pooled connection source has been closed");
+		}
+		if (!initialized) {
+			initialize();
+		}
+		DatabaseConnection saved = getSavedConnection();
+		if (saved != null) {
+			return saved;
+		}
+		evictIfNeeded();
+
+		long startNanos = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a pooled connection");
+		}
+		long waitNanos = System.nanoTime() - startNanos;
+		acquireCount.incrementAndGet();
+		totalWaitNanos.addAndGet(waitNanos);
+		updateMaxWait(waitNanos);
+		if (!acquired) {
+			timeoutCount.incrementAndGet();
+			throw new SQLException("Timed out after " + acquireTimeoutMillis + "ms waiting for one of the "
+					+ maxConnections + " pooled connections");
+		}
+
+		try {
+			DatabaseConnection connection = borrowIdle();
+			if (connection == null) {
+				connection = createConnection();
+			}
+			activeCount.incrementAndGet();
+			return connection;
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		if (isSavedConnection(connection)) {
+			// ignore the release when we are in a transaction
+			return;
+		}
+		activeCount.decrementAndGet();
+		try {
+			if (!open || connection.isClosed()) {
+				closeConnection(connection);
+			} else {
+				pushIdle(connection);
+			}
+		} finally {
+			permits.release();
+		}
+		if (!open) {
+			// we may have pushed it after close() drained the stack
+			closeIdleConnections();
+		}
+	}
+
+	public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+		return saveSpecial(connection);
+	}
+
+	public void clearSpecialConnection(DatabaseConnection connection) {
+		clearSpecial(connection, logger);
+	}
+
+	/**
+	 * Close the idle connections. Connections which are checked out are closed when they are released.
+	 */
+	public void close() {
+		open = false;
+		closeIdleConnections();
+	}
+
+	public void closeQuietly() {
+		close();
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Close the connections which have been idle for longer than the max-idle time while keeping the min number of
+	 * connections open. This is called periodically when connections are gotten.
+	 */
+	public void evictIdleConnections() {
+		lastEvictionMillis = System.currentTimeMillis();
+		long cutoffMillis = lastEvictionMillis - maxIdleMillis;
+		// take the whole stack so the others can keep pushing and popping while we go through it
+		IdleConnection head = idleHead.getAndSet(null);
+		IdleConnection keep = null;
+		for (IdleConnection idle = head; idle != null; idle = idle.next) {
+			idleCount.decrementAndGet();
+			if (idle.idleSinceMillis < cutoffMillis && openCount.get() > minConnections) {
+				closeConnection(idle.connection);
+			} else {
+				// reverse the ones we keep so they go back in the same order
+				keep = new IdleConnection(idle.connection, idle.idleSinceMillis, keep);
+			}
+		}
+		for (IdleConnection idle = keep; idle != null; idle = idle.next) {
+			push(new IdleConnection(idle.connection, idle.idleSinceMillis, null));
+		}
+	}
+
+	/**
+	 * Maximum number of connections that can be checked out at the same time. Default is
+	 * {@link #DEFAULT_MAX_CONNECTIONS}.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		if (maxConnections <= 0) {
+			throw new IllegalArgumentException("Max connections must be greater than 0: " + maxConnections);
+		}
+		this.maxConnections = maxConnections;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Number of connections to open when the pool is initialized and to keep open when idle connections are closed.
+	 * Default is 0.
+	 */
+	public void setMinConnections(int minConnections) {
+		if (minConnections < 0) {
+			throw new IllegalArgumentException("Min connections must not be negative: " + minConnections);
+		}
+		this.minConnections = minConnections;
+	}
+
+	public int getMinConnections() {
+		return minConnections;
+	}
+
+	/**
+	 * Number of milliseconds that a connection can be idle in the pool before it is closed. Default is
+	 * {@link #DEFAULT_MAX_IDLE_MILLIS}.
+	 */
+	public void setMaxIdleMillis(long maxIdleMillis) {
+		this.maxIdleMillis = maxIdleMillis;
+	}
+
+	public long getMaxIdleMillis() {
+		return maxIdleMillis;
+	}
+
+	/**
+	 * Number of milliseconds to wait for a connection when all of them are checked out before throwing an exception.
+	 * Default is {@link #DEFAULT_ACQUIRE_TIMEOUT_MILLIS}.
+	 */
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	/**
+	 * Set to false to not run the ping statement on idle connections before they are returned. Default is true.
+	 */
+	public void setTestBeforeGet(boolean testBeforeGet) {
+		this.testBeforeGet = testBeforeGet;
+	}
+
+	public boolean isTestBeforeGet() {
+		return testBeforeGet;
+	}
+
+	/**
+	 * Return the number of connections that are checked out of the pool.
+	 */
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * Return the number of open connections that are idle in the pool.
+	 */
+	public int getIdleCount() {
+		return idleCount.get();
+	}
+
+	/**
+	 * Return the number of connections that are open, both active and idle.
+	 */
+	public int getOpenCount() {
+		return openCount.get();
+	}
+
+	/**
+	 * Return the number of times that a connection was checked out of the pool or timed out waiting.
+	 */
+	public long getAcquireCount() {
+		return acquireCount.get();
+	}
+
+	/**
+	 * Return the total number of milliseconds that callers have waited for a connection.
+	 */
+	public long getTotalWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+	}
+
+	/**
+	 * Return the longest number of milliseconds that a caller has waited for a connection.
+	 */
+	public long getMaxWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+	}
+
+	/**
+	 * Return the number of times that a caller timed out waiting for a connection.
+	 */
+	public long getTimeoutCount() {
+		return timeoutCount.get();
+	}
+
+	/**
+	 * Return the number of connections that have been created by {@link #makeConnection()}.
+	 */
+	public long getCreateCount() {
+		return createCount.get();
+	}
+
+	/**
+	 * Return the number of connections that have been closed by the pool.
+	 */
+	public long getCloseCount() {
+		return closeCount.get();
+	}
+
+	/**
+	 * Return the number of idle connections that were closed because the ping statement failed.
+	 */
+	public long getTestFailedCount() {
+		return testFailedCount.get();
+	}
+
+	private DatabaseConnection borrowIdle() {
+		while (true) {
+			IdleConnection idle = pop();
+			if (idle == null) {
+				return null;
+			}
+			if (!testBeforeGet || testConnection(idle.connection)) {
+				return idle.connection;
+			}
+			testFailedCount.incrementAndGet();
+			closeConnection(idle.connection);
+		}
+	}
+
+	private boolean testConnection(DatabaseConnection connection) {
+		try {
+			if (connection.isClosed()) {
+				return false;
+			}
+			String pingStatement = getDatabaseType().getPingStatement();
+			if (pingStatement != null) {
+				connection.queryForLong(pingStatement);
+			}
+			return true;
+		} catch (SQLException e) {
+			logger.debug(e, "pooled connection {} failed the ping test", connection);
+			return false;
+		}
+	}
+
+	private DatabaseConnection createConnection() throws SQLException {
+		DatabaseConnection connection = makeConnection();
+		openCount.incrementAndGet();
+		createCount.incrementAndGet();
+		logger.debug("created pooled connection {}", connection);
+		return connection;
+	}
+
+	private void closeConnection(DatabaseConnection connection) {
+		openCount.decrementAndGet();
+		closeCount.incrementAndGet();
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			logger.debug(e, "could not close pooled connection {}", connection);
+		}
+	}
+
+	private void closeIdleConnections() {
+		IdleConnection idle;
+		while ((idle = pop()) != null) {
+			closeConnection(idle.connection);
+		}
+	}
+
+	private void evictIfNeeded() {
+		if (System.currentTimeMillis() - lastEvictionMillis >= maxIdleMillis) {
+			evictIdleConnections();
+		}
+	}
+
+	private void pushIdle(DatabaseConnection connection) {
+		push(new IdleConnection(connection, System.currentTimeMillis(), null));
+	}
+
+	private void push(IdleConnection idle) {
+		while (true) {
+			IdleConnection head = idleHead.get();
+			idle.next = head;
+			if (idleHead.compareAndSet(head, idle)) {
+				idleCount.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	private IdleConnection pop() {
+		while (true) {
+			IdleConnection head = idleHead.get();
+			if (head == null) {
+				return null;
+			}
+			if (idleHead.compareAndSet(head, head.next)) {
+				idleCount.decrementAndGet();
+				return head;
+			}
+		}
+	}
+
+	private void updateMaxWait(long waitNanos) {
+		while (true) {
+			long max = maxWaitNanos.get();
+			if (waitNanos <= max || maxWaitNanos.compareAndSet(max, waitNanos)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Node in the stack of idle connections. A new node is pushed each time so a popped node is never reused.
+	 */
+	private static class IdleConnection {
+		final DatabaseConnection connection;
+		final long idleSinceMillis;
+		IdleConnection next;
+
+		public IdleConnection(DatabaseConnection connection, long idleSinceMillis, IdleConnection next) {
+			this.connection = connection;
+			this.idleSinceMillis = idleSinceMillis;
+			this.next = next;
+		}
+	}
+}
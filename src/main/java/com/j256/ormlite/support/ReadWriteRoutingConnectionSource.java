@@ -0,0 +1,317 @@
+package com.j256.ormlite.support;
+
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.misc.OrmLiteContext;
+
+/**
+ * Connection source which sends the {@link #getReadWriteConnection()} requests to a primary source and balances the
+ * {@link #getReadOnlyConnection()} requests across a number of replica sources. Reads go to the primary while a
+ * connection is saved on it (such as inside of a transaction), when there are no replicas, or when the replica
+ * connection can't be gotten.
+ * 
+ * <pre>
+ * ReadWriteRoutingConnectionSource connectionSource =
+ * 		new ReadWriteRoutingConnectionSource(primarySource, replicaSource1, replicaSource2);
+ * connectionSource.setReadYourWritesMillis(1000);
+ * Dao&lt;Account, String&gt; accountDao = DaoManager.createDao(connectionSource, Account.class);
+ * </pre>
+ * 
+ * <p>
+ * <b>NOTE:</b> All of the sources must be of the same database type since the primary's type is used to build the
+ * SQL. The replicas may be behind the primary. To read the thread's own writes, set the
+ * {@link #setReadYourWritesMillis(long)} so reads go to the primary for that long after a write.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class ReadWriteRoutingConnectionSource implements ConnectionSource {
+
+	private static Logger logger = LoggerFactory.getLogger(ReadWriteRoutingConnectionSource.class);
+
+	/**
+	 * How the read-only connections are balanced across the replicas.
+	 */
+	public enum BalanceStrategy {
+		/** use the replica with the fewest connections checked out, picking the first when there is a tie */
+		LEAST_OUTSTANDING,
+		/** go round the replicas in turn with each replica getting a number of turns equal to its weight */
+		WEIGHTED_ROUND_ROBIN,
+		// end
+		;
+	}
+
+	private final ConnectionSource primary;
+	private final List<Replica> replicas = new CopyOnWriteArrayList<Replica>();
+	private final Map<DatabaseConnection, ReplicaConnection> replicaConnectionMap =
+			new IdentityHashMap<DatabaseConnection, ReplicaConnection>();
+	private final OrmLiteContext.Key<Long> lastWriteMillisKey = new OrmLiteContext.Key<Long>();
+	private final AtomicLong roundRobinCounter = new AtomicLong();
+	private final AtomicLong primaryReadCount = new AtomicLong();
+	private BalanceStrategy balanceStrategy = BalanceStrategy.LEAST_OUTSTANDING;
+	private long readYourWritesMillis = 0;
+
+	/**
+	 * @param primary
+	 *            Source of the read-write connections.
+	 * @param replicas
+	 *            Sources of the read-only connections each with a weight of 1.
+	 */
+	public ReadWriteRoutingConnectionSource(ConnectionSource primary, ConnectionSource... replicas) {
+		this.primary = primary;
+		for (ConnectionSource replica : replicas) {
+			addReplica(replica, 1);
+		}
+	}
+
+	/**
+	 * Add a replica source for read-only connections.
+	 * 
+	 * @param weight
+	 *            Number of turns the replica gets with the {@link BalanceStrategy#WEIGHTED_ROUND_ROBIN} strategy.
+	 */
+	public void addReplica(ConnectionSource replica, int weight) {
+		if (weight <= 0) {
+			throw new IllegalArgumentException("Replica weight must be greater than 0: " + weight);
+		}
+		replicas.add(new Replica(replica, weight));
+	}
+
+	public DatabaseConnection getReadOnlyConnection() throws SQLException {
+		if (replicas.isEmpty() || primary.getSpecialConnection() != null || isInReadYourWritesWindow()) {
+			primaryReadCount.incrementAndGet();
+			return primary.getReadOnlyConnection();
+		}
+		Replica replica = chooseReplica();
+		if (replica == null) {
+			primaryReadCount.incrementAndGet();
+			return primary.getReadOnlyConnection();
+		}
+		replica.outstandingCount.incrementAndGet();
+		DatabaseConnection connection;
+		try {
+			connection = replica.connectionSource.getReadOnlyConnection();
+		} catch (SQLException e) {
+			replica.outstandingCount.decrementAndGet();
+			logger.warn(e, "could not get connection from replica {}, using the primary", replica.connectionSource);
+			primaryReadCount.incrementAndGet();
+			return primary.getReadOnlyConnection();
+		}
+		replica.readCount.incrementAndGet();
+		synchronized (replicaConnectionMap) {
+			ReplicaConnection replicaConnection = replicaConnectionMap.get(connection);
+			if (replicaConnection == null) {
+				replicaConnectionMap.put(connection, new ReplicaConnection(replica));
+			} else {
+				// the replica source may hand out the same connection more than once
+				replicaConnection.checkedOutCount++;
+			}
+		}
+		return connection;
+	}
+
+	public DatabaseConnection getReadWriteConnection() throws SQLException {
+		if (readYourWritesMillis > 0) {
+			OrmLiteContext.current().set(lastWriteMillisKey, System.currentTimeMillis());
+		}
+		return primary.getReadWriteConnection();
+	}
+
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		Replica replica = null;
+		synchronized (replicaConnectionMap) {
+			ReplicaConnection replicaConnection = replicaConnectionMap.get(connection);
+			if (replicaConnection != null) {
+				replica = replicaConnection.replica;
+				if (--replicaConnection.checkedOutCount == 0) {
+					replicaConnectionMap.remove(connection);
+				}
+			}
+		}
+		if (replica == null) {
+			if (readYourWritesMillis > 0 && OrmLiteContext.current().get(lastWriteMillisKey) != null) {
+				// the window starts again when the write is finished
+				OrmLiteContext.current().set(lastWriteMillisKey, System.currentTimeMillis());
+			}
+			primary.releaseConnection(connection);
+		} else {
+			replica.outstandingCount.decrementAndGet();
+			replica.connectionSource.releaseConnection(connection);
+		}
+	}
+
+	public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+		return primary.saveSpecialConnection(connection);
+	}
+
+	public void clearSpecialConnection(DatabaseConnection connection) {
+		primary.clearSpecialConnection(connection);
+	}
+
+	public DatabaseConnection getSpecialConnection() {
+		return primary.getSpecialConnection();
+	}
+
+	/**
+	 * Close the primary and all of the replica sources.
+	 */
+	public void close() throws SQLException {
+		SQLException first = null;
+		for (Replica replica : replicas) {
+			try {
+				replica.connectionSource.close();
+			} catch (SQLException e) {
+				if (first == null) {
+					first = e;
+				}
+			}
+		}
+		primary.close();
+		if (first != null) {
+			throw first;
+		}
+	}
+
+	public void closeQuietly() {
+		try {
+			close();
+		} catch (SQLException e) {
+			// ignored
+		}
+	}
+
+	public DatabaseType getDatabaseType() {
+		return primary.getDatabaseType();
+	}
+
+	public boolean isOpen() {
+		return primary.isOpen();
+	}
+
+	/**
+	 * Set how the read-only connections are balanced across the replicas. Default is
+	 * {@link BalanceStrategy#LEAST_OUTSTANDING}.
+	 */
+	public void setBalanceStrategy(BalanceStrategy balanceStrategy) {
+		this.balanceStrategy = balanceStrategy;
+	}
+
+	public BalanceStrategy getBalanceStrategy() {
+		return balanceStrategy;
+	}
+
+	/**
+	 * Set the number of milliseconds after a thread uses a read-write connection during which its read-only connections
+	 * come from the primary so it sees its own writes. Default is 0 which turns this off.
+	 */
+	public void setReadYourWritesMillis(long readYourWritesMillis) {
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+
+	public long getReadYourWritesMillis() {
+		return readYourWritesMillis;
+	}
+
+	public ConnectionSource getPrimary() {
+		return primary;
+	}
+
+	/**
+	 * Return the number of read-only connections that came from the primary.
+	 */
+	public long getPrimaryReadCount() {
+		return primaryReadCount.get();
+	}
+
+	/**
+	 * Return the number of read-only connections that came from the replica or -1 if it is not one of our replicas.
+	 */
+	public long getReplicaReadCount(ConnectionSource replicaSource) {
+		for (Replica replica : replicas) {
+			if (replica.connectionSource == replicaSource) {
+				return replica.readCount.get();
+			}
+		}
+		return -1;
+	}
+
+	private boolean isInReadYourWritesWindow() {
+		if (readYourWritesMillis <= 0) {
+			return false;
+		}
+		Long writeMillis = OrmLiteContext.current().get(lastWriteMillisKey);
+		if (writeMillis == null) {
+			return false;
+		} else if (System.currentTimeMillis() - writeMillis < readYourWritesMillis) {
+			return true;
+		} else {
+			OrmLiteContext.current().remove(lastWriteMillisKey);
+			return false;
+		}
+	}
+
+	private Replica chooseReplica() {
+		Replica[] current = replicas.toArray(new Replica[0]);
+		if (current.length == 0) {
+			return null;
+		}
+		if (balanceStrategy == BalanceStrategy.WEIGHTED_ROUND_ROBIN) {
+			int totalWeight = 0;
+			for (Replica replica : current) {
+				totalWeight += replica.weight;
+			}
+			long turn = roundRobinCounter.getAndIncrement() % totalWeight;
+			for (Replica replica : current) {
+				turn -= replica.weight;
+				if (turn < 0) {
+					return replica;
+				}
+			}
+			return current[current.length - 1];
+		} else {
+			Replica least = current[0];
+			for (int i = 1; i < current.length; i++) {
+				if (current[i].outstandingCount.get() < least.outstandingCount.get()) {
+					least = current[i];
+				}
+			}
+			return least;
+		}
+	}
+
+	/**
+	 * Replica source with its balancing information.
+	 */
+	private static class Replica {
+		final ConnectionSource connectionSource;
+		final int weight;
+		final AtomicInteger outstandingCount = new AtomicInteger();
+		final AtomicLong readCount = new AtomicLong();
+
+		public Replica(ConnectionSource connectionSource, int weight) {
+			this.connectionSource = connectionSource;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Replica that a connection came from and the number of times it is checked out.
+	 */
+	private static class ReplicaConnection {
+		final Replica replica;
+		int checkedOutCount = 1;
+
+		public ReplicaConnection(Replica replica) {
+			this.replica = replica;
+		}
+	}
+}
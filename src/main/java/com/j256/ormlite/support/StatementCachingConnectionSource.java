@@ -0,0 +1,183 @@
+package com.j256.ormlite.support;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.db.DatabaseType;
+
+/**
+ * Connection source which wraps another source and caches the compiled statements of each of its connections with a
+ * {@link StatementCachingDatabaseConnection}. This works best with a pooled connection source since the statements
+ * are kept as long as the wrapped connection stays open. The statements of connections that have been closed are
+ * dropped the next time a connection is gotten.
+ * 
+ * <pre>
+ * ConnectionSource connectionSource = new StatementCachingConnectionSource(pooledConnectionSource, 50);
+ * Dao&lt;Account, String&gt; accountDao = DaoManager.createDao(connectionSource, Account.class);
+ * </pre>
+ * 
+ * @author graywatson
+ */
+public class StatementCachingConnectionSource implements ConnectionSource {
+
+	/** default maximum number of statements that are cached for each connection */
+	public static final int DEFAULT_MAX_STATEMENTS_PER_CONNECTION = 50;
+
+	private final ConnectionSource connectionSource;
+	private final int maxStatementsPerConnection;
+	private final Map<DatabaseConnection, StatementCachingDatabaseConnection> connectionMap =
+			new IdentityHashMap<DatabaseConnection, StatementCachingDatabaseConnection>();
+	final AtomicLong hitCount = new AtomicLong();
+	final AtomicLong missCount = new AtomicLong();
+	final AtomicLong evictionCount = new AtomicLong();
+
+	public StatementCachingConnectionSource(ConnectionSource connectionSource) {
+		this(connectionSource, DEFAULT_MAX_STATEMENTS_PER_CONNECTION);
+	}
+
+	/**
+	 * @param connectionSource
+	 *            Source of the connections whose statements are cached.
+	 * @param maxStatementsPerConnection
+	 *            Maximum number of statements that are kept by each connection.
+	 */
+	public StatementCachingConnectionSource(ConnectionSource connectionSource, int maxStatementsPerConnection) {
+		if (maxStatementsPerConnection <= 0) {
+			throw new IllegalArgumentException("Max statements per connection must be greater than 0: "
+					+ maxStatementsPerConnection);
+		}
+		this.connectionSource = connectionSource;
+		this.maxStatementsPerConnection = maxStatementsPerConnection;
+	}
+
+	public DatabaseConnection getReadOnlyConnection() throws SQLException {
+		return wrapConnection(connectionSource.getReadOnlyConnection());
+	}
+
+	public DatabaseConnection getReadWriteConnection() throws SQLException {
+		return wrapConnection(connectionSource.getReadWriteConnection());
+	}
+
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		connectionSource.releaseConnection(unwrapConnection(connection));
+	}
+
+	public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+		return connectionSource.saveSpecialConnection(unwrapConnection(connection));
+	}
+
+	public void clearSpecialConnection(DatabaseConnection connection) {
+		connectionSource.clearSpecialConnection(unwrapConnection(connection));
+	}
+
+	public DatabaseConnection getSpecialConnection() {
+		DatabaseConnection connection = connectionSource.getSpecialConnection();
+		if (connection == null) {
+			return null;
+		}
+		synchronized (connectionMap) {
+			DatabaseConnection cachingConnection = connectionMap.get(connection);
+			if (cachingConnection == null) {
+				return connection;
+			} else {
+				return cachingConnection;
+			}
+		}
+	}
+
+	/**
+	 * Close all of the cached statements and the wrapped connection source.
+	 */
+	public void close() throws SQLException {
+		List<StatementCachingDatabaseConnection> connections;
+		synchronized (connectionMap) {
+			connections = new ArrayList<StatementCachingDatabaseConnection>(connectionMap.values());
+			connectionMap.clear();
+		}
+		for (StatementCachingDatabaseConnection connection : connections) {
+			connection.closeStatements();
+		}
+		connectionSource.close();
+	}
+
+	public void closeQuietly() {
+		try {
+			close();
+		} catch (SQLException e) {
+			// ignored
+		}
+	}
+
+	public DatabaseType getDatabaseType() {
+		return connectionSource.getDatabaseType();
+	}
+
+	public boolean isOpen() {
+		return connectionSource.isOpen();
+	}
+
+	/**
+	 * Return the number of times that a compiled statement was returned from the cache of one of the connections.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Return the number of times that a statement had to be compiled by one of the wrapped connections.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Return the number of statements that were closed because the cache of the connection was full.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private DatabaseConnection wrapConnection(DatabaseConnection connection) throws SQLException {
+		List<StatementCachingDatabaseConnection> closedConnections = null;
+		StatementCachingDatabaseConnection cachingConnection;
+		synchronized (connectionMap) {
+			cachingConnection = connectionMap.get(connection);
+			if (cachingConnection == null) {
+				// a new connection so the source may have closed others since the last one
+				for (Iterator<StatementCachingDatabaseConnection> iterator = connectionMap.values().iterator(); iterator
+						.hasNext();) {
+					StatementCachingDatabaseConnection existing = iterator.next();
+					if (existing.getWrappedConnection().isClosed()) {
+						if (closedConnections == null) {
+							closedConnections = new ArrayList<StatementCachingDatabaseConnection>();
+						}
+						closedConnections.add(existing);
+						iterator.remove();
+					}
+				}
+				cachingConnection =
+						new StatementCachingDatabaseConnection(connection, maxStatementsPerConnection, this);
+				connectionMap.put(connection, cachingConnection);
+			}
+		}
+		if (closedConnections != null) {
+			for (StatementCachingDatabaseConnection closedConnection : closedConnections) {
+				closedConnection.closeStatements();
+			}
+		}
+		return cachingConnection;
+	}
+
+	private DatabaseConnection unwrapConnection(DatabaseConnection connection) {
+		if (connection instanceof StatementCachingDatabaseConnection) {
+			return ((StatementCachingDatabaseConnection) connection).getWrappedConnection();
+		} else {
+			return connection;
+		}
+	}
+}
@@ -0,0 +1,448 @@
+package com.j256.ormlite.support;
+
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.stmt.GenericRowMapper;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+
+/**
+ * Database connection which wraps another connection and keeps the statements that it compiles so they don't have to
+ * be prepared again. The statements are stored by their SQL, statement type, and result flags. Closing a statement
+ * that was compiled by this connection returns it to the cache instead of closing it. If the cache already has a
+ * statement with the same key, or the connection has been closed, then it is closed for real. The least-recently-used
+ * statement is closed when there are more than the maximum number of statements cached.
+ * 
+ * <p>
+ * The updates, deletes, and query-for-one calls are run through cached statements as well. Inserts are passed to the
+ * wrapped connection since they may need to return the generated keys.
+ * </p>
+ * 
+ * <p>
+ * <b>NOTE:</b> Each statement is used by one caller at a time. Compiling the same SQL again before the first statement
+ * is closed prepares a new statement.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class StatementCachingDatabaseConnection implements DatabaseConnection {
+
+	private final DatabaseConnection connection;
+	private final int maxStatements;
+	private final StatementCachingConnectionSource connectionSource;
+	private final LinkedHashMap<Key, CompiledStatement> idleStatements;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private boolean closed;
+
+	/**
+	 * @param connection
+	 *            Connection whose statements are cached.
+	 * @param maxStatements
+	 *            Maximum number of statements that are kept by this connection.
+	 */
+	public StatementCachingDatabaseConnection(DatabaseConnection connection, int maxStatements) {
+		this(connection, maxStatements, null);
+	}
+
+	StatementCachingDatabaseConnection(DatabaseConnection connection, int maxStatements,
+			StatementCachingConnectionSource connectionSource) {
+		if (maxStatements <= 0) {
+			throw new IllegalArgumentException("Max statements must be greater than 0: " + maxStatements);
+		}
+		this.connection = connection;
+		this.maxStatements = maxStatements;
+		this.connectionSource = connectionSource;
+		this.idleStatements = new LinkedHashMap<Key, CompiledStatement>(maxStatements, 0.75F, true);
+	}
+
+	public boolean isAutoCommitSupported() throws SQLException {
+		return connection.isAutoCommitSupported();
+	}
+
+	public boolean isAutoCommit() throws SQLException {
+		return connection.isAutoCommit();
+	}
+
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		connection.setAutoCommit(autoCommit);
+	}
+
+	public Savepoint setSavePoint(String name) throws SQLException {
+		return connection.setSavePoint(name);
+	}
+
+	public void commit(Savepoint savePoint) throws SQLException {
+		connection.commit(savePoint);
+	}
+
+	public void rollback(Savepoint savePoint) throws SQLException {
+		connection.rollback(savePoint);
+	}
+
+	public int executeStatement(String statementStr, int resultFlags) throws SQLException {
+		return connection.executeStatement(statementStr, resultFlags);
+	}
+
+	public CompiledStatement compileStatement(String statement, StatementType type, FieldType[] argFieldTypes)
+			throws SQLException {
+		return compileStatement(statement, type, argFieldTypes, DEFAULT_RESULT_FLAGS);
+	}
+
+	public CompiledStatement compileStatement(String statement, StatementType type, FieldType[] argFieldTypes,
+			int resultFlags) throws SQLException {
+		Key key = new Key(statement, type, resultFlags);
+		CompiledStatement compiledStatement;
+		synchronized (idleStatements) {
+			compiledStatement = idleStatements.remove(key);
+		}
+		if (compiledStatement == null) {
+			missCount.incrementAndGet();
+			if (connectionSource != null) {
+				connectionSource.missCount.incrementAndGet();
+			}
+			if (resultFlags == DEFAULT_RESULT_FLAGS) {
+				compiledStatement = connection.compileStatement(statement, type, argFieldTypes);
+			} else {
+				compiledStatement = connection.compileStatement(statement, type, argFieldTypes, resultFlags);
+			}
+		} else {
+			hitCount.incrementAndGet();
+			if (connectionSource != null) {
+				connectionSource.hitCount.incrementAndGet();
+			}
+		}
+		return new CachedCompiledStatement(key, compiledStatement);
+	}
+
+	public int insert(String statement, Object[] args, FieldType[] argfieldTypes, GeneratedKeyHolder keyHolder)
+			throws SQLException {
+		return connection.insert(statement, args, argfieldTypes, keyHolder);
+	}
+
+	public int update(String statement, Object[] args, FieldType[] argfieldTypes) throws SQLException {
+		return runUpdate(statement, StatementType.UPDATE, args, argfieldTypes);
+	}
+
+	public int delete(String statement, Object[] args, FieldType[] argfieldTypes) throws SQLException {
+		return runUpdate(statement, StatementType.DELETE, args, argfieldTypes);
+	}
+
+	public <T> Object queryForOne(String statement, Object[] args, FieldType[] argfieldTypes,
+			GenericRowMapper<T> rowMapper, ObjectCache objectCache) throws SQLException {
+		return queryForOne(statement, StatementType.SELECT, args, argfieldTypes, rowMapper, objectCache);
+	}
+
+	public long queryForLong(String statement) throws SQLException {
+		return queryForLong(statement, new Object[0], new FieldType[0]);
+	}
+
+	public long queryForLong(String statement, Object[] args, FieldType[] argFieldTypes) throws SQLException {
+		// don't care about the object cache here
+		Object result = queryForOne(statement, StatementType.SELECT_LONG, args, argFieldTypes, longMapper, null);
+		if (result == null) {
+			throw new SQLException("No results returned in query-for-long: " + statement);
+		} else if (result == MORE_THAN_ONE) {
+			throw new SQLException("More than 1 result returned in query-for-long: " + statement);
+		} else {
+			return (Long) result;
+		}
+	}
+
+	/**
+	 * Close all of the cached statements and the wrapped connection.
+	 */
+	public void close() throws SQLException {
+		closeStatements();
+		connection.close();
+	}
+
+	public void closeQuietly() {
+		try {
+			close();
+		} catch (SQLException e) {
+			// ignored
+		}
+	}
+
+	public boolean isClosed() throws SQLException {
+		return connection.isClosed();
+	}
+
+	public boolean isTableExists(String tableName) throws SQLException {
+		return connection.isTableExists(tableName);
+	}
+
+	/**
+	 * Close all of the cached statements. Statements that are in use are closed when they are returned.
+	 */
+	public void closeStatements() {
+		List<CompiledStatement> statements;
+		synchronized (idleStatements) {
+			closed = true;
+			statements = new ArrayList<CompiledStatement>(idleStatements.values());
+			idleStatements.clear();
+		}
+		for (CompiledStatement statement : statements) {
+			statement.closeQuietly();
+		}
+	}
+
+	/**
+	 * Return the connection that this is wrapping.
+	 */
+	public DatabaseConnection getWrappedConnection() {
+		return connection;
+	}
+
+	/**
+	 * Return the number of statements that are in the cache and not being used.
+	 */
+	public int getCachedStatementCount() {
+		synchronized (idleStatements) {
+			return idleStatements.size();
+		}
+	}
+
+	/**
+	 * Return the number of times that a compiled statement was returned from the cache.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Return the number of times that a statement had to be compiled by the wrapped connection.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Return the number of statements that were closed because the cache was full.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private int runUpdate(String statement, StatementType type, Object[] args, FieldType[] argFieldTypes)
+			throws SQLException {
+		CompiledStatement compiledStatement = compileStatement(statement, type, argFieldTypes);
+		try {
+			setArgs(compiledStatement, args, argFieldTypes);
+			return compiledStatement.runUpdate();
+		} finally {
+			compiledStatement.close();
+		}
+	}
+
+	private <T> Object queryForOne(String statement, StatementType type, Object[] args, FieldType[] argFieldTypes,
+			GenericRowMapper<T> rowMapper, ObjectCache objectCache) throws SQLException {
+		CompiledStatement compiledStatement = compileStatement(statement, type, argFieldTypes);
+		DatabaseResults results = null;
+		try {
+			setArgs(compiledStatement, args, argFieldTypes);
+			results = compiledStatement.runQuery(objectCache);
+			if (!results.next()) {
+				// no results at all
+				return null;
+			}
+			T first = rowMapper.mapRow(results);
+			if (results.next()) {
+				return MORE_THAN_ONE;
+			} else {
+				return first;
+			}
+		} finally {
+			if (results != null) {
+				results.closeQuietly();
+			}
+			compiledStatement.close();
+		}
+	}
+
+	private void setArgs(CompiledStatement compiledStatement, Object[] args, FieldType[] argFieldTypes)
+			throws SQLException {
+		if (args == null) {
+			return;
+		}
+		for (int i = 0; i < args.length; i++) {
+			SqlType sqlType;
+			if (argFieldTypes[i] == null) {
+				sqlType = SqlType.UNKNOWN;
+			} else {
+				sqlType = argFieldTypes[i].getSqlType();
+			}
+			compiledStatement.setObject(i, args[i], sqlType);
+		}
+	}
+
+	/**
+	 * Put the statement back in the cache or close it if it can't be cached.
+	 */
+	private void returnStatement(Key key, CompiledStatement compiledStatement) throws SQLException {
+		CompiledStatement evicted = null;
+		synchronized (idleStatements) {
+			if (!closed && !idleStatements.containsKey(key)) {
+				idleStatements.put(key, compiledStatement);
+				compiledStatement = null;
+				if (idleStatements.size() > maxStatements) {
+					Entry<Key, CompiledStatement> eldest = idleStatements.entrySet().iterator().next();
+					evicted = eldest.getValue();
+					idleStatements.remove(eldest.getKey());
+				}
+			}
+		}
+		if (evicted != null) {
+			evictionCount.incrementAndGet();
+			if (connectionSource != null) {
+				connectionSource.evictionCount.incrementAndGet();
+			}
+			evicted.closeQuietly();
+		}
+		if (compiledStatement != null) {
+			compiledStatement.close();
+		}
+	}
+
+	private static final GenericRowMapper<Long> longMapper = new GenericRowMapper<Long>() {
+		public Long mapRow(DatabaseResults results) throws SQLException {
+			// maps the first column (sql #1)
+			return results.getLong(0);
+		}
+	};
+
+	/**
+	 * Key of the statements in the cache.
+	 */
+	private static class Key {
+
+		private final String statement;
+		private final StatementType type;
+		private final int resultFlags;
+
+		public Key(String statement, StatementType type, int resultFlags) {
+			this.statement = statement;
+			this.type = type;
+			this.resultFlags = resultFlags;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || obj.getClass() != getClass()) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return statement.equals(other.statement) && type == other.type && resultFlags == other.resultFlags;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = statement.hashCode();
+			hash = hash * 31 + type.hashCode();
+			return hash * 31 + resultFlags;
+		}
+	}
+
+	/**
+	 * Statement handed to the callers which returns the wrapped statement to the cache when it is closed. The max-rows
+	 * and timeout are reset if they were set so the next caller gets a clean statement. The results of its last query
+	 * are closed first so the next caller doesn't get a statement with open results.
+	 */
+	private class CachedCompiledStatement implements CompiledStatement {
+
+		private final Key key;
+		private final CompiledStatement compiledStatement;
+		private DatabaseResults results;
+		private boolean maxRowsSet;
+		private boolean queryTimeoutSet;
+		private boolean returned;
+
+		public CachedCompiledStatement(Key key, CompiledStatement compiledStatement) {
+			this.key = key;
+			this.compiledStatement = compiledStatement;
+		}
+
+		public int getColumnCount() throws SQLException {
+			return compiledStatement.getColumnCount();
+		}
+
+		public String getColumnName(int columnIndex) throws SQLException {
+			return compiledStatement.getColumnName(columnIndex);
+		}
+
+		public int runUpdate() throws SQLException {
+			return compiledStatement.runUpdate();
+		}
+
+		public DatabaseResults runQuery(ObjectCache objectCache) throws SQLException {
+			closeResults();
+			results = compiledStatement.runQuery(objectCache);
+			return results;
+		}
+
+		public int runExecute() throws SQLException {
+			return compiledStatement.runExecute();
+		}
+
+		public void close() throws SQLException {
+			if (returned) {
+				return;
+			}
+			returned = true;
+			try {
+				closeResults();
+				if (maxRowsSet) {
+					compiledStatement.setMaxRows(0);
+				}
+				if (queryTimeoutSet) {
+					compiledStatement.setQueryTimeout(0);
+				}
+			} catch (SQLException e) {
+				// we can't reuse it so close it for real
+				compiledStatement.closeQuietly();
+				throw e;
+			}
+			returnStatement(key, compiledStatement);
+		}
+
+		public void closeQuietly() {
+			try {
+				close();
+			} catch (SQLException e) {
+				// ignored
+			}
+		}
+
+		public void setObject(int parameterIndex, Object obj, SqlType sqlType) throws SQLException {
+			compiledStatement.setObject(parameterIndex, obj, sqlType);
+		}
+
+		public void setMaxRows(int max) throws SQLException {
+			maxRowsSet = true;
+			compiledStatement.setMaxRows(max);
+		}
+
+		public void setQueryTimeout(long millis) throws SQLException {
+			queryTimeoutSet = true;
+			compiledStatement.setQueryTimeout(millis);
+		}
+
+		private void closeResults() throws SQLException {
+			if (results != null) {
+				DatabaseResults toClose = results;
+				results = null;
+				toClose.close();
+			}
+		}
+	}
+}
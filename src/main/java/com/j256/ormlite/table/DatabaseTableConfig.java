@@ -6,6 +6,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.j256.ormlite.dao.ObjectCacheOptions;
 import com.j256.ormlite.db.DatabaseType;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.DatabaseFieldConfig;
@@ -26,6 +27,7 @@ public class DatabaseTableConfig<T> {
 	private List<DatabaseFieldConfig> fieldConfigs;
 	private FieldType[] fieldTypes;
 	private Constructor<T> constructor;
+	private ObjectCacheOptions objectCacheOptions;
 
 	public DatabaseTableConfig() {
 		// for spring
@@ -133,6 +135,19 @@ public class DatabaseTableConfig<T> {
 		this.constructor = constructor;
 	}
 
+	public ObjectCacheOptions getObjectCacheOptions() {
+		return objectCacheOptions;
+	}
+
+	/**
+	 * Set the capacity and expiration times of the class in the object cache. These are used when the object cache is
+	 * enabled on the dao if the cache is a {@link com.j256.ormlite.dao.ConfigurableObjectCache}.
+	 */
+	// @NotRequired
+	public void setObjectCacheOptions(ObjectCacheOptions objectCacheOptions) {
+		this.objectCacheOptions = objectCacheOptions;
+	}
+
 	/**
 	 * Extract the DatabaseTableConfig for a particular class by looking for class and field annotations. This is used
 	 * by internal classes to configure a class.
@@ -7,6 +7,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.j256.ormlite.dao.ObjectCacheOptions;
 import com.j256.ormlite.field.DatabaseFieldConfig;
 import com.j256.ormlite.field.DatabaseFieldConfigLoader;
 import com.j256.ormlite.misc.SqlExceptionUtil;
@@ -99,6 +100,9 @@ public class DatabaseTableConfigLoader {
 	// field names in the config file
 	private static final String FIELD_NAME_DATA_CLASS = "dataClass";
 	private static final String FIELD_NAME_TABLE_NAME = "tableName";
+	private static final String FIELD_NAME_CACHE_CAPACITY = "cacheCapacity";
+	private static final String FIELD_NAME_CACHE_EXPIRE_AFTER_WRITE_MILLIS = "cacheExpireAfterWriteMillis";
+	private static final String FIELD_NAME_CACHE_EXPIRE_AFTER_ACCESS_MILLIS = "cacheExpireAfterAccessMillis";
 
 	/**
 	 * Write the config to the writer.
@@ -115,6 +119,24 @@ public class DatabaseTableConfigLoader {
 			writer.append(FIELD_NAME_TABLE_NAME).append('=').append(config.getTableName());
 			writer.newLine();
 		}
+		ObjectCacheOptions cacheOptions = config.getObjectCacheOptions();
+		if (cacheOptions != null) {
+			if (cacheOptions.getCapacity() > 0) {
+				writer.append(FIELD_NAME_CACHE_CAPACITY).append('=').append(
+						Integer.toString(cacheOptions.getCapacity()));
+				writer.newLine();
+			}
+			if (cacheOptions.getExpireAfterWriteMillis() > 0) {
+				writer.append(FIELD_NAME_CACHE_EXPIRE_AFTER_WRITE_MILLIS).append('=').append(
+						Long.toString(cacheOptions.getExpireAfterWriteMillis()));
+				writer.newLine();
+			}
+			if (cacheOptions.getExpireAfterAccessMillis() > 0) {
+				writer.append(FIELD_NAME_CACHE_EXPIRE_AFTER_ACCESS_MILLIS).append('=').append(
+						Long.toString(cacheOptions.getExpireAfterAccessMillis()));
+				writer.newLine();
+			}
+		}
 		writer.append(CONFIG_FILE_FIELDS_START);
 		writer.newLine();
 		if (config.getFieldConfigs() != null) {
@@ -142,7 +164,22 @@ public class DatabaseTableConfigLoader {
 			}
 		} else if (field.equals(FIELD_NAME_TABLE_NAME)) {
 			config.setTableName(value);
+		} else if (field.equals(FIELD_NAME_CACHE_CAPACITY)) {
+			getCacheOptions(config).setCapacity(Integer.parseInt(value));
+		} else if (field.equals(FIELD_NAME_CACHE_EXPIRE_AFTER_WRITE_MILLIS)) {
+			getCacheOptions(config).setExpireAfterWriteMillis(Long.parseLong(value));
+		} else if (field.equals(FIELD_NAME_CACHE_EXPIRE_AFTER_ACCESS_MILLIS)) {
+			getCacheOptions(config).setExpireAfterAccessMillis(Long.parseLong(value));
+		}
+	}
+
+	private static ObjectCacheOptions getCacheOptions(DatabaseTableConfig<?> config) {
+		ObjectCacheOptions cacheOptions = config.getObjectCacheOptions();
+		if (cacheOptions == null) {
+			cacheOptions = new ObjectCacheOptions();
+			config.setObjectCacheOptions(cacheOptions);
 		}
+		return cacheOptions;
 	}
 
 	/**
@@ -0,0 +1,158 @@
+package com.j256.ormlite.table;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+
+/**
+ * Keeps a snapshot of the updatable field values of each object as it was last read from or written to the database so
+ * that an update only has to write the columns that have changed. Enabled with {@link Dao#setDirtyFieldTracking}.
+ * 
+ * <p>
+ * The snapshots are keyed by object identity and held with {@link WeakReference}s so they go away when the objects are
+ * garbage collected.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class DirtyFieldTracker<T, ID> {
+
+	private final FieldType[] trackedFieldTypes;
+	private final Map<WeakIdentityKey, Object[]> snapshotMap = new HashMap<WeakIdentityKey, Object[]>();
+	private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
+
+	public DirtyFieldTracker(TableInfo<T, ID> tableInfo) {
+		FieldType idField = tableInfo.getIdField();
+		int fieldC = 0;
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (isFieldTracked(fieldType, idField)) {
+				fieldC++;
+			}
+		}
+		this.trackedFieldTypes = new FieldType[fieldC];
+		fieldC = 0;
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (isFieldTracked(fieldType, idField)) {
+				trackedFieldTypes[fieldC++] = fieldType;
+			}
+		}
+	}
+
+	/**
+	 * Return the fields that are tracked. The indexes of the set returned by {@link #findChangedFields(Object)}
+	 * correspond to this array.
+	 */
+	public FieldType[] getTrackedFieldTypes() {
+		return trackedFieldTypes;
+	}
+
+	/**
+	 * Record the current values of the tracked fields in the data object.
+	 */
+	public void snapshot(T data) throws SQLException {
+		Object[] values = new Object[trackedFieldTypes.length];
+		for (int i = 0; i < trackedFieldTypes.length; i++) {
+			values[i] = extractSnapshotValue(trackedFieldTypes[i], data);
+		}
+		synchronized (snapshotMap) {
+			expungeStaleSnapshots();
+			snapshotMap.put(new WeakIdentityKey(data, referenceQueue), values);
+		}
+	}
+
+	/**
+	 * Record the current values of some of the fields in the data object if it already has a snapshot. This is used
+	 * when just those fields have been loaded from the database.
+	 */
+	public void snapshotFields(T data, FieldType[] fieldTypes) throws SQLException {
+		synchronized (snapshotMap) {
+			Object[] values = snapshotMap.get(new WeakIdentityKey(data, null));
+			if (values == null) {
+				return;
+			}
+			for (FieldType fieldType : fieldTypes) {
+				for (int i = 0; i < trackedFieldTypes.length; i++) {
+					if (trackedFieldTypes[i] == fieldType) {
+						values[i] = extractSnapshotValue(fieldType, data);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forget any snapshot of the data object.
+	 */
+	public void forget(T data) {
+		synchronized (snapshotMap) {
+			snapshotMap.remove(new WeakIdentityKey(data, null));
+		}
+	}
+
+	/**
+	 * Return the set of indexes into {@link #getTrackedFieldTypes()} whose values have changed since the last
+	 * {@link #snapshot(Object)}. This returns null if there is no snapshot for the data object in which case all of the
+	 * fields should be treated as changed.
+	 */
+	public BitSet findChangedFields(T data) throws SQLException {
+		Object[] values;
+		synchronized (snapshotMap) {
+			values = snapshotMap.get(new WeakIdentityKey(data, null));
+		}
+		if (values == null) {
+			return null;
+		}
+		BitSet changedFields = new BitSet(trackedFieldTypes.length);
+		for (int i = 0; i < trackedFieldTypes.length; i++) {
+			FieldType fieldType = trackedFieldTypes[i];
+			if (!isValueEqual(fieldType, values[i], extractSnapshotValue(fieldType, data))) {
+				changedFields.set(i);
+			}
+		}
+		return changedFields;
+	}
+
+	/**
+	 * Return true if the field is one that an update might change and so needs to be tracked. The version field is not
+	 * tracked because it is always written.
+	 */
+	public static boolean isFieldTracked(FieldType fieldType, FieldType idField) {
+		return (fieldType != idField && !fieldType.isForeignCollection() && !fieldType.isReadOnly()
+				&& !fieldType.isVersion());
+	}
+
+	static Object extractSnapshotValue(FieldType fieldType, Object data) throws SQLException {
+		// we use the SQL argument value so we aren't holding a reference to a mutable Date or Serializable
+		Object value = fieldType.extractJavaFieldToSqlArgValue(data);
+		if (value instanceof byte[]) {
+			// byte[] fields are passed to SQL as is so we need to copy it
+			value = ((byte[]) value).clone();
+		}
+		return value;
+	}
+
+	static boolean isValueEqual(FieldType fieldType, Object value1, Object value2) {
+		if (value1 instanceof byte[] && value2 instanceof byte[]) {
+			// the SQL argument for a serializable field is a byte[] but its persister compares the objects
+			return Arrays.equals((byte[]) value1, (byte[]) value2);
+		} else {
+			return fieldType.getDataPersister().dataIsEqual(value1, value2);
+		}
+	}
+
+	private void expungeStaleSnapshots() {
+		Reference<?> ref;
+		while ((ref = referenceQueue.poll()) != null) {
+			snapshotMap.remove(ref);
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package com.j256.ormlite.table;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+
+/**
+ * Remembers which of the lazy fields of each queried object were not loaded from the database so that an update does
+ * not write their default values over the columns. A lazy field is not written by an update as long as it was not
+ * loaded and still has the value that it had when the object was created by the query. Once it is assigned another
+ * value or loaded with {@link Dao#loadLazyFields(Object)} it is written like any other field.
+ * 
+ * <p>
+ * The objects are keyed by identity and held with {@link WeakReference}s so they go away when the objects are garbage
+ * collected.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class LazyFieldTracker<T, ID> {
+
+	// marks a lazy field that was loaded when the object was queried
+	private static final Object LOADED = new Object();
+
+	private final FieldType[] lazyFieldTypes;
+	private final Map<WeakIdentityKey, Object[]> notLoadedMap = new HashMap<WeakIdentityKey, Object[]>();
+	private final ReferenceQueue<Object> referenceQueue = new ReferenceQueue<Object>();
+
+	public LazyFieldTracker(FieldType[] lazyFieldTypes) {
+		this.lazyFieldTypes = lazyFieldTypes;
+	}
+
+	/**
+	 * Record that the lazy fields of the data object that are not in the loaded field types were not loaded when the
+	 * object was created from the results of a query.
+	 */
+	public void notLoaded(T data, FieldType[] loadedFieldTypes) throws SQLException {
+		Object[] values = null;
+		for (int i = 0; i < lazyFieldTypes.length; i++) {
+			FieldType fieldType = lazyFieldTypes[i];
+			if (!containsFieldType(loadedFieldTypes, fieldType)) {
+				if (values == null) {
+					values = new Object[lazyFieldTypes.length];
+					for (int j = 0; j < i; j++) {
+						values[j] = LOADED;
+					}
+				}
+				values[i] = DirtyFieldTracker.extractSnapshotValue(fieldType, data);
+			} else if (values != null) {
+				values[i] = LOADED;
+			}
+		}
+		if (values == null) {
+			return;
+		}
+		synchronized (notLoadedMap) {
+			expungeStaleEntries();
+			notLoadedMap.put(new WeakIdentityKey(data, referenceQueue), values);
+		}
+	}
+
+	/**
+	 * Record that all of the lazy fields of the data object have been loaded.
+	 */
+	public void loaded(T data) {
+		synchronized (notLoadedMap) {
+			notLoadedMap.remove(new WeakIdentityKey(data, null));
+		}
+	}
+
+	/**
+	 * Record that the lazy fields of the data object that have been assigned since it was queried have been written to
+	 * the database by an update so they are now treated as loaded.
+	 */
+	public void written(T data) throws SQLException {
+		synchronized (notLoadedMap) {
+			WeakIdentityKey key = new WeakIdentityKey(data, null);
+			Object[] values = notLoadedMap.get(key);
+			if (values == null) {
+				return;
+			}
+			boolean allLoaded = true;
+			for (int i = 0; i < lazyFieldTypes.length; i++) {
+				if (values[i] == LOADED) {
+					continue;
+				}
+				FieldType fieldType = lazyFieldTypes[i];
+				if (DirtyFieldTracker.isValueEqual(fieldType, values[i],
+						DirtyFieldTracker.extractSnapshotValue(fieldType, data))) {
+					allLoaded = false;
+				} else {
+					values[i] = LOADED;
+				}
+			}
+			if (allLoaded) {
+				notLoadedMap.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Return the lazy fields of the data object that were not loaded and have not been assigned since or null if there
+	 * are none.
+	 */
+	public Set<FieldType> findNotLoadedFields(T data) throws SQLException {
+		Object[] values;
+		synchronized (notLoadedMap) {
+			values = notLoadedMap.get(new WeakIdentityKey(data, null));
+		}
+		if (values == null) {
+			return null;
+		}
+		Set<FieldType> notLoadedFields = null;
+		for (int i = 0; i < lazyFieldTypes.length; i++) {
+			if (values[i] == LOADED) {
+				continue;
+			}
+			FieldType fieldType = lazyFieldTypes[i];
+			if (DirtyFieldTracker.isValueEqual(fieldType, values[i],
+					DirtyFieldTracker.extractSnapshotValue(fieldType, data))) {
+				if (notLoadedFields == null) {
+					notLoadedFields = new HashSet<FieldType>();
+				}
+				notLoadedFields.add(fieldType);
+			}
+		}
+		return notLoadedFields;
+	}
+
+	private boolean containsFieldType(FieldType[] fieldTypes, FieldType fieldType) {
+		for (FieldType other : fieldTypes) {
+			if (other == fieldType) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void expungeStaleEntries() {
+		Reference<?> ref;
+		while ((ref = referenceQueue.poll()) != null) {
+			notLoadedMap.remove(ref);
+		}
+	}
+}
@@ -27,16 +27,21 @@ import com.j256.ormlite.support.ConnectionSource;
 public class TableInfo<T, ID> {
 
 	private static final FieldType[] NO_FOREIGN_COLLECTIONS = new FieldType[0];
+	private static final FieldType[] NO_LAZY_FIELDS = new FieldType[0];
 
 	private final BaseDaoImpl<T, ID> baseDaoImpl;
 	private final Class<T> dataClass;
 	private final String tableName;
 	private final FieldType[] fieldTypes;
 	private final FieldType[] foreignCollections;
+	private final FieldType[] lazyFieldTypes;
+	private final FieldType[] selectFieldTypes;
+	private final LazyFieldTracker<T, ID> lazyFieldTracker;
 	private final FieldType idField;
 	private final Constructor<T> constructor;
 	private final boolean foreignAutoCreate;
 	private Map<String, FieldType> fieldNameMap;
+	private volatile DirtyFieldTracker<T, ID> dirtyFieldTracker;
 
 	/**
 	 * Creates a holder of information about a table/class.
@@ -74,6 +79,7 @@ public class TableInfo<T, ID> {
 		FieldType findIdFieldType = null;
 		boolean foreignAutoCreate = false;
 		int foreignCollectionCount = 0;
+		int lazyCount = 0;
 		for (FieldType fieldType : fieldTypes) {
 			if (fieldType.isId() || fieldType.isGeneratedId() || fieldType.isGeneratedIdSequence()) {
 				if (findIdFieldType != null) {
@@ -88,6 +94,9 @@ public class TableInfo<T, ID> {
 			if (fieldType.isForeignCollection()) {
 				foreignCollectionCount++;
 			}
+			if (fieldType.isLazy()) {
+				lazyCount++;
+			}
 		}
 		// can be null if there is no id field
 		this.idField = findIdFieldType;
@@ -105,6 +114,24 @@ public class TableInfo<T, ID> {
 				}
 			}
 		}
+		if (lazyCount == 0) {
+			this.lazyFieldTypes = NO_LAZY_FIELDS;
+			this.selectFieldTypes = fieldTypes;
+			this.lazyFieldTracker = null;
+		} else {
+			this.lazyFieldTypes = new FieldType[lazyCount];
+			this.selectFieldTypes = new FieldType[fieldTypes.length - lazyCount];
+			int lazyC = 0;
+			int selectC = 0;
+			for (FieldType fieldType : fieldTypes) {
+				if (fieldType.isLazy()) {
+					this.lazyFieldTypes[lazyC++] = fieldType;
+				} else {
+					this.selectFieldTypes[selectC++] = fieldType;
+				}
+			}
+			this.lazyFieldTracker = new LazyFieldTracker<T, ID>(lazyFieldTypes);
+		}
 	}
 
 	/**
@@ -128,6 +155,35 @@ public class TableInfo<T, ID> {
 		return fieldTypes;
 	}
 
+	/**
+	 * Return the array of field types that are loaded by default when the object is queried. This is all of the field
+	 * types unless some of them are lazy.
+	 */
+	public FieldType[] getSelectFieldTypes() {
+		return selectFieldTypes;
+	}
+
+	/**
+	 * Return the array of field types that are not loaded by default because they are lazy.
+	 */
+	public FieldType[] getLazyFieldTypes() {
+		return lazyFieldTypes;
+	}
+
+	/**
+	 * Return true if the table has any lazy fields.
+	 */
+	public boolean hasLazyFields() {
+		return lazyFieldTypes.length > 0;
+	}
+
+	/**
+	 * Return the tracker of the lazy fields that were not loaded or null if the table has no lazy fields.
+	 */
+	public LazyFieldTracker<T, ID> getLazyFieldTracker() {
+		return lazyFieldTracker;
+	}
+
 	/**
 	 * Return the {@link FieldType} associated with the columnName.
 	 */
@@ -227,6 +283,17 @@ public class TableInfo<T, ID> {
 		return foreignCollections;
 	}
 
+	/**
+	 * Return the tracker of the field values as last read or written or null if dirty-field tracking is not enabled.
+	 */
+	public DirtyFieldTracker<T, ID> getDirtyFieldTracker() {
+		return dirtyFieldTracker;
+	}
+
+	public void setDirtyFieldTracker(DirtyFieldTracker<T, ID> dirtyFieldTracker) {
+		this.dirtyFieldTracker = dirtyFieldTracker;
+	}
+
 	/**
 	 * Return true if this table information has a field with this columnName as set by
 	 * {@link DatabaseField#columnName()} or the field name if not set.
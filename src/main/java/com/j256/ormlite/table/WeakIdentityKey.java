@@ -0,0 +1,35 @@
+package com.j256.ormlite.table;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * Weak reference to a data object which uses the object's identity for equals and hashCode.
+ * 
+ * @author graywatson
+ */
+class WeakIdentityKey extends WeakReference<Object> {
+
+	private final int hashCode;
+
+	public WeakIdentityKey(Object referent, ReferenceQueue<Object> queue) {
+		super(referent, queue);
+		this.hashCode = System.identityHashCode(referent);
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		} else if (obj == null || obj.getClass() != getClass()) {
+			return false;
+		}
+		Object referent = get();
+		return (referent != null && referent == ((WeakIdentityKey) obj).get());
+	}
+}
@@ -0,0 +1,239 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Constructor;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.table.ObjectFactory;
+
+public class AsyncDaoTest extends BaseCoreTest {
+
+	private ExecutorService executor;
+
+	@Override
+	@Before
+	public void before() throws Exception {
+		super.before();
+		executor = AsyncDao.createExecutor(1, 10);
+	}
+
+	@Override
+	@After
+	public void after() throws Exception {
+		executor.shutdownNow();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		super.after();
+	}
+
+	@Test
+	public void testCrud() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor);
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, (int) asyncDao.create(foo).get());
+		assertEquals(1, asyncDao.queryForId(foo.id).get().val);
+		foo.val = 2;
+		assertEquals(1, (int) asyncDao.update(foo).get());
+		foo.val = 3;
+		assertEquals(1, (int) asyncDao.refresh(foo).get());
+		assertEquals(2, foo.val);
+		assertEquals(1, asyncDao.queryForAll().get().size());
+		assertEquals(1, asyncDao.queryForEq(Foo.VAL_COLUMN_NAME, 2).get().size());
+		assertEquals(1L, (long) asyncDao.countOf().get());
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, 2);
+		assertEquals(1, asyncDao.query(qb.prepare()).get().size());
+		assertEquals(foo.id, asyncDao.queryForFirst(qb.prepare()).get().id);
+		assertEquals(1, (int) asyncDao.delete(foo).get());
+		assertNull(asyncDao.queryForId(foo.id).get());
+		assertEquals(Dao.CreateOrUpdateStatus.class, asyncDao.createOrUpdate(foo).get().getClass());
+		assertEquals(1, (int) asyncDao.deleteById(foo.id).get());
+		assertEquals(-1, asyncDao.getOutstandingCount());
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(1, dao.create(new Foo()));
+		}
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor);
+		CloseableIterator<Foo> iterator = asyncDao.iterator(dao.queryBuilder().prepare()).get();
+		try {
+			assertEquals(2, asyncDao.nextChunk(iterator, 2).get().size());
+			assertEquals(2, asyncDao.nextChunk(iterator, 2).get().size());
+			assertEquals(1, asyncDao.nextChunk(iterator, 2).get().size());
+			assertEquals(0, asyncDao.nextChunk(iterator, 2).get().size());
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testException() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, false);
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor);
+		try {
+			// no table
+			asyncDao.queryForAll().get();
+			fail("Should have thrown");
+		} catch (ExecutionException e) {
+			assertNotNull(e.getCause());
+		}
+	}
+
+	@Test
+	public void testBulkhead() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor, 1);
+		CountDownLatch latch = new CountDownLatch(1);
+		Future<Void> blocked = asyncDao.call(new LatchCallable(latch));
+		assertEquals(1, asyncDao.getOutstandingCount());
+		try {
+			asyncDao.countOf();
+			fail("Should have thrown");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		// another table's async dao can still use the executor
+		AsyncDao<Foo, Integer> otherAsyncDao = new AsyncDao<Foo, Integer>(dao, executor, 1);
+		Future<Long> count = otherAsyncDao.countOf();
+		latch.countDown();
+		blocked.get();
+		assertEquals(0L, (long) count.get());
+		assertEquals(0L, (long) asyncDao.countOf().get());
+		assertEquals(0, asyncDao.getOutstandingCount());
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor, 2);
+		AsyncDao<Foo, Integer> timeoutDao = asyncDao.withTimeout(20);
+		assertEquals(20, timeoutDao.getTimeoutMillis());
+		CountDownLatch latch = new CountDownLatch(1);
+		Future<Void> future = timeoutDao.call(new LatchCallable(latch));
+		try {
+			future.get();
+			fail("Should have thrown");
+		} catch (CancellationException e) {
+			// expected
+		}
+		assertTrue(future.isCancelled());
+		// the bulkhead is shared and released once the interrupted call finishes
+		for (int i = 0; i < 100 && asyncDao.getOutstandingCount() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, asyncDao.getOutstandingCount());
+		assertEquals(0L, (long) timeoutDao.countOf().get());
+		assertEquals(0, asyncDao.getOutstandingCount());
+	}
+
+	@Test
+	public void testCancelClosesIterator() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, dao.create(new Foo()));
+		}
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor);
+		CloseableIterator<Foo> iterator = dao.iterator();
+		try {
+			CountDownLatch latch = new CountDownLatch(1);
+			// keep the only thread busy so the chunk is queued
+			asyncDao.call(new LatchCallable(latch));
+			Future<List<Foo>> chunk = asyncDao.nextChunk(iterator, 2);
+			assertTrue(chunk.cancel(true));
+			latch.countDown();
+			assertFalse(iterator.hasNext());
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testCancelRunningQuery() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, dao.create(new Foo()));
+		}
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		// blocks the query while it is reading the first row
+		dao.setObjectFactory(new ObjectFactory<Foo>() {
+			public Foo createObject(Constructor<Foo> construcor, Class<Foo> dataClass) throws SQLException {
+				if (started.getCount() > 0) {
+					started.countDown();
+					// the cancel interrupts us but we have to hold the iterator until the test lets us go
+					boolean interrupted = false;
+					while (true) {
+						try {
+							proceed.await();
+							break;
+						} catch (InterruptedException e) {
+							interrupted = true;
+						}
+					}
+					if (interrupted) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return new Foo();
+			}
+		});
+		AsyncDao<Foo, Integer> asyncDao = new AsyncDao<Foo, Integer>(dao, executor, 1);
+		Future<List<Foo>> future = asyncDao.queryForAll();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		assertTrue(future.cancel(true));
+		// the running thread still has the iterator so its connection was not released by the cancel
+		assertFalse(connectionSource.isOkay());
+		proceed.countDown();
+		for (int i = 0; i < 100 && asyncDao.getOutstandingCount() > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, asyncDao.getOutstandingCount());
+		// now it has been closed once by the running thread
+		assertTrue(connectionSource.isOkay());
+		assertTrue(future.isCancelled());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeOutstanding() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, false);
+		new AsyncDao<Foo, Integer>(dao, executor, -1);
+	}
+
+	private static class LatchCallable implements Callable<Void> {
+		private final CountDownLatch latch;
+
+		public LatchCallable(CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		public Void call() throws InterruptedException {
+			latch.await();
+			return null;
+		}
+	}
+}
@@ -15,6 +15,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -38,6 +39,7 @@ import com.j256.ormlite.stmt.QueryBuilder;
 import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.UpdateBuilder;
 import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.stmt.mapped.MappedQueryForIds;
 import com.j256.ormlite.support.ConnectionSource;
 import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
@@ -76,6 +78,52 @@ public class BaseDaoImplTest extends BaseCoreTest {
 		assertEquals(equal, result.equal);
 	}
 
+	@Test
+	public void testCreateCollection() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		List<Foo> foos = new ArrayList<Foo>();
+		for (int i = 0; i < 20; i++) {
+			Foo foo = new Foo();
+			foo.equal = i;
+			foos.add(foo);
+		}
+		assertEquals(foos.size(), dao.create(foos));
+		for (Foo foo : foos) {
+			Foo result = dao.queryForId(foo.id);
+			assertNotNull(result);
+			assertEquals(foo.equal, result.equal);
+		}
+		assertEquals(0, dao.create(new ArrayList<Foo>()));
+	}
+
+	@Test
+	public void testCreateCollectionForeignAutoCreate() throws Exception {
+		Dao<One, Integer> oneDao = createDao(One.class, true);
+		Dao<ForeignAutoCreate, Integer> dao = createDao(ForeignAutoCreate.class, true);
+
+		One one1 = new One();
+		one1.stuff = "pwofjewofj";
+		One one2 = new One();
+		one2.stuff = "ewopjfwef";
+		List<ForeignAutoCreate> foreigns = new ArrayList<ForeignAutoCreate>();
+		for (int i = 0; i < 10; i++) {
+			ForeignAutoCreate foreign = new ForeignAutoCreate();
+			// the foreign objects are shared so they should only be created once
+			foreign.one = (i % 2 == 0 ? one1 : one2);
+			foreigns.add(foreign);
+		}
+		assertEquals(foreigns.size(), dao.create(foreigns));
+		assertTrue(one1.id != 0);
+		assertTrue(one2.id != 0);
+		assertEquals(2, oneDao.countOf());
+
+		for (ForeignAutoCreate foreign : foreigns) {
+			ForeignAutoCreate result = dao.queryForId(foreign.id);
+			assertNotNull(result);
+			assertEquals(foreign.one.id, result.one.id);
+		}
+	}
+
 	@Test(expected = SQLException.class)
 	public void testQueryForIdThrow() throws Exception {
 		Dao<Foo, Integer> dao = createDao(Foo.class, true);
@@ -2476,6 +2524,315 @@ public class BaseDaoImplTest extends BaseCoreTest {
 		}
 	}
 
+	@Test
+	public void testQueryForIds() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		List<Integer> ids = new ArrayList<Integer>();
+		// enough to need more than one query
+		for (int i = 0; i < MappedQueryForIds.MAX_IDS_PER_QUERY + 10; i++) {
+			Foo foo = new Foo();
+			foo.val = i;
+			assertEquals(1, dao.create(foo));
+			ids.add(0, foo.id);
+		}
+		int missingId = ids.get(0) + 1000;
+		ids.add(3, missingId);
+
+		Map<Integer, Foo> results = dao.queryForIds(ids);
+		assertEquals(ids.size() - 1, results.size());
+		assertFalse(results.containsKey(missingId));
+		Iterator<Integer> idIterator = ids.iterator();
+		for (Map.Entry<Integer, Foo> entry : results.entrySet()) {
+			Integer id = idIterator.next();
+			if (id == missingId) {
+				id = idIterator.next();
+			}
+			// in the order of the ids
+			assertEquals(id, entry.getKey());
+			assertEquals((int) id, entry.getValue().id);
+		}
+		assertEquals(0, dao.queryForIds(new ArrayList<Integer>()).size());
+	}
+
+	@Test
+	public void testQueryForIdsOtherIdType() throws Exception {
+		Dao<Foo, Object> dao = createDao(Foo.class, true);
+		dao.setObjectCache(true);
+		Foo foo1 = new Foo();
+		assertEquals(1, dao.create(foo1));
+		Foo foo2 = new Foo();
+		assertEquals(1, dao.create(foo2));
+		dao.clearObjectCache();
+		Foo result1 = dao.queryForId(foo1.id);
+
+		// Long ids for an int id field
+		List<Object> ids = new ArrayList<Object>();
+		ids.add((long) foo1.id);
+		ids.add((long) foo2.id);
+		ids.add((long) foo2.id + 1000);
+		Map<Object, Foo> results = dao.queryForIds(ids);
+		assertEquals(2, results.size());
+		// found in the cache
+		assertSame(result1, results.get((long) foo1.id));
+		// and in the database
+		assertEquals(foo2.id, results.get((long) foo2.id).id);
+		assertFalse(results.containsKey((long) foo2.id + 1000));
+	}
+
+	@Test
+	public void testQueryForIdsCache() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		dao.setObjectCache(true);
+		Foo foo1 = new Foo();
+		assertEquals(1, dao.create(foo1));
+		Foo foo2 = new Foo();
+		assertEquals(1, dao.create(foo2));
+		dao.clearObjectCache();
+		Foo result1 = dao.queryForId(foo1.id);
+
+		List<Integer> ids = new ArrayList<Integer>();
+		ids.add(foo1.id);
+		ids.add(foo2.id);
+		ids.add(foo1.id);
+		Map<Integer, Foo> results = dao.queryForIds(ids);
+		assertEquals(2, results.size());
+		assertSame(result1, results.get(foo1.id));
+		// the fetched one was added to the cache
+		assertSame(results.get(foo2.id), dao.queryForId(foo2.id));
+	}
+
+	@Test
+	public void testLazyFields() throws Exception {
+		Dao<LazyFields, Integer> dao = createDao(LazyFields.class, true);
+		LazyFields lazy = new LazyFields();
+		lazy.name = "name";
+		lazy.bytes = new byte[] { 1, 2, 3 };
+		lazy.notes = "notes";
+		assertEquals(1, dao.create(lazy));
+
+		LazyFields result = dao.queryForId(lazy.id);
+		assertEquals(lazy.name, result.name);
+		assertNull(result.bytes);
+		assertNull(result.notes);
+		List<LazyFields> results = dao.queryForAll();
+		assertEquals(1, results.size());
+		assertEquals(lazy.name, results.get(0).name);
+		assertNull(results.get(0).notes);
+		assertEquals(1, dao.refresh(result));
+		assertNull(result.notes);
+
+		assertEquals(1, dao.loadLazyFields(result));
+		assertTrue(Arrays.equals(lazy.bytes, result.bytes));
+		assertEquals(lazy.notes, result.notes);
+
+		// selecting the column loads it
+		result = dao.queryForFirst(dao.queryBuilder().selectColumns(LazyFields.NOTES_COLUMN_NAME).prepare());
+		assertEquals(lazy.notes, result.notes);
+		assertNull(result.bytes);
+
+		LazyFields notThere = new LazyFields();
+		notThere.id = lazy.id + 1;
+		assertEquals(0, dao.loadLazyFields(notThere));
+	}
+
+	@Test
+	public void testLazyFieldsUpdate() throws Exception {
+		Dao<LazyFields, Integer> dao = createDao(LazyFields.class, true);
+		LazyFields lazy = new LazyFields();
+		lazy.bytes = new byte[] { 1, 2, 3 };
+		lazy.notes = "notes";
+		assertEquals(1, dao.create(lazy));
+
+		// lazy fields that were not loaded are not overwritten with null
+		LazyFields result = dao.queryForId(lazy.id);
+		result.name = "changed";
+		assertEquals(1, dao.update(result));
+		result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		assertEquals("changed", result.name);
+		assertEquals(lazy.notes, result.notes);
+		assertTrue(Arrays.equals(lazy.bytes, result.bytes));
+
+		// loaded lazy fields are updated
+		result.notes = "other notes";
+		assertEquals(1, dao.update(result));
+		result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		assertEquals("other notes", result.notes);
+	}
+
+	@Test
+	public void testLazyFieldsDirtyTracking() throws Exception {
+		Dao<LazyFields, Integer> dao = createDao(LazyFields.class, true);
+		dao.setDirtyFieldTracking(true);
+		LazyFields lazy = new LazyFields();
+		lazy.notes = "notes";
+		assertEquals(1, dao.create(lazy));
+
+		LazyFields result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		// loading the lazy fields doesn't make them dirty
+		assertEquals(1, dao.update(result));
+		result.notes = "changed";
+		assertEquals(1, dao.update(result));
+	}
+
+	@Test
+	public void testLazyFieldsPrimitive() throws Exception {
+		Dao<LazyPrimitive, Integer> dao = createDao(LazyPrimitive.class, true);
+		LazyPrimitive lazy = new LazyPrimitive();
+		lazy.count = 10;
+		lazy.status = "done";
+		assertEquals(1, dao.create(lazy));
+
+		// the primitive and initialized lazy fields were not loaded so they are not written
+		LazyPrimitive result = dao.queryForId(lazy.id);
+		assertEquals(0, result.count);
+		assertEquals("new", result.status);
+		result.name = "changed";
+		assertEquals(1, dao.update(result));
+		result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		assertEquals("changed", result.name);
+		assertEquals(10, result.count);
+		assertEquals("done", result.status);
+
+		// an assigned lazy field is written even if it was not loaded
+		result = dao.queryForId(lazy.id);
+		result.count = 20;
+		assertEquals(1, dao.update(result));
+		// and it is written again if it is set back to its initial value
+		result.count = 0;
+		assertEquals(1, dao.update(result));
+		result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		assertEquals(0, result.count);
+		assertEquals("done", result.status);
+	}
+
+	@Test
+	public void testLazyFieldsClearToNull() throws Exception {
+		Dao<LazyPrimitive, Integer> dao = createDao(LazyPrimitive.class, true);
+		LazyPrimitive lazy = new LazyPrimitive();
+		assertEquals(1, dao.create(lazy));
+
+		// a lazy field with an initializer that is not loaded can be cleared without loading it
+		LazyPrimitive result = dao.queryForId(lazy.id);
+		result.status = null;
+		assertEquals(1, dao.update(result));
+		result = dao.queryForId(lazy.id);
+		assertEquals(1, dao.loadLazyFields(result));
+		assertNull(result.status);
+
+		Dao<LazyFields, Integer> fieldsDao = createDao(LazyFields.class, true);
+		LazyFields fields = new LazyFields();
+		fields.notes = "notes";
+		assertEquals(1, fieldsDao.create(fields));
+		// a loaded lazy field that is set to null is written
+		LazyFields fieldsResult = fieldsDao.queryForId(fields.id);
+		assertEquals(1, fieldsDao.loadLazyFields(fieldsResult));
+		fieldsResult.notes = null;
+		assertEquals(1, fieldsDao.update(fieldsResult));
+		fieldsResult = fieldsDao.queryForId(fields.id);
+		assertEquals(1, fieldsDao.loadLazyFields(fieldsResult));
+		assertNull(fieldsResult.notes);
+	}
+
+	@Test(expected = SQLException.class)
+	public void testLoadLazyFieldsNoLazy() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		dao.loadLazyFields(foo);
+	}
+
+	@Test
+	public void testDirtyFieldTracking() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		dao.setDirtyFieldTracking(true);
+		Foo foo = new Foo();
+		foo.val = 1;
+		foo.equal = 2;
+		assertEquals(1, dao.create(foo));
+		// nothing has changed since the create so the update is skipped but the row is still reported
+		assertEquals(1, dao.update(foo));
+
+		Foo result1 = dao.queryForId(foo.id);
+		Foo result2 = dao.queryForId(foo.id);
+		result1.val = 3;
+		assertEquals(1, dao.update(result1));
+		result2.equal = 4;
+		// only the equal column is written so the val change from result1 is not overwritten
+		assertEquals(1, dao.update(result2));
+		assertEquals(1, dao.update(result2));
+
+		Foo result = dao.queryForId(foo.id);
+		assertEquals(3, result.val);
+		assertEquals(4, result.equal);
+	}
+
+	@Test
+	public void testDirtyFieldTrackingNoSnapshot() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, dao.create(foo));
+		dao.setDirtyFieldTracking(true);
+
+		// this object was created before tracking was enabled so all fields are written
+		Foo other = new Foo();
+		other.id = foo.id;
+		other.equal = 5;
+		assertEquals(1, dao.update(other));
+		Foo result = dao.queryForId(foo.id);
+		assertEquals(0, result.val);
+		assertEquals(5, result.equal);
+
+		dao.setDirtyFieldTracking(false);
+		assertEquals(1, dao.update(result));
+	}
+
+	@Test
+	public void testDirtyFieldTrackingVersion() throws Exception {
+		Dao<VersionField, Integer> dao = createDao(VersionField.class, true);
+		dao.setDirtyFieldTracking(true);
+		VersionField foo = new VersionField();
+		foo.stuff1 = "hello";
+		assertEquals(1, dao.create(foo));
+		assertEquals(0, foo.version);
+		// nothing changed but the version is still checked and moved
+		assertEquals(1, dao.update(foo));
+		assertEquals(1, foo.version);
+
+		foo.stuff2 = "there";
+		assertEquals(1, dao.update(foo));
+		assertEquals(2, foo.version);
+		VersionField result = dao.queryForId(foo.id);
+		assertEquals(2, result.version);
+		assertEquals("hello", result.stuff1);
+		assertEquals("there", result.stuff2);
+	}
+
+	@Test
+	public void testDirtyFieldTrackingVersionMismatch() throws Exception {
+		Dao<VersionField, Integer> dao = createDao(VersionField.class, true);
+		dao.setDirtyFieldTracking(true);
+		VersionField foo = new VersionField();
+		foo.stuff1 = "hello";
+		assertEquals(1, dao.create(foo));
+		VersionField stale = dao.queryForId(foo.id);
+		foo.stuff1 = "changed";
+		assertEquals(1, dao.update(foo));
+		// nothing changed in the stale object but the version doesn't match anymore
+		assertEquals(0, dao.update(stale));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testDirtyFieldTrackingNoId() throws Exception {
+		Dao<NoId, Object> dao = createDao(NoId.class, true);
+		dao.setDirtyFieldTracking(true);
+	}
+
 	/* ============================================================================================== */
 
 	private String buildFooQueryAllString(Dao<Foo, Object> fooDao) throws SQLException {
@@ -2634,6 +2991,33 @@ public class BaseDaoImplTest extends BaseCoreTest {
 		}
 	}
 
+	protected static class LazyFields {
+		public static final String NOTES_COLUMN_NAME = "notes";
+		@DatabaseField(generatedId = true)
+		int id;
+		@DatabaseField
+		String name;
+		@DatabaseField(lazy = true, dataType = DataType.BYTE_ARRAY)
+		byte[] bytes;
+		@DatabaseField(lazy = true, columnName = NOTES_COLUMN_NAME)
+		String notes;
+		public LazyFields() {
+		}
+	}
+
+	protected static class LazyPrimitive {
+		@DatabaseField(generatedId = true)
+		int id;
+		@DatabaseField
+		String name;
+		@DatabaseField(lazy = true)
+		int count;
+		@DatabaseField(lazy = true)
+		String status = "new";
+		public LazyPrimitive() {
+		}
+	}
+
 	protected static class VersionField {
 		@DatabaseField(generatedId = true)
 		public int id;
@@ -2709,6 +3093,15 @@ public class BaseDaoImplTest extends BaseCoreTest {
 		}
 	}
 
+	protected static class ForeignAutoCreate {
+		@DatabaseField(generatedId = true)
+		public int id;
+		@DatabaseField(foreign = true, foreignAutoCreate = true)
+		public One one;
+		public ForeignAutoCreate() {
+		}
+	}
+
 	@DatabaseTable(tableName = "entity")
 	protected static class BaseEntity {
 		@DatabaseField(generatedId = true)
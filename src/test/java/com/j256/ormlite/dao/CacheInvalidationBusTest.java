@@ -0,0 +1,320 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.WrappedConnectionSource;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.misc.OrmLiteContext;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.stmt.UpdateBuilder;
+
+public class CacheInvalidationBusTest extends BaseCoreTest {
+
+	@Test
+	public void testUpdateInvalidatesOtherCache() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(0);
+		Dao<Foo, Integer> primaryDao = createDao(Foo.class, true);
+		Dao<Foo, Integer> replicaDao = createOtherDao();
+		LruObjectCache primaryCache = new LruObjectCache(10);
+		LruObjectCache replicaCache = new LruObjectCache(10);
+		primaryDao.setObjectCache(primaryCache);
+		replicaDao.setObjectCache(replicaCache);
+		primaryDao.setCacheInvalidationBus(bus);
+		replicaDao.setCacheInvalidationBus(bus);
+		assertSame(bus, primaryDao.getCacheInvalidationBus());
+
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, primaryDao.create(foo));
+		Foo replicaFoo = replicaDao.queryForId(foo.id);
+		assertNotSame(foo, replicaFoo);
+		assertEquals(1, replicaCache.size(Foo.class));
+
+		foo.val = 2;
+		assertEquals(1, primaryDao.update(foo));
+		// the primary cache was left alone
+		assertSame(foo, primaryCache.get(Foo.class, foo.id));
+		assertNull(replicaCache.get(Foo.class, foo.id));
+		assertEquals(2, replicaDao.queryForId(foo.id).val);
+
+		assertEquals(1, primaryDao.delete(foo));
+		assertNull(replicaCache.get(Foo.class, foo.id));
+		assertNull(replicaDao.queryForId(foo.id));
+	}
+
+	@Test
+	public void testBuilderClearsClass() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(0);
+		Dao<Foo, Integer> primaryDao = createDao(Foo.class, true);
+		Dao<Foo, Integer> replicaDao = createOtherDao();
+		LruObjectCache replicaCache = new LruObjectCache(10);
+		primaryDao.setObjectCache(true);
+		replicaDao.setObjectCache(replicaCache);
+		primaryDao.setCacheInvalidationBus(bus);
+		replicaDao.setCacheInvalidationBus(bus);
+
+		Foo foo1 = new Foo();
+		Foo foo2 = new Foo();
+		assertEquals(2, primaryDao.create(Arrays.asList(foo1, foo2)));
+		replicaDao.queryForAll();
+		assertEquals(2, replicaCache.size(Foo.class));
+
+		UpdateBuilder<Foo, Integer> updateBuilder = primaryDao.updateBuilder();
+		updateBuilder.updateColumnValue(Foo.VAL_COLUMN_NAME, 10);
+		assertEquals(2, primaryDao.update(updateBuilder.prepare()));
+		assertEquals(0, replicaCache.size(Foo.class));
+		assertEquals(10, replicaDao.queryForId(foo1.id).val);
+
+		replicaDao.queryForAll();
+		assertEquals(1, primaryDao.updateRaw("UPDATE foo SET val = 20 WHERE id = " + foo2.id));
+		assertEquals(0, replicaCache.size(Foo.class));
+	}
+
+	@Test
+	public void testHeldUntilCommit() throws Exception {
+		// the test connection source doesn't remember the special connection of the transaction
+		connectionSource.close();
+		connectionSource = new SpecialConnectionSource();
+		CacheInvalidationBus bus = new CacheInvalidationBus(0);
+		final Dao<Foo, Integer> primaryDao = createDao(Foo.class, true);
+		Dao<Foo, Integer> replicaDao = createOtherDao();
+		final LruObjectCache replicaCache = new LruObjectCache(10);
+		primaryDao.setObjectCache(true);
+		replicaDao.setObjectCache(replicaCache);
+		primaryDao.setCacheInvalidationBus(bus);
+		replicaDao.setCacheInvalidationBus(bus);
+
+		final Foo foo = new Foo();
+		assertEquals(1, primaryDao.create(foo));
+		assertNotNull(replicaDao.queryForId(foo.id));
+
+		TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+			public Void call() throws Exception {
+				foo.val = 2;
+				assertEquals(1, primaryDao.update(foo));
+				// the event is held until the commit
+				assertNotNull(replicaCache.get(Foo.class, foo.id));
+				return null;
+			}
+		});
+		assertNull(replicaCache.get(Foo.class, foo.id));
+
+		assertNotNull(replicaDao.queryForId(foo.id));
+		try {
+			TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+				public Void call() throws Exception {
+					foo.val = 3;
+					assertEquals(1, primaryDao.update(foo));
+					throw new SQLException("roll it back");
+				}
+			});
+			fail("should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+		// the event was dropped with the rollback
+		assertNotNull(replicaCache.get(Foo.class, foo.id));
+		assertEquals(2, replicaCache.get(Foo.class, foo.id).val);
+	}
+
+	@Test
+	public void testHeldUntilCommitOnOtherThread() throws Exception {
+		connectionSource.close();
+		connectionSource = new SpecialConnectionSource();
+		CacheInvalidationBus bus = new CacheInvalidationBus(0);
+		final Dao<Foo, Integer> primaryDao = createDao(Foo.class, true);
+		Dao<Foo, Integer> replicaDao = createOtherDao();
+		final LruObjectCache replicaCache = new LruObjectCache(10);
+		primaryDao.setObjectCache(true);
+		replicaDao.setObjectCache(replicaCache);
+		primaryDao.setCacheInvalidationBus(bus);
+		replicaDao.setCacheInvalidationBus(bus);
+
+		final Foo foo = new Foo();
+		assertEquals(1, primaryDao.create(foo));
+		assertNotNull(replicaDao.queryForId(foo.id));
+
+		TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+			public Void call() throws Exception {
+				// the transaction continues on another thread with the same context
+				final OrmLiteContext context = OrmLiteContext.current();
+				final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+				Thread thread = new Thread(new Runnable() {
+					public void run() {
+						try {
+							OrmLiteContext.callWith(context, new Callable<Void>() {
+								public Void call() throws Exception {
+									foo.val = 2;
+									assertEquals(1, primaryDao.update(foo));
+									return null;
+								}
+							});
+						} catch (Throwable t) {
+							thrown.set(t);
+						}
+					}
+				});
+				thread.start();
+				thread.join();
+				assertNull(thrown.get());
+				// the event is held until the commit
+				assertNotNull(replicaCache.get(Foo.class, foo.id));
+				return null;
+			}
+		});
+		assertNull(replicaCache.get(Foo.class, foo.id));
+	}
+
+	@Test
+	public void testBatchedCoalescing() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(60000);
+		LruObjectCache source = new LruObjectCache(10);
+		LruObjectCache other = new LruObjectCache(10);
+		source.registerClass(Foo.class);
+		other.registerClass(Foo.class);
+		bus.subscribe(source);
+		bus.subscribe(other);
+		Foo foo1 = new Foo();
+		Foo foo2 = new Foo();
+		other.put(Foo.class, 1, foo1);
+		other.put(Foo.class, 2, foo2);
+
+		bus.publish(source, Foo.class, 1);
+		bus.publish(source, Foo.class, 1);
+		bus.publish(source, Foo.class, 1);
+		// not delivered yet
+		assertSame(foo1, other.get(Foo.class, 1));
+		bus.flush();
+		assertNull(other.get(Foo.class, 1));
+		assertSame(foo2, other.get(Foo.class, 2));
+		assertEquals(3, bus.getPublishCount());
+		assertEquals(1, bus.getDeliveryCount());
+
+		// the class clear replaces the id events
+		bus.publish(source, Foo.class, 2);
+		bus.publishClass(source, Foo.class);
+		bus.close();
+		assertEquals(0, other.size(Foo.class));
+		assertEquals(2, bus.getDeliveryCount());
+
+		// after closing it delivers right away
+		other.put(Foo.class, 1, foo1);
+		bus.publish(source, Foo.class, 1);
+		assertNull(other.get(Foo.class, 1));
+	}
+
+	@Test
+	public void testDeliveryThread() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(5);
+		LruObjectCache other = new LruObjectCache(10);
+		other.registerClass(Foo.class);
+		bus.subscribe(other);
+		other.put(Foo.class, 1, new Foo());
+		bus.publish(null, Foo.class, 1);
+		for (int i = 0; i < 100 && other.size(Foo.class) > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, other.size(Foo.class));
+		bus.close();
+	}
+
+	@Test
+	public void testSubscriberThrows() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(5);
+		LruObjectCache bad = new LruObjectCache(10) {
+			@Override
+			public <T, ID> void remove(Class<T> clazz, ID id) {
+				throw new IllegalStateException("bad cache");
+			}
+
+			@Override
+			public <T> void clear(Class<T> clazz) {
+				throw new IllegalStateException("bad cache");
+			}
+		};
+		LruObjectCache other = new LruObjectCache(10);
+		other.registerClass(Foo.class);
+		bus.subscribe(bad);
+		bus.subscribe(other);
+		other.put(Foo.class, 1, new Foo());
+		other.put(Foo.class, 2, new Foo());
+		bus.publish(null, Foo.class, 1);
+		for (int i = 0; i < 100 && other.size(Foo.class) > 1; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, other.size(Foo.class));
+		// the delivery thread is still running
+		bus.publishClass(null, Foo.class);
+		for (int i = 0; i < 100 && other.size(Foo.class) > 0; i++) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, other.size(Foo.class));
+		bus.close();
+	}
+
+	@Test
+	public void testSharedCacheSubscription() throws Exception {
+		CacheInvalidationBus bus = new CacheInvalidationBus(0);
+		LruObjectCache shared = new LruObjectCache(10);
+		shared.registerClass(Foo.class);
+		bus.subscribe(shared);
+		bus.subscribe(shared);
+		bus.unsubscribe(shared);
+		shared.put(Foo.class, 1, new Foo());
+		bus.publish(null, Foo.class, 1);
+		// still subscribed once
+		assertEquals(0, shared.size(Foo.class));
+		bus.unsubscribe(shared);
+		shared.put(Foo.class, 1, new Foo());
+		bus.publish(null, Foo.class, 1);
+		assertEquals(1, shared.size(Foo.class));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeDelay() {
+		new CacheInvalidationBus(-1);
+	}
+
+	private Dao<Foo, Integer> createOtherDao() throws Exception {
+		return new BaseDaoImpl<Foo, Integer>(connectionSource, Foo.class) {
+		};
+	}
+
+	private static class SpecialConnectionSource extends WrappedConnectionSource {
+		private DatabaseConnection specialConnection;
+
+		public SpecialConnectionSource() throws SQLException {
+			super(new H2ConnectionSource());
+		}
+
+		@Override
+		public boolean saveSpecialConnection(DatabaseConnection connection) {
+			specialConnection = connection;
+			return true;
+		}
+
+		@Override
+		public void clearSpecialConnection(DatabaseConnection connection) {
+			specialConnection = null;
+		}
+
+		@Override
+		public DatabaseConnection getSpecialConnection() {
+			return specialConnection;
+		}
+	}
+}
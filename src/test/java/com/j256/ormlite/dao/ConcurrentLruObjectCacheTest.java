@@ -0,0 +1,185 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ConcurrentLruObjectCacheTest extends BaseObjectCacheTest {
+
+	@Test
+	public void testStuff() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(2);
+		dao.setObjectCache(cache);
+
+		Foo foo1 = new Foo();
+		assertEquals(1, dao.create(foo1));
+		assertEquals(1, cache.size(Foo.class));
+		assertSame(foo1, dao.queryForId(foo1.id));
+
+		Foo foo2 = new Foo();
+		assertEquals(1, dao.create(foo2));
+		assertEquals(2, cache.size(Foo.class));
+		assertSame(foo2, dao.queryForId(foo2.id));
+
+		Foo foo3 = new Foo();
+		assertEquals(1, dao.create(foo3));
+		// one of them was pushed out
+		assertEquals(2, cache.size(Foo.class));
+		assertSame(foo3, dao.queryForId(foo3.id));
+	}
+
+	@Test
+	public void testClockSecondChance() {
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(3, 1);
+		cache.registerClass(Foo.class);
+		Foo foo1 = new Foo();
+		Foo foo2 = new Foo();
+		Foo foo3 = new Foo();
+		cache.put(Foo.class, 1, foo1);
+		cache.put(Foo.class, 2, foo2);
+		cache.put(Foo.class, 3, foo3);
+		// 1 and 3 have been used recently but 2 has not
+		assertSame(foo1, cache.get(Foo.class, 1));
+		assertSame(foo3, cache.get(Foo.class, 3));
+
+		Foo foo4 = new Foo();
+		cache.put(Foo.class, 4, foo4);
+		assertEquals(3, cache.size(Foo.class));
+		assertSame(foo1, cache.get(Foo.class, 1));
+		assertNull(cache.get(Foo.class, 2));
+		assertSame(foo3, cache.get(Foo.class, 3));
+		assertSame(foo4, cache.get(Foo.class, 4));
+	}
+
+	@Test
+	public void testStats() {
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(2, 1);
+		cache.registerClass(Foo.class);
+		final List<Object> evictedIds = new ArrayList<Object>();
+		cache.setListener(new ObjectCacheListener() {
+			public void objectEvicted(Class<?> clazz, Object id, Object data) {
+				evictedIds.add(id);
+			}
+
+			public void objectExpired(Class<?> clazz, Object id, Object data) {
+			}
+		});
+
+		cache.put(Foo.class, 1, new Foo());
+		cache.put(Foo.class, 2, new Foo());
+		assertNull(cache.get(Foo.class, 3));
+		cache.put(Foo.class, 3, new Foo());
+		assertNull(cache.get(Foo.class, 1));
+		cache.get(Foo.class, 3);
+
+		ObjectCacheStats stats = cache.getStats(Foo.class);
+		assertEquals(1, stats.getHitCount());
+		assertEquals(2, stats.getMissCount());
+		assertEquals(3, stats.getPutCount());
+		assertEquals(1, stats.getEvictionCount());
+		assertEquals(1, evictedIds.size());
+		assertEquals(1, evictedIds.get(0));
+		assertEquals(3, cache.getStatsAll().getPutCount());
+		assertEquals(0, cache.getStats(String.class).getRequestCount());
+
+		cache.resetStats();
+		assertEquals(0, cache.getStatsAll().getPutCount());
+	}
+
+	@Test
+	public void testRemoveAndUpdateId() {
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(10);
+		cache.registerClass(Foo.class);
+		Foo foo = new Foo();
+		cache.put(Foo.class, 1, foo);
+		assertSame(foo, cache.updateId(Foo.class, 1, 100));
+		assertNull(cache.get(Foo.class, 1));
+		assertSame(foo, cache.get(Foo.class, 100));
+		assertNull(cache.updateId(Foo.class, 1, 101));
+		assertEquals(1, cache.sizeAll());
+
+		cache.remove(Foo.class, 100);
+		assertNull(cache.get(Foo.class, 100));
+		assertEquals(0, cache.size(Foo.class));
+
+		// not registered
+		assertNull(cache.get(String.class, 1));
+		cache.put(String.class, 1, "hello");
+		assertEquals(0, cache.size(String.class));
+	}
+
+	@Test
+	public void testCapacityUnderThreads() throws Exception {
+		final int capacity = 100;
+		final ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(capacity);
+		cache.registerClass(Foo.class);
+		final AtomicBoolean failed = new AtomicBoolean();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			final long seed = i;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(seed);
+					for (int j = 0; j < 10000; j++) {
+						int id = random.nextInt(1000);
+						Foo foo = cache.get(Foo.class, id);
+						if (foo == null) {
+							foo = new Foo();
+							foo.id = id;
+							cache.put(Foo.class, id, foo);
+						} else if (foo.id != id) {
+							failed.set(true);
+						}
+						if (j % 100 == 0) {
+							cache.remove(Foo.class, random.nextInt(1000));
+						}
+					}
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertFalse(failed.get());
+		assertTrue(cache.size(Foo.class) <= capacity);
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(2);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		assertSame(foo, dao.queryForId(foo.id));
+
+		dao.clearObjectCache();
+		assertNotSame(foo, dao.queryForId(foo.id));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new ConcurrentLruObjectCache(0);
+	}
+
+	@Override
+	protected ObjectCache enableCache(Dao<?, ?> dao) throws Exception {
+		ConcurrentLruObjectCache cache = new ConcurrentLruObjectCache(10);
+		dao.setObjectCache(cache);
+		return cache;
+	}
+}
@@ -13,6 +13,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -72,6 +78,17 @@ public class DaoManagerTest extends BaseCoreTest {
 		assertSame(daoImpl, dao);
 	}
 
+	@Test
+	public void testConstructedDaoReplacesRegistered() throws Exception {
+		Dao<Foo, Integer> created = DaoManager.createDao(connectionSource, Foo.class);
+		assertSame(created, DaoManager.lookupDao(connectionSource, Foo.class));
+		// like a DAO wired by Spring, constructing it directly registers it over the one that was there
+		Dao<Foo, Integer> constructed = new BaseDaoImpl<Foo, Integer>(connectionSource, Foo.class) {
+		};
+		assertSame(constructed, DaoManager.lookupDao(connectionSource, Foo.class));
+		assertSame(constructed, DaoManager.createDao(connectionSource, Foo.class));
+	}
+
 	@Test
 	public void testRegisterDaoTable() throws Exception {
 		DatabaseTableConfig<Bar> tableConfig =
@@ -237,6 +254,46 @@ public class DaoManagerTest extends BaseCoreTest {
 		assertNotNull(DaoManager.createDao(connectionSource, MoreComplexLoopFour.class));
 	}
 
+	@Test
+	public void testConcurrentCreate() throws Exception {
+		DaoManager.clearCache();
+		final Class<?>[] classes =
+				new Class<?>[] { MoreComplexLoopOne.class, MoreComplexLoopTwo.class, MoreComplexLoopThree.class,
+						MoreComplexLoopFour.class, LoopOne.class, LoopTwo.class, SelfReference.class };
+		int threadCount = 8;
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		List<Future<List<Dao<?, ?>>>> futures = new ArrayList<Future<List<Dao<?, ?>>>>();
+		try {
+			for (int i = 0; i < threadCount; i++) {
+				final int offset = i;
+				futures.add(executor.submit(new Callable<List<Dao<?, ?>>>() {
+					public List<Dao<?, ?>> call() throws Exception {
+						startLatch.await();
+						// each thread starts the loops from a different class
+						Dao<?, ?>[] daos = new Dao<?, ?>[classes.length];
+						for (int j = 0; j < classes.length; j++) {
+							int index = (j + offset) % classes.length;
+							daos[index] = DaoManager.createDao(connectionSource, classes[index]);
+						}
+						return Arrays.asList(daos);
+					}
+				}));
+			}
+			startLatch.countDown();
+			List<Dao<?, ?>> first = futures.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<List<Dao<?, ?>>> future : futures) {
+				List<Dao<?, ?>> daos = future.get(10, TimeUnit.SECONDS);
+				for (int j = 0; j < classes.length; j++) {
+					assertSame(first.get(j), daos.get(j));
+					assertSame(first.get(j), DaoManager.lookupDao(connectionSource, classes[j]));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 	/* ================================================================== */
 
 	private <T> void testClass(Class<T> clazz) throws Exception {
@@ -912,6 +912,35 @@ public class ForeignCollectionTest extends BaseCoreTest {
 		assertFalse(iterator.hasNext());
 	}
 
+	@Test
+	public void testAddAllNoForeign() throws Exception {
+		createTable(Order.class, true);
+		Dao<Account, Integer> accountDao = createDao(Account.class, true);
+
+		Account account = new Account();
+		account.name = "fwepfjewfew";
+		assertEquals(1, accountDao.create(account));
+		accountDao.assignEmptyForeignCollection(account, Account.ORDERS_FIELD_NAME);
+
+		Order order1 = new Order();
+		order1.val = 1453783141;
+		Order order2 = new Order();
+		order2.val = 247895295;
+		assertTrue(account.orders.addAll(Arrays.asList(order1, order2)));
+		assertSame(account, order1.account);
+		assertSame(account, order2.account);
+
+		Account result = accountDao.queryForId(account.id);
+		assertNotNull(result);
+
+		Iterator<Order> iterator = result.orders.iterator();
+		assertTrue(iterator.hasNext());
+		assertEquals(order1.val, iterator.next().val);
+		assertTrue(iterator.hasNext());
+		assertEquals(order2.val, iterator.next().val);
+		assertFalse(iterator.hasNext());
+	}
+
 	@Test
 	public void testAddDontOverwriteForeign() throws Exception {
 		createTable(Order.class, true);
@@ -2,10 +2,13 @@ package com.j256.ormlite.dao;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
+import com.j256.ormlite.table.DatabaseTableConfig;
+
 public class LruObjectCacheTest extends BaseObjectCacheTest {
 
 	@Test
@@ -99,10 +102,149 @@ public class LruObjectCacheTest extends BaseObjectCacheTest {
 		assertSame(foo2, foo3);
 	}
 
+	@Test
+	public void testPerClassCapacity() {
+		LruObjectCache cache = new LruObjectCache(10);
+		cache.registerClass(Foo.class, new ObjectCacheOptions(2, 0, 0));
+		cache.registerClass(String.class);
+		for (int i = 0; i < 5; i++) {
+			cache.put(Foo.class, i, new Foo());
+			cache.put(String.class, i, "hello");
+		}
+		assertEquals(2, cache.size(Foo.class));
+		assertEquals(5, cache.size(String.class));
+
+		// lowering the capacity trims the cache
+		cache.registerClass(String.class, new ObjectCacheOptions(3, 0, 0));
+		assertEquals(3, cache.size(String.class));
+		assertNull(cache.get(String.class, 1));
+		assertEquals("hello", cache.get(String.class, 4));
+	}
+
+	@Test
+	public void testExpireAfterWrite() throws Exception {
+		LruObjectCache cache = new LruObjectCache(10);
+		cache.registerClass(Foo.class, new ObjectCacheOptions(0, 100, 0));
+		Foo foo = new Foo();
+		cache.put(Foo.class, 1, foo);
+		assertSame(foo, cache.get(Foo.class, 1));
+		assertEquals(1, cache.size(Foo.class));
+		Thread.sleep(150);
+		// looking it up doesn't keep it around
+		assertNull(cache.get(Foo.class, 1));
+		assertEquals(0, cache.size(Foo.class));
+	}
+
+	@Test
+	public void testExpireAfterAccess() throws Exception {
+		LruObjectCache cache = new LruObjectCache(10);
+		cache.registerClass(Foo.class, new ObjectCacheOptions(0, 0, 200));
+		Foo foo1 = new Foo();
+		Foo foo2 = new Foo();
+		cache.put(Foo.class, 1, foo1);
+		cache.put(Foo.class, 2, foo2);
+		for (int i = 0; i < 3; i++) {
+			Thread.sleep(100);
+			assertSame(foo1, cache.get(Foo.class, 1));
+		}
+		// 2 was not looked up so it was expired when we get the size
+		assertEquals(1, cache.size(Foo.class));
+		assertNull(cache.get(Foo.class, 2));
+		Thread.sleep(250);
+		assertNull(cache.get(Foo.class, 1));
+	}
+
+	@Test
+	public void testTableConfigOptions() throws Exception {
+		DatabaseTableConfig<Foo> tableConfig = DatabaseTableConfig.fromClass(connectionSource, Foo.class);
+		tableConfig.setObjectCacheOptions(new ObjectCacheOptions(1, 0, 0));
+		Dao<Foo, Integer> dao = createDao(tableConfig, true);
+		LruObjectCache cache = new LruObjectCache(10);
+		dao.setObjectCache(cache);
+
+		Foo foo1 = new Foo();
+		assertEquals(1, dao.create(foo1));
+		Foo foo2 = new Foo();
+		assertEquals(1, dao.create(foo2));
+		assertEquals(1, cache.size(Foo.class));
+		assertSame(foo2, dao.queryForId(foo2.id));
+		assertNotSame(foo1, dao.queryForId(foo1.id));
+	}
+
+	@Test
+	public void testStats() throws Exception {
+		LruObjectCache cache = new LruObjectCache(2);
+		cache.registerClass(Foo.class);
+		cache.registerClass(String.class, new ObjectCacheOptions(0, 100, 0));
+		RecordingListener listener = new RecordingListener();
+		cache.setListener(listener);
+
+		Foo foo1 = new Foo();
+		Foo foo2 = new Foo();
+		Foo foo3 = new Foo();
+		cache.put(Foo.class, 1, foo1);
+		cache.put(Foo.class, 2, foo2);
+		cache.put(Foo.class, 3, foo3);
+		assertSame(foo1, listener.evictedData);
+		assertEquals(1, listener.evictedId);
+		assertNull(cache.get(Foo.class, 1));
+		assertSame(foo3, cache.get(Foo.class, 3));
+		assertSame(foo3, cache.get(Foo.class, 3));
+
+		ObjectCacheStats stats = cache.getStats(Foo.class);
+		assertEquals(2, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(3, stats.getPutCount());
+		assertEquals(1, stats.getEvictionCount());
+		assertEquals(0, stats.getExpirationCount());
+		assertEquals(2.0 / 3.0, stats.getHitRate(), 0.0001);
+
+		cache.put(String.class, 1, "hello");
+		Thread.sleep(150);
+		assertNull(cache.get(String.class, 1));
+		assertEquals("hello", listener.expiredData);
+		assertEquals(1, cache.getStats(String.class).getExpirationCount());
+		assertEquals(1, cache.getStats(String.class).getMissCount());
+
+		ObjectCacheStats all = cache.getStatsAll();
+		assertEquals(2, all.getMissCount());
+		assertEquals(4, all.getPutCount());
+		assertEquals(0, cache.getStats(Integer.class).getRequestCount());
+
+		cache.resetStats();
+		assertEquals(0, cache.getStatsAll().getPutCount());
+	}
+
+	@Test
+	public void testLowerCapacityEvicts() {
+		LruObjectCache cache = new LruObjectCache(10);
+		cache.registerClass(Foo.class);
+		for (int i = 0; i < 5; i++) {
+			cache.put(Foo.class, i, new Foo());
+		}
+		cache.registerClass(Foo.class, new ObjectCacheOptions(2, 0, 0));
+		assertEquals(3, cache.getStats(Foo.class).getEvictionCount());
+	}
+
 	@Override
 	protected ObjectCache enableCache(Dao<?, ?> dao) throws Exception {
 		LruObjectCache cache = new LruObjectCache(10);
 		dao.setObjectCache(cache);
 		return cache;
 	}
+
+	private static class RecordingListener implements ObjectCacheListener {
+		Object evictedId;
+		Object evictedData;
+		Object expiredData;
+
+		public void objectEvicted(Class<?> clazz, Object id, Object data) {
+			evictedId = id;
+			evictedData = data;
+		}
+
+		public void objectExpired(Class<?> clazz, Object id, Object data) {
+			expiredData = data;
+		}
+	}
 }
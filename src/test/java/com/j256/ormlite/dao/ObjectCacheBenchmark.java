@@ -0,0 +1,96 @@
+package com.j256.ormlite.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded throughput benchmark of the {@link ObjectCache} implementations. This is not run as part of the tests.
+ * Run the main method with optional arguments of the number of threads and the seconds to run each cache.
+ * 
+ * <p>
+ * Each thread does lookups of random ids from a key space twice the size of the cache and puts the misses, which is
+ * what the DAO does on a query-for-id.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class ObjectCacheBenchmark {
+
+	private static final int CAPACITY = 10000;
+	private static final int KEY_SPACE = CAPACITY * 2;
+	private static final int WARMUP_SECONDS = 1;
+
+	public static void main(String[] args) throws Exception {
+		int threadCount = 32;
+		int seconds = 5;
+		if (args.length > 0) {
+			threadCount = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			seconds = Integer.parseInt(args[1]);
+		}
+		System.out.println("threads = " + threadCount + ", capacity = " + CAPACITY + ", key space = " + KEY_SPACE);
+		for (int i = 0; i < 2; i++) {
+			// the first run is to warm up the JIT
+			int runSeconds = (i == 0 ? WARMUP_SECONDS : seconds);
+			run(new LruObjectCache(CAPACITY), threadCount, runSeconds, i > 0);
+			run(new ConcurrentLruObjectCache(CAPACITY), threadCount, runSeconds, i > 0);
+		}
+	}
+
+	private static void run(final ObjectCache cache, int threadCount, int seconds, boolean print) throws Exception {
+		cache.registerClass(Integer.class);
+		final AtomicLong opCount = new AtomicLong();
+		final AtomicLong hitCount = new AtomicLong();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final long[] stopMillis = new long[1];
+		List<Thread> threads = new ArrayList<Thread>(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			final Random random = new Random(i);
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					long ops = 0;
+					long hits = 0;
+					while (true) {
+						// check the time every so often
+						if ((ops & 0xFFF) == 0 && System.currentTimeMillis() >= stopMillis[0]) {
+							break;
+						}
+						Integer id = random.nextInt(KEY_SPACE);
+						Integer value = cache.get(Integer.class, id);
+						if (value == null) {
+							cache.put(Integer.class, id, id);
+						} else {
+							hits++;
+						}
+						ops++;
+					}
+					opCount.addAndGet(ops);
+					hitCount.addAndGet(hits);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		long startMillis = System.currentTimeMillis();
+		stopMillis[0] = startMillis + seconds * 1000L;
+		startLatch.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsedMillis = System.currentTimeMillis() - startMillis;
+		if (print) {
+			long ops = opCount.get();
+			System.out.printf("%-28s %,14d ops/sec  hit-rate %5.1f%%%n", cache.getClass().getSimpleName(), ops * 1000
+					/ elapsedMillis, hitCount.get() * 100.0 / ops);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.j256.ormlite.dao;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the hit-rates of the {@link ObjectCache} implementations on synthetic traces. This is not run as part of the
+ * tests. Run the main method with optional arguments of the cache capacity and the number of lookups in each trace.
+ * 
+ * <p>
+ * The Zipf trace looks up ids with a skewed popularity like most real workloads. The scan-mixed trace is the same
+ * except that every so often there is a scan of ids which are each looked up only once, like a report iterating over a
+ * table.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class ObjectCacheHitRateBenchmark {
+
+	private static final int KEY_SPACE = 100000;
+	private static final double ZIPF_EXPONENT = 0.9;
+	private static final int SCAN_INTERVAL = 50000;
+	private static final int SCAN_LENGTH = 20000;
+
+	public static void main(String[] args) {
+		int capacity = 1000;
+		int lookupCount = 2000000;
+		if (args.length > 0) {
+			capacity = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			lookupCount = Integer.parseInt(args[1]);
+		}
+		System.out.println("capacity = " + capacity + ", key space = " + KEY_SPACE + ", lookups = " + lookupCount);
+		int[] zipfTrace = zipfTrace(lookupCount, new Random(1));
+		int[] scanTrace = scanMixedTrace(lookupCount, new Random(1));
+		System.out.printf("%-28s %10s %12s%n", "", "zipf", "scan-mixed");
+		print(new LruObjectCache(capacity), new LruObjectCache(capacity), zipfTrace, scanTrace);
+		print(new ConcurrentLruObjectCache(capacity), new ConcurrentLruObjectCache(capacity), zipfTrace, scanTrace);
+		print(new TinyLfuObjectCache(capacity), new TinyLfuObjectCache(capacity), zipfTrace, scanTrace);
+	}
+
+	private static void print(ObjectCache zipfCache, ObjectCache scanCache, int[] zipfTrace, int[] scanTrace) {
+		System.out.printf("%-28s %9.1f%% %11.1f%%%n", zipfCache.getClass().getSimpleName(),
+				hitRate(zipfCache, zipfTrace), hitRate(scanCache, scanTrace));
+	}
+
+	/**
+	 * Do what the DAO does on a query-for-id: look the id up and put it on a miss.
+	 */
+	private static double hitRate(ObjectCache cache, int[] trace) {
+		cache.registerClass(Integer.class);
+		long hits = 0;
+		for (int id : trace) {
+			if (cache.get(Integer.class, id) == null) {
+				cache.put(Integer.class, id, id);
+			} else {
+				hits++;
+			}
+		}
+		return hits * 100.0 / trace.length;
+	}
+
+	private static int[] zipfTrace(int lookupCount, Random random) {
+		double[] cumulative = zipfCumulative();
+		int[] trace = new int[lookupCount];
+		for (int i = 0; i < lookupCount; i++) {
+			trace[i] = zipfId(cumulative, random);
+		}
+		return trace;
+	}
+
+	private static int[] scanMixedTrace(int lookupCount, Random random) {
+		double[] cumulative = zipfCumulative();
+		int[] trace = new int[lookupCount];
+		// scan ids are outside of the zipf key space so they are never looked up again
+		int nextScanId = KEY_SPACE;
+		int i = 0;
+		while (i < lookupCount) {
+			for (int j = 0; j < SCAN_INTERVAL && i < lookupCount; j++) {
+				trace[i++] = zipfId(cumulative, random);
+			}
+			for (int j = 0; j < SCAN_LENGTH && i < lookupCount; j++) {
+				trace[i++] = nextScanId++;
+			}
+		}
+		return trace;
+	}
+
+	private static double[] zipfCumulative() {
+		double[] cumulative = new double[KEY_SPACE];
+		double sum = 0;
+		for (int i = 0; i < KEY_SPACE; i++) {
+			sum += 1.0 / Math.pow(i + 1, ZIPF_EXPONENT);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < KEY_SPACE; i++) {
+			cumulative[i] /= sum;
+		}
+		return cumulative;
+	}
+
+	private static int zipfId(double[] cumulative, Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return Math.min(index, KEY_SPACE - 1);
+	}
+}
@@ -0,0 +1,106 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.field.DatabaseField;
+
+public class ObjectCacheWarmerTest extends BaseCoreTest {
+
+	@Test
+	public void testPreloadCache() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		for (int i = 0; i < 10; i++) {
+			Foo foo = new Foo();
+			foo.val = i;
+			assertEquals(1, dao.create(foo));
+		}
+		LruObjectCache cache = new LruObjectCache(100);
+		dao.setObjectCache(cache);
+		assertEquals(0, cache.size(Foo.class));
+
+		assertEquals(4, dao.preloadCache(dao.queryBuilder().where().lt(Foo.VAL_COLUMN_NAME, 4).prepare()));
+		assertEquals(4, cache.size(Foo.class));
+		assertEquals(10, dao.preloadCache(dao.queryBuilder().prepare()));
+		assertEquals(10, cache.size(Foo.class));
+
+		// the lookups now come from the cache
+		Foo cached = cache.get(Foo.class, 1);
+		assertSame(cached, dao.queryForId(1));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testPreloadNoCache() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		dao.preloadCache(dao.queryBuilder().prepare());
+	}
+
+	@Test
+	public void testWarmUp() throws Exception {
+		testWarmUp(1);
+	}
+
+	@Test
+	public void testWarmUpParallel() throws Exception {
+		testWarmUp(2);
+	}
+
+	@Test(expected = SQLException.class)
+	public void testWarmUpFails() throws Exception {
+		Dao<Foo, Integer> fooDao = createDao(Foo.class, true);
+		Dao<Bar, Integer> barDao = createDao(Bar.class, true);
+		fooDao.setObjectCache(true);
+		ObjectCacheWarmer warmer = new ObjectCacheWarmer();
+		warmer.add(fooDao);
+		// no cache enabled
+		warmer.add(barDao);
+		warmer.setThreadCount(2);
+		warmer.warmUp();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroThreads() {
+		new ObjectCacheWarmer().setThreadCount(0);
+	}
+
+	private void testWarmUp(int threadCount) throws Exception {
+		Dao<Foo, Integer> fooDao = createDao(Foo.class, true);
+		Dao<Bar, Integer> barDao = createDao(Bar.class, true);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(1, fooDao.create(new Foo()));
+		}
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, barDao.create(new Bar()));
+		}
+		LruObjectCache cache = new LruObjectCache(100);
+		fooDao.setObjectCache(cache);
+		barDao.setObjectCache(cache);
+
+		ObjectCacheWarmer warmer = new ObjectCacheWarmer();
+		warmer.add(fooDao);
+		warmer.add(barDao, barDao.queryBuilder().limit(2L).prepare());
+		warmer.setThreadCount(threadCount);
+		List<ObjectCacheWarmer.Result> results = warmer.warmUp();
+
+		assertEquals(2, results.size());
+		assertEquals(Foo.class, results.get(0).getDataClass());
+		assertEquals(5, results.get(0).getRowCount());
+		assertEquals(Bar.class, results.get(1).getDataClass());
+		assertEquals(2, results.get(1).getRowCount());
+		assertEquals(5, cache.size(Foo.class));
+		assertEquals(2, cache.size(Bar.class));
+	}
+
+	protected static class Bar {
+		@DatabaseField(generatedId = true)
+		int id;
+		public Bar() {
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.DatabaseFieldConfig;
+import com.j256.ormlite.table.DatabaseTableConfig;
+
+public class OffHeapObjectCacheTest extends BaseCoreTest {
+
+	@Test
+	public void testDao() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024 * 1024);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		foo.val = 1231;
+		foo.stringField = "hello";
+		assertEquals(1, dao.create(foo));
+		assertEquals(1, cache.size(Foo.class));
+
+		Foo result = dao.queryForId(foo.id);
+		// each lookup makes a new object
+		assertNotSame(foo, result);
+		assertEquals(foo.id, result.id);
+		assertEquals(foo.val, result.val);
+		assertEquals(foo.stringField, result.stringField);
+
+		foo.val = 4567;
+		foo.stringField = null;
+		assertEquals(1, dao.update(foo));
+		result = cache.get(Foo.class, foo.id);
+		assertEquals(foo.val, result.val);
+		assertNull(result.stringField);
+
+		int oldId = foo.id;
+		int newId = oldId + 100;
+		assertEquals(1, dao.updateId(foo, newId));
+		assertNull(cache.get(Foo.class, oldId));
+		result = cache.get(Foo.class, newId);
+		assertEquals(newId, result.id);
+		assertEquals(foo.val, result.val);
+
+		assertEquals(1, dao.delete(foo));
+		assertNull(cache.get(Foo.class, newId));
+		assertEquals(0, cache.size(Foo.class));
+	}
+
+	@Test
+	public void testFieldTypes() throws Exception {
+		Dao<Foo, Integer> fooDao = createDao(Foo.class, true);
+		Dao<Types, Integer> dao = createDao(Types.class, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024 * 1024);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, fooDao.create(foo));
+		Types types = new Types();
+		types.stringField = "\u00e9t\u00e9";
+		types.longField = Long.MAX_VALUE;
+		types.booleanField = true;
+		types.doubleField = 1.5;
+		types.charField = 'x';
+		types.dateField = new Date(1234567890123L);
+		types.dateLongField = new Date(9876543210L);
+		types.enumField = OurEnum.SECOND;
+		types.enumIntegerField = OurEnum.SECOND;
+		types.bytesField = new byte[] { 1, 2, 3 };
+		types.bigDecimalField = new BigDecimal("1234.5678");
+		types.foo = foo;
+		assertEquals(1, dao.create(types));
+
+		Types result = cache.get(Types.class, types.id);
+		assertNotNull(result);
+		assertNotSame(types, result);
+		assertEquals(types.stringField, result.stringField);
+		assertEquals(types.longField, result.longField);
+		assertEquals(types.booleanField, result.booleanField);
+		assertEquals(types.doubleField, result.doubleField, 0.0);
+		assertEquals(types.charField, result.charField);
+		assertEquals(types.dateField, result.dateField);
+		assertEquals(types.dateLongField, result.dateLongField);
+		assertEquals(types.enumField, result.enumField);
+		assertEquals(types.enumIntegerField, result.enumIntegerField);
+		assertArrayEquals(types.bytesField, result.bytesField);
+		assertEquals(types.bigDecimalField, result.bigDecimalField);
+		assertEquals(foo.id, result.foo.id);
+		assertNull(result.nullField);
+
+		// now with all of the nulls
+		Types empty = new Types();
+		assertEquals(1, dao.create(empty));
+		result = cache.get(Types.class, empty.id);
+		assertNull(result.stringField);
+		assertEquals(0, result.charField);
+		assertNull(result.dateField);
+		assertNull(result.foo);
+	}
+
+	@Test
+	public void testStringId() throws Exception {
+		Dao<StringId, String> dao = createDao(StringId.class, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024 * 1024);
+		dao.setObjectCache(cache);
+
+		StringId stringId = new StringId();
+		stringId.id = "first";
+		stringId.val = 12;
+		assertEquals(1, dao.create(stringId));
+		StringId result = dao.queryForId("first");
+		assertNotSame(stringId, result);
+		assertEquals(stringId.val, result.val);
+
+		assertEquals(1, dao.updateId(stringId, "second"));
+		assertNull(cache.get(StringId.class, "first"));
+		assertEquals("second", cache.get(StringId.class, "second").id);
+	}
+
+	@Test
+	public void testSlabEviction() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		// 4 slabs of 256 bytes
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024, 256);
+		dao.setObjectCache(cache);
+		for (int i = 1; i <= 1000; i++) {
+			Foo foo = new Foo();
+			foo.id = i;
+			foo.val = i;
+			cache.put(Foo.class, i, foo);
+		}
+		assertEquals(1024, cache.getAllocatedBytes());
+		assertTrue(cache.getEvictedSlabCount() > 0);
+		int size = cache.size(Foo.class);
+		assertTrue(size > 0 && size < 1000);
+		// the oldest are gone and the newest are there
+		assertNull(cache.get(Foo.class, 1));
+		assertEquals(1000, cache.get(Foo.class, 1000).val);
+		for (int i = 1; i <= 1000; i++) {
+			Foo result = cache.get(Foo.class, i);
+			if (result != null) {
+				assertEquals(i, result.val);
+			}
+		}
+	}
+
+	@Test
+	public void testSlabEvictionMovedIds() throws Exception {
+		Dao<StringId, String> dao = createDao(StringId.class, true);
+		// 2 slabs of 128 bytes
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 256, 128);
+		dao.setObjectCache(cache);
+		StringId stringId = new StringId();
+		stringId.id = "first";
+		cache.put(StringId.class, "first", stringId);
+		cache.updateId(StringId.class, "first", "moved");
+		for (int i = 0; i < 100; i++) {
+			stringId.id = "id" + i;
+			stringId.val = i;
+			cache.put(StringId.class, stringId.id, stringId);
+		}
+		assertTrue(cache.getEvictedSlabCount() > 0);
+		// the moved id was in the first slab so it was ejected with it
+		assertNull(cache.get(StringId.class, "first"));
+		assertNull(cache.get(StringId.class, "moved"));
+		assertEquals(99, cache.get(StringId.class, "id99").val);
+		int found = 0;
+		for (int i = 0; i < 100; i++) {
+			StringId result = cache.get(StringId.class, "id" + i);
+			if (result != null) {
+				assertEquals(i, result.val);
+				found++;
+			}
+		}
+		assertEquals(found, cache.size(StringId.class));
+	}
+
+	@Test
+	public void testDaoTableInfo() throws Exception {
+		DatabaseFieldConfig idConfig = new DatabaseFieldConfig("id");
+		idConfig.setGeneratedId(true);
+		DatabaseTableConfig<Foo> tableConfig =
+				new DatabaseTableConfig<Foo>(Foo.class, Arrays.asList(idConfig, new DatabaseFieldConfig("val")));
+		Dao<Foo, Integer> dao = createDao(tableConfig, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024 * 1024);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		foo.val = 123;
+		foo.stringField = "not in the table";
+		assertEquals(1, dao.create(foo));
+		// the cache uses the fields of the dao and not the annotations
+		Foo result = dao.queryForId(foo.id);
+		assertEquals(foo.val, result.val);
+		assertNull(result.stringField);
+	}
+
+	@Test
+	public void testRecordTooBig() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 64, 64);
+		dao.setObjectCache(cache);
+		Foo foo = new Foo();
+		foo.id = 1;
+		cache.put(Foo.class, 1, foo);
+		assertEquals(1, cache.size(Foo.class));
+		foo.stringField = "this string is much too long to fit in the little slab that we have";
+		cache.put(Foo.class, 1, foo);
+		// the old version was removed
+		assertEquals(0, cache.size(Foo.class));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Dao<StringId, String> stringDao = createDao(StringId.class, true);
+		OffHeapObjectCache cache = new OffHeapObjectCache(connectionSource, 1024 * 1024);
+		dao.setObjectCache(cache);
+		stringDao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		StringId stringId = new StringId();
+		stringId.id = "id";
+		assertEquals(1, stringDao.create(stringId));
+		assertEquals(2, cache.sizeAll());
+
+		cache.clear(Foo.class);
+		assertEquals(0, cache.size(Foo.class));
+		assertEquals(1, cache.size(StringId.class));
+		cache.clearAll();
+		assertEquals(0, cache.sizeAll());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoId() throws Exception {
+		new OffHeapObjectCache(connectionSource, 1024).registerClass(NoId.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroBytes() {
+		new OffHeapObjectCache(connectionSource, 0);
+	}
+
+	protected static class Types {
+		@DatabaseField(generatedId = true)
+		int id;
+		@DatabaseField
+		String stringField;
+		@DatabaseField
+		long longField;
+		@DatabaseField
+		boolean booleanField;
+		@DatabaseField
+		double doubleField;
+		@DatabaseField
+		char charField;
+		@DatabaseField
+		Date dateField;
+		@DatabaseField(dataType = DataType.DATE_LONG)
+		Date dateLongField;
+		@DatabaseField
+		OurEnum enumField;
+		@DatabaseField(dataType = DataType.ENUM_INTEGER)
+		OurEnum enumIntegerField;
+		@DatabaseField(dataType = DataType.BYTE_ARRAY)
+		byte[] bytesField;
+		@DatabaseField
+		BigDecimal bigDecimalField;
+		@DatabaseField
+		String nullField;
+		@DatabaseField(foreign = true)
+		Foo foo;
+		public Types() {
+		}
+	}
+
+	protected static class StringId {
+		@DatabaseField(id = true)
+		String id;
+		@DatabaseField
+		int val;
+		public StringId() {
+		}
+	}
+
+	protected static class NoId {
+		@DatabaseField
+		int val;
+		public NoId() {
+		}
+	}
+
+	private enum OurEnum {
+		FIRST,
+		SECOND,
+	}
+}
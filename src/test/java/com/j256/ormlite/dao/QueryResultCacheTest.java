@@ -0,0 +1,335 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.WrappedConnectionSource;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
+import com.j256.ormlite.support.DatabaseConnection;
+
+public class QueryResultCacheTest extends BaseCoreTest {
+
+	@Test
+	public void testQueryForAll() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		assertSame(cache, dao.getQueryResultCache());
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		List<Foo> results = dao.queryForAll();
+		assertEquals(1, results.size());
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		List<Foo> cached = dao.queryForAll();
+		assertNotSame(results, cached);
+		assertEquals(1, cached.size());
+		assertSame(results.get(0), cached.get(0));
+		assertEquals(1, cache.getHitCount());
+
+		// the create makes the results out of date
+		assertEquals(1, dao.create(new Foo()));
+		assertEquals(2, dao.queryForAll().size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testWritesInvalidate() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		dao.setQueryResultCache(new QueryResultCache<Foo>(10));
+
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, dao.create(foo));
+		assertEquals(1, dao.queryForAll().get(0).val);
+
+		foo.val = 2;
+		assertEquals(1, dao.update(foo));
+		assertEquals(2, dao.queryForAll().get(0).val);
+
+		UpdateBuilder<Foo, Integer> updateBuilder = dao.updateBuilder();
+		updateBuilder.updateColumnValue(Foo.VAL_COLUMN_NAME, 3);
+		assertEquals(1, dao.update(updateBuilder.prepare()));
+		assertEquals(3, dao.queryForAll().get(0).val);
+
+		assertEquals(1, dao.updateRaw("UPDATE foo SET " + Foo.VAL_COLUMN_NAME + " = 4"));
+		assertEquals(4, dao.queryForAll().get(0).val);
+
+		int newId = foo.id + 10;
+		assertEquals(1, dao.updateId(foo, newId));
+		assertEquals(newId, dao.queryForAll().get(0).id);
+
+		assertEquals(1, dao.delete(foo));
+		assertEquals(0, dao.queryForAll().size());
+
+		assertEquals(1, dao.create(foo));
+		assertEquals(1, dao.queryForAll().size());
+		assertEquals(1, dao.deleteById(foo.id));
+		assertEquals(0, dao.queryForAll().size());
+
+		assertEquals(1, dao.create(foo));
+		assertEquals(1, dao.queryForAll().size());
+		assertEquals(1, dao.delete(dao.deleteBuilder().prepare()));
+		assertEquals(0, dao.queryForAll().size());
+	}
+
+	@Test
+	public void testArguments() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+
+		for (int i = 0; i < 3; i++) {
+			Foo foo = new Foo();
+			foo.val = i;
+			assertEquals(1, dao.create(foo));
+		}
+		SelectArg selectArg = new SelectArg();
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, selectArg);
+		PreparedQuery<Foo> query = qb.prepare();
+		selectArg.setValue(1);
+		assertEquals(1, dao.query(query).get(0).val);
+		selectArg.setValue(2);
+		assertEquals(2, dao.query(query).get(0).val);
+		assertEquals(2, cache.size());
+		assertEquals(0, cache.getHitCount());
+
+		selectArg.setValue(1);
+		assertEquals(1, dao.query(query).get(0).val);
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testOtherTableWrite() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Dao<Bar, Integer> barDao = createDao(Bar.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		PreparedQuery<Foo> query = dao.queryBuilder().prepare();
+
+		assertEquals(0, dao.query(query).size());
+		assertEquals(1, barDao.create(new Bar()));
+		// writes to the other table don't change our results
+		assertEquals(0, dao.query(query).size());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testSubQueryTableWrite() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Dao<Bar, Integer> barDao = createDao(Bar.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		assertEquals(1, dao.create(new Foo()));
+
+		QueryBuilder<Bar, Integer> barQb = barDao.queryBuilder();
+		barQb.selectColumns(Bar.ID_COLUMN_NAME);
+		QueryBuilder<Foo, Integer> inQb = dao.queryBuilder();
+		inQb.where().in(Foo.ID_COLUMN_NAME, barQb);
+		PreparedQuery<Foo> inQuery = inQb.prepare();
+		QueryBuilder<Foo, Integer> existsQb = dao.queryBuilder();
+		existsQb.where().exists(barDao.queryBuilder());
+		PreparedQuery<Foo> existsQuery = existsQb.prepare();
+		assertEquals(0, dao.query(inQuery).size());
+		assertEquals(0, dao.query(existsQuery).size());
+
+		// the write to the table of the sub-queries makes the results out of date
+		assertEquals(1, barDao.create(new Bar()));
+		assertEquals(1, dao.query(inQuery).size());
+		assertEquals(1, dao.query(existsQuery).size());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testJoinedTableWrite() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		Dao<Bar, Integer> barDao = createDao(Bar.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+
+		PreparedQuery<Foo> query = dao.queryBuilder().join(barDao.queryBuilder()).prepare();
+		assertEquals(0, dao.query(query).size());
+		Bar bar = new Bar();
+		bar.foo = foo;
+		assertEquals(1, barDao.create(bar));
+		assertEquals(1, dao.query(query).size());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testOtherConnectionSource() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		String tableName = ((BaseDaoImpl<Foo, Integer>) dao).getTableInfo().getTableName();
+		long generation = cache.getGeneration();
+
+		// the same table name in another connection source does not change our generation
+		H2ConnectionSource otherSource = new H2ConnectionSource();
+		QueryResultCache.incrementTableGeneration(otherSource, tableName);
+		QueryResultCache.incrementAllTablesGeneration(otherSource);
+		assertEquals(generation, cache.getGeneration());
+
+		QueryResultCache.incrementTableGeneration(connectionSource, tableName);
+		assertFalse(generation == cache.getGeneration());
+	}
+
+	@Test
+	public void testConnectionSourceNotPinned() throws Exception {
+		H2ConnectionSource otherSource = new H2ConnectionSource();
+		new QueryResultCache<Foo>(10).registerTable(otherSource, "foo");
+		WeakReference<H2ConnectionSource> ref = new WeakReference<H2ConnectionSource>(otherSource);
+		otherSource = null;
+		for (int i = 0; i < 100 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(ref.get());
+	}
+
+	@Test
+	public void testTransaction() throws Exception {
+		// the test connection source doesn't remember the special connection of the transaction
+		connectionSource.close();
+		connectionSource = new SpecialConnectionSource();
+		final Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		final QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		final Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, dao.create(foo));
+		final List<Foo> oldResults = dao.queryForAll();
+		final PreparedQuery<Foo> query = dao.queryBuilder().prepare();
+		final QueryResultCache.Key key = new QueryResultCache.Key(query.getStatement(), null, new Object[0]);
+
+		TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+			public Void call() throws Exception {
+				foo.val = 2;
+				assertEquals(1, dao.update(foo));
+				// as if another connection read the old rows before the commit
+				cache.put(key, cache.getGeneration(key), oldResults);
+				assertNotNull(cache.get(key));
+				return null;
+			}
+		});
+		// the commit made them out of date
+		assertNull(cache.get(key));
+
+		TransactionManager.callInTransaction(connectionSource, new Callable<Void>() {
+			public Void call() throws Exception {
+				assertEquals(1, dao.query(query).size());
+				return null;
+			}
+		});
+		// the results read in the transaction were not stored
+		assertNull(cache.get(key));
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(2);
+		dao.setQueryResultCache(cache);
+		for (int i = 0; i < 5; i++) {
+			QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+			qb.where().eq(Foo.VAL_COLUMN_NAME, i);
+			dao.query(qb.prepare());
+		}
+		assertEquals(2, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testMaxAge() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10, 10);
+		dao.setQueryResultCache(cache);
+		PreparedQuery<Foo> query = dao.queryBuilder().prepare();
+		QueryResultCache.Key key = new QueryResultCache.Key(query.getStatement(), null, new Object[0]);
+
+		dao.query(query);
+		Thread.sleep(20);
+		assertNull(cache.get(key));
+	}
+
+	@Test
+	public void testDisable() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryResultCache<Foo> cache = new QueryResultCache<Foo>(10);
+		dao.setQueryResultCache(cache);
+		dao.queryForAll();
+		dao.setQueryResultCache(null);
+		assertNull(dao.getQueryResultCache());
+		dao.queryForAll();
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new QueryResultCache<Foo>(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNotRegistered() {
+		new QueryResultCache<Foo>(10).getGeneration();
+	}
+
+	protected static class Bar {
+		public static final String ID_COLUMN_NAME = "id";
+		@DatabaseField(generatedId = true, columnName = ID_COLUMN_NAME)
+		int id;
+		@DatabaseField(foreign = true)
+		Foo foo;
+		public Bar() {
+		}
+	}
+
+	private static class SpecialConnectionSource extends WrappedConnectionSource {
+		private DatabaseConnection specialConnection;
+
+		public SpecialConnectionSource() throws SQLException {
+			super(new H2ConnectionSource());
+		}
+
+		@Override
+		public boolean saveSpecialConnection(DatabaseConnection connection) {
+			specialConnection = connection;
+			return true;
+		}
+
+		@Override
+		public void clearSpecialConnection(DatabaseConnection connection) {
+			specialConnection = null;
+		}
+
+		@Override
+		public DatabaseConnection getSpecialConnection() {
+			return specialConnection;
+		}
+	}
+}
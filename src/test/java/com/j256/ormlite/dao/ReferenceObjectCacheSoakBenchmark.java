@@ -0,0 +1,69 @@
+package com.j256.ormlite.dao;
+
+/**
+ * Soak benchmark which shows that the size of a {@link ReferenceObjectCache} tracks the objects that are still alive
+ * when there is a lot of churn. This is not run as part of the tests. Run the main method with optional arguments of
+ * the number of seconds to run and "thread" to use the cleanup thread instead of the cleanup in get and put.
+ * 
+ * <p>
+ * It puts a steady stream of new objects into a weak cache while only keeping a strong reference to a window of the
+ * most recent ones. Every second it prints the size of the cache and the heap used which should level off.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class ReferenceObjectCacheSoakBenchmark {
+
+	private static final int LIVE_OBJECT_COUNT = 10000;
+
+	public static void main(String[] args) throws Exception {
+		int seconds = 30;
+		boolean useThread = false;
+		if (args.length > 0) {
+			seconds = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			useThread = "thread".equals(args[1]);
+		}
+		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
+		cache.registerClass(Payload.class);
+		if (useThread) {
+			cache.startCleanupThread();
+		}
+		System.out.println("live objects = " + LIVE_OBJECT_COUNT + ", cleanup thread = " + useThread);
+		Payload[] live = new Payload[LIVE_OBJECT_COUNT];
+		Runtime runtime = Runtime.getRuntime();
+		long startMillis = System.currentTimeMillis();
+		long nextPrintMillis = startMillis + 1000;
+		long stopMillis = startMillis + seconds * 1000L;
+		long id = 0;
+		int maxSize = 0;
+		while (true) {
+			Payload payload = new Payload();
+			cache.put(Payload.class, id, payload);
+			// only the most recent objects stay alive
+			live[(int) (id % LIVE_OBJECT_COUNT)] = payload;
+			id++;
+			maxSize = Math.max(maxSize, cache.size(Payload.class));
+			if ((id & 0xFFF) == 0) {
+				long now = System.currentTimeMillis();
+				if (now >= nextPrintMillis) {
+					long usedKb = (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+					System.out.printf("%4ds  puts %,12d  cache size %,10d  max size %,10d  heap used %,9d KB%n",
+							(now - startMillis) / 1000, id, cache.size(Payload.class), maxSize, usedKb);
+					nextPrintMillis += 1000;
+					maxSize = 0;
+				}
+				if (now >= stopMillis) {
+					break;
+				}
+			}
+		}
+		cache.stopCleanupThread();
+	}
+
+	private static class Payload {
+		@SuppressWarnings("unused")
+		final byte[] bytes = new byte[64];
+	}
+}
@@ -1,6 +1,7 @@
 package com.j256.ormlite.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 
@@ -150,6 +151,79 @@ public class ReferenceObjectCacheTest extends BaseObjectCacheTest {
 		assertEquals(1, cache.size(Foo.class));
 	}
 
+	@Test
+	public void testQueuedReferencesRemoved() throws Exception {
+		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
+		cache.registerClass(Foo.class);
+		Foo kept = new Foo();
+		cache.put(Foo.class, 0, kept);
+		for (int i = 1; i <= 100; i++) {
+			cache.put(Foo.class, i, new Foo());
+		}
+		assertEquals(101, cache.size(Foo.class));
+		waitForClearedReferences(cache, 1);
+		assertEquals(1, cache.size(Foo.class));
+		assertSame(kept, cache.get(Foo.class, 0));
+	}
+
+	@Test
+	public void testQueuedReferenceReplaced() throws Exception {
+		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
+		cache.registerClass(Foo.class);
+		cache.put(Foo.class, 1, new Foo());
+		// the reference of the first object will be queued but it must not remove the new one
+		Foo foo = new Foo();
+		cache.put(Foo.class, 1, foo);
+		for (int i = 0; i < 10; i++) {
+			System.gc();
+			cache.removeClearedReferences();
+		}
+		assertEquals(1, cache.size(Foo.class));
+		assertSame(foo, cache.get(Foo.class, 1));
+	}
+
+	@Test
+	public void testQueuedReferenceUpdateId() throws Exception {
+		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
+		cache.registerClass(Foo.class);
+		cache.put(Foo.class, 1, new Foo());
+		assertNotNull(cache.updateId(Foo.class, 1, 2));
+		waitForClearedReferences(cache, 0);
+		assertEquals(0, cache.size(Foo.class));
+	}
+
+	@Test
+	public void testCleanupThread() throws Exception {
+		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
+		cache.registerClass(Foo.class);
+		cache.startCleanupThread();
+		// second one does nothing
+		cache.startCleanupThread();
+		try {
+			for (int i = 0; i < 100; i++) {
+				cache.put(Foo.class, i, new Foo());
+			}
+			for (int i = 0; i < 100 && cache.size(Foo.class) > 0; i++) {
+				System.gc();
+				Thread.sleep(10);
+			}
+			assertEquals(0, cache.size(Foo.class));
+		} finally {
+			cache.stopCleanupThread();
+			cache.stopCleanupThread();
+		}
+	}
+
+	private void waitForClearedReferences(ReferenceObjectCache cache, int expectedSize) throws Exception {
+		for (int i = 0; i < 100 && cache.size(Foo.class) > expectedSize; i++) {
+			System.gc();
+			Thread.sleep(10);
+			// gets do some of the cleanup
+			cache.get(Foo.class, -1);
+			cache.removeClearedReferences();
+		}
+	}
+
 	@Override
 	protected ObjectCache enableCache(Dao<?, ?> dao) throws Exception {
 		ReferenceObjectCache cache = ReferenceObjectCache.makeWeakCache();
@@ -495,9 +495,20 @@ public class RuntimeExceptionDaoTest extends BaseCoreTest {
 		@SuppressWarnings("unchecked")
 		Dao<Foo, String> dao = (Dao<Foo, String>) createMock(Dao.class);
 		RuntimeExceptionDao<Foo, String> rtDao = new RuntimeExceptionDao<Foo, String>(dao);
-		expect(dao.create(null)).andThrow(new SQLException("Testing catch"));
+		expect(dao.create((Foo) null)).andThrow(new SQLException("Testing catch"));
 		replay(dao);
-		rtDao.create(null);
+		rtDao.create((Foo) null);
+		verify(dao);
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testCreateCollectionThrow() throws Exception {
+		@SuppressWarnings("unchecked")
+		Dao<Foo, String> dao = (Dao<Foo, String>) createMock(Dao.class);
+		RuntimeExceptionDao<Foo, String> rtDao = new RuntimeExceptionDao<Foo, String>(dao);
+		expect(dao.create((Collection<Foo>) null)).andThrow(new SQLException("Testing catch"));
+		replay(dao);
+		rtDao.create((Collection<Foo>) null);
 		verify(dao);
 	}
 
@@ -0,0 +1,184 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TinyLfuObjectCacheTest extends BaseObjectCacheTest {
+
+	@Test
+	public void testStuff() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(2);
+		dao.setObjectCache(cache);
+
+		Foo foo1 = new Foo();
+		assertEquals(1, dao.create(foo1));
+		assertEquals(1, cache.size(Foo.class));
+		assertSame(foo1, dao.queryForId(foo1.id));
+
+		Foo foo2 = new Foo();
+		assertEquals(1, dao.create(foo2));
+		assertEquals(2, cache.size(Foo.class));
+		assertSame(foo2, dao.queryForId(foo2.id));
+
+		Foo foo3 = new Foo();
+		assertEquals(1, dao.create(foo3));
+		// one of them was pushed out
+		assertEquals(2, cache.size(Foo.class));
+	}
+
+	@Test
+	public void testScanResistance() {
+		int capacity = 100;
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(capacity);
+		cache.registerClass(Foo.class);
+		int hotCount = capacity / 2;
+		for (int pass = 0; pass < 5; pass++) {
+			for (int id = 0; id < hotCount; id++) {
+				if (cache.get(Foo.class, id) == null) {
+					cache.put(Foo.class, id, new Foo());
+				}
+			}
+		}
+		// a scan of objects that are each looked up once
+		for (int id = 1000; id < 2000; id++) {
+			if (cache.get(Foo.class, id) == null) {
+				cache.put(Foo.class, id, new Foo());
+			}
+		}
+		assertEquals(capacity, cache.size(Foo.class));
+		int hotHits = 0;
+		for (int id = 0; id < hotCount; id++) {
+			if (cache.get(Foo.class, id) != null) {
+				hotHits++;
+			}
+		}
+		// the frequencies are estimates so allow for a collision or two
+		assertTrue("only " + hotHits + " of the hot ids are cached", hotHits >= hotCount - 2);
+
+		// whereas the LRU cache loses all of them
+		LruObjectCache lruCache = new LruObjectCache(capacity);
+		lruCache.registerClass(Foo.class);
+		for (int id = 0; id < hotCount; id++) {
+			lruCache.put(Foo.class, id, new Foo());
+		}
+		for (int id = 1000; id < 2000; id++) {
+			lruCache.put(Foo.class, id, new Foo());
+		}
+		for (int id = 0; id < hotCount; id++) {
+			assertNull(lruCache.get(Foo.class, id));
+		}
+	}
+
+	@Test
+	public void testFrequencyAging() {
+		int capacity = 100;
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(capacity);
+		cache.registerClass(Foo.class);
+		// the first set of ids is popular for a while
+		for (int pass = 0; pass < 10; pass++) {
+			for (int id = 0; id < capacity; id++) {
+				if (cache.get(Foo.class, id) == null) {
+					cache.put(Foo.class, id, new Foo());
+				}
+			}
+		}
+		// then a different set becomes popular and should eventually replace them
+		for (int pass = 0; pass < 50; pass++) {
+			for (int id = 1000; id < 1000 + capacity; id++) {
+				if (cache.get(Foo.class, id) == null) {
+					cache.put(Foo.class, id, new Foo());
+				}
+			}
+		}
+		int newHits = 0;
+		for (int id = 1000; id < 1000 + capacity; id++) {
+			if (cache.get(Foo.class, id) != null) {
+				newHits++;
+			}
+		}
+		assertTrue("only " + newHits + " of the new ids are cached", newHits > capacity * 9 / 10);
+	}
+
+	@Test
+	public void testRemoveAndUpdateId() {
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(10);
+		cache.registerClass(Foo.class);
+		Foo foo = new Foo();
+		cache.put(Foo.class, 1, foo);
+		assertSame(foo, cache.updateId(Foo.class, 1, 100));
+		assertNull(cache.get(Foo.class, 1));
+		assertSame(foo, cache.get(Foo.class, 100));
+		assertNull(cache.updateId(Foo.class, 1, 101));
+		assertEquals(1, cache.sizeAll());
+
+		cache.remove(Foo.class, 100);
+		assertNull(cache.get(Foo.class, 100));
+		assertEquals(0, cache.size(Foo.class));
+
+		// not registered
+		assertNull(cache.get(String.class, 1));
+		cache.put(String.class, 1, "hello");
+		assertEquals(0, cache.size(String.class));
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(2);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		assertSame(foo, dao.queryForId(foo.id));
+
+		dao.clearObjectCache();
+		assertNotSame(foo, dao.queryForId(foo.id));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new TinyLfuObjectCache(0);
+	}
+
+	@Test
+	public void testStats() {
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(10);
+		cache.registerClass(Integer.class);
+		final int[] evictedCount = new int[1];
+		cache.setListener(new ObjectCacheListener() {
+			public void objectEvicted(Class<?> clazz, Object id, Object data) {
+				assertEquals(Integer.class, clazz);
+				evictedCount[0]++;
+			}
+			public void objectExpired(Class<?> clazz, Object id, Object data) {
+			}
+		});
+		for (int i = 0; i < 15; i++) {
+			cache.put(Integer.class, i, i);
+		}
+		assertEquals(10, cache.size(Integer.class));
+		assertEquals(5, evictedCount[0]);
+		cache.get(Integer.class, 14);
+		cache.get(Integer.class, 1000);
+
+		ObjectCacheStats stats = cache.getStats(Integer.class);
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(15, stats.getPutCount());
+		assertEquals(5, stats.getEvictionCount());
+		assertEquals(stats.getPutCount(), cache.getStatsAll().getPutCount());
+	}
+
+	@Override
+	protected ObjectCache enableCache(Dao<?, ?> dao) throws Exception {
+		TinyLfuObjectCache cache = new TinyLfuObjectCache(10);
+		dao.setObjectCache(cache);
+		return cache;
+	}
+}
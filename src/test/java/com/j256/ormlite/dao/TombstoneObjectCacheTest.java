@@ -0,0 +1,170 @@
+package com.j256.ormlite.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+
+public class TombstoneObjectCacheTest extends BaseCoreTest {
+
+	@Test
+	public void testQueryForId() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		dao.setObjectCache(cache);
+
+		int id = 1;
+		assertNull(dao.queryForId(id));
+		assertTrue(cache.hasTombstone(Foo.class, id));
+		assertEquals(1, cache.tombstoneCount(Foo.class));
+
+		// insert behind the dao's back to show that the tombstone is used
+		assertEquals(1, dao.executeRaw("INSERT INTO foo (" + Foo.ID_COLUMN_NAME + ") VALUES (" + id + ")"));
+		assertNull(dao.queryForId(id));
+		assertFalse(dao.idExists(id));
+
+		cache.clear(Foo.class);
+		assertNotNull(dao.queryForId(id));
+		assertTrue(dao.idExists(id));
+	}
+
+	@Test
+	public void testIdExists() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		dao.setObjectCache(cache);
+
+		assertFalse(dao.idExists(1));
+		assertTrue(cache.hasTombstone(Foo.class, 1));
+		assertNull(dao.queryForId(1));
+	}
+
+	@Test
+	public void testCreateRemovesTombstone() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		int missingId = foo.id + 1;
+		assertFalse(dao.idExists(missingId));
+
+		Foo other = new Foo();
+		other.id = missingId;
+		assertEquals(1, dao.create(other));
+		assertFalse(cache.hasTombstone(Foo.class, missingId));
+		assertTrue(dao.idExists(missingId));
+	}
+
+	@Test
+	public void testUpdateIdRemovesTombstone() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		int newId = foo.id + 100;
+		assertNull(dao.queryForId(newId));
+		assertEquals(1, dao.updateId(foo, newId));
+		assertFalse(cache.hasTombstone(Foo.class, newId));
+		assertNotNull(dao.queryForId(newId));
+	}
+
+	@Test
+	public void testQueryForIds() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		int missingId = foo.id + 1;
+		List<Integer> ids = Arrays.asList(foo.id, missingId);
+		assertEquals(1, dao.queryForIds(ids).size());
+		assertTrue(cache.hasTombstone(Foo.class, missingId));
+		assertFalse(cache.hasTombstone(Foo.class, foo.id));
+
+		// insert behind the dao's back to show that the tombstone is used
+		assertEquals(1, dao.executeRaw("INSERT INTO foo (" + Foo.ID_COLUMN_NAME + ") VALUES (" + missingId + ")"));
+		assertEquals(1, dao.queryForIds(ids).size());
+
+		cache.clear(Foo.class);
+		assertEquals(2, dao.queryForIds(ids).size());
+	}
+
+	@Test
+	public void testRemovedWhileQuerying() {
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000);
+		cache.registerClass(Foo.class);
+		long version = cache.getTombstoneVersion(Foo.class, 1);
+		// the id is created after the query started but before the miss is recorded
+		cache.removeTombstone(Foo.class, 1);
+		cache.addTombstone(Foo.class, 1, version);
+		assertFalse(cache.hasTombstone(Foo.class, 1));
+
+		version = cache.getTombstoneVersion(Foo.class, 1);
+		cache.addTombstone(Foo.class, 1, version);
+		assertTrue(cache.hasTombstone(Foo.class, 1));
+	}
+
+	@Test
+	public void testExpires() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 10);
+		dao.setObjectCache(cache);
+
+		assertNull(dao.queryForId(1));
+		assertEquals(1, dao.executeRaw("INSERT INTO foo (" + Foo.ID_COLUMN_NAME + ") VALUES (1)"));
+		Thread.sleep(20);
+		assertFalse(cache.hasTombstone(Foo.class, 1));
+		assertEquals(0, cache.tombstoneCount(Foo.class));
+		assertNotNull(dao.queryForId(1));
+	}
+
+	@Test
+	public void testMaxTombstones() throws Exception {
+		TombstoneObjectCache cache = new TombstoneObjectCache(new LruObjectCache(10), 60000, 2);
+		cache.registerClass(Foo.class);
+		cache.addTombstone(Foo.class, 1);
+		cache.addTombstone(Foo.class, 2);
+		cache.addTombstone(Foo.class, 3);
+		assertEquals(2, cache.tombstoneCount(Foo.class));
+		assertFalse(cache.hasTombstone(Foo.class, 3));
+		cache.clearAll();
+		assertEquals(0, cache.tombstoneCount(Foo.class));
+	}
+
+	@Test
+	public void testCachesObjects() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		LruObjectCache lruCache = new LruObjectCache(10);
+		TombstoneObjectCache cache = new TombstoneObjectCache(lruCache, 60000);
+		dao.setObjectCache(cache);
+
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		assertEquals(1, cache.size(Foo.class));
+		assertEquals(1, lruCache.size(Foo.class));
+		assertEquals(foo, dao.queryForId(foo.id));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullCache() {
+		new TombstoneObjectCache(null, 1000);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroTtl() {
+		new TombstoneObjectCache(new LruObjectCache(10), 0);
+	}
+}
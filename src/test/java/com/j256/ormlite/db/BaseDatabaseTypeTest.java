@@ -1,12 +1,15 @@
 package com.j256.ormlite.db;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -33,6 +36,23 @@ public class BaseDatabaseTypeTest extends BaseCoreTest {
 		assertEquals("SELECT 1", databaseType.getPingStatement());
 	}
 
+	@Test
+	public void testTransactionRetryable() {
+		DatabaseType databaseType = new TestDatabaseType();
+		assertTrue(databaseType.isTransactionRetryable(new SQLException("serialization", "40001")));
+		assertTrue(databaseType.isTransactionRetryable(new SQLException("deadlock", "40P01")));
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("duplicate", "23505")));
+		// other transaction rollbacks which won't work the next time or may have been applied
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("integrity", "40002")));
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("unknown completion", "40003")));
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("rollback", "40000")));
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("no state")));
+		// wrapped by the library
+		SQLException wrapped = new SQLException("wrapper");
+		wrapped.initCause(new SQLException("deadlock", "40001"));
+		assertTrue(databaseType.isTransactionRetryable(wrapped));
+	}
+
 	@Test
 	public void testUnknownClass() throws Exception {
 		assertNull(DataPersisterManager.lookupForField(SomeFields.class.getDeclaredField("someFields")));
@@ -48,6 +68,18 @@ public class BaseDatabaseTypeTest extends BaseCoreTest {
 		assertNull(DataPersisterManager.lookupForField(SomeFields.class.getDeclaredField("byteArray")));
 	}
 
+	@Test
+	public void testRetryableSqlStatesOverride() {
+		DatabaseType databaseType = new TestDatabaseType() {
+			@Override
+			protected Set<String> getRetryableSqlStates() {
+				return Collections.singleton("40XL1");
+			}
+		};
+		assertTrue(databaseType.isTransactionRetryable(new SQLException("lock timeout", "40XL1")));
+		assertFalse(databaseType.isTransactionRetryable(new SQLException("serialization", "40001")));
+	}
+
 	private static class TestDatabaseType extends BaseDatabaseType implements DatabaseType {
 
 		public boolean isDatabaseUrlThisType(String url, String dbTypePart) {
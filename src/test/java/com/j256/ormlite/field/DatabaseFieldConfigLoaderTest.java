@@ -182,6 +182,12 @@ public class DatabaseFieldConfigLoaderTest {
 		body.append("readOnly=true\n");
 		checkConfigOutput(config, body, writer, buffer);
 
+		config.setLazy(false);
+		checkConfigOutput(config, body, writer, buffer);
+		config.setLazy(true);
+		body.append("lazy=true\n");
+		checkConfigOutput(config, body, writer, buffer);
+
 		/*
 		 * Test foreign collection
 		 */
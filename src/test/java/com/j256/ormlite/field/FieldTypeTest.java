@@ -86,6 +86,13 @@ public class FieldTypeTest extends BaseCoreTest {
 				UnknownFieldType.class);
 	}
 
+	@Test(expected = IllegalArgumentException.class)
+	public void testLazyId() throws Exception {
+		Field[] fields = LazyId.class.getDeclaredFields();
+		assertTrue(fields.length >= 1);
+		FieldType.createFieldType(connectionSource, LazyId.class.getSimpleName(), fields[0], LazyId.class);
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testIdAndGeneratedId() throws Exception {
 		Field[] fields = IdAndGeneratedId.class.getDeclaredFields();
@@ -1041,6 +1048,11 @@ public class FieldTypeTest extends BaseCoreTest {
 		String stuff;
 	}
 
+	protected static class LazyId {
+		@DatabaseField(id = true, lazy = true)
+		String id;
+	}
+
 	protected static class ForeignCollectionForeign {
 		@DatabaseField(id = true)
 		long id;
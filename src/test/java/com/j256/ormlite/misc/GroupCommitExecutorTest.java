@@ -0,0 +1,246 @@
+package com.j256.ormlite.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.WrappedConnectionSource;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.h2.H2DatabaseType;
+import com.j256.ormlite.support.DatabaseConnection;
+
+public class GroupCommitExecutorTest extends BaseCoreTest {
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		final Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor();
+		groupCommit.setConnectionSource(connectionSource);
+		groupCommit.setMaxWaitMillis(200);
+		groupCommit.initialize();
+		try {
+			List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 10; i++) {
+				futures.add(groupCommit.submit(new CreateCallable(dao, i)));
+			}
+			for (Future<Integer> future : futures) {
+				assertEquals(1, (int) future.get());
+			}
+			assertEquals(10, dao.countOf());
+			assertEquals(10, groupCommit.getCallCount());
+			assertTrue(groupCommit.getCommitCount() < 10);
+		} finally {
+			groupCommit.close();
+		}
+	}
+
+	@Test
+	public void testFailedCallRolledBack() throws Exception {
+		final Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor();
+		groupCommit.setConnectionSource(connectionSource);
+		groupCommit.setMaxWaitMillis(200);
+		groupCommit.initialize();
+		try {
+			Future<Integer> before = groupCommit.submit(new CreateCallable(dao, 1));
+			Future<Integer> failed = groupCommit.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					Foo foo = new Foo();
+					foo.val = 2;
+					dao.create(foo);
+					throw new Exception("should roll back the create");
+				}
+			});
+			Future<Integer> after = groupCommit.submit(new CreateCallable(dao, 3));
+			assertEquals(1, (int) before.get());
+			assertEquals(1, (int) after.get());
+			try {
+				failed.get();
+				fail("Should have thrown");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SQLException);
+			}
+			assertEquals(2, dao.countOf());
+			assertEquals(0, dao.queryForEq(Foo.VAL_COLUMN_NAME, 2).size());
+		} finally {
+			groupCommit.close();
+		}
+	}
+
+	@Test
+	public void testCallThrowsError() throws Exception {
+		final Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor();
+		groupCommit.setConnectionSource(connectionSource);
+		groupCommit.setMaxWaitMillis(200);
+		groupCommit.initialize();
+		try {
+			Future<Integer> before = groupCommit.submit(new CreateCallable(dao, 1));
+			Future<Integer> failed = groupCommit.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					Foo foo = new Foo();
+					foo.val = 2;
+					dao.create(foo);
+					throw new AssertionError("should roll back the create");
+				}
+			});
+			Future<Integer> after = groupCommit.submit(new CreateCallable(dao, 3));
+			assertEquals(1, (int) before.get());
+			assertEquals(1, (int) after.get());
+			try {
+				failed.get();
+				fail("Should have thrown");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SQLException);
+				assertTrue(e.getCause().getCause() instanceof AssertionError);
+			}
+			// the background thread is still running
+			assertEquals(1, (int) groupCommit.submit(new CreateCallable(dao, 4)).get());
+			assertEquals(3, dao.countOf());
+			assertEquals(0, dao.queryForEq(Foo.VAL_COLUMN_NAME, 2).size());
+		} finally {
+			groupCommit.close();
+		}
+	}
+
+	@Test
+	public void testConnectionSourceThrows() throws Exception {
+		final AtomicBoolean fail = new AtomicBoolean(true);
+		WrappedConnectionSource cs = new WrappedConnectionSource(new H2ConnectionSource()) {
+			@Override
+			public DatabaseConnection getReadWriteConnection() throws SQLException {
+				if (fail.getAndSet(false)) {
+					throw new IllegalStateException("no connection");
+				}
+				return super.getReadWriteConnection();
+			}
+		};
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor(cs);
+		Callable<String> callable = new Callable<String>() {
+			public String call() {
+				return "foo";
+			}
+		};
+		try {
+			Future<String> failed = groupCommit.submit(callable);
+			try {
+				// a timeout since the calls used to be left waiting forever
+				failed.get(10, TimeUnit.SECONDS);
+				fail("Should have thrown");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SQLException);
+				assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+			}
+			// the background thread is still running
+			assertEquals("foo", groupCommit.submit(callable).get(10, TimeUnit.SECONDS));
+		} finally {
+			groupCommit.close();
+			cs.close();
+		}
+	}
+
+	@Test
+	public void testNoNestedSavePoints() throws Exception {
+		H2ConnectionSource cs = new H2ConnectionSource();
+		cs.setDatabaseType(new H2DatabaseType() {
+			@Override
+			public boolean isNestedSavePointsSupported() {
+				return false;
+			}
+		});
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor(cs);
+		try {
+			Future<String> result = groupCommit.submit(new Callable<String>() {
+				public String call() {
+					return "foo";
+				}
+			});
+			Future<String> failed = groupCommit.submit(new Callable<String>() {
+				public String call() throws SQLException {
+					throw new SQLException("failed");
+				}
+			});
+			assertEquals("foo", result.get());
+			try {
+				failed.get();
+				fail("Should have thrown");
+			} catch (ExecutionException e) {
+				assertEquals("failed", e.getCause().getMessage());
+			}
+			// each of them is run in its own transaction
+			assertEquals(2, groupCommit.getCallCount());
+			assertEquals(1, groupCommit.getCommitCount());
+		} finally {
+			groupCommit.close();
+			cs.close();
+		}
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor();
+		groupCommit.setConnectionSource(connectionSource);
+		groupCommit.setMaxWaitMillis(1000);
+		groupCommit.initialize();
+		Future<Integer> future = groupCommit.submit(new CreateCallable(dao, 1));
+		// the queued call is run before we return
+		groupCommit.close();
+		assertTrue(future.isDone());
+		assertEquals(1, (int) future.get());
+		try {
+			groupCommit.submit(new CreateCallable(dao, 2));
+			fail("Should have thrown");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		assertEquals(1, dao.countOf());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testNotInitialized() {
+		new GroupCommitExecutor().submit(new Callable<Void>() {
+			public Void call() {
+				return null;
+			}
+		});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadGroupSize() {
+		GroupCommitExecutor groupCommit = new GroupCommitExecutor();
+		groupCommit.setConnectionSource(connectionSource);
+		groupCommit.setMaxGroupSize(0);
+		groupCommit.initialize();
+	}
+
+	private static class CreateCallable implements Callable<Integer> {
+		private final Dao<Foo, Integer> dao;
+		private final int val;
+
+		public CreateCallable(Dao<Foo, Integer> dao, int val) {
+			this.dao = dao;
+			this.val = val;
+		}
+
+		public Integer call() throws SQLException {
+			Foo foo = new Foo();
+			foo.val = val;
+			return dao.create(foo);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.j256.ormlite.misc;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.support.BaseConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+public class OrmLiteContextTest {
+
+	@Test
+	public void testKey() {
+		OrmLiteContext context = new OrmLiteContext();
+		OrmLiteContext.Key<String> key = new OrmLiteContext.Key<String>();
+		assertNull(context.get(key));
+		context.set(key, "foo");
+		assertEquals("foo", context.get(key));
+		context.set(key, null);
+		assertNull(context.get(key));
+		context.set(key, "bar");
+		context.remove(key);
+		assertNull(context.get(key));
+		// another key is another value
+		context.set(key, "foo");
+		assertNull(context.get(new OrmLiteContext.Key<String>()));
+	}
+
+	@Test
+	public void testInitialValue() {
+		OrmLiteContext context = new OrmLiteContext();
+		OrmLiteContext.Key<StringBuilder> key = new OrmLiteContext.Key<StringBuilder>() {
+			@Override
+			protected StringBuilder initialValue() {
+				return new StringBuilder();
+			}
+		};
+		StringBuilder sb = context.get(key);
+		sb.append("foo");
+		assertSame(sb, context.get(key));
+		assertNotSame(sb, new OrmLiteContext().get(key));
+	}
+
+	@Test
+	public void testCallWith() throws Exception {
+		final OrmLiteContext threadContext = OrmLiteContext.current();
+		assertSame(threadContext, OrmLiteContext.current());
+		final OrmLiteContext context = new OrmLiteContext();
+		OrmLiteContext result = OrmLiteContext.callWith(context, new Callable<OrmLiteContext>() {
+			public OrmLiteContext call() throws Exception {
+				// nested binding of the same context is fine
+				return OrmLiteContext.callWith(context, new Callable<OrmLiteContext>() {
+					public OrmLiteContext call() {
+						return OrmLiteContext.current();
+					}
+				});
+			}
+		});
+		assertSame(context, result);
+		assertSame(threadContext, OrmLiteContext.current());
+	}
+
+	@Test
+	public void testSavedConnectionAcrossThreads() throws Exception {
+		final SavingConnectionSource connectionSource = new SavingConnectionSource();
+		final DatabaseConnection connection = createMock(DatabaseConnection.class);
+		final OrmLiteContext context = new OrmLiteContext();
+		OrmLiteContext.callWith(context, new Callable<Void>() {
+			public Void call() throws SQLException {
+				assertTrue(connectionSource.saveSpecialConnection(connection));
+				return null;
+			}
+		});
+		// not saved in this thread's own context
+		assertNull(connectionSource.getSpecialConnection());
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<DatabaseConnection> future = executor.submit(new Callable<DatabaseConnection>() {
+				public DatabaseConnection call() throws Exception {
+					return OrmLiteContext.callWith(context, new Callable<DatabaseConnection>() {
+						public DatabaseConnection call() {
+							DatabaseConnection saved = connectionSource.getSpecialConnection();
+							connectionSource.clearSpecialConnection(saved);
+							return saved;
+						}
+					});
+				}
+			});
+			assertSame(connection, future.get());
+		} finally {
+			executor.shutdown();
+		}
+		assertNull(OrmLiteContext.callWith(context, new Callable<DatabaseConnection>() {
+			public DatabaseConnection call() {
+				return connectionSource.getSpecialConnection();
+			}
+		}));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUsedByAnotherThread() throws Throwable {
+		final OrmLiteContext context = new OrmLiteContext();
+		final CountDownLatch boundLatch = new CountDownLatch(1);
+		final CountDownLatch doneLatch = new CountDownLatch(1);
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					OrmLiteContext.callWith(context, new Callable<Void>() {
+						public Void call() throws InterruptedException {
+							boundLatch.countDown();
+							doneLatch.await();
+							return null;
+						}
+					});
+				} catch (Exception e) {
+					// ignored
+				}
+			}
+		});
+		thread.start();
+		boundLatch.await();
+		try {
+			OrmLiteContext.callWith(context, new Callable<Void>() {
+				public Void call() {
+					return null;
+				}
+			});
+		} finally {
+			doneLatch.countDown();
+			thread.join();
+		}
+	}
+
+	private static class SavingConnectionSource extends BaseConnectionSource {
+		private static final Logger logger = LoggerFactory.getLogger(SavingConnectionSource.class);
+
+		public DatabaseConnection getReadOnlyConnection() {
+			return getSavedConnection();
+		}
+
+		public DatabaseConnection getReadWriteConnection() {
+			return getSavedConnection();
+		}
+
+		public void releaseConnection(DatabaseConnection connection) {
+			// noop
+		}
+
+		public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+			return saveSpecial(connection);
+		}
+
+		public void clearSpecialConnection(DatabaseConnection connection) {
+			clearSpecial(connection, logger);
+		}
+
+		public void close() {
+			// noop
+		}
+
+		public void closeQuietly() {
+			// noop
+		}
+
+		public DatabaseType getDatabaseType() {
+			return null;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+	}
+}
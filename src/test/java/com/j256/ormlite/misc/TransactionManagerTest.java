@@ -13,6 +13,7 @@ import static org.junit.Assert.fail;
 import java.sql.SQLException;
 import java.sql.Savepoint;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -278,6 +279,96 @@ public class TransactionManagerTest extends BaseCoreTest {
 		});
 	}
 
+	@Test
+	public void testRetry() throws Exception {
+		TransactionManager mgr = new TransactionManager();
+		mgr.setConnectionSource(connectionSource);
+		mgr.setRetryMaxAttempts(3);
+		mgr.setRetryInitialDelayMillis(1);
+		mgr.initialize();
+		final Dao<Foo, Integer> fooDao = createDao(Foo.class, true);
+		final AtomicInteger callCount = new AtomicInteger();
+		int result = mgr.callInTransaction(new Callable<Integer>() {
+			public Integer call() throws Exception {
+				// the create is rolled back each time it fails
+				assertEquals(1, fooDao.create(new Foo()));
+				if (callCount.incrementAndGet() < 3) {
+					throw new SQLException("serialization failure", "40001");
+				}
+				return 1;
+			}
+		});
+		assertEquals(1, result);
+		assertEquals(3, callCount.get());
+		assertEquals(2, mgr.getRetryCount());
+		assertEquals(1, fooDao.countOf());
+	}
+
+	@Test
+	public void testRetryGivesUp() throws Exception {
+		TransactionManager mgr = new TransactionManager();
+		mgr.setConnectionSource(connectionSource);
+		mgr.setRetryMaxAttempts(2);
+		mgr.setRetryInitialDelayMillis(1);
+		mgr.initialize();
+		AtomicInteger callCount = new AtomicInteger();
+		try {
+			mgr.callInTransaction(new FailingCallable(callCount, "40P01"));
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			assertEquals("40P01", e.getSQLState());
+		}
+		assertEquals(2, callCount.get());
+		assertEquals(1, mgr.getRetryCount());
+	}
+
+	@Test
+	public void testRetryNotRetryable() throws Exception {
+		TransactionManager mgr = new TransactionManager();
+		mgr.setConnectionSource(connectionSource);
+		mgr.setRetryMaxAttempts(3);
+		mgr.initialize();
+		AtomicInteger callCount = new AtomicInteger();
+		try {
+			mgr.callInTransaction(new FailingCallable(callCount, "23505"));
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			assertEquals("23505", e.getSQLState());
+		}
+		assertEquals(1, callCount.get());
+		assertEquals(0, mgr.getRetryCount());
+		assertEquals(0, mgr.getRetryWaitMillis());
+	}
+
+	@Test
+	public void testRetryOtherRollbacksNotRetried() throws Exception {
+		TransactionManager mgr = new TransactionManager();
+		mgr.setConnectionSource(connectionSource);
+		mgr.setRetryMaxAttempts(3);
+		mgr.initialize();
+		// integrity constraint violation and statement completion unknown
+		for (String sqlState : new String[] { "40002", "40003" }) {
+			AtomicInteger callCount = new AtomicInteger();
+			try {
+				mgr.callInTransaction(new FailingCallable(callCount, sqlState));
+				fail("Should have thrown");
+			} catch (SQLException e) {
+				assertEquals(sqlState, e.getSQLState());
+			}
+			assertEquals(1, callCount.get());
+		}
+		assertEquals(0, mgr.getRetryCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRetryBadDelays() {
+		TransactionManager mgr = new TransactionManager();
+		mgr.setConnectionSource(connectionSource);
+		mgr.setRetryInitialDelayMillis(100);
+		mgr.setRetryMaxDelayMillis(10);
+		mgr.initialize();
+	}
+
 	private void testTransactionManager(TransactionManager mgr, final Exception exception,
 			final Dao<Foo, Integer> fooDao) throws Exception {
 		final Foo foo1 = new Foo();
@@ -323,4 +414,19 @@ public class TransactionManagerTest extends BaseCoreTest {
 			assertEquals(val, foo2.val);
 		}
 	}
+
+	private static class FailingCallable implements Callable<Void> {
+		private final AtomicInteger callCount;
+		private final String sqlState;
+
+		public FailingCallable(AtomicInteger callCount, String sqlState) {
+			this.callCount = callCount;
+			this.sqlState = sqlState;
+		}
+
+		public Void call() throws SQLException {
+			callCount.incrementAndGet();
+			throw new SQLException("failed", sqlState);
+		}
+	}
 }
@@ -0,0 +1,228 @@
+package com.j256.ormlite.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.stmt.UpdateBuilder;
+
+public class UnitOfWorkTest extends BaseCoreTest {
+
+	@Test
+	public void testCreateOrdered() throws Exception {
+		Dao<Child, Integer> childDao = createDao(Child.class, true);
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+
+		Parent parent = new Parent();
+		parent.name = "parent";
+		Child child = new Child();
+		child.parent = parent;
+		// register the child first so the parent has to be moved ahead of it
+		unitOfWork.registerNew(child);
+		unitOfWork.registerNew(parent);
+		assertEquals(0, parentDao.countOf());
+
+		assertEquals(2, unitOfWork.flush());
+		assertEquals(0, unitOfWork.flush());
+		Child result = childDao.queryForId(child.id);
+		assertNotNull(result);
+		assertEquals(parent.id, result.parent.id);
+		assertEquals(1, parentDao.countOf());
+		// created objects are put in the identity map
+		assertSame(parent, unitOfWork.queryForId(Parent.class, parent.id));
+	}
+
+	@Test
+	public void testIdentityMapAndDirty() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		parent.name = "before";
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		Parent result1 = unitOfWork.queryForId(Parent.class, parent.id);
+		Parent result2 = unitOfWork.queryForId(Parent.class, parent.id);
+		assertSame(result1, result2);
+		assertEquals(0, unitOfWork.flush());
+
+		result1.name = "after";
+		assertEquals(1, unitOfWork.flush());
+		assertEquals("after", parentDao.queryForId(parent.id).name);
+		assertEquals(0, unitOfWork.flush());
+
+		Parent other = new Parent();
+		other.name = "other";
+		assertEquals(1, parentDao.create(other));
+		other.name = "changed";
+		unitOfWork.registerDirty(other);
+		assertEquals(1, unitOfWork.flush());
+		assertEquals("changed", parentDao.queryForId(other.id).name);
+	}
+
+	@Test
+	public void testDelete() throws Exception {
+		Dao<Child, Integer> childDao = createDao(Child.class, true);
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		assertEquals(1, parentDao.create(parent));
+		Child child = new Child();
+		child.parent = parent;
+		assertEquals(1, childDao.create(child));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		unitOfWork.registerDeleted(parent);
+		unitOfWork.registerDeleted(child);
+		Parent notCreated = new Parent();
+		unitOfWork.registerNew(notCreated);
+		unitOfWork.registerDeleted(notCreated);
+		assertEquals(2, unitOfWork.flush());
+		assertEquals(0, parentDao.countOf());
+		assertEquals(0, childDao.countOf());
+		assertNull(unitOfWork.queryForId(Parent.class, parent.id));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testDifferentObjectSameId() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		assertNotNull(unitOfWork.queryForId(Parent.class, parent.id));
+		unitOfWork.registerDirty(parent);
+	}
+
+	@Test
+	public void testFlushFailure() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		Parent first = new Parent();
+		unitOfWork.registerNew(first);
+		Parent duplicate = new Parent();
+		duplicate.id = parent.id;
+		unitOfWork.registerNew(duplicate);
+		try {
+			unitOfWork.flush();
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+		// the whole flush was rolled back
+		assertEquals(1, parentDao.countOf());
+		// and the id generated for the rolled back insert was reset
+		assertEquals(0, first.id);
+		assertEquals(parent.id, duplicate.id);
+
+		// now the flush can be retried
+		unitOfWork.registerDeleted(duplicate);
+		assertEquals(1, unitOfWork.flush());
+		assertEquals(2, parentDao.countOf());
+		Parent result = parentDao.queryForId(first.id);
+		assertNotNull(result);
+		assertSame(first, unitOfWork.queryForId(Parent.class, first.id));
+	}
+
+	@Test
+	public void testFlushFailureResetsCache() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		parentDao.setObjectCache(true);
+		Parent parent = new Parent();
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		Parent first = new Parent();
+		first.name = "first";
+		unitOfWork.registerNew(first);
+		Parent duplicate = new Parent();
+		duplicate.id = parent.id;
+		unitOfWork.registerNew(duplicate);
+		try {
+			unitOfWork.flush();
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+		assertEquals(0, first.id);
+		// the rolled back insert that was given the next id is not in the cache
+		assertNull(parentDao.getObjectCache().get(Parent.class, parent.id + 1));
+	}
+
+	@Test
+	public void testUpdateOnlyChangedFields() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		parent.name = "before";
+		parent.other = "before";
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		Parent result = unitOfWork.queryForId(Parent.class, parent.id);
+		result.name = "after";
+		// changed in the database behind the unit of work's back
+		UpdateBuilder<Parent, Integer> ub = parentDao.updateBuilder();
+		ub.updateColumnValue(Parent.OTHER_COLUMN_NAME, "database");
+		assertEquals(1, ub.update());
+
+		assertEquals(1, unitOfWork.flush());
+		Parent fromDb = parentDao.queryForId(parent.id);
+		assertEquals("after", fromDb.name);
+		// the unchanged field was not written over
+		assertEquals("database", fromDb.other);
+	}
+
+	@Test
+	public void testUpdateOfDeletedRow() throws Exception {
+		Dao<Parent, Integer> parentDao = createDao(Parent.class, true);
+		Parent parent = new Parent();
+		parent.name = "before";
+		assertEquals(1, parentDao.create(parent));
+
+		UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+		Parent result = unitOfWork.queryForId(Parent.class, parent.id);
+		result.name = "after";
+		unitOfWork.registerNew(new Parent());
+		assertEquals(1, parentDao.deleteById(parent.id));
+		try {
+			unitOfWork.flush();
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+		// the create was rolled back with the update
+		assertEquals(0, parentDao.countOf());
+	}
+
+	protected static class Parent {
+		public static final String OTHER_COLUMN_NAME = "other";
+		@DatabaseField(generatedId = true, allowGeneratedIdInsert = true)
+		int id;
+		@DatabaseField
+		String name;
+		@DatabaseField(columnName = OTHER_COLUMN_NAME)
+		String other;
+		public Parent() {
+		}
+	}
+
+	protected static class Child {
+		@DatabaseField(generatedId = true)
+		int id;
+		@DatabaseField(foreign = true)
+		Parent parent;
+		public Child() {
+		}
+	}
+}
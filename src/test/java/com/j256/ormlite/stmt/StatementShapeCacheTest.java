@@ -0,0 +1,181 @@
+package com.j256.ormlite.stmt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.Dao;
+
+public class StatementShapeCacheTest extends BaseCoreTest {
+
+	@Test
+	public void testSameShape() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		assertSame(cache, dao.getStatementShapeCache());
+		createFoos(dao, 3);
+
+		for (int i = 0; i < 3; i++) {
+			QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+			qb.where().eq(Foo.VAL_COLUMN_NAME, i);
+			PreparedQuery<Foo> query = qb.prepare();
+			// the value is an argument so the SQL is the same
+			assertTrue(query.getStatement().contains("?"));
+			List<Foo> results = dao.query(query);
+			assertEquals(1, results.size());
+			assertEquals(i, results.get(0).val);
+		}
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testDifferentShapes() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		createFoos(dao, 3);
+
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, 1);
+		assertEquals(1, qb.query().size());
+		qb.where().gt(Foo.VAL_COLUMN_NAME, 0);
+		assertEquals(2, qb.query().size());
+		qb.orderBy(Foo.VAL_COLUMN_NAME, false);
+		List<Foo> results = qb.query();
+		assertEquals(2, results.get(0).val);
+		qb.limit(1L);
+		assertEquals(1, qb.query().size());
+		assertEquals(4, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+
+		// same as the first
+		qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, 2);
+		assertEquals(2, qb.query().get(0).val);
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testIn() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		createFoos(dao, 4);
+
+		assertEquals(2, queryIn(dao, 0, 1).size());
+		assertEquals(2, queryIn(dao, 2, 3).size());
+		assertEquals(1, cache.getHitCount());
+		// different number of values is a different shape
+		assertEquals(3, queryIn(dao, 0, 1, 2).size());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testNesting() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		createFoos(dao, 3);
+
+		// (val = 0 AND val = 1) OR val = 2
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		Where<Foo, Integer> where = qb.where();
+		where.or(where.and(where.eq(Foo.VAL_COLUMN_NAME, 0), where.eq(Foo.VAL_COLUMN_NAME, 1)),
+				where.eq(Foo.VAL_COLUMN_NAME, 2));
+		assertEquals(1, qb.query().size());
+
+		// val = 0 AND (val = 1 OR val = 2)
+		qb = dao.queryBuilder();
+		where = qb.where();
+		where.and(where.eq(Foo.VAL_COLUMN_NAME, 0),
+				where.or(where.eq(Foo.VAL_COLUMN_NAME, 1), where.eq(Foo.VAL_COLUMN_NAME, 2)));
+		assertEquals(0, qb.query().size());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testSubQueryNotCached() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		createFoos(dao, 2);
+
+		QueryBuilder<Foo, Integer> innerQb = dao.queryBuilder();
+		innerQb.selectColumns(Foo.ID_COLUMN_NAME);
+		innerQb.where().eq(Foo.VAL_COLUMN_NAME, 1);
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().in(Foo.ID_COLUMN_NAME, innerQb);
+		assertEquals(1, qb.query().size());
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+	}
+
+	@Test
+	public void testDaoMethods() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(10);
+		dao.setStatementShapeCache(cache);
+		createFoos(dao, 3);
+
+		assertEquals(1, dao.queryForEq(Foo.VAL_COLUMN_NAME, 1).size());
+		assertEquals(1, dao.queryForEq(Foo.VAL_COLUMN_NAME, 2).size());
+		assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void testNotCached() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, 1234);
+		// without the cache the value is in the SQL
+		String statement = qb.prepareStatementString();
+		assertTrue(statement.contains("1234"));
+		assertFalse(statement.contains("?"));
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		Dao<Foo, Integer> dao = createDao(Foo.class, true);
+		StatementShapeCache cache = new StatementShapeCache(1);
+		dao.setStatementShapeCache(cache);
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().eq(Foo.VAL_COLUMN_NAME, 1);
+		qb.prepare();
+		qb.where().ne(Foo.VAL_COLUMN_NAME, 1);
+		qb.prepare();
+		assertEquals(1, cache.size());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroCapacity() {
+		new StatementShapeCache(0);
+	}
+
+	private void createFoos(Dao<Foo, Integer> dao, int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			Foo foo = new Foo();
+			foo.val = i;
+			assertEquals(1, dao.create(foo));
+		}
+	}
+
+	private List<Foo> queryIn(Dao<Foo, Integer> dao, Integer... values) throws Exception {
+		QueryBuilder<Foo, Integer> qb = dao.queryBuilder();
+		qb.where().in(Foo.VAL_COLUMN_NAME, Arrays.asList(values));
+		return qb.query();
+	}
+}
@@ -1,6 +1,8 @@
 package com.j256.ormlite.stmt.mapped;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -9,10 +11,16 @@ import java.util.List;
 import org.junit.Test;
 
 import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.h2.H2ConnectionSource;
 import com.j256.ormlite.stmt.ArgumentHolder;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
 import com.j256.ormlite.stmt.StatementBuilder.StatementType;
 import com.j256.ormlite.support.CompiledStatement;
 import com.j256.ormlite.support.DatabaseConnection;
@@ -102,6 +110,102 @@ public class MappedPreparedQueryTest extends BaseCoreTest {
 		}
 	}
 
+	@Test
+	public void testWithArguments() throws Exception {
+		Dao<LocalFoo, Object> fooDao = createDao(LocalFoo.class, true);
+		for (int i = 0; i < 3; i++) {
+			LocalFoo foo = new LocalFoo();
+			foo.stuff = "stuff" + i;
+			assertEquals(1, fooDao.create(foo));
+		}
+		QueryBuilder<LocalFoo, Object> qb = fooDao.queryBuilder();
+		qb.where().eq("stuff", new SelectArg());
+		PreparedQuery<LocalFoo> preparedQuery = qb.prepare();
+
+		for (int i = 0; i < 3; i++) {
+			List<LocalFoo> results = fooDao.query(preparedQuery, "stuff" + i);
+			assertEquals(1, results.size());
+			assertEquals("stuff" + i, results.get(0).stuff);
+			assertEquals("stuff" + i, fooDao.queryForFirst(preparedQuery, "stuff" + i).stuff);
+		}
+		assertNull(fooDao.queryForFirst(preparedQuery, "unknown"));
+		CloseableIterator<LocalFoo> iterator =
+				fooDao.iterator(preparedQuery, DatabaseConnection.DEFAULT_RESULT_FLAGS, "stuff1");
+		try {
+			assertEquals("stuff1", iterator.next().stuff);
+			assertFalse(iterator.hasNext());
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Test
+	public void testWithArgumentsThreads() throws Exception {
+		Dao<LocalFoo, Object> createDao = createDao(LocalFoo.class, true);
+		final int numThreads = 4;
+		for (int i = 0; i < numThreads; i++) {
+			LocalFoo foo = new LocalFoo();
+			foo.stuff = "stuff" + i;
+			assertEquals(1, createDao.create(foo));
+		}
+		// the wrapped connection source does not track connections across threads
+		H2ConnectionSource threadConnectionSource = new H2ConnectionSource();
+		final Dao<LocalFoo, Object> fooDao = DaoManager.createDao(threadConnectionSource, LocalFoo.class);
+		QueryBuilder<LocalFoo, Object> qb = fooDao.queryBuilder();
+		qb.where().eq("stuff", new SelectArg());
+		final PreparedQuery<LocalFoo> preparedQuery = qb.prepare();
+
+		final List<Throwable> failures = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[numThreads];
+		for (int i = 0; i < numThreads; i++) {
+			final String stuff = "stuff" + i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int j = 0; j < 100; j++) {
+							List<LocalFoo> results = fooDao.query(preparedQuery, stuff);
+							assertEquals(1, results.size());
+							assertEquals(stuff, results.get(0).stuff);
+						}
+					} catch (Throwable th) {
+						synchronized (failures) {
+							failures.add(th);
+						}
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		threadConnectionSource.close();
+		assertEquals(new ArrayList<Throwable>(), failures);
+	}
+
+	@Test
+	public void testWithArgumentsTemplateUnchanged() throws Exception {
+		Dao<LocalFoo, Object> fooDao = createDao(LocalFoo.class, true);
+		LocalFoo foo = new LocalFoo();
+		foo.stuff = "stuff";
+		assertEquals(1, fooDao.create(foo));
+		QueryBuilder<LocalFoo, Object> qb = fooDao.queryBuilder();
+		SelectArg arg = new SelectArg();
+		qb.where().eq("stuff", arg);
+		PreparedQuery<LocalFoo> preparedQuery = qb.prepare();
+		assertEquals(1, fooDao.query(preparedQuery, "stuff").size());
+		arg.setValue("other");
+		assertEquals(0, fooDao.query(preparedQuery).size());
+	}
+
+	@Test(expected = SQLException.class)
+	public void testWithArgumentsWrongCount() throws Exception {
+		Dao<LocalFoo, Object> fooDao = createDao(LocalFoo.class, true);
+		QueryBuilder<LocalFoo, Object> qb = fooDao.queryBuilder();
+		qb.where().eq("stuff", new SelectArg());
+		fooDao.query(qb.prepare(), "stuff", "extra");
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void testObjectNoConstructor() throws SQLException {
 		new MappedPreparedStmt<NoConstructor, Void>(new TableInfo<NoConstructor, Void>(connectionSource, null,
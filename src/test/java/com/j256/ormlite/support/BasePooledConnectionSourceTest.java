@@ -0,0 +1,223 @@
+package com.j256.ormlite.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.h2.H2DatabaseConnection;
+import com.j256.ormlite.h2.H2DatabaseType;
+import com.j256.ormlite.table.TableUtils;
+
+public class BasePooledConnectionSourceTest extends BaseCoreTest {
+
+	private H2PooledConnectionSource pooledSource;
+
+	@Override
+	@Before
+	public void before() throws Exception {
+		super.before();
+		pooledSource = new H2PooledConnectionSource();
+	}
+
+	@Override
+	@After
+	public void after() throws Exception {
+		pooledSource.close();
+		super.after();
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		DatabaseConnection conn1 = pooledSource.getReadWriteConnection();
+		assertEquals(1, pooledSource.getActiveCount());
+		assertEquals(0, pooledSource.getIdleCount());
+		pooledSource.releaseConnection(conn1);
+		assertEquals(0, pooledSource.getActiveCount());
+		assertEquals(1, pooledSource.getIdleCount());
+		DatabaseConnection conn2 = pooledSource.getReadOnlyConnection();
+		assertSame(conn1, conn2);
+		DatabaseConnection conn3 = pooledSource.getReadOnlyConnection();
+		assertNotSame(conn1, conn3);
+		assertEquals(2, pooledSource.getOpenCount());
+		assertEquals(2, pooledSource.getCreateCount());
+		assertEquals(3, pooledSource.getAcquireCount());
+		pooledSource.releaseConnection(conn2);
+		pooledSource.releaseConnection(conn3);
+		assertEquals(2, pooledSource.getIdleCount());
+		// the last one released is the next one gotten
+		assertSame(conn3, pooledSource.getReadWriteConnection());
+	}
+
+	@Test
+	public void testDao() throws Exception {
+		TableUtils.createTable(pooledSource, Foo.class);
+		try {
+			Dao<Foo, Integer> dao = DaoManager.createDao(pooledSource, Foo.class);
+			Foo foo = new Foo();
+			foo.val = 12;
+			assertEquals(1, dao.create(foo));
+			assertEquals(12, dao.queryForId(foo.id).val);
+			assertEquals(1, dao.countOf());
+			assertEquals(0, pooledSource.getActiveCount());
+			assertEquals(1, pooledSource.getOpenCount());
+		} finally {
+			TableUtils.dropTable(pooledSource, Foo.class, true);
+		}
+	}
+
+	@Test
+	public void testAcquireTimeout() throws Exception {
+		pooledSource.setMaxConnections(1);
+		pooledSource.setAcquireTimeoutMillis(10);
+		DatabaseConnection conn = pooledSource.getReadWriteConnection();
+		try {
+			pooledSource.getReadWriteConnection();
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+		assertEquals(1, pooledSource.getTimeoutCount());
+		assertTrue(pooledSource.getMaxWaitMillis() >= 10);
+		assertTrue(pooledSource.getTotalWaitMillis() >= pooledSource.getMaxWaitMillis());
+		pooledSource.releaseConnection(conn);
+		assertSame(conn, pooledSource.getReadWriteConnection());
+	}
+
+	@Test
+	public void testWaitForRelease() throws Exception {
+		pooledSource.setMaxConnections(1);
+		final DatabaseConnection conn = pooledSource.getReadWriteConnection();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					Thread.sleep(50);
+					pooledSource.releaseConnection(conn);
+				} catch (Exception e) {
+					// ignored
+				}
+			}
+		});
+		thread.start();
+		assertSame(conn, pooledSource.getReadWriteConnection());
+		thread.join();
+		assertEquals(0, pooledSource.getTimeoutCount());
+	}
+
+	@Test
+	public void testSpecialConnection() throws Exception {
+		DatabaseConnection conn = pooledSource.getReadWriteConnection();
+		assertTrue(pooledSource.saveSpecialConnection(conn));
+		assertSame(conn, pooledSource.getSpecialConnection());
+		assertSame(conn, pooledSource.getReadOnlyConnection());
+		// ignored since it is saved
+		pooledSource.releaseConnection(conn);
+		assertEquals(1, pooledSource.getActiveCount());
+		pooledSource.clearSpecialConnection(conn);
+		pooledSource.releaseConnection(conn);
+		assertEquals(0, pooledSource.getActiveCount());
+		assertEquals(1, pooledSource.getIdleCount());
+	}
+
+	@Test
+	public void testTestBeforeGet() throws Exception {
+		DatabaseConnection conn1 = pooledSource.getReadWriteConnection();
+		pooledSource.releaseConnection(conn1);
+		conn1.close();
+		DatabaseConnection conn2 = pooledSource.getReadWriteConnection();
+		assertNotSame(conn1, conn2);
+		assertEquals(1, pooledSource.getTestFailedCount());
+		assertEquals(1, pooledSource.getOpenCount());
+		pooledSource.releaseConnection(conn2);
+	}
+
+	@Test
+	public void testClosedOnRelease() throws Exception {
+		DatabaseConnection conn = pooledSource.getReadWriteConnection();
+		conn.close();
+		pooledSource.releaseConnection(conn);
+		assertEquals(0, pooledSource.getIdleCount());
+		assertEquals(0, pooledSource.getOpenCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		pooledSource.setMinConnections(1);
+		pooledSource.setMaxIdleMillis(0);
+		pooledSource.initialize();
+		assertEquals(1, pooledSource.getIdleCount());
+		DatabaseConnection conn1 = pooledSource.getReadWriteConnection();
+		DatabaseConnection conn2 = pooledSource.getReadWriteConnection();
+		pooledSource.releaseConnection(conn1);
+		pooledSource.releaseConnection(conn2);
+		assertEquals(2, pooledSource.getIdleCount());
+		Thread.sleep(5);
+		pooledSource.evictIdleConnections();
+		// the min connection is kept open
+		assertEquals(1, pooledSource.getIdleCount());
+		assertEquals(1, pooledSource.getOpenCount());
+		assertEquals(1, pooledSource.getCloseCount());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		DatabaseConnection conn1 = pooledSource.getReadWriteConnection();
+		DatabaseConnection conn2 = pooledSource.getReadWriteConnection();
+		pooledSource.releaseConnection(conn1);
+		pooledSource.close();
+		assertFalse(pooledSource.isOpen());
+		assertTrue(conn1.isClosed());
+		assertFalse(conn2.isClosed());
+		pooledSource.releaseConnection(conn2);
+		assertTrue(conn2.isClosed());
+		assertEquals(0, pooledSource.getOpenCount());
+		try {
+			pooledSource.getReadWriteConnection();
+			fail("Should have thrown");
+		} catch (SQLException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMinMoreThanMax() throws Exception {
+		pooledSource.setMaxConnections(1);
+		pooledSource.setMinConnections(2);
+		pooledSource.initialize();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroMaxConnections() {
+		pooledSource.setMaxConnections(0);
+	}
+
+	private static class H2PooledConnectionSource extends BasePooledConnectionSource {
+		private final DatabaseType databaseType = new H2DatabaseType();
+
+		public H2PooledConnectionSource() throws SQLException {
+			databaseType.loadDriver();
+		}
+
+		@Override
+		protected DatabaseConnection makeConnection() throws SQLException {
+			return new H2DatabaseConnection(DriverManager.getConnection(H2DatabaseType.DATABASE_URL));
+		}
+
+		public DatabaseType getDatabaseType() {
+			return databaseType;
+		}
+	}
+}
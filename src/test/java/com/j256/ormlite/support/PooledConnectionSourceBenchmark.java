@@ -0,0 +1,128 @@
+package com.j256.ormlite.support;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.h2.H2DatabaseConnection;
+import com.j256.ormlite.h2.H2DatabaseType;
+
+/**
+ * Multi-threaded throughput benchmark of the {@link BasePooledConnectionSource} against the single connection H2 test
+ * source. This is not run as part of the tests. Run the main method with optional arguments of the number of threads
+ * and the seconds to run each source.
+ * 
+ * <p>
+ * Each thread gets a connection, runs the ping statement, and releases it which is the connection overhead of each
+ * DAO call.
+ * </p>
+ * 
+ * @author graywatson
+ */
+public class PooledConnectionSourceBenchmark {
+
+	private static final int WARMUP_SECONDS = 1;
+
+	public static void main(String[] args) throws Exception {
+		int threadCount = 8;
+		int seconds = 5;
+		if (args.length > 0) {
+			threadCount = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			seconds = Integer.parseInt(args[1]);
+		}
+		System.out.println("threads = " + threadCount);
+		for (int i = 0; i < 2; i++) {
+			// the first run is to warm up the JIT
+			int runSeconds = (i == 0 ? WARMUP_SECONDS : seconds);
+			H2ConnectionSource h2Source = new H2ConnectionSource();
+			run(h2Source, threadCount, runSeconds, i > 0);
+			h2Source.close();
+			H2PooledConnectionSource pooledSource = new H2PooledConnectionSource();
+			pooledSource.setMaxConnections(threadCount);
+			// the ping is what we are running so don't do it twice
+			pooledSource.setTestBeforeGet(false);
+			run(pooledSource, threadCount, runSeconds, i > 0);
+			if (i > 0) {
+				System.out.printf("%-28s total wait %,d ms, max wait %,d ms, created %d%n", "", pooledSource
+						.getTotalWaitMillis(), pooledSource.getMaxWaitMillis(), pooledSource.getCreateCount());
+			}
+			pooledSource.close();
+		}
+	}
+
+	private static void run(final ConnectionSource connectionSource, int threadCount, int seconds, boolean print)
+			throws Exception {
+		final String pingStatement = connectionSource.getDatabaseType().getPingStatement();
+		final AtomicLong opCount = new AtomicLong();
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final long[] stopMillis = new long[1];
+		List<Thread> threads = new ArrayList<Thread>(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						startLatch.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					long ops = 0;
+					try {
+						while (true) {
+							// check the time every so often
+							if ((ops & 0xFF) == 0 && System.currentTimeMillis() >= stopMillis[0]) {
+								break;
+							}
+							DatabaseConnection connection = connectionSource.getReadWriteConnection();
+							try {
+								connection.queryForLong(pingStatement);
+							} finally {
+								connectionSource.releaseConnection(connection);
+							}
+							ops++;
+						}
+					} catch (SQLException e) {
+						e.printStackTrace();
+					}
+					opCount.addAndGet(ops);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		long startMillis = System.currentTimeMillis();
+		stopMillis[0] = startMillis + seconds * 1000L;
+		startLatch.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsedMillis = System.currentTimeMillis() - startMillis;
+		if (print) {
+			System.out.printf("%-28s %,14d ops/sec%n", connectionSource.getClass().getSimpleName(), opCount.get()
+					* 1000 / elapsedMillis);
+		}
+	}
+
+	private static class H2PooledConnectionSource extends BasePooledConnectionSource {
+		private final DatabaseType databaseType = new H2DatabaseType();
+
+		public H2PooledConnectionSource() throws SQLException {
+			databaseType.loadDriver();
+		}
+
+		@Override
+		protected DatabaseConnection makeConnection() throws SQLException {
+			return new H2DatabaseConnection(DriverManager.getConnection(H2DatabaseType.DATABASE_URL));
+		}
+
+		public DatabaseType getDatabaseType() {
+			return databaseType;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.j256.ormlite.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ReadWriteRoutingConnectionSource.BalanceStrategy;
+import com.j256.ormlite.table.TableUtils;
+
+public class ReadWriteRoutingConnectionSourceTest extends BaseCoreTest {
+
+	private H2ConnectionSource primary;
+	private H2ConnectionSource replica1;
+	private H2ConnectionSource replica2;
+	private ReadWriteRoutingConnectionSource routingSource;
+
+	@Override
+	@Before
+	public void before() throws Exception {
+		super.before();
+		primary = new SavingH2ConnectionSource();
+		replica1 = new H2ConnectionSource();
+		replica2 = new H2ConnectionSource();
+		routingSource = new ReadWriteRoutingConnectionSource(primary, replica1, replica2);
+		TableUtils.createTable(routingSource, Foo.class);
+	}
+
+	@Override
+	@After
+	public void after() throws Exception {
+		TableUtils.dropTable(routingSource, Foo.class, true);
+		routingSource.close();
+		super.after();
+	}
+
+	@Test
+	public void testDao() throws Exception {
+		Dao<Foo, Integer> dao = DaoManager.createDao(routingSource, Foo.class);
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, dao.create(foo));
+		long primaryReadCount = routingSource.getPrimaryReadCount();
+		assertEquals(1, dao.queryForId(foo.id).val);
+		assertEquals(1, dao.queryForAll().size());
+		assertEquals(primaryReadCount, routingSource.getPrimaryReadCount());
+		assertEquals(2, routingSource.getReplicaReadCount(replica1) + routingSource.getReplicaReadCount(replica2));
+		assertEquals(-1, routingSource.getReplicaReadCount(primary));
+	}
+
+	@Test
+	public void testLeastOutstanding() throws Exception {
+		DatabaseConnection conn1 = routingSource.getReadOnlyConnection();
+		DatabaseConnection conn2 = routingSource.getReadOnlyConnection();
+		assertSame(replica1.getReadOnlyConnection(), conn1);
+		assertSame(replica2.getReadOnlyConnection(), conn2);
+		routingSource.releaseConnection(conn2);
+		// replica2 has none outstanding now
+		assertSame(conn2, routingSource.getReadOnlyConnection());
+		routingSource.releaseConnection(conn2);
+		routingSource.releaseConnection(conn1);
+		assertEquals(0, routingSource.getPrimaryReadCount());
+	}
+
+	@Test
+	public void testWeightedRoundRobin() throws Exception {
+		H2ConnectionSource replica3 = new H2ConnectionSource();
+		routingSource.addReplica(replica3, 2);
+		routingSource.setBalanceStrategy(BalanceStrategy.WEIGHTED_ROUND_ROBIN);
+		assertEquals(BalanceStrategy.WEIGHTED_ROUND_ROBIN, routingSource.getBalanceStrategy());
+		for (int i = 0; i < 8; i++) {
+			routingSource.releaseConnection(routingSource.getReadOnlyConnection());
+		}
+		assertEquals(2, routingSource.getReplicaReadCount(replica1));
+		assertEquals(2, routingSource.getReplicaReadCount(replica2));
+		assertEquals(4, routingSource.getReplicaReadCount(replica3));
+	}
+
+	@Test
+	public void testSameConnectionTwice() throws Exception {
+		routingSource.setBalanceStrategy(BalanceStrategy.WEIGHTED_ROUND_ROBIN);
+		DatabaseConnection conn1 = routingSource.getReadOnlyConnection();
+		routingSource.getReadOnlyConnection();
+		// back to replica1 which has a single connection
+		DatabaseConnection conn3 = routingSource.getReadOnlyConnection();
+		assertSame(conn1, conn3);
+		routingSource.releaseConnection(conn1);
+		routingSource.releaseConnection(conn3);
+		assertEquals(2, routingSource.getReplicaReadCount(replica1));
+	}
+
+	@Test
+	public void testTransactionUsesPrimary() throws Exception {
+		final Dao<Foo, Integer> dao = DaoManager.createDao(routingSource, Foo.class);
+		Foo foo = new Foo();
+		assertEquals(1, dao.create(foo));
+		long primaryReadCount = routingSource.getPrimaryReadCount();
+		TransactionManager.callInTransaction(routingSource, new Callable<Void>() {
+			public Void call() throws SQLException {
+				dao.queryForAll();
+				return null;
+			}
+		});
+		assertEquals(primaryReadCount + 1, routingSource.getPrimaryReadCount());
+	}
+
+	@Test
+	public void testReadYourWrites() throws Exception {
+		routingSource.setReadYourWritesMillis(60 * 1000);
+		// no writes yet
+		routingSource.releaseConnection(routingSource.getReadOnlyConnection());
+		assertEquals(0, routingSource.getPrimaryReadCount());
+		routingSource.releaseConnection(routingSource.getReadWriteConnection());
+		DatabaseConnection conn = routingSource.getReadOnlyConnection();
+		assertSame(primary.getReadOnlyConnection(), conn);
+		routingSource.releaseConnection(conn);
+		assertEquals(1, routingSource.getPrimaryReadCount());
+
+		routingSource.setReadYourWritesMillis(1);
+		Thread.sleep(5);
+		routingSource.releaseConnection(routingSource.getReadOnlyConnection());
+		assertEquals(1, routingSource.getPrimaryReadCount());
+	}
+
+	@Test
+	public void testNoReplicas() throws Exception {
+		ReadWriteRoutingConnectionSource source = new ReadWriteRoutingConnectionSource(primary);
+		DatabaseConnection conn = source.getReadOnlyConnection();
+		assertSame(primary.getReadWriteConnection(), conn);
+		source.releaseConnection(conn);
+		assertEquals(1, source.getPrimaryReadCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroWeight() {
+		routingSource.addReplica(replica1, 0);
+	}
+
+	/**
+	 * The H2 source doesn't save connections so it is done here to test the transactions.
+	 */
+	private static class SavingH2ConnectionSource extends H2ConnectionSource {
+		private DatabaseConnection savedConnection;
+
+		public SavingH2ConnectionSource() throws SQLException {
+			super();
+		}
+
+		@Override
+		public boolean saveSpecialConnection(DatabaseConnection connection) {
+			savedConnection = connection;
+			return true;
+		}
+
+		@Override
+		public void clearSpecialConnection(DatabaseConnection connection) {
+			savedConnection = null;
+		}
+
+		@Override
+		public DatabaseConnection getSpecialConnection() {
+			return savedConnection;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package com.j256.ormlite.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.j256.ormlite.BaseCoreTest;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.h2.H2ConnectionSource;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.table.TableUtils;
+
+public class StatementCachingConnectionSourceTest extends BaseCoreTest {
+
+	private StatementCachingConnectionSource cachingSource;
+
+	@Override
+	@Before
+	public void before() throws Exception {
+		super.before();
+		// the wrapped test connection source complains about statements that are left open so we use H2 directly
+		cachingSource = new StatementCachingConnectionSource(new H2ConnectionSource(), 2);
+		TableUtils.createTable(cachingSource, Foo.class);
+	}
+
+	@Override
+	@After
+	public void after() throws Exception {
+		TableUtils.dropTable(cachingSource, Foo.class, true);
+		cachingSource.close();
+		super.after();
+	}
+
+	@Test
+	public void testDao() throws Exception {
+		Dao<Foo, Integer> dao = DaoManager.createDao(cachingSource, Foo.class);
+		Foo foo = new Foo();
+		foo.val = 1;
+		assertEquals(1, dao.create(foo));
+		long missCount = cachingSource.getMissCount();
+
+		for (int i = 0; i < 3; i++) {
+			Foo result = dao.queryForId(foo.id);
+			assertNotNull(result);
+			assertEquals(1, result.val);
+		}
+		// the first one compiles the statement and the others reuse it
+		assertEquals(missCount + 1, cachingSource.getMissCount());
+		assertEquals(2, cachingSource.getHitCount());
+
+		foo.val = 2;
+		assertEquals(1, dao.update(foo));
+		assertEquals(2, dao.queryForId(foo.id).val);
+		assertEquals(1, dao.queryForAll().size());
+		assertEquals(1, dao.countOf());
+		assertEquals(1, dao.delete(foo));
+		assertNull(dao.queryForId(foo.id));
+		assertEquals(0, dao.countOf());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		DatabaseConnection connection = cachingSource.getReadWriteConnection();
+		try {
+			connection.queryForLong("SELECT COUNT(*) FROM foo");
+			connection.queryForLong("SELECT COUNT(*) FROM foo WHERE id > 0");
+			long evictionCount = cachingSource.getEvictionCount();
+			connection.queryForLong("SELECT COUNT(*) FROM foo WHERE id > 1");
+			assertEquals(evictionCount + 1, cachingSource.getEvictionCount());
+			assertEquals(2, ((StatementCachingDatabaseConnection) connection).getCachedStatementCount());
+
+			// the first one was the least recently used so it was closed
+			long hitCount = cachingSource.getHitCount();
+			connection.queryForLong("SELECT COUNT(*) FROM foo");
+			assertEquals(hitCount, cachingSource.getHitCount());
+			connection.queryForLong("SELECT COUNT(*) FROM foo WHERE id > 1");
+			assertEquals(hitCount + 1, cachingSource.getHitCount());
+		} finally {
+			cachingSource.releaseConnection(connection);
+		}
+	}
+
+	@Test
+	public void testSameConnection() throws Exception {
+		DatabaseConnection connection1 = cachingSource.getReadWriteConnection();
+		cachingSource.releaseConnection(connection1);
+		DatabaseConnection connection2 = cachingSource.getReadOnlyConnection();
+		cachingSource.releaseConnection(connection2);
+		assertSame(connection1, connection2);
+	}
+
+	@Test
+	public void testStatementInUse() throws Exception {
+		StatementCachingDatabaseConnection connection =
+				(StatementCachingDatabaseConnection) cachingSource.getReadWriteConnection();
+		try {
+			String sql = "SELECT * FROM foo";
+			long missCount = connection.getMissCount();
+			long hitCount = connection.getHitCount();
+			CompiledStatement stmt1 = connection.compileStatement(sql, StatementType.SELECT, new FieldType[0]);
+			// the first is still in use so a second one is compiled
+			CompiledStatement stmt2 = connection.compileStatement(sql, StatementType.SELECT, new FieldType[0]);
+			assertEquals(missCount + 2, connection.getMissCount());
+			stmt1.close();
+			// closing twice does not return it twice
+			stmt1.close();
+			int cachedCount = connection.getCachedStatementCount();
+			stmt2.close();
+			assertEquals(cachedCount, connection.getCachedStatementCount());
+
+			// different types are cached separately
+			connection.compileStatement(sql, StatementType.SELECT_RAW, new FieldType[0]).close();
+			assertEquals(missCount + 3, connection.getMissCount());
+			connection.compileStatement(sql, StatementType.SELECT, new FieldType[0]).close();
+			assertEquals(hitCount + 1, connection.getHitCount());
+		} finally {
+			cachingSource.releaseConnection(connection);
+		}
+	}
+
+	@Test
+	public void testMaxRowsReset() throws Exception {
+		Dao<Foo, Integer> dao = DaoManager.createDao(cachingSource, Foo.class);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, dao.create(new Foo()));
+		}
+		assertEquals(1, dao.queryBuilder().limit(1L).query().size());
+		assertEquals(3, dao.queryForAll().size());
+	}
+
+	@Test
+	public void testResultsClosed() throws Exception {
+		StatementCachingDatabaseConnection connection =
+				(StatementCachingDatabaseConnection) cachingSource.getReadWriteConnection();
+		try {
+			CompiledStatement stmt =
+					connection.compileStatement("SELECT * FROM foo", StatementType.SELECT, new FieldType[0]);
+			DatabaseResults results = stmt.runQuery(null);
+			stmt.close();
+			try {
+				results.next();
+				fail("should have thrown");
+			} catch (SQLException e) {
+				// expected since the results were closed before the statement was returned
+			}
+		} finally {
+			cachingSource.releaseConnection(connection);
+		}
+	}
+
+	@Test
+	public void testCloseStatements() throws Exception {
+		StatementCachingDatabaseConnection connection =
+				(StatementCachingDatabaseConnection) cachingSource.getReadWriteConnection();
+		try {
+			connection.queryForLong("SELECT COUNT(*) FROM foo");
+			assertTrue(connection.getCachedStatementCount() > 0);
+			long evictionCount = connection.getEvictionCount();
+			CompiledStatement stmt =
+					connection.compileStatement("SELECT * FROM foo", StatementType.SELECT, new FieldType[0]);
+			connection.closeStatements();
+			assertEquals(0, connection.getCachedStatementCount());
+			// returned after the close so it is closed for real
+			stmt.close();
+			assertEquals(0, connection.getCachedStatementCount());
+			assertEquals(evictionCount, connection.getEvictionCount());
+		} finally {
+			cachingSource.releaseConnection(connection);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZeroMaxStatements() throws Exception {
+		new StatementCachingConnectionSource(connectionSource, 0);
+	}
+}
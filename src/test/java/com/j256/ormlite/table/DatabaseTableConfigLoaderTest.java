@@ -1,6 +1,7 @@
 package com.j256.ormlite.table;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
@@ -14,6 +15,7 @@ import java.util.List;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.junit.Test;
 
+import com.j256.ormlite.dao.ObjectCacheOptions;
 import com.j256.ormlite.field.DatabaseFieldConfig;
 import com.j256.ormlite.field.DatabaseFieldConfigLoader;
 import com.j256.ormlite.table.DatabaseTableConfigTest.NoFields;
@@ -85,6 +87,30 @@ public class DatabaseTableConfigLoaderTest {
 		assertEquals(fieldName, fields.get(0).getFieldName());
 	}
 
+	@Test
+	public void testObjectCacheOptions() throws Exception {
+		DatabaseTableConfig<Foo> config = new DatabaseTableConfig<Foo>();
+		config.setDataClass(Foo.class);
+		config.setTableName("foo");
+		config.setObjectCacheOptions(new ObjectCacheOptions(100, 2000, 3000));
+		StringWriter writer = new StringWriter();
+		BufferedWriter buffer = new BufferedWriter(writer);
+		DatabaseTableConfigLoader.write(buffer, config);
+		buffer.flush();
+		String output = writer.toString();
+		assertTrue(output.contains("cacheCapacity=100"));
+		assertTrue(output.contains("cacheExpireAfterWriteMillis=2000"));
+		assertTrue(output.contains("cacheExpireAfterAccessMillis=3000"));
+
+		DatabaseTableConfig<?> readConfig =
+				DatabaseTableConfigLoader.fromReader(new BufferedReader(new StringReader(output)));
+		ObjectCacheOptions options = readConfig.getObjectCacheOptions();
+		assertNotNull(options);
+		assertEquals(100, options.getCapacity());
+		assertEquals(2000, options.getExpireAfterWriteMillis());
+		assertEquals(3000, options.getExpireAfterAccessMillis());
+	}
+
 	@Test(expected = SQLException.class)
 	public void testConfigInvalidLine() throws Exception {
 		StringBuilder value = new StringBuilder();